@@ -0,0 +1,29 @@
+package com.saga.delivery.config;
+
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.contracts.command.CancelDeliveryCommand;
+import com.saga.contracts.event.DeliveryAssignedEvent;
+import com.saga.contracts.event.DeliveryCancelledEvent;
+import com.saga.contracts.event.DeliveryFailedEvent;
+import com.saga.runtime.metrics.ParticipantMetrics;
+import com.saga.runtime.startup.StartupTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * The messages the delivery participant counts and times: the commands it handles and the
+ * events it answers with
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public ParticipantMetrics deliveryMetrics(MeterRegistry meterRegistry, StartupTimer startupTimer) {
+        return new ParticipantMetrics(meterRegistry, startupTimer,
+                List.of(AssignDeliveryCommand.class, CancelDeliveryCommand.class),
+                List.of(DeliveryAssignedEvent.class, DeliveryFailedEvent.class, DeliveryCancelledEvent.class));
+    }
+}
@@ -1,9 +1,10 @@
 package com.saga.delivery.config;
 
+import com.saga.contracts.amqp.SagaMessageConverter;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -52,15 +53,21 @@ public class RabbitMQConfig {
                 .with(ORDER_EVENT_ROUTING_KEY);
     }
 
+    /**
+     * Saga contracts are written and read by the serializers generated in saga-contracts, with
+     * the simple class name as the type id, so a listener dispatches on the actual message type
+     */
     @Bean
-    public Jackson2JsonMessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter() {
+        return new SagaMessageConverter();
     }
 
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(messageConverter());
+        // Propagates trace context (W3C traceparent) in the AMQP headers of every send
+        template.setObservationEnabled(true);
         return template;
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.saga.delivery.config;
+
+import com.saga.delivery.repository.DeliveryRepository;
+import com.saga.delivery.routing.Geocoder;
+import com.saga.delivery.routing.RoutePlanner;
+import com.saga.runtime.startup.WarmupTask;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * What the shared startup warm-up runs on top of message conversion: the listener's repository
+ * lookup, for orders that do not exist, and route planning over a made-up dispatch window
+ */
+@Configuration
+public class WarmupConfig {
+
+    private static final int WINDOW_DROPS = 20;
+
+    @Bean
+    public WarmupTask deliveryLookup(DeliveryRepository deliveryRepository) {
+        return () -> deliveryRepository.findByOrderId(UUID.randomUUID());
+    }
+
+    @Bean
+    public WarmupTask routePlanning(Geocoder geocoder, RoutePlanner routePlanner) {
+        return () -> {
+            List<RoutePlanner.Drop> window = new ArrayList<>();
+            for (int i = 0; i < WINDOW_DROPS; i++) {
+                window.add(routePlanner.drop("warmup-" + i, geocoder.locate((i + 1) + " Warmup Street " + i)));
+            }
+            routePlanner.plan(window);
+        };
+    }
+}
@@ -1,12 +1,17 @@
 package com.saga.delivery.controller;
 
 import com.saga.delivery.domain.Delivery;
+import com.saga.delivery.dto.DriverPosition;
+import com.saga.delivery.routing.EtaEngine;
+import com.saga.delivery.routing.Location;
 import com.saga.delivery.service.DeliveryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/delivery")
 @RequiredArgsConstructor
@@ -14,17 +19,39 @@ import org.springframework.web.bind.annotation.*;
 public class DeliveryController {
 
     private final DeliveryService deliveryService;
+    private final EtaEngine etaEngine;
 
     /**
      * Get delivery by order ID
      */
     @GetMapping("/order/{orderId}")
-    public ResponseEntity<Delivery> getDeliveryByOrderId(@PathVariable String orderId) {
+    public ResponseEntity<Delivery> getDeliveryByOrderId(@PathVariable UUID orderId) {
         return deliveryService.getDeliveryByOrderId(orderId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Get the live ETA of an order's delivery
+     */
+    @GetMapping("/order/{orderId}/eta")
+    public ResponseEntity<EtaEngine.Eta> getEta(@PathVariable UUID orderId) {
+        return etaEngine.eta(orderId.toString())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Report a driver's position, updating the ETAs of the stops left on its route
+     */
+    @PutMapping("/drivers/{driverId}/position")
+    public ResponseEntity<Void> updateDriverPosition(@PathVariable String driverId,
+                                                     @RequestBody DriverPosition position) {
+        boolean onRoute = etaEngine.driverMoved(driverId, new Location(position.x(), position.y()),
+                System.currentTimeMillis());
+        return onRoute ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
     /**
      * Get all deliveries
      */
@@ -1,11 +1,15 @@
 package com.saga.delivery.domain;
 
+import com.saga.runtime.id.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Table(name = "deliveries")
@@ -15,11 +19,14 @@ import java.time.LocalDateTime;
 public class Delivery {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private String id;
+    @TimeOrderedId
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID id;
 
-    @Column(nullable = false, unique = true)
-    private String orderId;
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(nullable = false, unique = true, length = 16)
+    private UUID orderId;
 
     @Column(nullable = false)
     private String deliveryAddress;
@@ -35,6 +42,15 @@ public class Delivery {
 
     private String driverId;
 
+    /** Multi-drop route the order was dispatched on, shared by the orders on it */
+    private String routeId;
+
+    /** Position of the order on its route, from 1 */
+    private Integer routeStop;
+
+    /** ETA at the customer when the driver was assigned; live ETAs come from the ETA engine */
+    private LocalDateTime estimatedDeliveryAt;
+
     private String failureReason;
 
     @PrePersist
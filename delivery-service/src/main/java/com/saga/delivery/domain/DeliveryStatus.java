@@ -3,5 +3,6 @@ package com.saga.delivery.domain;
 public enum DeliveryStatus {
     PENDING,
     ASSIGNED,
-    FAILED
+    FAILED,
+    CANCELLED
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.saga.delivery.dto;
+
+/**
+ * Where a driver is, in kilometres east (x) and north (y) of the delivery area's south-west corner
+ */
+public record DriverPosition(double x, double y) {
+}
@@ -0,0 +1,28 @@
+package com.saga.delivery.fault;
+
+import com.saga.runtime.fault.FaultInjector;
+import com.saga.runtime.fault.FaultRule;
+import com.saga.runtime.fault.FaultType;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Fault injection into the delivery steps. The default rule, from
+ * {@code delivery.failure.simulation.*}, declines driver assignment at the configured rate, with
+ * no latency beyond the dispatch window.
+ */
+@Configuration
+public class FaultConfig {
+
+    @Bean
+    public FaultInjector<FaultStep> faultInjector(MeterRegistry meterRegistry,
+                                                  @Value("${delivery.failure.simulation.enabled:false}") boolean failureSimulationEnabled,
+                                                  @Value("${delivery.failure.simulation.rate:0.15}") double failureRate) {
+        return new FaultInjector<>(FaultStep.class, List.of(new FaultRule<>(FaultStep.ASSIGN, null, null, null,
+                failureSimulationEnabled ? failureRate : 0, FaultType.DECLINE, 0)), meterRegistry);
+    }
+}
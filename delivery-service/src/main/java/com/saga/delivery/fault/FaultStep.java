@@ -0,0 +1,23 @@
+package com.saga.delivery.fault;
+
+import com.saga.runtime.fault.InjectableStep;
+
+/**
+ * Steps of the delivery participant that faults can be injected into
+ */
+public enum FaultStep implements InjectableStep {
+
+    ASSIGN("No drivers available in the area"),
+    CANCEL(null);
+
+    private final String declineReason;
+
+    FaultStep(String declineReason) {
+        this.declineReason = declineReason;
+    }
+
+    @Override
+    public String declineReason() {
+        return declineReason;
+    }
+}
@@ -5,8 +5,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface DeliveryRepository extends JpaRepository<Delivery, String> {
-    Optional<Delivery> findByOrderId(String orderId);
+public interface DeliveryRepository extends JpaRepository<Delivery, UUID> {
+    Optional<Delivery> findByOrderId(UUID orderId);
 }
\ No newline at end of file
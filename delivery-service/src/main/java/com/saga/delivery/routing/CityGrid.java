@@ -0,0 +1,83 @@
+package com.saga.delivery.routing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The delivery area divided into square cells, numbered row by row from the south-west corner.
+ * The kitchen sits at its centre.
+ */
+@Component
+public class CityGrid {
+
+    private final double widthKm;
+    private final double heightKm;
+    private final double cellKm;
+    private final int cols;
+    private final int rows;
+    private final Location kitchen;
+
+    public CityGrid(@Value("${delivery.area.width-km:20}") double widthKm,
+                    @Value("${delivery.area.height-km:20}") double heightKm,
+                    @Value("${delivery.area.cell-km:1}") double cellKm) {
+        this.widthKm = widthKm;
+        this.heightKm = heightKm;
+        this.cellKm = cellKm;
+        this.cols = Math.max(1, (int) Math.ceil(widthKm / cellKm));
+        this.rows = Math.max(1, (int) Math.ceil(heightKm / cellKm));
+        this.kitchen = new Location(widthKm / 2, heightKm / 2);
+    }
+
+    public int cellOf(Location location) {
+        int col = Math.clamp((long) Math.floor(location.x() / cellKm), 0, cols - 1);
+        int row = Math.clamp((long) Math.floor(location.y() / cellKm), 0, rows - 1);
+        return row * cols + col;
+    }
+
+    public Location cellCenter(int cell) {
+        return new Location((col(cell) + 0.5) * cellKm, (row(cell) + 0.5) * cellKm);
+    }
+
+    /**
+     * Chebyshev distance between two cells: 0 for the same cell, 1 for neighbours
+     */
+    public int cellDistance(int a, int b) {
+        return Math.max(Math.abs(col(a) - col(b)), Math.abs(row(a) - row(b)));
+    }
+
+    public int col(int cell) {
+        return cell % cols;
+    }
+
+    public int row(int cell) {
+        return cell / cols;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cells() {
+        return cols * rows;
+    }
+
+    public double cellKm() {
+        return cellKm;
+    }
+
+    public double widthKm() {
+        return widthKm;
+    }
+
+    public double heightKm() {
+        return heightKm;
+    }
+
+    public Location kitchen() {
+        return kitchen;
+    }
+}
@@ -0,0 +1,233 @@
+package com.saga.delivery.routing;
+
+import com.saga.runtime.id.TimeOrderedIdGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Collects orders waiting for a driver and sends them out together on multi-drop routes.
+ * <p>
+ * The first order to arrive opens a window of window-ms; every order arriving until it closes,
+ * up to max-orders, is planned together by the {@link RoutePlanner} and each route gets one
+ * driver from the {@link DriverPool}. Orders on a route for which no driver is free fail. A
+ * longer window finds more orders to share a driver at the cost of assignment latency; a
+ * window of 0 sends orders out as they come, one driver each unless they arrived together.
+ * <ul>
+ *     <li>{@code delivery.dispatch.window.orders} - orders planned per window</li>
+ *     <li>{@code delivery.dispatch.route.stops} - drops per route</li>
+ *     <li>{@code delivery.dispatch.route.distance} - round trip per route, in km</li>
+ *     <li>{@code delivery.dispatch.unassigned} - orders that found no free driver</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class DispatchWindow {
+
+    /**
+     * The route an order was put on
+     *
+     * @param stop                position of the order on the route, from 1
+     * @param estimatedDeliveryAt ETA at the customer, epoch millis
+     */
+    public record Assignment(String driverId, String routeId, int stop, List<RoutePlanner.Drop> route,
+                             double routeKm, long estimatedDeliveryAt) {
+    }
+
+    private record Pending(RoutePlanner.Drop drop, long readyAt, CompletableFuture<Assignment> result) {
+    }
+
+    private final Geocoder geocoder;
+    private final RoutePlanner routePlanner;
+    private final DriverPool driverPool;
+    private final EtaEngine etaEngine;
+    private final long windowNanos;
+    private final int maxOrders;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private final DistributionSummary windowOrders;
+    private final DistributionSummary routeStops;
+    private final DistributionSummary routeDistance;
+    private final Counter unassigned;
+
+    public DispatchWindow(Geocoder geocoder,
+                          RoutePlanner routePlanner,
+                          DriverPool driverPool,
+                          EtaEngine etaEngine,
+                          MeterRegistry meterRegistry,
+                          @Value("${delivery.dispatch.window-ms:1500}") long windowMillis,
+                          @Value("${delivery.dispatch.max-orders:200}") int maxOrders) {
+        this.geocoder = geocoder;
+        this.routePlanner = routePlanner;
+        this.driverPool = driverPool;
+        this.etaEngine = etaEngine;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxOrders = Math.max(1, maxOrders);
+        this.dispatcher = new Thread(this::dispatch, "delivery-dispatcher");
+        this.dispatcher.setDaemon(true);
+
+        this.windowOrders = DistributionSummary.builder("delivery.dispatch.window.orders")
+                .description("Orders planned together in one dispatch window")
+                .register(meterRegistry);
+        this.routeStops = DistributionSummary.builder("delivery.dispatch.route.stops")
+                .description("Drops per driver route")
+                .register(meterRegistry);
+        this.routeDistance = DistributionSummary.builder("delivery.dispatch.route.distance")
+                .description("Round trip from the kitchen per driver route")
+                .baseUnit("km")
+                .register(meterRegistry);
+        this.unassigned = Counter.builder("delivery.dispatch.unassigned")
+                .description("Orders that found no free driver")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new IllegalStateException("Dispatcher stopped"));
+        }
+    }
+
+    /**
+     * Queue an order for the current dispatch window; the future completes with its route, or
+     * exceptionally with {@link NoDriverAvailableException}. An order whose future was completed
+     * before its window closed, by a timeout for instance, is left out of the window.
+     *
+     * @param kitchenQueuePosition orders ahead of it in the kitchen, null if its pizza is ready
+     */
+    public CompletableFuture<Assignment> assign(String orderId, String deliveryAddress, Integer kitchenQueuePosition) {
+        CompletableFuture<Assignment> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException("Dispatcher stopped"));
+            return result;
+        }
+        long readyAt = etaEngine.readyAt(kitchenQueuePosition, System.currentTimeMillis());
+        queue.add(new Pending(routePlanner.drop(orderId, geocoder.locate(deliveryAddress)), readyAt, result));
+        return result;
+    }
+
+    /**
+     * Take a cancelled order off its route; a driver left with nothing to deliver is back at the
+     * kitchen at once
+     */
+    public void cancel(String orderId) {
+        etaEngine.removeStop(orderId).ifPresent(driverId -> {
+            if (driverPool.release(driverId)) {
+                log.debug("Driver released, every order on the route was cancelled {}", kv("driverId", driverId));
+            }
+        });
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                List<Pending> window = new ArrayList<>();
+                window.add(queue.take());
+                long closesAt = System.nanoTime() + windowNanos;
+                while (window.size() < maxOrders) {
+                    queue.drainTo(window, maxOrders - window.size());
+                    long remaining = closesAt - System.nanoTime();
+                    if (window.size() >= maxOrders || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    window.add(next);
+                }
+                send(window);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Dispatch window failed {}", kv("error", e.getMessage()), e);
+            }
+        }
+    }
+
+    private void send(List<Pending> window) {
+        Map<String, CompletableFuture<Assignment>> results = new HashMap<>();
+        Map<String, Long> readyAt = new HashMap<>();
+        List<RoutePlanner.Drop> drops = new ArrayList<>(window.size());
+        for (Pending pending : window) {
+            if (pending.result().isDone()) {
+                // The caller gave up waiting, do not send a driver for it
+                continue;
+            }
+            CompletableFuture<Assignment> first = results.putIfAbsent(pending.drop().orderId(), pending.result());
+            if (first != null) {
+                // The same order twice in one window goes out once
+                first.whenComplete((assignment, error) -> {
+                    if (error != null) {
+                        pending.result().completeExceptionally(error);
+                    } else {
+                        pending.result().complete(assignment);
+                    }
+                });
+                continue;
+            }
+            drops.add(pending.drop());
+            readyAt.put(pending.drop().orderId(), pending.readyAt());
+        }
+
+        try {
+            List<RoutePlanner.Route> routes = routePlanner.plan(drops);
+            windowOrders.record(window.size());
+            for (RoutePlanner.Route route : routes) {
+                String driverId = driverPool.dispatch(route.distanceKm());
+                if (driverId == null) {
+                    unassigned.increment(route.stops().size());
+                    route.stops().forEach(drop -> results.get(drop.orderId()).completeExceptionally(
+                            new NoDriverAvailableException("No drivers available in the area")));
+                    continue;
+                }
+
+                String routeId = TimeOrderedIdGenerator.next().toString();
+                routeStops.record(route.stops().size());
+                routeDistance.record(route.distanceKm());
+                log.debug("Route dispatched {} {} {}", kv("driverId", driverId), kv("stops", route.stops().size()),
+                        kv("routeKm", route.distanceKm()));
+                etaEngine.routeDispatched(driverId, route.stops(),
+                        route.stops().stream().mapToLong(drop -> readyAt.get(drop.orderId())).toArray(),
+                        System.currentTimeMillis());
+                for (int i = 0; i < route.stops().size(); i++) {
+                    String orderId = route.stops().get(i).orderId();
+                    long eta = etaEngine.eta(orderId).map(EtaEngine.Eta::estimatedDeliveryAt).orElse(0L);
+                    results.get(orderId).complete(
+                            new Assignment(driverId, routeId, i + 1, route.stops(), route.distanceKm(), eta));
+                }
+            }
+        } finally {
+            // Nothing is left waiting, also if planning failed
+            results.values().forEach(result -> result.completeExceptionally(
+                    new IllegalStateException("Order was not planned on a route")));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.saga.delivery.routing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * The drivers of this delivery area. A driver leaves on a route and is back once it has been
+ * driven, or as soon as every order on it was cancelled; route time is scaled by time-scale so
+ * a simulated day passes quickly.
+ */
+@Slf4j
+@Component
+public class DriverPool {
+
+    private final Deque<String> available = new ArrayDeque<>();
+    /** Drivers out on a route */
+    private final Map<String, Trip> out = new HashMap<>();
+    private final int size;
+    private final double speedKmh;
+    private final double timeScale;
+
+    private final ScheduledExecutorService returns = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "driver-returns");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DriverPool(MeterRegistry meterRegistry,
+                      @Value("${delivery.drivers.count:20}") int size,
+                      @Value("${delivery.drivers.speed-kmh:25}") double speedKmh,
+                      @Value("${delivery.drivers.time-scale:0.01}") double timeScale) {
+        this.size = size;
+        this.speedKmh = speedKmh;
+        this.timeScale = timeScale;
+        for (int i = 1; i <= size; i++) {
+            available.add("DRIVER-" + String.format("%03d", i));
+        }
+        Gauge.builder("delivery.drivers.available", this, DriverPool::available)
+                .description("Drivers at the kitchen waiting for a route")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() {
+        returns.shutdownNow();
+    }
+
+    /**
+     * Send the next free driver out on a route, or return null if every driver is out
+     */
+    public synchronized String dispatch(double routeKm) {
+        String driverId = available.poll();
+        if (driverId != null) {
+            long backInMillis = (long) (routeKm / speedKmh * 3_600_000 * timeScale);
+            Trip trip = new Trip();
+            out.put(driverId, trip);
+            trip.scheduledReturn = returns.schedule(() -> giveBack(driverId, trip), backInMillis, TimeUnit.MILLISECONDS);
+        }
+        return driverId;
+    }
+
+    /**
+     * Call a driver back before its route is driven, when nothing is left to deliver on it.
+     * Returns false if the driver was not out.
+     */
+    public synchronized boolean release(String driverId) {
+        Trip trip = out.get(driverId);
+        if (trip == null) {
+            return false;
+        }
+        trip.scheduledReturn.cancel(false);
+        giveBack(driverId, trip);
+        return true;
+    }
+
+    public synchronized int available() {
+        return available.size();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private synchronized void giveBack(String driverId, Trip trip) {
+        if (!out.remove(driverId, trip)) {
+            // Released early
+            return;
+        }
+        available.add(driverId);
+        log.debug("Driver back at the kitchen {}", kv("driverId", driverId));
+    }
+
+    private static final class Trip {
+        ScheduledFuture<?> scheduledReturn;
+    }
+}
@@ -0,0 +1,221 @@
+package com.saga.delivery.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Estimated arrival times of the orders on each driver's route.
+ * <p>
+ * A driver leaves the kitchen once every pizza on the route is ready: an order's pizza is
+ * ready after the orders ahead of it in the kitchen queue, cooked ovens at a time, plus its own
+ * preparation time. From there the ETA of each stop is the previous one plus a dwell at the
+ * door plus the driving time between their cells from the {@link TravelTimeGrid}. ETAs are kept
+ * per route in primitive arrays. A driver position update recomputes only that driver's
+ * remaining stops, and reaching the cell of the next stop marks it delivered, so an update
+ * or a query is a few array reads.
+ */
+@Slf4j
+@Component
+public class EtaEngine {
+
+    /**
+     * ETA of one order
+     *
+     * @param stop                position of the order on its route, from 1
+     * @param estimatedDeliveryAt epoch millis
+     */
+    public record Eta(String orderId, String driverId, int stop, long estimatedDeliveryAt, boolean delivered) {
+    }
+
+    private final CityGrid cityGrid;
+    private final TravelTimeGrid travelTimeGrid;
+    private final long prepMillis;
+    private final int ovens;
+    private final long dwellMillis;
+
+    private final Map<String, RouteEta> byDriver = new ConcurrentHashMap<>();
+    private final Map<String, RouteEta> byOrder = new ConcurrentHashMap<>();
+
+    /**
+     * ETAs of one route; guarded by its own lock
+     */
+    private static final class RouteEta {
+        final String driverId;
+        String[] orderIds;
+        int[] cells;
+        long[] etaMillis;
+        final long departAt;
+        int next;
+        /** Where and when the ETAs were last computed from */
+        int fromCell;
+        long fromMillis;
+
+        RouteEta(String driverId, String[] orderIds, int[] cells, long departAt) {
+            this.driverId = driverId;
+            this.orderIds = orderIds;
+            this.cells = cells;
+            this.etaMillis = new long[cells.length];
+            this.departAt = departAt;
+        }
+    }
+
+    public EtaEngine(CityGrid cityGrid,
+                     TravelTimeGrid travelTimeGrid,
+                     @Value("${delivery.eta.prep-ms:600000}") long prepMillis,
+                     @Value("${delivery.eta.kitchen-ovens:4}") int ovens,
+                     @Value("${delivery.eta.dwell-ms:120000}") long dwellMillis) {
+        this.cityGrid = cityGrid;
+        this.travelTimeGrid = travelTimeGrid;
+        this.prepMillis = prepMillis;
+        this.ovens = Math.max(1, ovens);
+        this.dwellMillis = dwellMillis;
+    }
+
+    /**
+     * When an order's pizza will be ready to leave the kitchen
+     *
+     * @param kitchenQueuePosition orders ahead of it in the kitchen, null if it is ready already
+     */
+    public long readyAt(Integer kitchenQueuePosition, long nowMillis) {
+        if (kitchenQueuePosition == null) {
+            return nowMillis;
+        }
+        return nowMillis + (Math.max(0, kitchenQueuePosition) / ovens + 1) * prepMillis;
+    }
+
+    /**
+     * Start tracking a route a driver was just sent on; it replaces the driver's previous route
+     *
+     * @param readyAt per stop, when its pizza is ready
+     */
+    public void routeDispatched(String driverId, List<RoutePlanner.Drop> stops, long[] readyAt, long nowMillis) {
+        int n = stops.size();
+        String[] orderIds = new String[n];
+        int[] cells = new int[n];
+        long departAt = nowMillis;
+        for (int i = 0; i < n; i++) {
+            orderIds[i] = stops.get(i).orderId();
+            cells[i] = stops.get(i).cell();
+            departAt = Math.max(departAt, readyAt[i]);
+        }
+
+        RouteEta route = new RouteEta(driverId, orderIds, cells, departAt);
+        synchronized (route) {
+            recompute(route, cityGrid.cellOf(cityGrid.kitchen()), departAt);
+        }
+        RouteEta previous = byDriver.put(driverId, route);
+        if (previous != null) {
+            for (String orderId : previous.orderIds) {
+                byOrder.remove(orderId, previous);
+            }
+        }
+        for (String orderId : orderIds) {
+            byOrder.put(orderId, route);
+        }
+    }
+
+    /**
+     * Move a driver and update the ETAs of its remaining stops. Returns false if the driver
+     * has no route.
+     */
+    public boolean driverMoved(String driverId, Location location, long nowMillis) {
+        RouteEta route = byDriver.get(driverId);
+        if (route == null) {
+            return false;
+        }
+        int cell = cityGrid.cellOf(location);
+        synchronized (route) {
+            if (route.next < route.cells.length && cell == route.cells[route.next]) {
+                route.etaMillis[route.next] = nowMillis;
+                route.next++;
+                log.debug("Driver reached stop {} {}", kv("driverId", driverId), kv("stop", route.next));
+            }
+            boolean waitingAtKitchen = route.next == 0 && cell == cityGrid.cellOf(cityGrid.kitchen());
+            recompute(route, cell, waitingAtKitchen ? Math.max(nowMillis, route.departAt) : nowMillis);
+        }
+        return true;
+    }
+
+    /**
+     * Take a cancelled order off its route and update the ETAs of the stops after it. Returns
+     * the driver if nothing is left on the route, delivered or not, so the driver need not go.
+     * An order already delivered stays on its route.
+     */
+    public Optional<String> removeStop(String orderId) {
+        RouteEta route = byOrder.get(orderId);
+        if (route == null) {
+            return Optional.empty();
+        }
+        synchronized (route) {
+            int index = Arrays.asList(route.orderIds).indexOf(orderId);
+            if (index < route.next) {
+                return Optional.empty();
+            }
+            int n = route.orderIds.length - 1;
+            String[] orderIds = new String[n];
+            int[] cells = new int[n];
+            long[] etaMillis = new long[n];
+            for (int i = 0, j = 0; i <= n; i++) {
+                if (i != index) {
+                    orderIds[j] = route.orderIds[i];
+                    cells[j] = route.cells[i];
+                    etaMillis[j++] = route.etaMillis[i];
+                }
+            }
+            route.orderIds = orderIds;
+            route.cells = cells;
+            route.etaMillis = etaMillis;
+            recompute(route, route.fromCell, route.fromMillis);
+            byOrder.remove(orderId, route);
+            log.debug("Stop removed from route {} {}", kv("driverId", route.driverId), kv("orderId", orderId));
+
+            if (n > 0) {
+                return Optional.empty();
+            }
+            byDriver.remove(route.driverId, route);
+            return Optional.of(route.driverId);
+        }
+    }
+
+    public Optional<Eta> eta(String orderId) {
+        RouteEta route = byOrder.get(orderId);
+        if (route == null) {
+            return Optional.empty();
+        }
+        synchronized (route) {
+            for (int i = 0; i < route.orderIds.length; i++) {
+                if (route.orderIds[i].equals(orderId)) {
+                    return Optional.of(new Eta(orderId, route.driverId, i + 1, route.etaMillis[i], i < route.next));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * ETAs of the stops not yet delivered, from a driver in fromCell at startMillis
+     */
+    private void recompute(RouteEta route, int fromCell, long startMillis) {
+        route.fromCell = fromCell;
+        route.fromMillis = startMillis;
+        long at = startMillis;
+        int cell = fromCell;
+        for (int i = route.next; i < route.cells.length; i++) {
+            if (i > route.next) {
+                at += dwellMillis;
+            }
+            at += travelTimeGrid.seconds(cell, route.cells[i]) * 1000L;
+            route.etaMillis[i] = at;
+            cell = route.cells[i];
+        }
+    }
+}
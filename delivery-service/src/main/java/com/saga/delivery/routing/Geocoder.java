@@ -0,0 +1,55 @@
+package com.saga.delivery.routing;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Places a delivery address in the delivery area.
+ * <p>
+ * Stand-in for a geocoding service: the street name is hashed to a fixed point and the house
+ * number moves the address a few metres along the street, so addresses on the same street
+ * land next to each other and the same address always lands in the same place.
+ */
+@Component
+public class Geocoder {
+
+    private static final double METRES_PER_HOUSE_NUMBER = 10;
+
+    private final CityGrid cityGrid;
+
+    public Geocoder(CityGrid cityGrid) {
+        this.cityGrid = cityGrid;
+    }
+
+    public Location locate(String address) {
+        String normalized = address == null ? "" : address.trim().toLowerCase();
+        int digits = 0;
+        while (digits < normalized.length() && Character.isDigit(normalized.charAt(digits))) {
+            digits++;
+        }
+        int houseNumber = digits == 0 ? 0 : Integer.parseInt(normalized.substring(0, Math.min(digits, 6)));
+        long hash = fnv1a(normalized.substring(digits).trim());
+
+        double x = unit(hash) * cityGrid.widthKm();
+        double y = unit(hash >>> 21) * cityGrid.heightKm();
+        double angle = unit(hash >>> 42) * 2 * Math.PI;
+        double along = houseNumber * METRES_PER_HOUSE_NUMBER / 1000;
+        return new Location(
+                Math.clamp(x + Math.cos(angle) * along, 0, cityGrid.widthKm()),
+                Math.clamp(y + Math.sin(angle) * along, 0, cityGrid.heightKm()));
+    }
+
+    private static double unit(long bits) {
+        return (bits & 0x1FFFFF) / (double) (1 << 21);
+    }
+
+    private static long fnv1a(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
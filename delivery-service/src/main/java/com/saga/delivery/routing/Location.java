@@ -0,0 +1,11 @@
+package com.saga.delivery.routing;
+
+/**
+ * A point in the delivery area, in kilometres east (x) and north (y) of its south-west corner
+ */
+public record Location(double x, double y) {
+
+    public double distanceTo(Location other) {
+        return Math.hypot(x - other.x, y - other.y);
+    }
+}
@@ -0,0 +1,11 @@
+package com.saga.delivery.routing;
+
+/**
+ * Thrown when every driver is out on a route and an order could not be dispatched
+ */
+public class NoDriverAvailableException extends RuntimeException {
+
+    public NoDriverAvailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,173 @@
+package com.saga.delivery.routing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the drops of a dispatch window into multi-drop routes, one driver each.
+ * <p>
+ * A fast seed-and-grow heuristic rather than an exact solver, so planning stays well under a
+ * millisecond for a window of a few hundred orders:
+ * <ol>
+ *     <li>The drop farthest from the kitchen that is not on a route yet seeds a new route, so
+ *     outlying drops are not left for last.</li>
+ *     <li>The route grows with the nearest remaining drop to its last stop, looking only in
+ *     grid cells within max-cell-distance of the seed, until it has max-stops drops.</li>
+ *     <li>The stops are put in nearest-neighbour order from the kitchen and improved with
+ *     2-opt, treating the route as a round trip back to the kitchen.</li>
+ * </ol>
+ */
+@Component
+public class RoutePlanner {
+
+    /**
+     * An order to deliver
+     */
+    public record Drop(String orderId, Location location, int cell) {
+    }
+
+    /**
+     * Drops in delivery order, and the round trip from the kitchen in kilometres
+     */
+    public record Route(List<Drop> stops, double distanceKm) {
+    }
+
+    private final CityGrid cityGrid;
+    private final int maxStops;
+    private final int maxCellDistance;
+
+    public RoutePlanner(CityGrid cityGrid,
+                        @Value("${delivery.routing.max-stops:4}") int maxStops,
+                        @Value("${delivery.routing.max-cell-distance:1}") int maxCellDistance) {
+        this.cityGrid = cityGrid;
+        this.maxStops = Math.max(1, maxStops);
+        this.maxCellDistance = Math.max(0, maxCellDistance);
+    }
+
+    public Drop drop(String orderId, Location location) {
+        return new Drop(orderId, location, cityGrid.cellOf(location));
+    }
+
+    public List<Route> plan(List<Drop> drops) {
+        Location kitchen = cityGrid.kitchen();
+        List<Drop> seeds = new ArrayList<>(drops);
+        seeds.sort(Comparator.comparingDouble((Drop drop) -> drop.location().distanceTo(kitchen)).reversed());
+
+        Map<Integer, List<Drop>> byCell = new HashMap<>();
+        for (Drop drop : drops) {
+            byCell.computeIfAbsent(drop.cell(), cell -> new ArrayList<>()).add(drop);
+        }
+
+        List<Route> routes = new ArrayList<>();
+        for (Drop seed : seeds) {
+            List<Drop> seedCell = byCell.get(seed.cell());
+            if (seedCell == null || !seedCell.remove(seed)) {
+                continue; // already on a route
+            }
+            List<Drop> stops = new ArrayList<>(maxStops);
+            stops.add(seed);
+            while (stops.size() < maxStops) {
+                Drop next = nearest(byCell, seed.cell(), stops.getLast().location());
+                if (next == null) {
+                    break;
+                }
+                byCell.get(next.cell()).remove(next);
+                stops.add(next);
+            }
+            routes.add(order(stops, kitchen));
+        }
+        return routes;
+    }
+
+    /**
+     * The round trip of a single drop, as when every order gets its own driver
+     */
+    public Route direct(Drop drop) {
+        return new Route(List.of(drop), 2 * drop.location().distanceTo(cityGrid.kitchen()));
+    }
+
+    private Drop nearest(Map<Integer, List<Drop>> byCell, int seedCell, Location from) {
+        Drop nearest = null;
+        double best = Double.MAX_VALUE;
+        int col = cityGrid.col(seedCell);
+        int row = cityGrid.row(seedCell);
+        for (int r = Math.max(0, row - maxCellDistance); r <= Math.min(cityGrid.rows() - 1, row + maxCellDistance); r++) {
+            for (int c = Math.max(0, col - maxCellDistance); c <= Math.min(cityGrid.cols() - 1, col + maxCellDistance); c++) {
+                List<Drop> cell = byCell.get(r * cityGrid.cols() + c);
+                if (cell == null) {
+                    continue;
+                }
+                for (Drop drop : cell) {
+                    double distance = drop.location().distanceTo(from);
+                    if (distance < best) {
+                        best = distance;
+                        nearest = drop;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Nearest-neighbour order from the kitchen, then 2-opt until no swap shortens the round trip
+     */
+    static Route order(List<Drop> drops, Location kitchen) {
+        int n = drops.size();
+        Location[] points = new Location[n + 1];
+        points[0] = kitchen;
+        List<Drop> remaining = new ArrayList<>(drops);
+        List<Drop> tour = new ArrayList<>(n);
+        Location at = kitchen;
+        while (!remaining.isEmpty()) {
+            Location from = at;
+            Drop next = remaining.stream()
+                    .min(Comparator.comparingDouble(drop -> drop.location().distanceTo(from)))
+                    .orElseThrow();
+            remaining.remove(next);
+            tour.add(next);
+            points[tour.size()] = next.location();
+            at = next.location();
+        }
+
+        // 2-opt over the closed tour kitchen -> stops -> kitchen; index 0 stays the kitchen
+        boolean improved = n > 2;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < n; i++) {
+                for (int j = i + 1; j <= n; j++) {
+                    Location before = points[i - 1];
+                    Location after = j == n ? kitchen : points[j + 1];
+                    double delta = before.distanceTo(points[j]) + points[i].distanceTo(after)
+                            - before.distanceTo(points[i]) - points[j].distanceTo(after);
+                    if (delta < -1e-9) {
+                        reverse(points, tour, i, j);
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        double distance = 0;
+        for (int i = 0; i < n; i++) {
+            distance += points[i].distanceTo(points[i + 1]);
+        }
+        distance += points[n].distanceTo(kitchen);
+        return new Route(List.copyOf(tour), distance);
+    }
+
+    private static void reverse(Location[] points, List<Drop> tour, int from, int to) {
+        for (int i = from, j = to; i < j; i++, j--) {
+            Location point = points[i];
+            points[i] = points[j];
+            points[j] = point;
+            tour.set(i - 1, tour.set(j - 1, tour.get(i - 1)));
+        }
+    }
+}
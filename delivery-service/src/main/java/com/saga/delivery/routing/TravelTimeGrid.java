@@ -0,0 +1,61 @@
+package com.saga.delivery.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Driving time between every pair of grid cells, computed once at startup.
+ * <p>
+ * Held in one flat int array of seconds indexed {@code from * cells + to}, so a lookup is an
+ * array read with no boxing or hashing. Times are the straight-line distance between cell
+ * centres stretched by road-factor for the street network, at speed-kmh; within a cell the
+ * driver covers a third of the cell. The matrix grows with the square of the cell count and
+ * is capped at max-cells.
+ */
+@Slf4j
+@Component
+public class TravelTimeGrid {
+
+    private final int cells;
+    private final int[] seconds;
+
+    public TravelTimeGrid(CityGrid cityGrid,
+                          @Value("${delivery.drivers.speed-kmh:25}") double speedKmh,
+                          @Value("${delivery.eta.road-factor:1.3}") double roadFactor,
+                          @Value("${delivery.eta.max-cells:4096}") int maxCells) {
+        this.cells = cityGrid.cells();
+        if (cells > maxCells) {
+            throw new IllegalStateException("Delivery area has " + cells + " cells, more than the "
+                    + maxCells + " the travel-time grid is sized for; use larger cells");
+        }
+        this.seconds = new int[cells * cells];
+
+        double secondsPerKm = 3600 * roadFactor / speedKmh;
+        double withinCellKm = cityGrid.cellKm() / 3;
+        double[] x = new double[cells];
+        double[] y = new double[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            Location center = cityGrid.cellCenter(cell);
+            x[cell] = center.x();
+            y[cell] = center.y();
+        }
+        for (int from = 0; from < cells; from++) {
+            int row = from * cells;
+            for (int to = 0; to < cells; to++) {
+                double km = from == to ? withinCellKm : Math.hypot(x[from] - x[to], y[from] - y[to]);
+                seconds[row + to] = (int) Math.round(km * secondsPerKm);
+            }
+        }
+        log.info("Travel-time grid computed {} {}", kv("cells", cells), kv("entries", seconds.length));
+    }
+
+    /**
+     * Driving time from one cell to another, in seconds
+     */
+    public int seconds(int fromCell, int toCell) {
+        return seconds[fromCell * cells + toCell];
+    }
+}
@@ -1,21 +1,29 @@
 package com.saga.delivery.service;
 
-import com.saga.delivery.command.AssignDeliveryCommand;
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.contracts.command.CancelDeliveryCommand;
 import com.saga.delivery.domain.Delivery;
 
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface DeliveryService {
 
     /**
-     * Assign delivery driver for an order
+     * Assign delivery driver for an order; completes once the outcome is recorded and published
      */
-    void assignDelivery(AssignDeliveryCommand command);
+    CompletableFuture<Void> assignDelivery(AssignDeliveryCommand command);
+
+    /**
+     * Release the driver of a saga being compensated (COMPENSATION)
+     */
+    CompletableFuture<Void> cancelDelivery(CancelDeliveryCommand command);
 
     /**
      * Get delivery by order ID
      */
-    Optional<Delivery> getDeliveryByOrderId(String orderId);
+    Optional<Delivery> getDeliveryByOrderId(UUID orderId);
 
     /**
      * Get all deliveries
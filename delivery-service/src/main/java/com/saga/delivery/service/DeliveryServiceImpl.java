@@ -1,177 +1,361 @@
 package com.saga.delivery.service;
 
-import com.saga.delivery.command.AssignDeliveryCommand;
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.contracts.command.CancelDeliveryCommand;
+import com.saga.contracts.event.DeliveryAssignedEvent;
+import com.saga.contracts.event.DeliveryCancelledEvent;
+import com.saga.contracts.event.DeliveryFailedEvent;
 import com.saga.delivery.config.RabbitMQConfig;
 import com.saga.delivery.domain.Delivery;
 import com.saga.delivery.domain.DeliveryStatus;
-import com.saga.delivery.event.DeliveryAssignedEvent;
-import com.saga.delivery.event.DeliveryFailedEvent;
+import com.saga.delivery.fault.FaultStep;
 import com.saga.delivery.repository.DeliveryRepository;
+import com.saga.delivery.routing.DispatchWindow;
+import com.saga.delivery.routing.NoDriverAvailableException;
+import com.saga.runtime.fault.FaultInjector;
+import com.saga.runtime.idempotency.SingleFlight;
+import com.saga.runtime.metrics.ParticipantMetrics;
+import com.saga.runtime.tracing.InMemorySpanExporter;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Optional;
-import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Service
+@RabbitListener(queues = RabbitMQConfig.DELIVERY_COMMAND_QUEUE)
 @RequiredArgsConstructor
 @Slf4j
 public class DeliveryServiceImpl implements DeliveryService {
 
     private final DeliveryRepository deliveryRepository;
     private final RabbitTemplate rabbitTemplate;
-    private final Random random = new Random();
-
-    @Value("${delivery.failure.simulation.enabled:false}")
-    private boolean failureSimulationEnabled;
+    private final ParticipantMetrics deliveryMetrics;
+    private final SingleFlight singleFlight;
+    private final DispatchWindow dispatchWindow;
+    private final Tracer tracer;
+    private final FaultInjector<FaultStep> faultInjector;
+    private final TransactionTemplate transactionTemplate;
 
-    @Value("${delivery.failure.simulation.rate:0.15}")
-    private double failureRate;
+    @Value("${delivery.dispatch.timeout-ms:10000}")
+    private long dispatchTimeoutMillis;
 
     /**
-     * Listen for AssignDeliveryCommand from Order Service
+     * Listen for AssignDeliveryCommand from Order Service.
+     * <p>
+     * The listener thread only records the delivery as PENDING, in its own short transaction, and
+     * queues it for the dispatch window; it does not wait for the window to close. The outcome is
+     * recorded and published, in a second transaction, on the dispatcher thread, and the container
+     * acknowledges the command when the returned future completes. So the orders a window can
+     * collect are bounded by the consumers' prefetch rather than by the number of consumer threads.
      */
     @Override
-    @RabbitListener(queues = RabbitMQConfig.DELIVERY_COMMAND_QUEUE)
-    @Transactional
-    public void assignDelivery(AssignDeliveryCommand command) {
-        log.info("<<< Received AssignDeliveryCommand: {}", command);
+    @RabbitHandler
+    public CompletableFuture<Void> assignDelivery(AssignDeliveryCommand command) {
+        long startNanos = System.nanoTime();
+        log.info("<<< Received AssignDeliveryCommand");
+        deliveryMetrics.commandReceived(command);
+        tagCurrentSpan(command.getOrderId());
+        Span span = tracer.currentSpan();
 
+        return singleFlight.executeAsync(command.getOrderId(), () -> assignDeliveryOnce(command, span), event -> {
+                    log.warn("Duplicate command joined the one in flight {}", kv("orderId", command.getOrderId()));
+                    deliveryMetrics.commandCoalesced(command);
+                    inSpan(span, () -> publish(event));
+                })
+                .whenComplete((event, error) -> deliveryMetrics.commandHandled(command, startNanos))
+                .thenApply(event -> null);
+    }
+
+    /**
+     * Handle the command once; the future completes with the event published to Order Service
+     */
+    private CompletableFuture<Object> assignDeliveryOnce(AssignDeliveryCommand command, Span span) {
+        Delivery delivery;
         try {
-            // Check if already processed (idempotency)
-            Optional<Delivery> existingDelivery = deliveryRepository.findByOrderId(command.getOrderId());
-            if (existingDelivery.isPresent()) {
-                log.warn("Delivery already processed for order: {}", command.getOrderId());
-
-                Delivery delivery = existingDelivery.get();
-                if (delivery.getStatus() == DeliveryStatus.ASSIGNED) {
-                    publishDeliveryAssignedEvent(delivery);
-                } else if (delivery.getStatus() == DeliveryStatus.FAILED) {
-                    publishDeliveryFailedEvent(delivery);
-                }
-                return;
+            delivery = transactionTemplate.execute(status -> findOrCreateDelivery(command));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(publishProcessingError(command, e));
+        }
+
+        // Check if already processed (idempotency)
+        switch (delivery.getStatus()) {
+            case ASSIGNED -> {
+                log.warn("Delivery already processed {}", kv("orderId", command.getOrderId()));
+                return CompletableFuture.completedFuture(publishDeliveryAssignedEvent(delivery));
             }
+            case FAILED -> {
+                log.warn("Delivery already processed {}", kv("orderId", command.getOrderId()));
+                return CompletableFuture.completedFuture(publishDeliveryFailedEvent(delivery));
+            }
+            case CANCELLED -> {
+                log.warn("Delivery already cancelled {}", kv("orderId", command.getOrderId()));
+                return CompletableFuture.completedFuture(null);
+            }
+            case PENDING -> {
+                // Assigned below
+            }
+        }
 
-            // Create delivery record
-            Delivery delivery = new Delivery();
-            delivery.setOrderId(command.getOrderId());
-            delivery.setDeliveryAddress(command.getDeliveryAddress());
-            delivery.setStatus(DeliveryStatus.PENDING);
+        UUID deliveryId = delivery.getId();
+        try {
+            // Assignment failures and extra latency come from the fault injection rules
+            if (!faultInjector.apply(FaultStep.ASSIGN, command.getPizzaType(), command.getCustomerId())) {
+                return CompletableFuture.completedFuture(
+                        recordFailure(deliveryId, FaultStep.ASSIGN.declineReason()));
+            }
+        } catch (Exception e) {
+            log.error("Error assigning delivery {}", kv("orderId", command.getOrderId()), e);
+            return CompletableFuture.completedFuture(
+                    recordFailure(deliveryId, "Delivery processing error: " + e.getMessage()));
+        }
 
-            delivery = deliveryRepository.save(delivery);
-            log.info("Delivery record created: {}", delivery.getId());
+        // Wait for the dispatch window to put the order on a route with nearby orders
+        log.debug("Finding available driver {}", kv("deliveryAddress", command.getDeliveryAddress()));
+        return dispatchWindow.assign(command.getOrderId(), command.getDeliveryAddress(),
+                        command.getKitchenQueuePosition())
+                .orTimeout(dispatchTimeoutMillis, TimeUnit.MILLISECONDS)
+                .handle((assignment, error) -> inSpan(span, () -> error == null
+                        ? recordAssignment(deliveryId, assignment)
+                        : recordDispatchFailure(deliveryId, command,
+                                error instanceof CompletionException completion ? completion.getCause() : error)));
+    }
 
-            // Simulate driver assignment delay
-            log.info("🚗 Finding available driver for delivery to: {}", command.getDeliveryAddress());
-            Thread.sleep(1500); // 1.5 seconds to find driver
+    /**
+     * The order's delivery, created PENDING if this is the first copy of the command. A PENDING
+     * delivery was left by a copy that did not finish and is assigned again.
+     */
+    private Delivery findOrCreateDelivery(AssignDeliveryCommand command) {
+        Optional<Delivery> existingDelivery = deliveryRepository.findByOrderId(UUID.fromString(command.getOrderId()));
+        if (existingDelivery.isPresent()) {
+            return existingDelivery.get();
+        }
 
-            // Simulate driver assignment
-            boolean assignmentSuccessful = simulateDriverAssignment(command);
+        // Create delivery record
+        Delivery delivery = new Delivery();
+        delivery.setOrderId(UUID.fromString(command.getOrderId()));
+        delivery.setDeliveryAddress(command.getDeliveryAddress());
+        delivery.setStatus(DeliveryStatus.PENDING);
 
-            if (assignmentSuccessful) {
-                // Driver assigned successfully
-                String driverId = "DRIVER-" + String.format("%03d", random.nextInt(100));
-                delivery.setStatus(DeliveryStatus.ASSIGNED);
-                delivery.setDriverId(driverId);
-                delivery.setAssignedAt(LocalDateTime.now());
-                delivery = deliveryRepository.save(delivery);
+        delivery = deliveryRepository.save(delivery);
+        log.debug("Delivery record created {}", kv("deliveryId", delivery.getId()));
+        return delivery;
+    }
 
-                log.info("✅ Driver ASSIGNED for order: {} | Driver ID: {}",
-                        command.getOrderId(), driverId);
+    /**
+     * Record the driver the dispatch window found and publish it once committed. A delivery
+     * cancelled while it waited for the window is taken off its route again.
+     */
+    private Object recordAssignment(UUID deliveryId, DispatchWindow.Assignment assignment) {
+        Delivery delivery = transactionTemplate.execute(status -> {
+            Delivery pending = deliveryRepository.findById(deliveryId).orElseThrow();
+            if (pending.getStatus() != DeliveryStatus.PENDING) {
+                return pending;
+            }
+            pending.setStatus(DeliveryStatus.ASSIGNED);
+            pending.setDriverId(assignment.driverId());
+            pending.setRouteId(assignment.routeId());
+            pending.setRouteStop(assignment.stop());
+            pending.setAssignedAt(LocalDateTime.now());
+            pending.setEstimatedDeliveryAt(LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(assignment.estimatedDeliveryAt()), ZoneId.systemDefault()));
+            return deliveryRepository.save(pending);
+        });
 
-                publishDeliveryAssignedEvent(delivery);
+        if (delivery.getStatus() != DeliveryStatus.ASSIGNED) {
+            log.warn("Delivery cancelled while waiting for a driver {}", kv("orderId", delivery.getOrderId()));
+            dispatchWindow.cancel(delivery.getOrderId().toString());
+            return null;
+        }
 
-            } else {
-                // No drivers available
-                delivery.setStatus(DeliveryStatus.FAILED);
-                delivery.setFailureReason("No drivers available in the area");
-                delivery = deliveryRepository.save(delivery);
+        // Driver assigned successfully
+        log.info("Driver assigned {} {} {} {}", kv("driverId", assignment.driverId()),
+                kv("routeStop", assignment.stop()), kv("routeStops", assignment.route().size()),
+                kv("estimatedDeliveryAt", delivery.getEstimatedDeliveryAt()));
+        return publishDeliveryAssignedEvent(delivery);
+    }
 
-                log.error("❌ Delivery FAILED for order: {} | Reason: {}",
-                        command.getOrderId(), delivery.getFailureReason());
+    private Object recordDispatchFailure(UUID deliveryId, AssignDeliveryCommand command, Throwable error) {
+        if (error instanceof NoDriverAvailableException) {
+            return recordFailure(deliveryId, error.getMessage());
+        }
+        log.error("Error assigning delivery {}", kv("orderId", command.getOrderId()), error);
+        return recordFailure(deliveryId, "Delivery processing error: " + error.getMessage());
+    }
 
-                publishDeliveryFailedEvent(delivery);
+    /**
+     * Record that no driver was assigned and publish it once committed
+     */
+    private Object recordFailure(UUID deliveryId, String reason) {
+        Delivery delivery = transactionTemplate.execute(status -> {
+            Delivery pending = deliveryRepository.findById(deliveryId).orElseThrow();
+            if (pending.getStatus() != DeliveryStatus.PENDING) {
+                return pending;
             }
+            pending.setStatus(DeliveryStatus.FAILED);
+            pending.setFailureReason(reason);
+            return deliveryRepository.save(pending);
+        });
 
-        } catch (Exception e) {
-            log.error("Error assigning delivery for order: {}", command.getOrderId(), e);
+        if (delivery.getStatus() != DeliveryStatus.FAILED) {
+            log.warn("Delivery cancelled while waiting for a driver {}", kv("orderId", delivery.getOrderId()));
+            return null;
+        }
+
+        // No drivers available
+        log.warn("Delivery failed {}", kv("reason", delivery.getFailureReason()));
+        return publishDeliveryFailedEvent(delivery);
+    }
+
+    private DeliveryFailedEvent publishProcessingError(AssignDeliveryCommand command, Exception e) {
+        log.error("Error assigning delivery {}", kv("orderId", command.getOrderId()), e);
+
+        // Publish failure event
+        DeliveryFailedEvent event = new DeliveryFailedEvent(
+                command.getOrderId(),
+                "Delivery processing error: " + e.getMessage()
+        );
 
-            // Publish failure event
-            DeliveryFailedEvent event = new DeliveryFailedEvent(
+        return publish(event);
+    }
+
+    /**
+     * Listen for CancelDeliveryCommand from Order Service (COMPENSATION).
+     * Always acknowledged, also when there is nothing to cancel, so the saga can finish.
+     * The order is taken off its driver's route once the cancellation is committed, and a driver
+     * left with nothing to deliver is back at the kitchen for the next window. Handled on the
+     * listener thread; the returned future is already complete.
+     */
+    @Override
+    @RabbitHandler
+    public CompletableFuture<Void> cancelDelivery(CancelDeliveryCommand command) {
+        long startNanos = System.nanoTime();
+        log.info("<<< Received CancelDeliveryCommand {}", kv("reason", command.getReason()));
+        deliveryMetrics.commandReceived(command);
+        tagCurrentSpan(command.getOrderId());
+
+        try {
+            Optional<Delivery> deliveryOpt = transactionTemplate.execute(status -> {
+                Optional<Delivery> found = deliveryRepository.findByOrderId(UUID.fromString(command.getOrderId()));
+                faultInjector.apply(FaultStep.CANCEL, null, null);
+
+                if (found.isEmpty()) {
+                    log.warn("No delivery found, nothing to cancel {}", kv("orderId", command.getOrderId()));
+                } else if (found.get().getStatus() != DeliveryStatus.CANCELLED) {
+                    Delivery delivery = found.get();
+                    delivery.setStatus(DeliveryStatus.CANCELLED);
+                    delivery.setFailureReason(command.getReason());
+                    deliveryRepository.save(delivery);
+                }
+                return found;
+            });
+
+            if (deliveryOpt.isPresent() && deliveryOpt.get().getDriverId() != null) {
+                dispatchWindow.cancel(command.getOrderId());
+                log.info("Delivery cancelled, driver released {}", kv("driverId", deliveryOpt.get().getDriverId()));
+            }
+
+            DeliveryCancelledEvent event = new DeliveryCancelledEvent(
                     command.getOrderId(),
-                    "Delivery processing error: " + e.getMessage()
+                    deliveryOpt.map(Delivery::getDriverId).orElse(null)
             );
 
+            log.debug(">>> Sending DeliveryCancelledEvent");
+            deliveryMetrics.eventPublished(event);
             rabbitTemplate.convertAndSend(
                     RabbitMQConfig.SAGA_EXCHANGE,
                     RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
                     event
             );
+        } finally {
+            deliveryMetrics.commandHandled(command, startNanos);
         }
-    }
-
-    /**
-     * Simulate driver assignment with possible failure
-     */
-    private boolean simulateDriverAssignment(AssignDeliveryCommand command) {
-        log.info("Checking driver availability...");
-        log.info("Delivery Address: {}", command.getDeliveryAddress());
-
-        // Simulate failure based on configuration
-        if (failureSimulationEnabled) {
-            boolean shouldFail = random.nextDouble() < failureRate;
-            if (shouldFail) {
-                log.warn("Simulated delivery failure ({}% failure rate)", (int)(failureRate * 100));
-                return false;
-            }
-        }
-
-        // In production, this would check actual driver availability, location, etc.
-        return true;
+        return CompletableFuture.completedFuture(null);
     }
 
     /**
      * Publish DeliveryAssignedEvent to Order Service
      */
-    private void publishDeliveryAssignedEvent(Delivery delivery) {
+    private DeliveryAssignedEvent publishDeliveryAssignedEvent(Delivery delivery) {
         DeliveryAssignedEvent event = new DeliveryAssignedEvent(
-                delivery.getOrderId(),
-                delivery.getDriverId()
+                delivery.getOrderId().toString(),
+                delivery.getDriverId(),
+                delivery.getEstimatedDeliveryAt() == null ? null
+                        : delivery.getEstimatedDeliveryAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
         );
 
-        log.info(">>> Sending DeliveryAssignedEvent: {}", event);
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.SAGA_EXCHANGE,
-                RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
-                event
-        );
+        log.debug(">>> Sending DeliveryAssignedEvent");
+        return publish(event);
     }
 
     /**
      * Publish DeliveryFailedEvent to Order Service
      */
-    private void publishDeliveryFailedEvent(Delivery delivery) {
+    private DeliveryFailedEvent publishDeliveryFailedEvent(Delivery delivery) {
         DeliveryFailedEvent event = new DeliveryFailedEvent(
-                delivery.getOrderId(),
+                delivery.getOrderId().toString(),
                 delivery.getFailureReason()
         );
 
-        log.info(">>> Sending DeliveryFailedEvent: {}", event);
+        log.debug(">>> Sending DeliveryFailedEvent");
+        return publish(event);
+    }
+
+    /**
+     * Publish an event to Order Service
+     */
+    private <E> E publish(E event) {
+        deliveryMetrics.eventPublished(event);
         rabbitTemplate.convertAndSend(
                 RabbitMQConfig.SAGA_EXCHANGE,
                 RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
                 event
         );
+        return event;
+    }
+
+    /**
+     * Run on a thread other than the listener's with the listener span current, so the events
+     * sent carry the saga's trace context
+     */
+    private <T> T inSpan(Span span, Supplier<T> work) {
+        if (span == null) {
+            return work.get();
+        }
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            return work.get();
+        }
+    }
+
+    /**
+     * Tag the listener span with the saga's order id so its trace can be looked up by order
+     */
+    private void tagCurrentSpan(String orderId) {
+        Span span = tracer.currentSpan();
+        if (span != null && orderId != null) {
+            span.tag(InMemorySpanExporter.ORDER_ID_TAG, orderId);
+        }
     }
 
     @Override
-    public Optional<Delivery> getDeliveryByOrderId(String orderId) {
+    public Optional<Delivery> getDeliveryByOrderId(UUID orderId) {
         return deliveryRepository.findByOrderId(orderId);
     }
 
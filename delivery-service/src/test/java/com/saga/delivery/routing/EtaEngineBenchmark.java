@@ -0,0 +1,62 @@
+package com.saga.delivery.routing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Cost of an ETA query and of a driver position update with a full fleet on the road.
+ * <p>
+ * Opt-in: {@code mvn test -Dtest=EtaEngineBenchmark -Dsaga.bench=true}
+ */
+@EnabledIfSystemProperty(named = "saga.bench", matches = "true")
+class EtaEngineBenchmark {
+
+    private static final int DRIVERS = 200;
+    private static final int STOPS = 4;
+    private static final int OPERATIONS = 2_000_000;
+
+    @Test
+    void queryAndUpdate() {
+        CityGrid cityGrid = new CityGrid(20, 20, 1);
+        long start = System.nanoTime();
+        TravelTimeGrid travelTimeGrid = new TravelTimeGrid(cityGrid, 25, 1.3, 4096);
+        System.out.printf("travel-time grid: %,d cells precomputed in %.1f ms%n",
+                cityGrid.cells(), (System.nanoTime() - start) / 1e6);
+
+        EtaEngine etaEngine = new EtaEngine(cityGrid, travelTimeGrid, 600_000, 4, 120_000);
+        RoutePlanner routePlanner = new RoutePlanner(cityGrid, STOPS, 1);
+        Random random = new Random(42);
+        List<String> orderIds = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int d = 0; d < DRIVERS; d++) {
+            List<RoutePlanner.Drop> stops = new ArrayList<>();
+            for (int s = 0; s < STOPS; s++) {
+                String orderId = "order-" + d + "-" + s;
+                orderIds.add(orderId);
+                stops.add(routePlanner.drop(orderId, new Location(random.nextDouble() * 20, random.nextDouble() * 20)));
+            }
+            etaEngine.routeDispatched("DRIVER-" + d, stops, new long[STOPS], now);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long sink = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                sink += etaEngine.eta(orderIds.get(i % orderIds.size())).orElseThrow().estimatedDeliveryAt();
+            }
+            double queryNanos = (System.nanoTime() - start) / (double) OPERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                etaEngine.driverMoved("DRIVER-" + (i % DRIVERS), new Location((i % 200) / 10.0, (i % 190) / 10.0), now + i);
+            }
+            double updateNanos = (System.nanoTime() - start) / (double) OPERATIONS;
+            System.out.printf("round %d: ETA query %.2f us, driver position update %.2f us (%d)%n",
+                    round, queryNanos / 1e3, updateNanos / 1e3, sink & 1);
+        }
+    }
+}
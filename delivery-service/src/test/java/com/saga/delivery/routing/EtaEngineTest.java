@@ -0,0 +1,98 @@
+package com.saga.delivery.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EtaEngineTest {
+
+    private static final long NOW = 1_000_000_000L;
+    private static final long PREP = 600_000;
+    private static final long DWELL = 120_000;
+
+    private final CityGrid cityGrid = new CityGrid(20, 20, 1);
+    private final TravelTimeGrid travelTimeGrid = new TravelTimeGrid(cityGrid, 25, 1.3, 4096);
+    private final EtaEngine etaEngine = new EtaEngine(cityGrid, travelTimeGrid, PREP, 4, DWELL);
+    private final RoutePlanner routePlanner = new RoutePlanner(cityGrid, 4, 1);
+
+    @Test
+    void readyTimeFollowsTheKitchenQueue() {
+        assertThat(etaEngine.readyAt(null, NOW)).isEqualTo(NOW);
+        assertThat(etaEngine.readyAt(0, NOW)).isEqualTo(NOW + PREP);
+        assertThat(etaEngine.readyAt(3, NOW)).isEqualTo(NOW + PREP);
+        assertThat(etaEngine.readyAt(4, NOW)).isEqualTo(NOW + 2 * PREP);
+    }
+
+    @Test
+    void driverLeavesWhenTheLastPizzaIsReadyAndStopsFollowInOrder() {
+        RoutePlanner.Drop first = routePlanner.drop("a", new Location(13.5, 10.5));
+        RoutePlanner.Drop second = routePlanner.drop("b", new Location(15.5, 10.5));
+        int kitchen = cityGrid.cellOf(cityGrid.kitchen());
+
+        etaEngine.routeDispatched("DRIVER-001", List.of(first, second), new long[]{NOW, NOW + PREP}, NOW);
+
+        long firstEta = NOW + PREP + travelTimeGrid.seconds(kitchen, first.cell()) * 1000L;
+        long secondEta = firstEta + DWELL + travelTimeGrid.seconds(first.cell(), second.cell()) * 1000L;
+        assertThat(etaEngine.eta("a")).hasValueSatisfying(eta -> {
+            assertThat(eta.estimatedDeliveryAt()).isEqualTo(firstEta);
+            assertThat(eta.stop()).isEqualTo(1);
+        });
+        assertThat(etaEngine.eta("b")).hasValueSatisfying(eta -> assertThat(eta.estimatedDeliveryAt()).isEqualTo(secondEta));
+    }
+
+    @Test
+    void driverPositionUpdatesTheRemainingStops() {
+        RoutePlanner.Drop first = routePlanner.drop("a", new Location(13.5, 10.5));
+        RoutePlanner.Drop second = routePlanner.drop("b", new Location(15.5, 10.5));
+        etaEngine.routeDispatched("DRIVER-002", List.of(first, second), new long[]{NOW, NOW}, NOW);
+
+        long later = NOW + 900_000;
+        assertThat(etaEngine.driverMoved("DRIVER-002", new Location(13.4, 10.6), later)).isTrue();
+
+        assertThat(etaEngine.eta("a")).hasValueSatisfying(eta -> assertThat(eta.delivered()).isTrue());
+        assertThat(etaEngine.eta("b")).hasValueSatisfying(eta -> assertThat(eta.estimatedDeliveryAt())
+                .isEqualTo(later + travelTimeGrid.seconds(first.cell(), second.cell()) * 1000L));
+        assertThat(etaEngine.driverMoved("DRIVER-999", new Location(1, 1), later)).isFalse();
+    }
+
+    @Test
+    void newRouteReplacesTheDriversPreviousOne() {
+        etaEngine.routeDispatched("DRIVER-003", List.of(routePlanner.drop("a", new Location(3, 3))), new long[]{NOW}, NOW);
+        etaEngine.routeDispatched("DRIVER-003", List.of(routePlanner.drop("c", new Location(4, 4))), new long[]{NOW}, NOW);
+
+        assertThat(etaEngine.eta("a")).isEmpty();
+        assertThat(etaEngine.eta("c")).isPresent();
+    }
+
+    @Test
+    void cancelledStopLeavesTheRouteAndTheLastOneFreesTheDriver() {
+        RoutePlanner.Drop first = routePlanner.drop("a", new Location(13.5, 10.5));
+        RoutePlanner.Drop second = routePlanner.drop("b", new Location(15.5, 10.5));
+        int kitchen = cityGrid.cellOf(cityGrid.kitchen());
+        etaEngine.routeDispatched("DRIVER-004", List.of(first, second), new long[]{NOW, NOW}, NOW);
+
+        assertThat(etaEngine.removeStop("a")).isEmpty();
+        assertThat(etaEngine.eta("a")).isEmpty();
+        // The second stop moves up and is driven to straight from the kitchen
+        assertThat(etaEngine.eta("b")).hasValueSatisfying(eta -> {
+            assertThat(eta.stop()).isEqualTo(1);
+            assertThat(eta.estimatedDeliveryAt()).isEqualTo(NOW + travelTimeGrid.seconds(kitchen, second.cell()) * 1000L);
+        });
+
+        assertThat(etaEngine.removeStop("b")).contains("DRIVER-004");
+        assertThat(etaEngine.driverMoved("DRIVER-004", new Location(1, 1), NOW)).isFalse();
+        assertThat(etaEngine.removeStop("b")).isEmpty();
+    }
+
+    @Test
+    void deliveredStopIsNotRemoved() {
+        RoutePlanner.Drop first = routePlanner.drop("a", new Location(13.5, 10.5));
+        etaEngine.routeDispatched("DRIVER-005", List.of(first), new long[]{NOW}, NOW);
+        etaEngine.driverMoved("DRIVER-005", new Location(13.4, 10.6), NOW + 900_000);
+
+        assertThat(etaEngine.removeStop("a")).isEmpty();
+        assertThat(etaEngine.eta("a")).hasValueSatisfying(eta -> assertThat(eta.delivered()).isTrue());
+    }
+}
@@ -0,0 +1,76 @@
+package com.saga.delivery.routing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Multi-drop routes from a dispatch window versus one driver per order, on a peak of orders
+ * spread over the delivery area with some streets busier than others. Prints, per window size:
+ * drivers needed, total kilometres driven, mean kilometres driven before each drop (how much
+ * longer a customer waits for sharing a driver) and planning throughput.
+ * <p>
+ * Opt-in: {@code mvn test -Dtest=RoutePlannerBenchmark -Dsaga.bench=true [-Dsaga.bench.orders=200]}
+ */
+@EnabledIfSystemProperty(named = "saga.bench", matches = "true")
+class RoutePlannerBenchmark {
+
+    private static final int ROUNDS = 200;
+
+    private final CityGrid cityGrid = new CityGrid(20, 20, 1);
+
+    @Test
+    void compareWithOneDriverPerOrder() {
+        int maxOrders = Integer.getInteger("saga.bench.orders", 200);
+        for (int orders = 10; orders <= maxOrders; orders *= 2) {
+            List<RoutePlanner.Drop> drops = peak(orders, new Random(orders));
+            System.out.printf("%,d orders in the window%n", orders);
+            report("  one driver per order", drops, new RoutePlanner(cityGrid, 1, 0));
+            for (int maxStops : new int[]{2, 4, 6}) {
+                report("  multi-drop, max " + maxStops + " stops", drops, new RoutePlanner(cityGrid, maxStops, 1));
+            }
+        }
+    }
+
+    private void report(String label, List<RoutePlanner.Drop> drops, RoutePlanner planner) {
+        List<RoutePlanner.Route> routes = planner.plan(drops);
+        double total = routes.stream().mapToDouble(RoutePlanner.Route::distanceKm).sum();
+        double untilDrop = 0;
+        for (RoutePlanner.Route route : routes) {
+            Location at = cityGrid.kitchen();
+            double driven = 0;
+            for (RoutePlanner.Drop drop : route.stops()) {
+                driven += at.distanceTo(drop.location());
+                untilDrop += driven;
+                at = drop.location();
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            planner.plan(drops);
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / ROUNDS;
+
+        System.out.printf("%-32s %4d drivers %8.1f km total %6.2f km to drop %9.1f us/plan %,12.0f orders/s%n",
+                label, routes.size(), total, untilDrop / drops.size(), micros, drops.size() / micros * 1e6);
+    }
+
+    /**
+     * Orders on a few hundred streets, the busiest streets getting the most orders
+     */
+    private List<RoutePlanner.Drop> peak(int orders, Random random) {
+        Geocoder geocoder = new Geocoder(cityGrid);
+        RoutePlanner planner = new RoutePlanner(cityGrid, 1, 0);
+        List<RoutePlanner.Drop> drops = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            int street = (int) Math.floor(Math.pow(random.nextDouble(), 2) * 300);
+            String address = (1 + random.nextInt(80)) + " Street " + street;
+            drops.add(planner.drop("order-" + i, geocoder.locate(address)));
+        }
+        return drops;
+    }
+}
@@ -0,0 +1,70 @@
+package com.saga.delivery.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RoutePlannerTest {
+
+    private final CityGrid cityGrid = new CityGrid(20, 20, 1);
+    private final RoutePlanner routePlanner = new RoutePlanner(cityGrid, 3, 1);
+
+    @Test
+    void groupsNearbyDropsAndKeepsDistantOnesApart() {
+        List<RoutePlanner.Drop> drops = List.of(
+                drop("a", 2.1, 2.2), drop("b", 2.6, 2.4), drop("c", 3.3, 2.9),
+                drop("d", 17.5, 17.1), drop("e", 17.9, 16.6));
+
+        List<RoutePlanner.Route> routes = routePlanner.plan(drops);
+
+        assertThat(routes).hasSize(2);
+        assertThat(routes).extracting(route -> route.stops().stream().map(RoutePlanner.Drop::orderId).sorted().toList())
+                .containsExactlyInAnyOrder(List.of("a", "b", "c"), List.of("d", "e"));
+        double direct = drops.stream().mapToDouble(drop -> routePlanner.direct(drop).distanceKm()).sum();
+        assertThat(routes.stream().mapToDouble(RoutePlanner.Route::distanceKm).sum()).isLessThan(direct);
+    }
+
+    @Test
+    void capsStopsAndPlansEveryDropOnce() {
+        List<RoutePlanner.Drop> drops = List.of(
+                drop("a", 4.1, 4.1), drop("b", 4.2, 4.3), drop("c", 4.4, 4.2),
+                drop("d", 4.5, 4.6), drop("e", 4.8, 4.4), drop("f", 4.9, 4.9), drop("g", 4.6, 4.8));
+
+        List<RoutePlanner.Route> routes = routePlanner.plan(drops);
+
+        assertThat(routes).allSatisfy(route -> assertThat(route.stops()).hasSizeLessThanOrEqualTo(3));
+        assertThat(routes).flatExtracting(RoutePlanner.Route::stops).extracting(RoutePlanner.Drop::orderId)
+                .containsExactlyInAnyOrder("a", "b", "c", "d", "e", "f", "g");
+    }
+
+    @Test
+    void ordersStopsWithoutCrossings() {
+        Location kitchen = cityGrid.kitchen();
+        // Visiting in the given order crosses itself; the planned round trip must not
+        List<RoutePlanner.Drop> drops = List.of(
+                drop("a", kitchen.x() + 1, kitchen.y() + 1), drop("b", kitchen.x() + 1, kitchen.y() - 1),
+                drop("c", kitchen.x() + 2, kitchen.y() + 1), drop("d", kitchen.x() + 2, kitchen.y() - 1));
+
+        RoutePlanner.Route route = RoutePlanner.order(drops, kitchen);
+
+        assertThat(route.distanceKm()).isCloseTo(2 * Math.sqrt(2) + 1 + 1 + 2, within(1e-6));
+    }
+
+    @Test
+    void sameStreetGeocodesToNearbyPoints() {
+        Geocoder geocoder = new Geocoder(cityGrid);
+
+        Location first = geocoder.locate("12 Main Street");
+        Location second = geocoder.locate("40 main street");
+
+        assertThat(first.distanceTo(second)).isLessThan(0.5);
+        assertThat(geocoder.locate("12 Main Street")).isEqualTo(first);
+    }
+
+    private RoutePlanner.Drop drop(String orderId, double x, double y) {
+        return routePlanner.drop(orderId, new Location(x, y));
+    }
+}
@@ -0,0 +1,170 @@
+package com.saga.delivery.service;
+
+import com.rabbitmq.client.Channel;
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.delivery.config.RabbitMQConfig;
+import com.saga.delivery.domain.Delivery;
+import com.saga.delivery.domain.DeliveryStatus;
+import com.saga.delivery.repository.DeliveryRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Multi-drop dispatch windows versus one driver per order, driven through the delivery
+ * listener: each AssignDeliveryCommand is converted from an AMQP message and handed to the
+ * listener adapter the container would call, so message conversion, the handler, both
+ * transactions and the dispatch window are all on the path; only the broker is left out. At most
+ * prefetch commands are unacknowledged at a time, as on the broker, and a command counts as
+ * handled when its outcome event is published. Prints, per mode: throughput, assignment latency,
+ * drivers needed and kilometres driven for a peak of orders.
+ * <p>
+ * Opt-in: {@code mvn test -Dtest='DeliveryDispatchBenchmark*' -Dsaga.bench=true [-Dsaga.bench.orders=1000]}
+ */
+@EnabledIfSystemProperty(named = "saga.bench", matches = "true")
+class DeliveryDispatchBenchmark {
+
+    private static final int STREETS = 80;
+    private static final int PREFETCH = 200;
+
+    @Nested
+    @SpringBootTest(properties = {"delivery.drivers.count=5000", "delivery.drivers.time-scale=1"})
+    @TestPropertySource(properties = {"delivery.dispatch.window-ms=0", "delivery.routing.max-stops=1"})
+    class OneDriverPerOrder extends Peak {
+
+        @Test
+        void peak() throws Exception {
+            run("one driver per order");
+        }
+    }
+
+    @Nested
+    @SpringBootTest(properties = {"delivery.drivers.count=5000", "delivery.drivers.time-scale=1"})
+    @TestPropertySource(properties = {"delivery.dispatch.window-ms=1500", "delivery.routing.max-stops=4"})
+    class MultiDrop extends Peak {
+
+        @Test
+        void peak() throws Exception {
+            run("multi-drop, 1.5 s window, max 4 stops");
+        }
+    }
+
+    abstract static class Peak {
+
+        @Autowired
+        private RabbitListenerEndpointRegistry listenerRegistry;
+
+        @Autowired
+        private MessageConverter messageConverter;
+
+        @Autowired
+        private DeliveryRepository deliveryRepository;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @MockitoBean
+        private RabbitTemplate rabbitTemplate;
+
+        void run(String label) throws Exception {
+            int orders = Integer.getInteger("saga.bench.orders", 1000);
+            ChannelAwareMessageListener listener = deliveryListener();
+            Channel channel = mock(Channel.class);
+            Semaphore unacknowledged = new Semaphore(PREFETCH);
+            Map<String, Long> receivedAt = new ConcurrentHashMap<>();
+            long[] latencies = new long[orders];
+            int[] handled = new int[1];
+
+            doAnswer(invocation -> {
+                long at = System.nanoTime();
+                String orderId = orderId(invocation.getArgument(2));
+                Long received = receivedAt.remove(orderId);
+                if (received != null) {
+                    synchronized (latencies) {
+                        latencies[handled[0]++] = at - received;
+                    }
+                    unacknowledged.release();
+                }
+                return null;
+            }).when(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.SAGA_EXCHANGE),
+                    eq(RabbitMQConfig.ORDER_EVENT_ROUTING_KEY), any(Object.class));
+
+            Random random = new Random(7);
+            long start = System.nanoTime();
+            for (int i = 0; i < orders; i++) {
+                AssignDeliveryCommand command = new AssignDeliveryCommand(UUID.randomUUID().toString(),
+                        (1 + random.nextInt(200)) + " Peak Street " + random.nextInt(STREETS),
+                        random.nextInt(8), "CUST" + random.nextInt(100), "Margherita");
+                MessageProperties properties = new MessageProperties();
+                properties.setDeliveryTag(i + 1);
+                Message message = messageConverter.toMessage(command, properties);
+
+                unacknowledged.acquire();
+                receivedAt.put(command.getOrderId(), System.nanoTime());
+                listener.onMessage(message, channel);
+            }
+            if (!unacknowledged.tryAcquire(PREFETCH, 60, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Commands still unacknowledged after 60 s");
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long assigned = 0;
+            for (Delivery delivery : deliveryRepository.findAll()) {
+                if (delivery.getStatus() == DeliveryStatus.ASSIGNED) {
+                    assigned++;
+                }
+            }
+            DistributionSummary routes = meterRegistry.get("delivery.dispatch.route.distance").summary();
+            long[] sorted = Arrays.copyOf(latencies, handled[0]);
+            Arrays.sort(sorted);
+
+            System.out.printf("%-40s %,7.0f orders/s  latency p50 %6.0f ms p99 %6.0f ms  %,d assigned  %4d drivers %8.1f km%n",
+                    label, orders / seconds, sorted[sorted.length / 2] / 1e6, sorted[sorted.length * 99 / 100] / 1e6,
+                    assigned, routes.count(), routes.totalAmount());
+        }
+
+        private ChannelAwareMessageListener deliveryListener() {
+            return listenerRegistry.getListenerContainers().stream()
+                    .map(AbstractMessageListenerContainer.class::cast)
+                    .filter(container -> Arrays.asList(container.getQueueNames())
+                            .contains(RabbitMQConfig.DELIVERY_COMMAND_QUEUE))
+                    .map(container -> (ChannelAwareMessageListener) container.getMessageListener())
+                    .findFirst()
+                    .orElseThrow();
+        }
+
+        private static String orderId(Object event) {
+            try {
+                return (String) event.getClass().getMethod("getOrderId").invoke(event);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
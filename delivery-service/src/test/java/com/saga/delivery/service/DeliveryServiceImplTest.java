@@ -0,0 +1,122 @@
+package com.saga.delivery.service;
+
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.contracts.command.CancelDeliveryCommand;
+import com.saga.contracts.event.DeliveryAssignedEvent;
+import com.saga.delivery.config.RabbitMQConfig;
+import com.saga.delivery.domain.Delivery;
+import com.saga.delivery.domain.DeliveryStatus;
+import com.saga.delivery.repository.DeliveryRepository;
+import com.saga.delivery.routing.DriverPool;
+import com.saga.delivery.routing.EtaEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "delivery.dispatch.window-ms=2000",
+        // Drivers stay out for the real route time
+        "delivery.drivers.time-scale=1"
+})
+class DeliveryServiceImplTest {
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private DriverPool driverPool;
+
+    @Autowired
+    private EtaEngine etaEngine;
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Test
+    void listenerDoesNotWaitForTheDispatchWindow() {
+        AssignDeliveryCommand first = command("1 Listener Street");
+        AssignDeliveryCommand second = command("3 Listener Street");
+
+        CompletableFuture<Void> firstHandled = deliveryService.assignDelivery(first);
+        CompletableFuture<Void> secondHandled = deliveryService.assignDelivery(second);
+
+        assertThat(firstHandled).isNotDone();
+        // The PENDING deliveries are committed before the window closes
+        assertThat(delivery(first).getStatus()).isEqualTo(DeliveryStatus.PENDING);
+        assertThat(delivery(second).getStatus()).isEqualTo(DeliveryStatus.PENDING);
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        firstHandled.join();
+        secondHandled.join();
+
+        verify(rabbitTemplate, times(2)).convertAndSend(eq(RabbitMQConfig.SAGA_EXCHANGE),
+                eq(RabbitMQConfig.ORDER_EVENT_ROUTING_KEY), any(DeliveryAssignedEvent.class));
+        // Next door to each other, so one driver takes both
+        assertThat(delivery(first).getRouteId()).isEqualTo(delivery(second).getRouteId());
+        cancel(first);
+        cancel(second);
+    }
+
+    @Test
+    void cancellingEveryOrderOnARouteReleasesItsDriver() {
+        AssignDeliveryCommand first = command("1 Cancel Street");
+        AssignDeliveryCommand second = command("3 Cancel Street");
+        int available = driverPool.available();
+        CompletableFuture.allOf(deliveryService.assignDelivery(first), deliveryService.assignDelivery(second)).join();
+        assertThat(driverPool.available()).isEqualTo(available - 1);
+
+        cancel(first);
+        assertThat(etaEngine.eta(first.getOrderId())).isEmpty();
+        assertThat(etaEngine.eta(second.getOrderId())).hasValueSatisfying(eta -> assertThat(eta.stop()).isEqualTo(1));
+        assertThat(driverPool.available()).isEqualTo(available - 1);
+
+        cancel(second);
+        assertThat(etaEngine.eta(second.getOrderId())).isEmpty();
+        assertThat(driverPool.available()).isEqualTo(available);
+        assertThat(delivery(second).getStatus()).isEqualTo(DeliveryStatus.CANCELLED);
+    }
+
+    @Test
+    void orderCancelledWhileWaitingForTheWindowDoesNotKeepADriver() {
+        AssignDeliveryCommand command = command("5 Waiting Street");
+        int available = driverPool.available();
+
+        CompletableFuture<Void> handled = deliveryService.assignDelivery(command);
+        cancel(command);
+        handled.join();
+
+        assertThat(delivery(command).getStatus()).isEqualTo(DeliveryStatus.CANCELLED);
+        assertThat(etaEngine.eta(command.getOrderId())).isEmpty();
+        assertThat(driverPool.available()).isEqualTo(available);
+        verify(rabbitTemplate, never()).convertAndSend(eq(RabbitMQConfig.SAGA_EXCHANGE),
+                eq(RabbitMQConfig.ORDER_EVENT_ROUTING_KEY), any(DeliveryAssignedEvent.class));
+    }
+
+    private void cancel(AssignDeliveryCommand command) {
+        deliveryService.cancelDelivery(new CancelDeliveryCommand(command.getOrderId(), "Saga compensated")).join();
+    }
+
+    private Delivery delivery(AssignDeliveryCommand command) {
+        return deliveryRepository.findByOrderId(UUID.fromString(command.getOrderId())).orElseThrow();
+    }
+
+    private static AssignDeliveryCommand command(String address) {
+        return new AssignDeliveryCommand(UUID.randomUUID().toString(), address, null, "CUST001", "Margherita");
+    }
+}
@@ -0,0 +1,122 @@
+#!/usr/bin/env bash
+# Fast startup of a saga service: Spring AOT, a CDS archive, lazy initialization and warm-up.
+#
+#   infra/fast-startup.sh build <service>         AOT-processed jar, extracted, plus its CDS archive
+#   infra/fast-startup.sh run <service> [args]    start it with AOT, CDS and the fast-startup profile
+#   infra/fast-startup.sh bench <service> [runs]  time-to-first-message of each startup mode
+#
+# build needs saga-contracts and saga-runtime installed (mvn install from the root). The CDS
+# archive is recorded by a training run that refreshes the application context and exits, so it
+# holds the classes loaded during startup; rebuild it whenever the jar changes, the JVM ignores an
+# archive that does not match its classpath.
+#
+# bench needs RabbitMQ on localhost with the management plugin on port 15672. For each mode it
+# queues one command for the service, starts it, and reads the time from JVM start to that
+# first message from the service's "First message handled" log line (also exposed as the
+# saga.startup.first-message gauge).
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+RABBIT_API="${RABBIT_API:-http://localhost:15672/api}"
+RABBIT_USER="${RABBIT_USER:-guest:guest}"
+
+usage() {
+    sed -n '2,6p' "$0" | sed 's/^# \{0,1\}//'
+    exit 1
+}
+
+[ $# -ge 2 ] || usage
+command="$1"
+service="$2"
+shift 2
+dir="$ROOT/$service"
+[ -f "$dir/pom.xml" ] || { echo "No such service: $service" >&2; exit 1; }
+out="$dir/target/fast-startup"
+jar="$out/$service-0.0.1-SNAPSHOT.jar"
+archive="$out/application.jsa"
+profile="-Dspring.profiles.active=fast-startup"
+
+build() {
+    (cd "$dir" && mvn -B -q -Pfast-startup -DskipTests package)
+    rm -rf "$out"
+    java -Djarmode=tools -jar "$dir/target/$service-0.0.1-SNAPSHOT.jar" extract --destination "$out"
+    java -XX:ArchiveClassesAtExit="$archive" -Dspring.context.exit=onRefresh \
+        -Dspring.aot.enabled=true "$profile" -jar "$jar" > "$out/training.log" 2>&1
+    echo "Built $jar with CDS archive $archive"
+}
+
+run() {
+    [ -f "$archive" ] || build
+    exec java -XX:SharedArchiveFile="$archive" -Dspring.aot.enabled=true "$profile" -jar "$jar" "$@"
+}
+
+rabbit() {
+    curl -sf -u "$RABBIT_USER" -H 'content-type: application/json' -X "$1" "$RABBIT_API$2" -d "$3" > /dev/null
+}
+
+# Queue the first message the service will take: a command, or an event for the orchestrator
+queue_first_message() {
+    local queue key type payload order_id
+    order_id="$(cat /proc/sys/kernel/random/uuid)"
+    case "$service" in
+        payment-service)
+            queue=payment.command.queue key=payment.command type=ProcessPaymentCommand
+            payload="{\"orderId\":\"$order_id\",\"amount\":12.5,\"customerId\":\"bench\"}" ;;
+        kitchen-service)
+            queue=kitchen.command.queue key=kitchen.command type=PreparePizzaCommand
+            payload="{\"orderId\":\"$order_id\",\"pizzaType\":\"Margherita\",\"quantity\":1}" ;;
+        delivery-service)
+            queue=delivery.command.queue key=delivery.command type=AssignDeliveryCommand
+            payload="{\"orderId\":\"$order_id\",\"deliveryAddress\":\"1 Main Street\"}" ;;
+        order-service)
+            queue=order.event.queue key=order.event type=PaymentFailedEvent
+            payload="{\"orderId\":\"$order_id\",\"reason\":\"bench\"}" ;;
+    esac
+    rabbit PUT /exchanges/%2F/saga.exchange '{"type":"topic","durable":true}'
+    rabbit PUT "/queues/%2F/$queue" '{"durable":true}'
+    rabbit POST "/bindings/%2F/e/saga.exchange/q/$queue" "{\"routing_key\":\"$key\"}"
+    rabbit POST /exchanges/%2F/saga.exchange/publish "$(printf \
+        '{"properties":{"content_type":"application/json","headers":{"__TypeId__":"%s"}},"routing_key":"%s","payload":"%s","payload_encoding":"string"}' \
+        "$type" "$key" "${payload//\"/\\\"}")"
+}
+
+# Start the service with the given JVM options and print its time-to-first-message in ms
+first_message_ms() {
+    local log="$out/bench.log" pid ms=""
+    queue_first_message
+    java "$@" -jar "$jar" > "$log" 2>&1 &
+    pid=$!
+    for _ in $(seq 1 240); do
+        ms="$(grep -o 'First message handled sinceJvmStartMs=[0-9]*' "$log" | grep -o '[0-9]*$' || true)"
+        [ -n "$ms" ] && break
+        kill -0 "$pid" 2> /dev/null || break
+        sleep 0.5
+    done
+    kill "$pid" 2> /dev/null || true
+    wait "$pid" 2> /dev/null || true
+    echo "${ms:-timeout}"
+}
+
+bench() {
+    local runs="${1:-3}"
+    [ -f "$archive" ] || build
+    local -a names=("baseline" "lazy + warm-up" "lazy + warm-up + AOT" "lazy + warm-up + AOT + CDS")
+    local -a modes=("" "$profile" "$profile -Dspring.aot.enabled=true"
+        "$profile -Dspring.aot.enabled=true -XX:SharedArchiveFile=$archive")
+    printf '%s time-to-first-message (ms), %d runs per mode\n' "$service" "$runs"
+    for i in "${!modes[@]}"; do
+        local times=()
+        for _ in $(seq 1 "$runs"); do
+            # shellcheck disable=SC2086
+            times+=("$(first_message_ms ${modes[$i]})")
+        done
+        printf '  %-28s %s\n' "${names[$i]}" "${times[*]}"
+    done
+}
+
+case "$command" in
+    build) build ;;
+    run) run "$@" ;;
+    bench) bench "$@" ;;
+    *) usage ;;
+esac
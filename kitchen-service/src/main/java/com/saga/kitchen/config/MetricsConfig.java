@@ -0,0 +1,29 @@
+package com.saga.kitchen.config;
+
+import com.saga.contracts.command.CancelPreparationCommand;
+import com.saga.contracts.command.PreparePizzaCommand;
+import com.saga.contracts.event.KitchenFailedEvent;
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.contracts.event.PreparationCancelledEvent;
+import com.saga.runtime.metrics.ParticipantMetrics;
+import com.saga.runtime.startup.StartupTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * The messages the kitchen participant counts and times: the commands it handles and the
+ * events it answers with
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public ParticipantMetrics kitchenMetrics(MeterRegistry meterRegistry, StartupTimer startupTimer) {
+        return new ParticipantMetrics(meterRegistry, startupTimer,
+                List.of(PreparePizzaCommand.class, CancelPreparationCommand.class),
+                List.of(PizzaPreparedEvent.class, KitchenFailedEvent.class, PreparationCancelledEvent.class));
+    }
+}
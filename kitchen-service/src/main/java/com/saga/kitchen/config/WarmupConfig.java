@@ -0,0 +1,21 @@
+package com.saga.kitchen.config;
+
+import com.saga.kitchen.repository.KitchenRepository;
+import com.saga.runtime.startup.WarmupTask;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+/**
+ * What the shared startup warm-up runs on top of message conversion: the listener's repository
+ * lookup, for orders that do not exist
+ */
+@Configuration
+public class WarmupConfig {
+
+    @Bean
+    public WarmupTask kitchenLookup(KitchenRepository kitchenRepository) {
+        return () -> kitchenRepository.findByOrderId(UUID.randomUUID());
+    }
+}
@@ -0,0 +1,72 @@
+package com.saga.kitchen.controller;
+
+import com.saga.kitchen.domain.Ingredient;
+import com.saga.kitchen.domain.Recipe;
+import com.saga.kitchen.dto.ReplenishRequest;
+import com.saga.kitchen.service.IngredientInventory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/kitchen/inventory")
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryController {
+
+    private final IngredientInventory ingredientInventory;
+
+    /**
+     * Get the stock of every ingredient
+     */
+    @GetMapping
+    public ResponseEntity<Map<Ingredient, Integer>> getStock() {
+        return ResponseEntity.ok(ingredientInventory.stock());
+    }
+
+    /**
+     * Get the portions of each ingredient per pizza, by pizza type
+     */
+    @GetMapping("/recipes")
+    public ResponseEntity<Map<String, Map<Ingredient, Integer>>> getRecipes() {
+        return ResponseEntity.ok(ingredientInventory.recipes());
+    }
+
+    /**
+     * Add or replace the recipe of a pizza type (admin). A pizza type added to the order
+     * service's menu needs one before the kitchen can prepare it; an empty recipe or a
+     * non-positive portion is rejected with 400.
+     */
+    @PutMapping("/recipes/{pizzaType}")
+    public ResponseEntity<Recipe> putRecipe(@PathVariable String pizzaType,
+                                            @RequestBody Map<Ingredient, Integer> portions) {
+        Recipe recipe;
+        try {
+            recipe = new Recipe(pizzaType, portions);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(ingredientInventory.putRecipe(recipe));
+    }
+
+    /**
+     * Add delivered portions of an ingredient to stock (admin)
+     */
+    @PostMapping("/{ingredient}/replenish")
+    public ResponseEntity<Map<Ingredient, Integer>> replenish(@PathVariable String ingredient,
+                                                              @RequestBody ReplenishRequest request) {
+        Ingredient delivered;
+        try {
+            delivered = Ingredient.valueOf(ingredient.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.quantity() <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(Map.of(delivered, ingredientInventory.replenish(delivered, request.quantity())));
+    }
+}
@@ -7,6 +7,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/kitchen")
 @RequiredArgsConstructor
@@ -19,7 +21,7 @@ public class KitchenController {
      * Get kitchen order by order ID
      */
     @GetMapping("/order/{orderId}")
-    public ResponseEntity<Kitchen> getKitchenOrderByOrderId(@PathVariable String orderId) {
+    public ResponseEntity<Kitchen> getKitchenOrderByOrderId(@PathVariable UUID orderId) {
         return kitchenService.getKitchenOrderByOrderId(orderId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
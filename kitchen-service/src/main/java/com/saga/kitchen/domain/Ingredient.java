@@ -0,0 +1,20 @@
+package com.saga.kitchen.domain;
+
+/**
+ * Ingredients kept in stock, counted in portions (one portion tops one pizza)
+ */
+public enum Ingredient {
+    DOUGH,
+    TOMATO_SAUCE,
+    BBQ_SAUCE,
+    MOZZARELLA,
+    BASIL,
+    PEPPERONI,
+    HAM,
+    PINEAPPLE,
+    CHICKEN,
+    ONIONS,
+    PEPPERS,
+    MUSHROOMS,
+    OLIVES
+}
@@ -4,5 +4,6 @@ public enum KitchenStatus {
     PENDING,
     PREPARING,
     PREPARED,
-    FAILED
+    FAILED,
+    CANCELLED
 }
\ No newline at end of file
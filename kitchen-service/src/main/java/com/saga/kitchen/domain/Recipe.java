@@ -0,0 +1,44 @@
+package com.saga.kitchen.domain;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Portions of each ingredient needed for one pizza of a type
+ */
+public record Recipe(String pizzaType, Map<Ingredient, Integer> portions) {
+
+    public Recipe {
+        if (pizzaType == null || pizzaType.isBlank()) {
+            throw new IllegalArgumentException("A recipe needs a pizza type");
+        }
+        if (portions == null || portions.isEmpty()) {
+            throw new IllegalArgumentException("A recipe needs at least one ingredient: " + pizzaType);
+        }
+        portions.forEach((ingredient, amount) -> {
+            if (ingredient == null || amount == null || amount <= 0) {
+                throw new IllegalArgumentException("Portions must be positive: " + ingredient + "=" + amount);
+            }
+        });
+        portions = Map.copyOf(portions);
+    }
+
+    /**
+     * Recipes of the pizza types on the default menu; the kitchen starts with these
+     */
+    public static final List<Recipe> DEFAULTS = List.of(
+            new Recipe("Margherita", Map.of(
+                    Ingredient.DOUGH, 1, Ingredient.TOMATO_SAUCE, 1, Ingredient.MOZZARELLA, 2, Ingredient.BASIL, 1)),
+            new Recipe("Pepperoni", Map.of(
+                    Ingredient.DOUGH, 1, Ingredient.TOMATO_SAUCE, 1, Ingredient.MOZZARELLA, 2, Ingredient.PEPPERONI, 2)),
+            new Recipe("Vegetarian", Map.of(
+                    Ingredient.DOUGH, 1, Ingredient.TOMATO_SAUCE, 1, Ingredient.MOZZARELLA, 1,
+                    Ingredient.PEPPERS, 1, Ingredient.MUSHROOMS, 1, Ingredient.OLIVES, 1, Ingredient.ONIONS, 1)),
+            new Recipe("Hawaiian", Map.of(
+                    Ingredient.DOUGH, 1, Ingredient.TOMATO_SAUCE, 1, Ingredient.MOZZARELLA, 2,
+                    Ingredient.HAM, 1, Ingredient.PINEAPPLE, 1)),
+            new Recipe("BBQ Chicken", Map.of(
+                    Ingredient.DOUGH, 1, Ingredient.BBQ_SAUCE, 1, Ingredient.MOZZARELLA, 2,
+                    Ingredient.CHICKEN, 2, Ingredient.ONIONS, 1))
+    );
+}
@@ -0,0 +1,7 @@
+package com.saga.kitchen.dto;
+
+/**
+ * Portions of an ingredient delivered to the kitchen
+ */
+public record ReplenishRequest(int quantity) {
+}
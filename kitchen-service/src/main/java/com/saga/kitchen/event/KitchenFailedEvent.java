@@ -1,15 +0,0 @@
-package com.saga.kitchen.event;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-import java.io.Serializable;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class KitchenFailedEvent implements Serializable {
-    private String orderId;
-    private String reason;
-}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.saga.kitchen.fault;
+
+import com.saga.runtime.fault.FaultInjector;
+import com.saga.runtime.fault.FaultRule;
+import com.saga.runtime.fault.FaultType;
+import com.saga.runtime.fault.LatencyDistribution;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Fault injection into the kitchen steps. The default rule, from
+ * {@code kitchen.failure.simulation.*}, is a fixed two-second preparation that is declined at
+ * the configured rate.
+ */
+@Configuration
+public class FaultConfig {
+
+    private static final long PREPARATION_MILLIS = 2000;
+
+    @Bean
+    public FaultInjector<FaultStep> faultInjector(MeterRegistry meterRegistry,
+                                                  @Value("${kitchen.failure.simulation.enabled:false}") boolean failureSimulationEnabled,
+                                                  @Value("${kitchen.failure.simulation.rate:0.2}") double failureRate) {
+        return new FaultInjector<>(FaultStep.class, List.of(new FaultRule<>(FaultStep.PREPARE, null, null,
+                new LatencyDistribution.Fixed(PREPARATION_MILLIS),
+                failureSimulationEnabled ? failureRate : 0, FaultType.DECLINE, 0)), meterRegistry);
+    }
+}
@@ -0,0 +1,23 @@
+package com.saga.kitchen.fault;
+
+import com.saga.runtime.fault.InjectableStep;
+
+/**
+ * Steps of the kitchen participant that faults can be injected into
+ */
+public enum FaultStep implements InjectableStep {
+
+    PREPARE("Kitchen capacity full"),
+    CANCEL(null);
+
+    private final String declineReason;
+
+    FaultStep(String declineReason) {
+        this.declineReason = declineReason;
+    }
+
+    @Override
+    public String declineReason() {
+        return declineReason;
+    }
+}
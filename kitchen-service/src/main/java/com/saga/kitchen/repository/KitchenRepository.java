@@ -5,8 +5,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface KitchenRepository extends JpaRepository<Kitchen, String> {
-    Optional<Kitchen> findByOrderId(String orderId);
+public interface KitchenRepository extends JpaRepository<Kitchen, UUID> {
+    Optional<Kitchen> findByOrderId(UUID orderId);
 }
\ No newline at end of file
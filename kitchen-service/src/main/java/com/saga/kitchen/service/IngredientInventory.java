@@ -0,0 +1,233 @@
+package com.saga.kitchen.service;
+
+import com.saga.kitchen.domain.Ingredient;
+import com.saga.kitchen.domain.Recipe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Ingredient stock of this kitchen and the recipes that draw on it.
+ * <p>
+ * Stock is one lock-free counter per ingredient. A reservation takes every ingredient of the
+ * recipe with a compare-and-set that never lets a counter go below zero, and puts back what it
+ * already took as soon as one ingredient runs short, so concurrent orders never oversell and
+ * never wait on a lock or a database row. Reserved portions are gone from stock until released.
+ * <p>
+ * The recipes start as {@link Recipe#DEFAULTS}, matching the default menu. A pizza type added to
+ * the menu in the order service needs its recipe added here through {@link #putRecipe}; until
+ * then its orders fail for lack of a recipe. A recipe change swaps in a new lookup table, so a
+ * reservation sees either the old recipe or the new one. Recipes are kept in memory, like the
+ * stock, and go back to the defaults on restart.
+ * <ul>
+ *     <li>{@code kitchen.inventory.stock{ingredient}} - portions in stock</li>
+ *     <li>{@code kitchen.inventory.shortages{ingredient}} - orders refused for lack of an ingredient</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class IngredientInventory {
+
+    private static final Ingredient[] INGREDIENTS = Ingredient.values();
+
+    private final AtomicIntegerArray stock = new AtomicIntegerArray(INGREDIENTS.length);
+    /** Recipes by lower-cased pizza type */
+    private volatile Map<String, Recipe> recipes;
+    /** Portions for one pizza by lower-cased pizza type, in the shape of a reservation */
+    private volatile Map<String, Reservation> perPizza;
+    private final Counter[] shortages = new Counter[INGREDIENTS.length];
+
+    /**
+     * Portions taken for one order; {@link #release()} puts them back, once
+     */
+    public final class Reservation {
+
+        private final int[] ingredients;
+        private final int[] amounts;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Reservation(int[] ingredients, int[] amounts) {
+            this.ingredients = ingredients;
+            this.amounts = amounts;
+        }
+
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            for (int i = 0; i < ingredients.length; i++) {
+                stock.addAndGet(ingredients[i], amounts[i]);
+            }
+        }
+
+        /**
+         * Release the portions if the current transaction rolls back, also when only its commit
+         * fails. The stock is not part of the transaction, so without this a rolled-back order
+         * would keep its portions and take them again when the command is redelivered.
+         */
+        public Reservation releaseOnRollback() {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status == STATUS_ROLLED_BACK) {
+                            release();
+                        }
+                    }
+                });
+            }
+            return this;
+        }
+    }
+
+    @Autowired
+    public IngredientInventory(MeterRegistry meterRegistry,
+                               @Value("${kitchen.inventory.initial-stock:500}") int initialStock) {
+        this(meterRegistry, initialStock, Recipe.DEFAULTS);
+    }
+
+    IngredientInventory(MeterRegistry meterRegistry, int initialStock, Collection<Recipe> recipes) {
+        swapIn(recipes.stream().collect(Collectors.toMap(recipe -> recipe.pizzaType().toLowerCase(),
+                Function.identity())));
+        for (Ingredient ingredient : INGREDIENTS) {
+            int index = ingredient.ordinal();
+            stock.set(index, Math.max(0, initialStock));
+            String tag = ingredient.name().toLowerCase();
+            Gauge.builder("kitchen.inventory.stock", stock, s -> s.get(index))
+                    .description("Portions of an ingredient in stock")
+                    .tag("ingredient", tag)
+                    .register(meterRegistry);
+            shortages[index] = Counter.builder("kitchen.inventory.shortages")
+                    .description("Orders refused because an ingredient ran short")
+                    .tag("ingredient", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Take the ingredients for quantity pizzas of a type, all or nothing
+     *
+     * @throws IngredientShortageException when the type has no recipe or an ingredient is short
+     */
+    public Reservation reserve(String pizzaType, int quantity) {
+        Reservation recipe = pizzaType == null ? null : perPizza.get(pizzaType.toLowerCase());
+        if (recipe == null) {
+            throw new IngredientShortageException(null, "No recipe for " + pizzaType);
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+
+        int[] amounts = new int[recipe.ingredients.length];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = Math.multiplyExact(recipe.amounts[i], quantity);
+            if (!take(recipe.ingredients[i], amounts[i])) {
+                for (int j = 0; j < i; j++) {
+                    stock.addAndGet(recipe.ingredients[j], amounts[j]);
+                }
+                Ingredient ingredient = INGREDIENTS[recipe.ingredients[i]];
+                shortages[ingredient.ordinal()].increment();
+                throw new IngredientShortageException(ingredient, "Out of " + ingredient.name().toLowerCase()
+                        + ": " + amounts[i] + " portions needed, " + available(ingredient) + " in stock");
+            }
+        }
+        return new Reservation(recipe.ingredients, amounts);
+    }
+
+    /**
+     * Add delivered portions to stock, returning the new level
+     */
+    public int replenish(Ingredient ingredient, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        int level = stock.accumulateAndGet(ingredient.ordinal(), quantity, IngredientInventory::saturatedAdd);
+        log.info("Ingredient replenished {} {} {}", kv("ingredient", ingredient), kv("quantity", quantity),
+                kv("stock", level));
+        return level;
+    }
+
+    public int available(Ingredient ingredient) {
+        return stock.get(ingredient.ordinal());
+    }
+
+    /**
+     * Current stock of every ingredient
+     */
+    public Map<Ingredient, Integer> stock() {
+        Map<Ingredient, Integer> levels = new EnumMap<>(Ingredient.class);
+        for (Ingredient ingredient : INGREDIENTS) {
+            levels.put(ingredient, available(ingredient));
+        }
+        return levels;
+    }
+
+    /**
+     * Portions per pizza by pizza type
+     */
+    public Map<String, Map<Ingredient, Integer>> recipes() {
+        return recipes.values().stream().collect(Collectors.toMap(Recipe::pizzaType, Recipe::portions));
+    }
+
+    /**
+     * Add the recipe of a pizza type, or replace it; reservations already taken keep their portions
+     */
+    public synchronized Recipe putRecipe(Recipe recipe) {
+        Map<String, Recipe> updated = new HashMap<>(recipes);
+        updated.put(recipe.pizzaType().toLowerCase(), recipe);
+        swapIn(updated);
+        log.info("Recipe updated {} {}", kv("pizzaType", recipe.pizzaType()), kv("portions", recipe.portions()));
+        return recipe;
+    }
+
+    private void swapIn(Map<String, Recipe> byPizzaType) {
+        Map<String, Reservation> portions = byPizzaType.entrySet().stream().collect(Collectors.toUnmodifiableMap(
+                Map.Entry::getKey, entry -> portionsPerPizza(entry.getValue())));
+        this.recipes = Map.copyOf(byPizzaType);
+        this.perPizza = portions;
+    }
+
+    private boolean take(int ingredient, int amount) {
+        while (true) {
+            int current = stock.get(ingredient);
+            if (current < amount) {
+                return false;
+            }
+            if (stock.compareAndSet(ingredient, current, current - amount)) {
+                return true;
+            }
+        }
+    }
+
+    private Reservation portionsPerPizza(Recipe recipe) {
+        List<Map.Entry<Ingredient, Integer>> entries = recipe.portions().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .toList();
+        return new Reservation(
+                entries.stream().mapToInt(entry -> entry.getKey().ordinal()).toArray(),
+                entries.stream().mapToInt(Map.Entry::getValue).toArray());
+    }
+
+    private static int saturatedAdd(int current, int quantity) {
+        long sum = (long) current + quantity;
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+}
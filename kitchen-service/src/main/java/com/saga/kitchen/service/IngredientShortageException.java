@@ -0,0 +1,19 @@
+package com.saga.kitchen.service;
+
+import com.saga.kitchen.domain.Ingredient;
+import lombok.Getter;
+
+/**
+ * Thrown when an order cannot be cooked with the ingredients in stock, or has no recipe
+ */
+@Getter
+public class IngredientShortageException extends RuntimeException {
+
+    /** The ingredient that ran short, or null when the pizza type has no recipe */
+    private final Ingredient ingredient;
+
+    public IngredientShortageException(Ingredient ingredient, String message) {
+        super(message);
+        this.ingredient = ingredient;
+    }
+}
@@ -1,9 +1,11 @@
 package com.saga.kitchen.service;
 
-import com.saga.kitchen.command.PreparePizzaCommand;
+import com.saga.contracts.command.CancelPreparationCommand;
+import com.saga.contracts.command.PreparePizzaCommand;
 import com.saga.kitchen.domain.Kitchen;
 
 import java.util.Optional;
+import java.util.UUID;
 
 public interface KitchenService {
 
@@ -12,10 +14,15 @@ public interface KitchenService {
      */
     void preparePizza(PreparePizzaCommand command);
 
+    /**
+     * Cancel the kitchen order of a saga being compensated (COMPENSATION)
+     */
+    void cancelPreparation(CancelPreparationCommand command);
+
     /**
      * Get kitchen order by order ID
      */
-    Optional<Kitchen> getKitchenOrderByOrderId(String orderId);
+    Optional<Kitchen> getKitchenOrderByOrderId(UUID orderId);
 
     /**
      * Get all kitchen orders
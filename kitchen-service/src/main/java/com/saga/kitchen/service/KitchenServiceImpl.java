@@ -1,82 +1,125 @@
 package com.saga.kitchen.service;
 
-import com.saga.kitchen.command.PreparePizzaCommand;
+import com.saga.contracts.command.CancelPreparationCommand;
+import com.saga.contracts.command.PreparePizzaCommand;
+import com.saga.contracts.event.KitchenFailedEvent;
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.contracts.event.PreparationCancelledEvent;
 import com.saga.kitchen.config.RabbitMQConfig;
 import com.saga.kitchen.domain.Kitchen;
 import com.saga.kitchen.domain.KitchenStatus;
-import com.saga.kitchen.event.KitchenFailedEvent;
-import com.saga.kitchen.event.PizzaPreparedEvent;
+import com.saga.kitchen.fault.FaultStep;
 import com.saga.kitchen.repository.KitchenRepository;
+import com.saga.runtime.fault.FaultInjector;
+import com.saga.runtime.idempotency.SingleFlight;
+import com.saga.runtime.metrics.ParticipantMetrics;
+import com.saga.runtime.tracing.InMemorySpanExporter;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.Random;
+import java.util.UUID;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Service
+@RabbitListener(queues = RabbitMQConfig.KITCHEN_COMMAND_QUEUE)
 @RequiredArgsConstructor
 @Slf4j
 public class KitchenServiceImpl implements KitchenService {
 
     private final KitchenRepository kitchenRepository;
     private final RabbitTemplate rabbitTemplate;
-    private final Random random = new Random();
-
-    @Value("${kitchen.failure.simulation.enabled:false}")
-    private boolean failureSimulationEnabled;
-
-    @Value("${kitchen.failure.simulation.rate:0.2}")
-    private double failureRate;
+    private final ParticipantMetrics kitchenMetrics;
+    private final SingleFlight singleFlight;
+    private final IngredientInventory ingredientInventory;
+    private final Tracer tracer;
+    private final FaultInjector<FaultStep> faultInjector;
 
     /**
      * Listen for PreparePizzaCommand from Order Service
      */
     @Override
-    @RabbitListener(queues = RabbitMQConfig.KITCHEN_COMMAND_QUEUE)
+    @RabbitHandler
     @Transactional
     public void preparePizza(PreparePizzaCommand command) {
-        log.info("<<< Received PreparePizzaCommand: {}", command);
+        long startNanos = System.nanoTime();
+        log.info("<<< Received PreparePizzaCommand {} {}",
+                kv("pizzaType", command.getPizzaType()), kv("quantity", command.getQuantity()));
+        kitchenMetrics.commandReceived(command);
+        tagCurrentSpan(command.getOrderId());
+
+        try {
+            singleFlight.execute(command.getOrderId(), () -> preparePizzaOnce(command), event -> {
+                log.warn("Duplicate command joined the one in flight {}", kv("orderId", command.getOrderId()));
+                kitchenMetrics.commandCoalesced(command);
+                publish(event);
+            });
+        } finally {
+            kitchenMetrics.commandHandled(command, startNanos);
+        }
+    }
 
+    /**
+     * Handle the command once, returning the event published to Order Service
+     */
+    private Object preparePizzaOnce(PreparePizzaCommand command) {
+        IngredientInventory.Reservation reservation = null;
         try {
             // Check if already processed (idempotency)
-            Optional<Kitchen> existingOrder = kitchenRepository.findByOrderId(command.getOrderId());
+            Optional<Kitchen> existingOrder = kitchenRepository.findByOrderId(UUID.fromString(command.getOrderId()));
             if (existingOrder.isPresent()) {
-                log.warn("Pizza order already processed for order: {}", command.getOrderId());
+                log.warn("Pizza order already processed {}", kv("orderId", command.getOrderId()));
 
                 Kitchen kitchen = existingOrder.get();
                 if (kitchen.getStatus() == KitchenStatus.PREPARED) {
-                    publishPizzaPreparedEvent(kitchen);
+                    return publishPizzaPreparedEvent(kitchen);
                 } else if (kitchen.getStatus() == KitchenStatus.FAILED) {
-                    publishKitchenFailedEvent(kitchen);
+                    return publishKitchenFailedEvent(kitchen);
                 }
-                return;
+                return null;
             }
 
             // Create kitchen order record
             Kitchen kitchen = new Kitchen();
-            kitchen.setOrderId(command.getOrderId());
+            kitchen.setOrderId(UUID.fromString(command.getOrderId()));
             kitchen.setPizzaType(command.getPizzaType());
             kitchen.setQuantity(command.getQuantity());
             kitchen.setStatus(KitchenStatus.PENDING);
 
+            // Take the ingredients up front, so a short order fails before any cooking starts
+            try {
+                reservation = ingredientInventory.reserve(command.getPizzaType(), command.getQuantity())
+                        .releaseOnRollback();
+            } catch (IngredientShortageException e) {
+                kitchen.setStatus(KitchenStatus.FAILED);
+                kitchen.setFailureReason(e.getMessage());
+                kitchen = kitchenRepository.save(kitchen);
+
+                log.warn("Kitchen failed {} {}", kv("reason", kitchen.getFailureReason()),
+                        kv("ingredient", e.getIngredient()));
+
+                return publishKitchenFailedEvent(kitchen);
+            }
+
             kitchen = kitchenRepository.save(kitchen);
-            log.info("Kitchen order created: {}", kitchen.getId());
+            log.debug("Kitchen order created {}", kv("kitchenId", kitchen.getId()));
 
-            // Simulate pizza preparation delay
             kitchen.setStatus(KitchenStatus.PREPARING);
             kitchenRepository.save(kitchen);
 
-            log.info("🍕 Preparing {} {} pizza(s)...", command.getQuantity(), command.getPizzaType());
-            Thread.sleep(2000); // 2 seconds to "prepare" pizza
-
-            // Simulate kitchen failure
-            boolean preparationSuccessful = simulateKitchenPreparation(command);
+            // Preparation time and kitchen failures come from the fault injection rules
+            log.debug("Preparing pizzas");
+            boolean preparationSuccessful = faultInjector.apply(
+                    FaultStep.PREPARE, command.getPizzaType(), command.getCustomerId());
 
             if (preparationSuccessful) {
                 // Pizza prepared successfully
@@ -84,25 +127,28 @@ public class KitchenServiceImpl implements KitchenService {
                 kitchen.setPreparedAt(LocalDateTime.now());
                 kitchen = kitchenRepository.save(kitchen);
 
-                log.info("✅ Pizza PREPARED for order: {} | Kitchen ID: {}",
-                        command.getOrderId(), kitchen.getId());
+                log.info("Pizza prepared {}", kv("kitchenId", kitchen.getId()));
 
-                publishPizzaPreparedEvent(kitchen);
+                return publishPizzaPreparedEvent(kitchen);
 
             } else {
-                // Kitchen failed
+                // Kitchen failed, the ingredients were not used
+                reservation.release();
+                reservation = null;
                 kitchen.setStatus(KitchenStatus.FAILED);
-                kitchen.setFailureReason("Out of ingredients or kitchen capacity full");
+                kitchen.setFailureReason(FaultStep.PREPARE.declineReason());
                 kitchen = kitchenRepository.save(kitchen);
 
-                log.error("❌ Kitchen FAILED for order: {} | Reason: {}",
-                        command.getOrderId(), kitchen.getFailureReason());
+                log.warn("Kitchen failed {}", kv("reason", kitchen.getFailureReason()));
 
-                publishKitchenFailedEvent(kitchen);
+                return publishKitchenFailedEvent(kitchen);
             }
 
         } catch (Exception e) {
-            log.error("Error preparing pizza for order: {}", command.getOrderId(), e);
+            log.error("Error preparing pizza {}", kv("orderId", command.getOrderId()), e);
+            if (reservation != null) {
+                reservation.release();
+            }
 
             // Publish failure event
             KitchenFailedEvent event = new KitchenFailedEvent(
@@ -110,70 +156,110 @@ public class KitchenServiceImpl implements KitchenService {
                     "Kitchen processing error: " + e.getMessage()
             );
 
-            rabbitTemplate.convertAndSend(
-                    RabbitMQConfig.SAGA_EXCHANGE,
-                    RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
-                    event
-            );
+            return publish(event);
         }
     }
 
     /**
-     * Simulate kitchen preparation with possible failure
+     * Listen for CancelPreparationCommand from Order Service (COMPENSATION).
+     * Always acknowledged, also when there is nothing to cancel, so the saga can finish.
      */
-    private boolean simulateKitchenPreparation(PreparePizzaCommand command) {
-        log.info("Kitchen preparing order...");
-        log.info("Pizza Type: {} | Quantity: {}", command.getPizzaType(), command.getQuantity());
-
-        // Simulate failure based on configuration
-        if (failureSimulationEnabled) {
-            boolean shouldFail = random.nextDouble() < failureRate;
-            if (shouldFail) {
-                log.warn("Simulated kitchen failure ({}% failure rate)", (int)(failureRate * 100));
-                return false;
+    @Override
+    @RabbitHandler
+    @Transactional
+    public void cancelPreparation(CancelPreparationCommand command) {
+        long startNanos = System.nanoTime();
+        log.info("<<< Received CancelPreparationCommand {}", kv("reason", command.getReason()));
+        kitchenMetrics.commandReceived(command);
+        tagCurrentSpan(command.getOrderId());
+
+        try {
+            Optional<Kitchen> kitchenOpt = kitchenRepository.findByOrderId(UUID.fromString(command.getOrderId()));
+            faultInjector.apply(FaultStep.CANCEL, kitchenOpt.map(Kitchen::getPizzaType).orElse(null), null);
+
+            if (kitchenOpt.isEmpty()) {
+                log.warn("No kitchen order found, nothing to cancel {}", kv("orderId", command.getOrderId()));
+            } else if (kitchenOpt.get().getStatus() != KitchenStatus.CANCELLED) {
+                Kitchen kitchen = kitchenOpt.get();
+                kitchen.setStatus(KitchenStatus.CANCELLED);
+                kitchen.setFailureReason(command.getReason());
+                kitchenRepository.save(kitchen);
+                log.info("Kitchen order cancelled {}", kv("kitchenId", kitchen.getId()));
             }
-        }
 
-        // In production, this would check actual kitchen capacity, ingredients, etc.
-        return true;
+            publishPreparationCancelledEvent(command.getOrderId(),
+                    kitchenOpt.map(kitchen -> kitchen.getId().toString()).orElse(null));
+        } finally {
+            kitchenMetrics.commandHandled(command, startNanos);
+        }
     }
 
     /**
      * Publish PizzaPreparedEvent to Order Service
      */
-    private void publishPizzaPreparedEvent(Kitchen kitchen) {
+    private PizzaPreparedEvent publishPizzaPreparedEvent(Kitchen kitchen) {
         PizzaPreparedEvent event = new PizzaPreparedEvent(
-                kitchen.getOrderId(),
-                kitchen.getId()
+                kitchen.getOrderId().toString(),
+                kitchen.getId().toString()
         );
 
-        log.info(">>> Sending PizzaPreparedEvent: {}", event);
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.SAGA_EXCHANGE,
-                RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
-                event
-        );
+        log.debug(">>> Sending PizzaPreparedEvent");
+        return publish(event);
     }
 
     /**
      * Publish KitchenFailedEvent to Order Service
      */
-    private void publishKitchenFailedEvent(Kitchen kitchen) {
+    private KitchenFailedEvent publishKitchenFailedEvent(Kitchen kitchen) {
         KitchenFailedEvent event = new KitchenFailedEvent(
-                kitchen.getOrderId(),
+                kitchen.getOrderId().toString(),
                 kitchen.getFailureReason()
         );
 
-        log.info(">>> Sending KitchenFailedEvent: {}", event);
+        log.debug(">>> Sending KitchenFailedEvent");
+        return publish(event);
+    }
+
+    /**
+     * Publish PreparationCancelledEvent to Order Service
+     */
+    private void publishPreparationCancelledEvent(String orderId, String kitchenId) {
+        PreparationCancelledEvent event = new PreparationCancelledEvent(orderId, kitchenId);
+
+        log.debug(">>> Sending PreparationCancelledEvent");
+        kitchenMetrics.eventPublished(event);
+        rabbitTemplate.convertAndSend(
+                RabbitMQConfig.SAGA_EXCHANGE,
+                RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
+                event
+        );
+    }
+
+    /**
+     * Publish an event to Order Service
+     */
+    private <E> E publish(E event) {
+        kitchenMetrics.eventPublished(event);
         rabbitTemplate.convertAndSend(
                 RabbitMQConfig.SAGA_EXCHANGE,
                 RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
                 event
         );
+        return event;
+    }
+
+    /**
+     * Tag the listener span with the saga's order id so its trace can be looked up by order
+     */
+    private void tagCurrentSpan(String orderId) {
+        Span span = tracer.currentSpan();
+        if (span != null && orderId != null) {
+            span.tag(InMemorySpanExporter.ORDER_ID_TAG, orderId);
+        }
     }
 
     @Override
-    public Optional<Kitchen> getKitchenOrderByOrderId(String orderId) {
+    public Optional<Kitchen> getKitchenOrderByOrderId(UUID orderId) {
         return kitchenRepository.findByOrderId(orderId);
     }
 
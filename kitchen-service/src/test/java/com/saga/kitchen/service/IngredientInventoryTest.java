@@ -0,0 +1,152 @@
+package com.saga.kitchen.service;
+
+import com.saga.kitchen.domain.Ingredient;
+import com.saga.kitchen.domain.Recipe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngredientInventoryTest {
+
+    private static final List<Recipe> RECIPES = List.of(
+            new Recipe("Margherita", Map.of(Ingredient.DOUGH, 1, Ingredient.MOZZARELLA, 2)),
+            new Recipe("Pepperoni", Map.of(Ingredient.DOUGH, 1, Ingredient.PEPPERONI, 3)));
+
+    @Test
+    void shortIngredientReservesNothing() {
+        IngredientInventory inventory = new IngredientInventory(new SimpleMeterRegistry(), 10, RECIPES);
+
+        assertThatThrownBy(() -> inventory.reserve("pepperoni", 4))
+                .isInstanceOfSatisfying(IngredientShortageException.class,
+                        e -> assertThat(e.getIngredient()).isEqualTo(Ingredient.PEPPERONI));
+        assertThat(inventory.available(Ingredient.DOUGH)).isEqualTo(10);
+        assertThat(inventory.available(Ingredient.PEPPERONI)).isEqualTo(10);
+
+        assertThatThrownBy(() -> inventory.reserve("Calzone", 1))
+                .isInstanceOf(IngredientShortageException.class)
+                .hasMessageContaining("No recipe");
+    }
+
+    @Test
+    void releaseAndReplenishReturnStock() {
+        IngredientInventory inventory = new IngredientInventory(new SimpleMeterRegistry(), 10, RECIPES);
+
+        IngredientInventory.Reservation reservation = inventory.reserve("Margherita", 5);
+        assertThat(inventory.available(Ingredient.MOZZARELLA)).isZero();
+        assertThatThrownBy(() -> inventory.reserve("Margherita", 1)).isInstanceOf(IngredientShortageException.class);
+
+        reservation.release();
+        assertThat(inventory.available(Ingredient.DOUGH)).isEqualTo(10);
+        assertThat(inventory.available(Ingredient.MOZZARELLA)).isEqualTo(10);
+
+        assertThat(inventory.replenish(Ingredient.MOZZARELLA, 6)).isEqualTo(16);
+        inventory.reserve("Margherita", 8);
+        assertThat(inventory.available(Ingredient.DOUGH)).isEqualTo(2);
+    }
+
+    @Test
+    void reservationOfARolledBackTransactionGoesBackToStock() {
+        IngredientInventory inventory = new IngredientInventory(new SimpleMeterRegistry(), 10, RECIPES);
+
+        TransactionSynchronizationManager.initSynchronization();
+        inventory.reserve("Margherita", 2).releaseOnRollback();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(inventory.available(Ingredient.DOUGH)).isEqualTo(8);
+
+        // Rolled back at commit, after the handler had already given up on the order
+        TransactionSynchronizationManager.initSynchronization();
+        IngredientInventory.Reservation reservation = inventory.reserve("Margherita", 3).releaseOnRollback();
+        reservation.release();
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(inventory.available(Ingredient.DOUGH)).isEqualTo(8);
+
+        TransactionSynchronizationManager.initSynchronization();
+        inventory.reserve("Margherita", 3).releaseOnRollback();
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(inventory.available(Ingredient.DOUGH)).isEqualTo(8);
+        assertThat(inventory.available(Ingredient.MOZZARELLA)).isEqualTo(6);
+    }
+
+    @Test
+    void pizzaTypeAddedToTheMenuNeedsARecipe() {
+        IngredientInventory inventory = new IngredientInventory(new SimpleMeterRegistry(), 10, RECIPES);
+
+        // On the menu but not in the kitchen yet: the order fails instead of being cooked from nothing
+        assertThatThrownBy(() -> inventory.reserve("Calzone", 1))
+                .isInstanceOf(IngredientShortageException.class)
+                .hasMessageContaining("No recipe");
+
+        inventory.putRecipe(new Recipe("Calzone", Map.of(Ingredient.DOUGH, 2, Ingredient.HAM, 1)));
+        inventory.reserve("calzone", 2);
+        assertThat(inventory.available(Ingredient.DOUGH)).isEqualTo(6);
+        assertThat(inventory.available(Ingredient.HAM)).isEqualTo(8);
+        assertThat(inventory.recipes()).containsKeys("Margherita", "Pepperoni", "Calzone");
+
+        assertThatThrownBy(() -> new Recipe("Calzone", Map.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Recipe("Calzone", Map.of(Ingredient.DOUGH, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        IngredientInventory inventory = new IngredientInventory(new SimpleMeterRegistry(), 1000, RECIPES);
+        int orders = 5000;
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<Boolean>> results = new ArrayList<>(orders);
+        try {
+            for (int i = 0; i < orders; i++) {
+                String pizzaType = i % 2 == 0 ? "Margherita" : "Pepperoni";
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        inventory.reserve(pizzaType, 1);
+                        return true;
+                    } catch (IngredientShortageException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int reserved = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(10, TimeUnit.SECONDS)) {
+                    reserved++;
+                }
+            }
+            // Every reservation takes one dough, so exactly the stock of dough is handed out
+            assertThat(reserved).isLessThanOrEqualTo(1000);
+            assertThat(inventory.available(Ingredient.DOUGH)).isEqualTo(1000 - reserved);
+            assertThat(inventory.available(Ingredient.MOZZARELLA)).isNotNegative();
+            assertThat(inventory.available(Ingredient.PEPPERONI)).isNotNegative();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * End the transaction the reservation was made in the way the transaction manager would
+     */
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
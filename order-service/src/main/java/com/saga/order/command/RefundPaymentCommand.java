@@ -1,14 +0,0 @@
-package com.saga.order.command;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-import java.io.Serializable;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class RefundPaymentCommand implements Serializable {
-    private String orderId;
-    private String reason;
-}
\ No newline at end of file
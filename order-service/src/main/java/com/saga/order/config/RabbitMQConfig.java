@@ -1,13 +1,16 @@
 package com.saga.order.config;
 
+import com.saga.contracts.amqp.SagaMessageConverter;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
@@ -32,6 +35,9 @@ public class RabbitMQConfig {
     public static final String DELIVERY_COMMAND_ROUTING_KEY = "delivery.command";
     public static final String ORDER_EVENT_ROUTING_KEY = "order.event";
 
+    // Container factory of the batch consumer of order events
+    public static final String ORDER_EVENT_BATCH_FACTORY = "orderEventBatchContainerFactory";
+
     // Exchange
     @Bean
     public TopicExchange sagaExchange() {
@@ -93,10 +99,14 @@ public class RabbitMQConfig {
     }
 
     // Message Converter
+    /**
+     * Saga contracts are written and read by the serializers generated in saga-contracts, with
+     * the simple class name as the type id, so a listener dispatches on the actual message type
+     */
     @Bean
     @NonNull
     public MessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+        return new SagaMessageConverter();
     }
 
     // RabbitTemplate
@@ -104,6 +114,29 @@ public class RabbitMQConfig {
     public RabbitTemplate rabbitTemplate(@NonNull ConnectionFactory connectionFactory) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(messageConverter());
+        // Propagates trace context (W3C traceparent) in the AMQP headers of every send
+        template.setObservationEnabled(true);
         return template;
     }
+
+    // Batch listener container (order.event-batch.enabled)
+    /**
+     * Hands order events to the listener in batches of up to batch-size, or whatever arrived
+     * within max-wait-ms. Prefetch is at least the batch size, otherwise batches can never fill.
+     */
+    @Bean(ORDER_EVENT_BATCH_FACTORY)
+    public SimpleRabbitListenerContainerFactory orderEventBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            @NonNull ConnectionFactory connectionFactory,
+            @Value("${order.event-batch.batch-size:100}") int batchSize,
+            @Value("${order.event-batch.max-wait-ms:50}") long maxWaitMillis) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setBatchReceiveTimeout(maxWaitMillis);
+        factory.setPrefetchCount(batchSize);
+        return factory;
+    }
 }
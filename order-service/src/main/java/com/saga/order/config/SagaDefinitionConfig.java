@@ -0,0 +1,47 @@
+package com.saga.order.config;
+
+import com.saga.order.dto.CompensationStep;
+import com.saga.order.dto.SagaStep;
+import com.saga.order.entity.Order;
+import com.saga.order.saga.SagaDefinition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+public class SagaDefinitionConfig {
+
+    /**
+     * Time source of saga timings, deadlines and status timestamps; the saga simulator runs
+     * the orchestrator on a virtual one
+     */
+    @Bean
+    public Clock sagaClock() {
+        return Clock.systemUTC();
+    }
+
+    /**
+     * The pizza order saga. Delivery only needs the payment, so by default it looks for a
+     * driver while the pizza is being prepared; with parallel steps off it waits for the kitchen.
+     */
+    @Bean
+    public SagaDefinition pizzaOrderSaga(@Value("${order.saga.parallel-steps:true}") boolean parallelSteps) {
+        return SagaDefinition.builder("pizza-order")
+                .step(SagaStep.PAYMENT)
+                .output(Order::getPaymentTransactionId, Order::setPaymentTransactionId)
+                .compensatedBy(CompensationStep.PAYMENT)
+
+                .step(SagaStep.KITCHEN)
+                .after(SagaStep.PAYMENT)
+                .output(Order::getKitchenId, Order::setKitchenId)
+                .compensatedBy(CompensationStep.KITCHEN)
+
+                .step(SagaStep.DELIVERY)
+                .after(parallelSteps ? SagaStep.PAYMENT : SagaStep.KITCHEN)
+                .output(Order::getDriverId, Order::setDriverId)
+                .compensatedBy(CompensationStep.DELIVERY)
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.saga.order.config;
+
+import com.saga.order.repository.OrderRepository;
+import com.saga.runtime.startup.WarmupTask;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+/**
+ * What the shared startup warm-up runs on top of message conversion: the listener's repository
+ * lookup, for orders that do not exist
+ */
+@Configuration
+public class WarmupConfig {
+
+    @Bean
+    public WarmupTask orderLookup(OrderRepository orderRepository) {
+        return () -> orderRepository.findById(UUID.randomUUID());
+    }
+}
@@ -0,0 +1,47 @@
+package com.saga.order.controller;
+
+import com.saga.order.dto.MenuItemRequest;
+import com.saga.order.dto.PizzaSize;
+import com.saga.order.entity.MenuItem;
+import com.saga.order.service.MenuCatalog;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/menu")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Menu", description = "Pizza types, sizes, prices and availability used to price new orders")
+public class MenuController {
+
+        private final MenuCatalog menuCatalog;
+
+        @Operation(summary = "List the menu", description = "Every pizza type and size with its price and availability.")
+        @GetMapping
+        public ResponseEntity<List<MenuItem>> menu() {
+                return ResponseEntity.ok(menuCatalog.menu());
+        }
+
+        @Operation(summary = "Add or change a menu item", description = """
+                        Sets the price and availability of a pizza type in one size, adding it to the menu if needed.
+                        New orders are priced from the updated menu as soon as the call returns; orders already
+                        created keep their amount. A new pizza type also needs its recipe in the kitchen
+                        (PUT /api/kitchen/inventory/recipes/{pizzaType}); until then the kitchen fails its orders
+                        for lack of a recipe and the saga compensates them.
+                        """)
+        @PutMapping("/{pizzaType}/{size}")
+        public ResponseEntity<MenuItem> update(
+                        @Parameter(description = "Type/name of the pizza", example = "Margherita") @PathVariable String pizzaType,
+                        @Parameter(description = "Pizza size", example = "LARGE") @PathVariable PizzaSize size,
+                        @Valid @RequestBody MenuItemRequest request) {
+                return ResponseEntity.ok(menuCatalog.update(pizzaType, size, request.getPrice(), request.isAvailable()));
+        }
+}
@@ -2,6 +2,9 @@ package com.saga.order.controller;
 
 import com.saga.order.dto.CreateOrderRequest;
 import com.saga.order.entity.Order;
+import com.saga.order.entity.OrderEvent;
+import com.saga.order.service.AdmissionControl;
+import com.saga.order.service.AdmissionRejectedException;
 import com.saga.order.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,11 +17,19 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
 @RestController
 @RequestMapping("/api/orders")
 @RequiredArgsConstructor
@@ -27,6 +38,7 @@ import org.springframework.web.bind.annotation.*;
 public class OrderController {
 
         private final OrderService orderService;
+        private final AdmissionControl admissionControl;
 
         @Operation(summary = "Create a new pizza order", description = """
                         Creates a new pizza order and initiates the Saga orchestration process.
@@ -49,7 +61,7 @@ public class OrderController {
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "201", description = "Order created successfully and saga initiated", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Order.class), examples = @ExampleObject(name = "Successful Order Creation", value = """
                                         {
-                                          "id": "a1b2c3d4-e5f6-7g8h-9i0j-k1l2m3n4o5p6",
+                                          "id": "01929c3e-5f4a-7b2c-9d8e-0a1b2c3d4e5f",
                                           "customerId": "CUST001",
                                           "pizzaType": "Margherita",
                                           "quantity": 2,
@@ -73,6 +85,15 @@ public class OrderController {
                                             "Quantity must be at least 1"
                                           ]
                                         }
+                                        """))),
+                        @ApiResponse(responseCode = "429", description = "Rejected by admission control: saga backlog too large, too many concurrent creations, or the customer is over their order rate. Retry after the number of seconds in the Retry-After header.", content = @Content(mediaType = "application/json", examples = @ExampleObject(name = "Customer Rate Limited", value = """
+                                        {
+                                          "timestamp": "2024-01-15T10:30:00",
+                                          "status": 429,
+                                          "error": "Too Many Requests",
+                                          "message": "Order creation rejected: CUSTOMER_RATE",
+                                          "reason": "CUSTOMER_RATE"
+                                        }
                                         """)))
         })
         @PostMapping
@@ -103,9 +124,23 @@ public class OrderController {
                                                         }
                                                         """)
                         })) @Valid @RequestBody CreateOrderRequest request) {
-                log.info("Received create order request: {}", request);
-                Order order = orderService.createOrder(request);
-                return ResponseEntity.status(HttpStatus.CREATED).body(order);
+                log.debug("Received create order request {}", kv("customerId", request.getCustomerId()));
+                try (AdmissionControl.Permit ignored = admissionControl.admit(request.getCustomerId())) {
+                        Order order = orderService.createOrder(request);
+                        return ResponseEntity.status(HttpStatus.CREATED).body(order);
+                }
+        }
+
+        @ExceptionHandler(AdmissionRejectedException.class)
+        public ResponseEntity<Map<String, Object>> admissionRejected(AdmissionRejectedException e) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                                .body(Map.of(
+                                                "timestamp", LocalDateTime.now().toString(),
+                                                "status", HttpStatus.TOO_MANY_REQUESTS.value(),
+                                                "error", HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+                                                "message", e.getMessage(),
+                                                "reason", e.getReason()));
         }
 
         @Operation(summary = "Get order by ID", description = """
@@ -131,7 +166,7 @@ public class OrderController {
                         @ApiResponse(responseCode = "200", description = "Order found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Order.class), examples = {
                                         @ExampleObject(name = "Completed Order", value = """
                                                         {
-                                                          "id": "a1b2c3d4-e5f6-7g8h-9i0j-k1l2m3n4o5p6",
+                                                          "id": "01929c3e-5f4a-7b2c-9d8e-0a1b2c3d4e5f",
                                                           "customerId": "CUST001",
                                                           "pizzaType": "Margherita",
                                                           "quantity": 2,
@@ -179,13 +214,41 @@ public class OrderController {
         })
         @GetMapping("/{orderId}")
         public ResponseEntity<Order> getOrder(
-                        @Parameter(description = "Unique identifier of the order (UUID format)", example = "a1b2c3d4-e5f6-7g8h-9i0j-k1l2m3n4o5p6", required = true) @PathVariable @NonNull String orderId) {
-                log.info("Fetching order with ID: {}", orderId);
+                        @Parameter(description = "Unique identifier of the order (UUID format)", example = "01929c3e-5f4a-7b2c-9d8e-0a1b2c3d4e5f", required = true) @PathVariable @NonNull UUID orderId) {
+                log.debug("Fetching order {}", kv("orderId", orderId));
                 return orderService.getOrder(orderId)
                                 .map(ResponseEntity::ok)
                                 .orElse(ResponseEntity.notFound().build());
         }
 
+        @Operation(summary = "Get the event history of an order", description = """
+                        Returns the saga events of an order, oldest first, as stored by the event-sourced
+                        Order aggregate. Empty unless `order.event-sourcing.enabled` is set.
+                        """)
+        @ApiResponse(responseCode = "200", description = "Event history, possibly empty")
+        @GetMapping("/{orderId}/events")
+        public ResponseEntity<List<OrderEvent>> getOrderHistory(
+                        @Parameter(description = "Unique identifier of the order (UUID format)", example = "01929c3e-5f4a-7b2c-9d8e-0a1b2c3d4e5f", required = true) @PathVariable @NonNull UUID orderId) {
+                return ResponseEntity.ok(orderService.getOrderHistory(orderId));
+        }
+
+        @Operation(summary = "Replay an order to a version", description = """
+                        Rebuilds the order from its events as it was after the given number of events,
+                        without using snapshots. Useful to inspect how a saga got to its current state.
+                        """)
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Order state at that version", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Order.class))),
+                        @ApiResponse(responseCode = "404", description = "Order has no events", content = @Content)
+        })
+        @GetMapping("/{orderId}/replay")
+        public ResponseEntity<Order> replayOrder(
+                        @Parameter(description = "Unique identifier of the order (UUID format)", example = "01929c3e-5f4a-7b2c-9d8e-0a1b2c3d4e5f", required = true) @PathVariable @NonNull UUID orderId,
+                        @Parameter(description = "Number of events to apply", example = "3") @RequestParam(defaultValue = "2147483647") int version) {
+                return orderService.replayOrder(orderId, version)
+                                .map(ResponseEntity::ok)
+                                .orElse(ResponseEntity.notFound().build());
+        }
+
         @Operation(summary = "Get all orders", description = """
                         Retrieves all orders in the system.
 
@@ -201,7 +264,7 @@ public class OrderController {
                         @ApiResponse(responseCode = "200", description = "List of all orders retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Order.class), examples = @ExampleObject(name = "Multiple Orders", value = """
                                         [
                                           {
-                                            "id": "a1b2c3d4-e5f6-7g8h-9i0j-k1l2m3n4o5p6",
+                                            "id": "01929c3e-5f4a-7b2c-9d8e-0a1b2c3d4e5f",
                                             "customerId": "CUST001",
                                             "pizzaType": "Margherita",
                                             "quantity": 2,
@@ -231,7 +294,7 @@ public class OrderController {
         })
         @GetMapping
         public ResponseEntity<Iterable<Order>> getAllOrders() {
-                log.info("Fetching all orders");
+                log.debug("Fetching all orders");
                 return ResponseEntity.ok(orderService.getAllOrders());
         }
 }
\ No newline at end of file
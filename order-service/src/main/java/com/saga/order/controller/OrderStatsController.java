@@ -0,0 +1,76 @@
+package com.saga.order.controller;
+
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.dto.PizzaTypeStats;
+import com.saga.order.dto.RevenueSummary;
+import com.saga.order.service.OrderProjection;
+import com.saga.order.service.OrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/orders/stats")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Order Statistics", description = "Read-side projection of the saga for dashboards, maintained incrementally from status transitions")
+public class OrderStatsController {
+
+        private final OrderProjection orderProjection;
+        private final OrderService orderService;
+
+        @Operation(summary = "Count orders per status", description = "Number of orders currently in each saga status.")
+        @GetMapping("/status")
+        public ResponseEntity<Map<OrderStatus, Long>> countsByStatus() {
+                return ResponseEntity.ok(orderProjection.countsByStatus());
+        }
+
+        @Operation(summary = "Count orders in a status", description = "Number of orders currently in the given saga status, e.g. KITCHEN_PENDING.")
+        @GetMapping("/status/{status}")
+        public ResponseEntity<Long> countByStatus(
+                        @Parameter(description = "Saga status", example = "KITCHEN_PENDING") @PathVariable OrderStatus status) {
+                return ResponseEntity.ok(orderProjection.countByStatus(status));
+        }
+
+        @Operation(summary = "Totals per pizza type", description = "Orders placed, orders completed and revenue per pizza type.")
+        @GetMapping("/pizza-types")
+        public ResponseEntity<Map<String, PizzaTypeStats>> pizzaTypeStats() {
+                return ResponseEntity.ok(orderProjection.pizzaTypeStats());
+        }
+
+        @Operation(summary = "Totals for a pizza type")
+        @GetMapping("/pizza-types/{pizzaType}")
+        public ResponseEntity<PizzaTypeStats> pizzaTypeStats(
+                        @Parameter(description = "Type/name of the pizza", example = "Margherita") @PathVariable String pizzaType) {
+                return ResponseEntity.ok(orderProjection.pizzaTypeStats(pizzaType));
+        }
+
+        @Operation(summary = "Revenue today", description = "Revenue from orders completed since local midnight, in total and per pizza type.")
+        @GetMapping("/revenue/today")
+        public ResponseEntity<RevenueSummary> revenueToday() {
+                return ResponseEntity.ok(orderProjection.revenueToday());
+        }
+
+        @Operation(summary = "Revenue over the last hours", description = "Revenue from orders completed in the last N hours (bounded by the retained window).")
+        @GetMapping("/revenue")
+        public ResponseEntity<RevenueSummary> revenueLastHours(
+                        @Parameter(description = "Window size in hours", example = "24") @RequestParam(defaultValue = "24") int hours) {
+                return ResponseEntity.ok(orderProjection.revenueLastHours(hours));
+        }
+
+        @Operation(summary = "Rebuild the projection", description = """
+                        Recomputes every counter from the orders table and swaps the result in atomically.
+                        Intended for recovery; transitions committed while the rebuild runs are not reflected.
+                        """)
+        @PostMapping("/rebuild")
+        public ResponseEntity<Map<String, Long>> rebuild() {
+                log.info("Received projection rebuild request");
+                return ResponseEntity.ok(Map.of("ordersScanned", orderService.rebuildProjection()));
+        }
+}
@@ -0,0 +1,44 @@
+package com.saga.order.controller;
+
+import com.saga.order.dto.SagaTrace;
+import com.saga.order.dto.SpanRecord;
+import com.saga.order.service.InMemorySpanExporter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/traces")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Saga Tracing", description = "Recently finished spans and per-saga critical paths from the in-memory exporter")
+public class TraceController {
+
+        private final InMemorySpanExporter spanExporter;
+
+        @Operation(summary = "Get spans of a trace", description = "Spans recorded by the orchestrator for the given trace, ordered by start time.")
+        @GetMapping("/{traceId}")
+        public ResponseEntity<List<SpanRecord>> getTrace(
+                        @Parameter(description = "Trace identifier", example = "6579a1c2b3d4e5f60718293a4b5c6d7e") @PathVariable String traceId) {
+                List<SpanRecord> spans = spanExporter.getTrace(traceId);
+                return spans.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(spans);
+        }
+
+        @Operation(summary = "Get the critical path of a saga", description = """
+                        Timeline of the saga as seen by the orchestrator, split into WORK segments (orchestrator spans)
+                        and WAIT segments (time between publishing a command and receiving its reply).
+                        The slowest segment points at the step to look at first.
+                        """)
+        @GetMapping("/orders/{orderId}")
+        public ResponseEntity<SagaTrace> getSagaTrace(
+                        @Parameter(description = "Order identifier", example = "01929c3e-5f4a-7b2c-9d8e-0a1b2c3d4e5f") @PathVariable String orderId) {
+                SagaTrace trace = spanExporter.getSagaTrace(orderId);
+                return trace == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(trace);
+        }
+}
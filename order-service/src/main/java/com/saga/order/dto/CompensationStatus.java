@@ -0,0 +1,12 @@
+package com.saga.order.dto;
+
+public enum CompensationStatus {
+    /** The step completed; its undo action is available */
+    REGISTERED,
+    /** The undo command was sent and its acknowledgement is awaited */
+    DISPATCHED,
+    /** The participant confirmed the step was undone */
+    ACKNOWLEDGED,
+    /** No acknowledgement after the last attempt; needs manual attention */
+    FAILED
+}
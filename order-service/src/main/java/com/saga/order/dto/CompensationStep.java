@@ -0,0 +1,10 @@
+package com.saga.order.dto;
+
+/**
+ * Saga steps that can be undone, each by a command to its participant
+ */
+public enum CompensationStep {
+    PAYMENT,
+    KITCHEN,
+    DELIVERY
+}
@@ -23,14 +23,19 @@ public class CreateOrderRequest {
     private String customerId;
 
     @Schema(
-            description = "Type/name of the pizza to order",
+            description = "Type/name of the pizza to order, as listed by GET /api/menu",
             example = "Margherita",
-            allowableValues = {"Margherita", "Pepperoni", "Vegetarian", "Hawaiian", "BBQ Chicken"},
             required = true
     )
     @NotBlank(message = "Pizza type is required")
     private String pizzaType;
 
+    @Schema(
+            description = "Size of the pizzas; MEDIUM when omitted",
+            example = "MEDIUM"
+    )
+    private PizzaSize pizzaSize;
+
     @Schema(
             description = "Number of pizzas to order",
             example = "2",
@@ -48,4 +53,8 @@ public class CreateOrderRequest {
     )
     @NotBlank(message = "Delivery address is required")
     private String deliveryAddress;
+
+    public CreateOrderRequest(String customerId, String pizzaType, Integer quantity, String deliveryAddress) {
+        this(customerId, pizzaType, null, quantity, deliveryAddress);
+    }
 }
\ No newline at end of file
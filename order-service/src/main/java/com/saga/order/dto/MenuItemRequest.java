@@ -0,0 +1,23 @@
+package com.saga.order.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "New price and availability of a menu item")
+public class MenuItemRequest {
+
+    @Schema(description = "Price of one pizza in USD", example = "16.49", required = true)
+    @NotNull(message = "Price is required")
+    @Positive(message = "Price must be positive")
+    private Double price;
+
+    @Schema(description = "Whether the item can be ordered", example = "true", defaultValue = "true")
+    private boolean available = true;
+}
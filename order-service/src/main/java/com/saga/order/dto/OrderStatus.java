@@ -12,5 +12,12 @@ public enum OrderStatus {
     DELIVERY_ASSIGNED,
     DELIVERY_FAILED,
     COMPLETED,
-    CANCELLED
+    CANCELLED;
+
+    /**
+     * Whether the saga has finished and no further transition is expected
+     */
+    public boolean isTerminal() {
+        return this == PAYMENT_FAILED || this == COMPLETED || this == CANCELLED;
+    }
 }
@@ -0,0 +1,22 @@
+package com.saga.order.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A participant's own record of its saga step, as returned by its REST API
+ * (payment, kitchen order or delivery); only the fields recovery needs are mapped.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ParticipantRecord {
+
+    private String id;
+    private String status;
+    private String failureReason;
+    private String driverId;
+}
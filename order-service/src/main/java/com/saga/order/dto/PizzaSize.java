@@ -0,0 +1,10 @@
+package com.saga.order.dto;
+
+/**
+ * Sizes on the menu; every pizza type is priced per size
+ */
+public enum PizzaSize {
+    SMALL,
+    MEDIUM,
+    LARGE
+}
@@ -0,0 +1,25 @@
+package com.saga.order.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Order totals for a single pizza type")
+public class PizzaTypeStats {
+
+    @Schema(description = "Type/name of the pizza", example = "Margherita")
+    private String pizzaType;
+
+    @Schema(description = "Number of orders placed", example = "120")
+    private long orders;
+
+    @Schema(description = "Number of orders that completed the saga", example = "97")
+    private long completed;
+
+    @Schema(description = "Revenue from completed orders in USD", example = "1551.03")
+    private double revenue;
+}
@@ -0,0 +1,31 @@
+package com.saga.order.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Revenue recognised from completed orders over a time window")
+public class RevenueSummary {
+
+    @Schema(description = "Start of the window (inclusive)", example = "2024-01-15T00:00:00Z")
+    private Instant from;
+
+    @Schema(description = "End of the window (exclusive)", example = "2024-01-16T00:00:00Z")
+    private Instant to;
+
+    @Schema(description = "Number of orders completed in the window", example = "42")
+    private long orders;
+
+    @Schema(description = "Total revenue in USD", example = "671.58")
+    private double revenue;
+
+    @Schema(description = "Revenue in USD per pizza type")
+    private Map<String, Double> revenueByPizzaType;
+}
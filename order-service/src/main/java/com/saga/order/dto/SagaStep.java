@@ -0,0 +1,32 @@
+package com.saga.order.dto;
+
+/**
+ * Steps of the order saga, with the order statuses that mark their progress
+ */
+public enum SagaStep {
+    PAYMENT(OrderStatus.PAYMENT_PENDING, OrderStatus.PAYMENT_COMPLETED, OrderStatus.PAYMENT_FAILED),
+    KITCHEN(OrderStatus.KITCHEN_PENDING, OrderStatus.KITCHEN_COMPLETED, OrderStatus.KITCHEN_FAILED),
+    DELIVERY(OrderStatus.DELIVERY_PENDING, OrderStatus.DELIVERY_ASSIGNED, OrderStatus.DELIVERY_FAILED);
+
+    private final OrderStatus pending;
+    private final OrderStatus completed;
+    private final OrderStatus failed;
+
+    SagaStep(OrderStatus pending, OrderStatus completed, OrderStatus failed) {
+        this.pending = pending;
+        this.completed = completed;
+        this.failed = failed;
+    }
+
+    public OrderStatus pending() {
+        return pending;
+    }
+
+    public OrderStatus completed() {
+        return completed;
+    }
+
+    public OrderStatus failed() {
+        return failed;
+    }
+}
@@ -0,0 +1,52 @@
+package com.saga.order.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Orchestrator-side view of a saga trace and its critical path")
+public class SagaTrace {
+
+    @Schema(description = "Order identifier", example = "01929c3e-5f4a-7b2c-9d8e-0a1b2c3d4e5f")
+    private String orderId;
+
+    @Schema(description = "Trace identifier", example = "6579a1c2b3d4e5f60718293a4b5c6d7e")
+    private String traceId;
+
+    @Schema(description = "Time from the first span start to the last span end in milliseconds", example = "4620.5")
+    private double totalMillis;
+
+    @Schema(description = "Longest segment on the critical path, usually the slowest saga step")
+    private PathSegment slowestSegment;
+
+    @Schema(description = "Consecutive segments covering the saga timeline")
+    private List<PathSegment> criticalPath;
+
+    @Schema(description = "Spans recorded by the orchestrator for this trace, ordered by start time")
+    private List<SpanRecord> spans;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "A stretch of the saga timeline, either orchestrator work or waiting on a participant")
+    public static class PathSegment {
+
+        @Schema(description = "WORK for time inside an orchestrator span, WAIT for time spent in the broker and a participant", example = "WAIT")
+        private String type;
+
+        @Schema(description = "Span name, or the command the orchestrator is waiting on", example = "saga.exchange/payment.command send")
+        private String name;
+
+        @Schema(description = "Offset from the start of the saga in milliseconds", example = "12.4")
+        private double offsetMillis;
+
+        @Schema(description = "Segment duration in milliseconds", example = "1034.2")
+        private double durationMillis;
+    }
+}
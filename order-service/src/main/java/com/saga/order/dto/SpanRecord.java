@@ -0,0 +1,39 @@
+package com.saga.order.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A finished span recorded by the in-memory trace exporter")
+public class SpanRecord {
+
+    @Schema(description = "Trace identifier shared by every span of the saga", example = "6579a1c2b3d4e5f60718293a4b5c6d7e")
+    private String traceId;
+
+    @Schema(description = "Span identifier", example = "0718293a4b5c6d7e")
+    private String spanId;
+
+    @Schema(description = "Parent span identifier, null for the root span", example = "f60718293a4b5c6d")
+    private String parentId;
+
+    @Schema(description = "Span name", example = "order.event.queue receive")
+    private String name;
+
+    @Schema(description = "Span kind (SERVER, CLIENT, PRODUCER, CONSUMER) or null for local spans", example = "CONSUMER")
+    private String kind;
+
+    @Schema(description = "Start time in epoch microseconds", example = "1705314600000000")
+    private long startMicros;
+
+    @Schema(description = "End time in epoch microseconds", example = "1705314600012000")
+    private long endMicros;
+
+    @Schema(description = "Span tags")
+    private Map<String, String> tags;
+}
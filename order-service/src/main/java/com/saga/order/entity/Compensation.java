@@ -0,0 +1,72 @@
+package com.saga.order.entity;
+
+import com.saga.order.dto.CompensationStatus;
+import com.saga.order.dto.CompensationStep;
+import com.saga.runtime.id.TimeOrderedId;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
+
+/**
+ * Undo action registered by a completed saga step, and the progress of running it
+ */
+@Entity
+@Table(name = "saga_compensations", uniqueConstraints = @UniqueConstraint(columnNames = {"orderId", "step"}))
+@Data
+@NoArgsConstructor
+public class Compensation {
+
+    @Id
+    @TimeOrderedId
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID id;
+
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16, nullable = false)
+    private UUID orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CompensationStep step;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CompensationStatus status;
+
+    private String reason;
+
+    private int attempts;
+
+    private long registeredAt;
+
+    /**
+     * Epoch milliseconds of the first dispatch, the start of the compensation's duration
+     */
+    private long dispatchedAt;
+
+    /**
+     * Epoch milliseconds by which the current attempt must be acknowledged
+     */
+    private long deadline;
+
+    private long completedAt;
+
+    /**
+     * Optimistic lock. The sweep and an acknowledgement can update the same row concurrently;
+     * a re-dispatch loaded before the acknowledgement committed must not overwrite it.
+     */
+    @Version
+    private Long version;
+
+    public Compensation(UUID orderId, CompensationStep step, long registeredAt) {
+        this.orderId = orderId;
+        this.step = step;
+        this.status = CompensationStatus.REGISTERED;
+        this.registeredAt = registeredAt;
+    }
+}
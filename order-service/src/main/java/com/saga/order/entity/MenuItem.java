@@ -0,0 +1,49 @@
+package com.saga.order.entity;
+
+import com.saga.order.dto.PizzaSize;
+import com.saga.runtime.id.TimeOrderedId;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
+
+@Entity
+@Table(name = "menu_items", uniqueConstraints = @UniqueConstraint(columnNames = {"pizzaType", "pizzaSize"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Price and availability of one pizza type in one size")
+public class MenuItem {
+
+    @Id
+    @TimeOrderedId
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID id;
+
+    @Column(nullable = false)
+    @Schema(description = "Type/name of the pizza", example = "Margherita")
+    private String pizzaType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Schema(description = "Pizza size", example = "MEDIUM")
+    private PizzaSize pizzaSize;
+
+    @Column(nullable = false)
+    @Schema(description = "Price of one pizza in USD", example = "15.99")
+    private double price;
+
+    @Column(nullable = false)
+    @Schema(description = "Whether the item can currently be ordered", example = "true")
+    private boolean available;
+
+    public MenuItem(String pizzaType, PizzaSize pizzaSize, double price, boolean available) {
+        this(null, pizzaType, pizzaSize, price, available);
+    }
+}
@@ -1,13 +1,19 @@
 package com.saga.order.entity;
 
 import com.saga.order.dto.OrderStatus;
+import com.saga.order.dto.PizzaSize;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.saga.runtime.id.TimeOrderedId;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Table(name = "orders")
@@ -18,9 +24,11 @@ import java.time.LocalDateTime;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Schema(description = "Unique identifier of the order", example = "a1b2c3d4-e5f6-7g8h-9i0j-k1l2m3n4o5p6")
-    private String id;
+    @TimeOrderedId
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    @Schema(description = "Unique, time-ordered identifier of the order", example = "01929c3e-5f4a-7b2c-9d8e-0a1b2c3d4e5f")
+    private UUID id;
 
     @Column(nullable = false)
     @Schema(description = "Customer identifier", example = "CUST001")
@@ -30,6 +38,10 @@ public class Order {
     @Schema(description = "Type of pizza ordered", example = "Margherita")
     private String pizzaType;
 
+    @Enumerated(EnumType.STRING)
+    @Schema(description = "Size of the pizzas ordered", example = "MEDIUM")
+    private PizzaSize pizzaSize;
+
     @Column(nullable = false)
     @Schema(description = "Number of pizzas ordered", example = "2")
     private Integer quantity;
@@ -59,6 +71,10 @@ public class Order {
     @Schema(description = "Timestamp when the order was created", example = "2024-01-15T10:30:00")
     private LocalDateTime createdAt;
 
+    @Column(nullable = false)
+    @Schema(description = "Epoch milliseconds of the last saga status change", example = "1705314600000")
+    private long statusUpdatedAt;
+
     @Schema(description = "Payment transaction ID (populated after successful payment)", example = "PAY-123456")
     private String paymentTransactionId;
 
@@ -68,9 +84,32 @@ public class Order {
     @Schema(description = "Driver identifier assigned for delivery", example = "DRIVER-042")
     private String driverId;
 
+    /**
+     * Optimistic lock. Parallel steps of a saga report back concurrently, and the handler that
+     * commits second must not overwrite the first one's result; it fails and is redelivered.
+     * Not part of JSON snapshots, which are restored as new rows.
+     */
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    /**
+     * Number of events applied to this order in event-sourced mode; not stored in the orders table
+     */
+    @Transient
+    @JsonIgnore
+    private int eventVersion;
+
     @PrePersist
     public void prePersist() {
-        this.createdAt = LocalDateTime.now();
-        this.status = OrderStatus.CREATED;
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
+        if (this.status == null) {
+            this.status = OrderStatus.CREATED;
+        }
+        if (this.statusUpdatedAt == 0) {
+            this.statusUpdatedAt = System.currentTimeMillis();
+        }
     }
 }
\ No newline at end of file
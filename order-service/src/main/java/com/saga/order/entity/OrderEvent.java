@@ -0,0 +1,63 @@
+package com.saga.order.entity;
+
+import com.saga.order.dto.OrderStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * One step of an order's saga, appended by the event-sourced store. The (orderId, version)
+ * key doubles as an optimistic lock: two writers appending the same version collide.
+ */
+@Entity
+@Table(name = "order_events")
+@IdClass(OrderEvent.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Event in an order's saga history")
+public class OrderEvent {
+
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    @Schema(description = "Order the event belongs to", example = "01929c3e-5f4a-7b2c-9d8e-0a1b2c3d4e5f")
+    private UUID orderId;
+
+    @Id
+    @Schema(description = "Position of the event in the order's history, starting at 1", example = "3")
+    private int version;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Schema(description = "Saga status the order moved to", example = "PAYMENT_COMPLETED")
+    private OrderStatus status;
+
+    @Column(nullable = false)
+    @Schema(description = "Epoch milliseconds when the event happened", example = "1705314600000")
+    private long occurredAt;
+
+    @Column(length = 512)
+    @Schema(description = "Results of the steps completed so far as JSON, keyed by step; null before the first one",
+            example = "{\"PAYMENT\":\"PAY-123456\",\"DELIVERY\":\"DRIVER-7\"}")
+    private String outputs;
+
+    @Column(length = 2048)
+    @Schema(description = "Order details as JSON, only on the CREATED event")
+    private String details;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID orderId;
+        private int version;
+    }
+}
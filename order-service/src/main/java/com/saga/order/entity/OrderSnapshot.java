@@ -0,0 +1,35 @@
+package com.saga.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
+
+/**
+ * Latest snapshot of an event-sourced order: its state as JSON after {@code version} events
+ */
+@Entity
+@Table(name = "order_snapshots")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSnapshot {
+
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID orderId;
+
+    @Column(nullable = false)
+    private int version;
+
+    @Column(nullable = false, length = 4096)
+    private String state;
+
+    @Column(nullable = false)
+    private long takenAt;
+}
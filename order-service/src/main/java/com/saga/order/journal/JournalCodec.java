@@ -0,0 +1,147 @@
+package com.saga.order.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary layout of a journal record:
+ * <pre>
+ * int length | int crc32c(body) | body
+ * body = long sequence | long timestamp | long orderIdMsb | long orderIdLsb | byte type
+ *        | string name | string previous | string payload
+ * string = int byteLength (-1 for null) | UTF-8 bytes
+ * </pre>
+ * Segments are zero-filled, so a length of 0 marks the end of the written records.
+ */
+final class JournalCodec {
+
+    static final int HEADER_BYTES = 8;
+    static final int SEQUENCE_OFFSET = HEADER_BYTES;
+
+    private static final JournalRecord.Type[] TYPES = JournalRecord.Type.values();
+
+    private JournalCodec() {
+    }
+
+    /**
+     * Encode a record with a zero sequence; {@link #seal} stamps the sequence and checksum
+     */
+    static byte[] encode(long timestamp, UUID orderId, JournalRecord.Type type,
+                         String name, String previous, String payload) {
+        byte[] nameBytes = bytes(name);
+        byte[] previousBytes = bytes(previous);
+        byte[] payloadBytes = bytes(payload);
+
+        int bodyLength = 8 + 8 + 16 + 1
+                + 4 + length(nameBytes) + 4 + length(previousBytes) + 4 + length(payloadBytes);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        buffer.putInt(bodyLength).putInt(0);
+        buffer.putLong(0L).putLong(timestamp);
+        buffer.putLong(orderId.getMostSignificantBits()).putLong(orderId.getLeastSignificantBits());
+        buffer.put((byte) type.ordinal());
+        put(buffer, nameBytes);
+        put(buffer, previousBytes);
+        put(buffer, payloadBytes);
+        return buffer.array();
+    }
+
+    /**
+     * Stamp the sequence number and checksum into an encoded record
+     */
+    static void seal(byte[] record, long sequence) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putLong(SEQUENCE_OFFSET, sequence);
+        CRC32C crc = new CRC32C();
+        crc.update(record, HEADER_BYTES, record.length - HEADER_BYTES);
+        buffer.putInt(4, (int) crc.getValue());
+    }
+
+    /**
+     * Length in bytes of the valid record at the buffer's position, or -1 at the end of
+     * the written data or at a torn or corrupt record
+     */
+    static int validLength(ByteBuffer buffer) {
+        int position = buffer.position();
+        if (buffer.remaining() < HEADER_BYTES) {
+            return -1;
+        }
+        int bodyLength = buffer.getInt(position);
+        if (bodyLength <= 0 || bodyLength > buffer.remaining() - HEADER_BYTES) {
+            return -1;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position + HEADER_BYTES, bodyLength));
+        if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+            return -1;
+        }
+        return HEADER_BYTES + bodyLength;
+    }
+
+    /**
+     * Sequence number of the record at the buffer's position, without decoding it
+     */
+    static long sequence(ByteBuffer buffer) {
+        return buffer.getLong(buffer.position() + SEQUENCE_OFFSET);
+    }
+
+    /**
+     * Order id of the record at the buffer's position, without decoding it
+     */
+    static UUID orderId(ByteBuffer buffer) {
+        int position = buffer.position() + SEQUENCE_OFFSET + 16;
+        return new UUID(buffer.getLong(position), buffer.getLong(position + 8));
+    }
+
+    /**
+     * Decode the record at the buffer's position and advance past it, or return null if
+     * there is no valid record there
+     */
+    static JournalRecord read(ByteBuffer buffer) {
+        int length = validLength(buffer);
+        if (length < 0) {
+            return null;
+        }
+        int end = buffer.position() + length;
+        buffer.position(buffer.position() + HEADER_BYTES);
+
+        long sequence = buffer.getLong();
+        long timestamp = buffer.getLong();
+        UUID orderId = new UUID(buffer.getLong(), buffer.getLong());
+        JournalRecord.Type type = TYPES[buffer.get()];
+        String name = string(buffer);
+        String previous = string(buffer);
+        String payload = string(buffer);
+
+        buffer.position(end);
+        return new JournalRecord(sequence, timestamp, orderId, type, name, previous, payload);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void put(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,98 @@
+package com.saga.order.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Sequential, read-only cursor over the journal.
+ * <p>
+ * Yields records in sequence order from a starting sequence up to the last record that was
+ * written when the reader was opened. Each segment is mapped read-only in turn; a segment
+ * removed by compaction after the reader was opened is skipped.
+ */
+public final class JournalReader implements Iterator<JournalRecord>, AutoCloseable {
+
+    private final List<Path> segments;
+    private final long fromSequence;
+    private final long toSequence;
+
+    private int segmentIndex;
+    private ByteBuffer current;
+    private JournalRecord next;
+
+    JournalReader(List<Path> segments, long fromSequence, long toSequence) {
+        this.segments = segments;
+        this.fromSequence = fromSequence;
+        this.toSequence = toSequence;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            if (current == null && !openNextSegment()) {
+                return false;
+            }
+
+            int length = JournalCodec.validLength(current);
+            if (length < 0) {
+                current = null;
+                continue;
+            }
+
+            long sequence = JournalCodec.sequence(current);
+            if (sequence > toSequence) {
+                segmentIndex = segments.size();
+                current = null;
+                return false;
+            }
+            if (sequence < fromSequence) {
+                // Skip without decoding
+                current.position(current.position() + length);
+                continue;
+            }
+            next = JournalCodec.read(current);
+        }
+        return true;
+    }
+
+    @Override
+    public JournalRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JournalRecord record = next;
+        next = null;
+        return record;
+    }
+
+    @Override
+    public void close() {
+        segmentIndex = segments.size();
+        current = null;
+        next = null;
+    }
+
+    private boolean openNextSegment() {
+        while (segmentIndex < segments.size()) {
+            Path path = segments.get(segmentIndex++);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed
+                current = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                return true;
+            } catch (NoSuchFileException e) {
+                // Compacted away since the reader was opened
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read journal segment " + path, e);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+package com.saga.order.journal;
+
+import com.saga.order.dto.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * One entry of the saga journal: either a committed status transition or an event
+ * received from a participant.
+ */
+@Data
+@AllArgsConstructor
+public class JournalRecord {
+
+    public enum Type {
+        TRANSITION, EVENT
+    }
+
+    private long sequence;
+    private long timestamp;
+    private UUID orderId;
+    private Type type;
+
+    /** Target status of a transition, or the simple class name of an event */
+    private String name;
+
+    /** Status before a transition; null for events and for the first transition */
+    private String previous;
+
+    /** JSON body of an event, or snapshot of the order after a transition */
+    private String payload;
+
+    public boolean isTransition() {
+        return type == Type.TRANSITION;
+    }
+
+    /**
+     * Target status of a transition
+     */
+    public OrderStatus getStatus() {
+        return isTransition() ? OrderStatus.valueOf(name) : null;
+    }
+}
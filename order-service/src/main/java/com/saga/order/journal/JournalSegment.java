@@ -0,0 +1,116 @@
+package com.saga.order.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * A journal segment file mapped into memory for appending.
+ * <p>
+ * The file is pre-sized and zero-filled, so an append is a copy into the mapping and the
+ * end of the data is the first zero length. Appends are not thread-safe; {@link SagaJournal}
+ * holds its append lock around them and forces from its flusher thread.
+ */
+final class JournalSegment implements Closeable {
+
+    static final String SUFFIX = ".journal";
+
+    private final Path path;
+    private final long baseSequence;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private int position;
+    private int forcedPosition;
+
+    private JournalSegment(Path path, long baseSequence, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.baseSequence = baseSequence;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Open (or create) a segment for appending, handing every valid record to the visitor.
+     * A torn record at the tail, left by a crash mid-append, is zeroed out.
+     */
+    static JournalSegment open(Path directory, long baseSequence, int size,
+                               Consumer<JournalRecord> visitor) throws IOException {
+        Path path = directory.resolve(fileName(baseSequence));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = (int) Math.max(size, channel.size());
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        JournalSegment segment = new JournalSegment(path, baseSequence, channel, buffer);
+        ByteBuffer scan = buffer.duplicate();
+        JournalRecord record;
+        while ((record = JournalCodec.read(scan)) != null) {
+            visitor.accept(record);
+        }
+        segment.position = scan.position();
+
+        if (scan.remaining() >= Integer.BYTES && scan.getInt(scan.position()) != 0) {
+            buffer.put(scan.position(), new byte[capacity - scan.position()]);
+            buffer.force();
+        }
+        segment.forcedPosition = segment.position;
+        return segment;
+    }
+
+    /**
+     * Copy a sealed record into the segment, or return false if it does not fit
+     */
+    boolean append(byte[] record) {
+        // Keep room for the zero length that terminates the segment
+        if (position + record.length + Integer.BYTES > buffer.capacity()) {
+            return false;
+        }
+        buffer.put(position, record);
+        position += record.length;
+        return true;
+    }
+
+    /**
+     * Flush the bytes appended up to the given position to the storage device
+     */
+    synchronized void force(int upTo) {
+        int from = forcedPosition;
+        if (upTo > from) {
+            buffer.force(from, upTo - from);
+            forcedPosition = upTo;
+        }
+    }
+
+    int position() {
+        return position;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long baseSequence() {
+        return baseSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force(position);
+        channel.close();
+    }
+
+    static String fileName(long baseSequence) {
+        return String.format("%020d%s", baseSequence, SUFFIX);
+    }
+
+    static long baseSequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+}
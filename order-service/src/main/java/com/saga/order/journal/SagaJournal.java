@@ -0,0 +1,419 @@
+package com.saga.order.journal;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.entity.Order;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Durable, append-only history of every saga status transition and participant event.
+ * <p>
+ * Records go to memory-mapped segment files. Appending is a copy into the mapping under a
+ * short lock; a single flusher thread forces the pages to disk and releases every caller
+ * waiting on the records it covered, so concurrent sagas share one fsync (group commit).
+ * A full segment is sealed and a new one started. Sealed segments are periodically
+ * rewritten without the records of sagas that finished longer ago than the retention.
+ * <p>
+ * Records are written after the surrounding transaction commits, so the journal holds
+ * committed history only.
+ */
+@Slf4j
+@Component
+public class SagaJournal implements AutoCloseable {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean awaitDurable;
+    private final Duration retention;
+    private final ObjectMapper objectMapper;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    /** Sagas that reached a terminal status, eligible for compaction once retention has passed */
+    private final Map<UUID, Finished> finished = new ConcurrentHashMap<>();
+
+    private final Timer fsyncTimer;
+    private final DistributionSummary fsyncBatch;
+    private final Thread flusher;
+    private final ScheduledExecutorService compactor;
+
+    // Guarded by lock
+    private JournalSegment active;
+    private long durableSequence;
+
+    private volatile long lastSequence;
+    private volatile boolean running = true;
+
+    public SagaJournal(ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${order.journal.dir:data/journal}") Path directory,
+                       @Value("${order.journal.segment-size-mb:64}") int segmentSizeMb,
+                       @Value("${order.journal.await-durable:true}") boolean awaitDurable,
+                       @Value("${order.journal.compaction.retention-minutes:60}") long retentionMinutes,
+                       @Value("${order.journal.compaction.interval-seconds:300}") long compactionIntervalSeconds)
+            throws IOException {
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.awaitDurable = awaitDurable;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+
+        this.fsyncTimer = Timer.builder("saga.journal.fsync")
+                .description("Time to force journal pages to disk")
+                .register(meterRegistry);
+        this.fsyncBatch = DistributionSummary.builder("saga.journal.fsync.batch")
+                .description("Journal records made durable by a single fsync")
+                .register(meterRegistry);
+
+        open();
+
+        this.flusher = Thread.ofPlatform().name("saga-journal-flusher").daemon().start(this::flushLoop);
+        this.compactor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("saga-journal-compactor").daemon().factory());
+        compactor.scheduleWithFixedDelay(this::compactQuietly,
+                compactionIntervalSeconds, compactionIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Journal a status transition once the surrounding transaction commits. The record
+     * carries a JSON snapshot of the order, so the latest transition of a saga is enough
+     * to restore it.
+     */
+    public void recordTransition(Order order, OrderStatus from, OrderStatus to) {
+        if (from == to || order.getId() == null) {
+            return;
+        }
+        long timestamp = System.currentTimeMillis();
+        byte[] record = JournalCodec.encode(timestamp, order.getId(), JournalRecord.Type.TRANSITION,
+                to.name(), from == null ? null : from.name(), toJson(order));
+        afterCommit(record, order.getId(), timestamp, to.isTerminal());
+    }
+
+    /**
+     * Journal an event received from a participant once the surrounding transaction commits
+     */
+    public void recordEvent(String orderId, Object event) {
+        UUID id;
+        try {
+            id = UUID.fromString(orderId);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            log.debug("Not journaling event without a valid order id {}", kv("orderId", orderId));
+            return;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        byte[] record = JournalCodec.encode(timestamp, id, JournalRecord.Type.EVENT,
+                event.getClass().getSimpleName(), null, toJson(event));
+        afterCommit(record, id, timestamp, false);
+    }
+
+    /**
+     * Sequential reader over every retained record with a sequence of at least
+     * {@code fromSequence}, up to the last record written at the time of the call
+     */
+    public JournalReader read(long fromSequence) {
+        List<Path> segments = segments();
+        int start = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (JournalSegment.baseSequence(segments.get(i)) <= fromSequence) {
+                start = i;
+            }
+        }
+        return new JournalReader(segments.subList(start, segments.size()), fromSequence, lastSequence);
+    }
+
+    /**
+     * Sequence number of the last record written
+     */
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Rewrite sealed segments without the records of sagas that finished before the
+     * retention window. Returns the number of records removed.
+     */
+    public synchronized long compact() throws IOException {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        long activeBase;
+        lock.lock();
+        try {
+            activeBase = active.baseSequence();
+        } finally {
+            lock.unlock();
+        }
+
+        long removed = 0;
+        for (Path segment : segments()) {
+            if (JournalSegment.baseSequence(segment) >= activeBase) {
+                break;
+            }
+            removed += compactSegment(segment, cutoff);
+        }
+
+        // Sagas finished in a sealed segment have no records left to drop
+        finished.values().removeIf(f -> f.sequence < activeBase && f.timestamp <= cutoff);
+        if (removed > 0) {
+            log.info("Journal compacted {}", kv("removedRecords", removed));
+        }
+        return removed;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        running = false;
+        lock.lock();
+        try {
+            appended.signalAll();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        compactor.shutdownNow();
+        try {
+            flusher.join(Duration.ofSeconds(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        lock.lock();
+        try {
+            active.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments();
+
+        // Sealed segments are only scanned; the newest one is reopened for appending
+        for (int i = 0; i < segments.size() - 1; i++) {
+            try (JournalReader reader = new JournalReader(List.of(segments.get(i)), 0, Long.MAX_VALUE)) {
+                reader.forEachRemaining(this::track);
+            }
+        }
+        long base = segments.isEmpty() ? 1 : JournalSegment.baseSequence(segments.getLast());
+        active = JournalSegment.open(directory, base, segmentSize, this::track);
+        durableSequence = lastSequence;
+
+        log.info("Saga journal opened {} {} {}", kv("directory", directory.toAbsolutePath()),
+                kv("segments", Math.max(segments.size(), 1)), kv("lastSequence", lastSequence));
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize journal payload {}", kv("type", value.getClass().getSimpleName()), e);
+            return null;
+        }
+    }
+
+    private void track(JournalRecord record) {
+        lastSequence = Math.max(lastSequence, record.getSequence());
+        if (record.isTransition() && record.getStatus().isTerminal()) {
+            finished.put(record.getOrderId(), new Finished(record.getSequence(), record.getTimestamp()));
+        }
+    }
+
+    private void afterCommit(byte[] record, UUID orderId, long timestamp, boolean terminal) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(record, orderId, timestamp, terminal);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                append(record, orderId, timestamp, terminal);
+            }
+        });
+    }
+
+    private void append(byte[] record, UUID orderId, long timestamp, boolean terminal) {
+        long sequence;
+        lock.lock();
+        try {
+            sequence = lastSequence + 1;
+            JournalCodec.seal(record, sequence);
+            if (!active.append(record)) {
+                roll(sequence);
+                if (!active.append(record)) {
+                    throw new IllegalStateException("Journal record of " + record.length
+                            + " bytes does not fit in a segment");
+                }
+            }
+            lastSequence = sequence;
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (terminal) {
+            finished.put(orderId, new Finished(sequence, timestamp));
+        }
+        if (awaitDurable) {
+            awaitDurable(sequence);
+        }
+    }
+
+    /**
+     * Seal the active segment and start a new one. Called with the lock held.
+     */
+    private void roll(long baseSequence) {
+        try {
+            active.close();
+            durableSequence = lastSequence;
+            flushed.signalAll();
+            active = JournalSegment.open(directory, baseSequence, segmentSize, this::track);
+            log.debug("Journal segment rolled {}", kv("baseSequence", baseSequence));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll journal segment", e);
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durableSequence < sequence && running) {
+                flushed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            JournalSegment segment;
+            int position;
+            long from;
+            long to;
+
+            lock.lock();
+            try {
+                while (running && durableSequence == lastSequence) {
+                    appended.await();
+                }
+                segment = active;
+                position = segment.position();
+                from = durableSequence;
+                to = lastSequence;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            // Appends continue while the pages are forced; they join the next batch
+            long start = System.nanoTime();
+            segment.force(position);
+            fsyncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            fsyncBatch.record(to - from);
+
+            lock.lock();
+            try {
+                durableSequence = Math.max(durableSequence, to);
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private long compactSegment(Path path, long cutoff) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        long removed = 0;
+        long kept = 0;
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int length;
+            while ((length = JournalCodec.validLength(buffer)) > 0) {
+                Finished done = finished.get(JournalCodec.orderId(buffer));
+                if (done != null && done.timestamp <= cutoff) {
+                    removed++;
+                } else {
+                    out.write(buffer.slice(buffer.position(), length));
+                    kept++;
+                }
+                buffer.position(buffer.position() + length);
+            }
+            if (removed > 0 && kept > 0) {
+                out.force(true);
+            }
+        }
+
+        if (removed == 0) {
+            Files.delete(compacted);
+        } else if (kept == 0) {
+            Files.delete(compacted);
+            Files.delete(path);
+        } else {
+            Files.move(compacted, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return removed;
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (Exception e) {
+            log.warn("Journal compaction failed", e);
+        }
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(JournalSegment.SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list journal segments in " + directory, e);
+        }
+    }
+
+    private record Finished(long sequence, long timestamp) {
+    }
+}
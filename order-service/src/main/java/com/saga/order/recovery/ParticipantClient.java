@@ -0,0 +1,60 @@
+package com.saga.order.recovery;
+
+import com.saga.order.dto.ParticipantRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Reads the participants' view of a saga step over their REST APIs
+ */
+@Component
+public class ParticipantClient {
+
+    private final RestClient payment;
+    private final RestClient kitchen;
+    private final RestClient delivery;
+
+    public ParticipantClient(RestClient.Builder builder,
+                             @Value("${order.recovery.payment-url:http://localhost:8082}") String paymentUrl,
+                             @Value("${order.recovery.kitchen-url:http://localhost:8083}") String kitchenUrl,
+                             @Value("${order.recovery.delivery-url:http://localhost:8084}") String deliveryUrl,
+                             @Value("${order.recovery.request-timeout-ms:2000}") long timeoutMillis) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofMillis(timeoutMillis));
+        requestFactory.setReadTimeout(Duration.ofMillis(timeoutMillis));
+
+        this.payment = builder.clone().baseUrl(paymentUrl).requestFactory(requestFactory).build();
+        this.kitchen = builder.clone().baseUrl(kitchenUrl).requestFactory(requestFactory).build();
+        this.delivery = builder.clone().baseUrl(deliveryUrl).requestFactory(requestFactory).build();
+    }
+
+    public Optional<ParticipantRecord> payment(UUID orderId) {
+        return fetch(payment, "/api/payments/order/{orderId}", orderId);
+    }
+
+    public Optional<ParticipantRecord> kitchen(UUID orderId) {
+        return fetch(kitchen, "/api/kitchen/order/{orderId}", orderId);
+    }
+
+    public Optional<ParticipantRecord> delivery(UUID orderId) {
+        return fetch(delivery, "/api/delivery/order/{orderId}", orderId);
+    }
+
+    /**
+     * Empty if the participant has no record of the order; other failures propagate
+     */
+    private static Optional<ParticipantRecord> fetch(RestClient client, String uri, UUID orderId) {
+        try {
+            return Optional.ofNullable(client.get().uri(uri, orderId).retrieve().body(ParticipantRecord.class));
+        } catch (HttpClientErrorException.NotFound e) {
+            return Optional.empty();
+        }
+    }
+}
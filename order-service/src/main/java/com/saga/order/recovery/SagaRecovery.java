@@ -0,0 +1,377 @@
+package com.saga.order.recovery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saga.contracts.event.*;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.dto.ParticipantRecord;
+import com.saga.order.dto.SagaStep;
+import com.saga.order.entity.Order;
+import com.saga.order.journal.JournalReader;
+import com.saga.order.journal.JournalRecord;
+import com.saga.order.journal.SagaJournal;
+import com.saga.order.repository.OrderRepository;
+import com.saga.order.saga.SagaCoordinator;
+import com.saga.order.service.CompensationEngine;
+import com.saga.order.service.OrderEventStore;
+import com.saga.order.service.OrderHelper;
+import com.saga.order.service.OrderService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.BaggageInScope;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Resumes sagas that were in flight when the orchestrator stopped.
+ * <p>
+ * On startup the non-terminal sagas are collected from the orders table and from the saga
+ * journal; an order known only to the journal is restored from its last snapshot. Each saga
+ * is then checked against the participant of every step in flight: an outcome the
+ * participant already reached is applied through the regular event handler, otherwise the
+ * step's command is sent again (participants are idempotent per order). Sagas are recovered
+ * in parallel on a bounded pool, paced by a rate limit so a large backlog does not flood
+ * the broker or the participants.
+ */
+@Slf4j
+@Component
+public class SagaRecovery {
+
+    public enum Outcome {
+        /** The participant had already finished the step; its outcome was applied */
+        ADVANCED,
+        /** The step's command was sent again */
+        REISSUED,
+        /** A failed step's compensation was sent again */
+        COMPENSATED,
+        /** The saga moved on while recovery was running */
+        SKIPPED,
+        FAILED
+    }
+
+    private static final String RECOVERY_REASON = "Recovered after orchestrator restart";
+
+    private static final Set<OrderStatus> IN_FLIGHT = EnumSet.complementOf(EnumSet.of(
+            OrderStatus.PAYMENT_FAILED, OrderStatus.COMPLETED, OrderStatus.CANCELLED));
+
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final OrderHelper orderHelper;
+    private final SagaJournal sagaJournal;
+    private final ParticipantClient participantClient;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final OrderEventStore orderEventStore;
+    private final CompensationEngine compensationEngine;
+    private final SagaCoordinator sagaCoordinator;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final int parallelism;
+    private final double ratePerSecond;
+
+    private final Timer recoveryTimer;
+    private final Map<Outcome, Counter> outcomeCounters = new EnumMap<>(Outcome.class);
+
+    public SagaRecovery(OrderRepository orderRepository,
+                        OrderService orderService,
+                        OrderHelper orderHelper,
+                        SagaJournal sagaJournal,
+                        ParticipantClient participantClient,
+                        TransactionTemplate transactionTemplate,
+                        EntityManager entityManager,
+                        OrderEventStore orderEventStore,
+                        CompensationEngine compensationEngine,
+                        SagaCoordinator sagaCoordinator,
+                        ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${order.recovery.enabled:true}") boolean enabled,
+                        @Value("${order.recovery.parallelism:8}") int parallelism,
+                        @Value("${order.recovery.rate-per-second:50}") double ratePerSecond) {
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.orderHelper = orderHelper;
+        this.sagaJournal = sagaJournal;
+        this.participantClient = participantClient;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.orderEventStore = orderEventStore;
+        this.compensationEngine = compensationEngine;
+        this.sagaCoordinator = sagaCoordinator;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.parallelism = parallelism;
+        this.ratePerSecond = ratePerSecond;
+
+        this.recoveryTimer = Timer.builder("saga.recovery.duration")
+                .description("Time to recover the sagas in flight at startup")
+                .register(meterRegistry);
+        for (Outcome outcome : Outcome.values()) {
+            outcomeCounters.put(outcome, Counter.builder("saga.recovery.sagas")
+                    .description("Sagas handled by startup recovery")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            Thread.ofPlatform().name("saga-recovery").daemon().start(this::recover);
+        }
+    }
+
+    /**
+     * Recover every in-flight saga and return the number of sagas per outcome
+     */
+    public Map<Outcome, Long> recover() {
+        long start = System.nanoTime();
+        Collection<Order> sagas = findInFlight();
+        Map<Outcome, Long> outcomes = new EnumMap<>(Outcome.class);
+        if (sagas.isEmpty()) {
+            recoveryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return outcomes;
+        }
+
+        log.info("Recovering in-flight sagas {} {}", kv("sagas", sagas.size()), kv("parallelism", parallelism));
+        RateLimiter rateLimiter = new RateLimiter(ratePerSecond);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("saga-recovery-", 0).daemon().factory());
+        try {
+            List<Future<Outcome>> results = new ArrayList<>(sagas.size());
+            for (Order saga : sagas) {
+                results.add(pool.submit(() -> {
+                    rateLimiter.acquire();
+                    return recoverSaga(saga);
+                }));
+            }
+            for (Future<Outcome> result : results) {
+                Outcome outcome;
+                try {
+                    outcome = result.get();
+                } catch (ExecutionException e) {
+                    outcome = Outcome.FAILED;
+                }
+                outcomes.merge(outcome, 1L, Long::sum);
+                outcomeCounters.get(outcome).increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        recoveryTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Saga recovery finished {} {}", kv("outcomes", outcomes), kv("durationMs", elapsed / 1_000_000));
+        return outcomes;
+    }
+
+    /**
+     * Non-terminal sagas from the journal, overridden by the orders table where it has them
+     */
+    private Collection<Order> findInFlight() {
+        Map<UUID, JournalRecord> latest = new HashMap<>();
+        try (JournalReader reader = sagaJournal.read(1)) {
+            reader.forEachRemaining(record -> {
+                if (!record.isTransition()) {
+                    return;
+                }
+                if (record.getStatus().isTerminal()) {
+                    latest.remove(record.getOrderId());
+                } else {
+                    latest.put(record.getOrderId(), record);
+                }
+            });
+        }
+
+        Map<UUID, Order> sagas = new LinkedHashMap<>();
+        latest.values().stream()
+                .sorted(Comparator.comparingLong(JournalRecord::getSequence))
+                .forEach(record -> {
+                    Order snapshot = fromJson(record.getPayload());
+                    if (snapshot != null) {
+                        sagas.put(snapshot.getId(), snapshot);
+                    }
+                });
+
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.findByStatusIn(IN_FLIGHT).forEach(order -> sagas.put(order.getId(), order)));
+        return sagas.values();
+    }
+
+    private Outcome recoverSaga(Order saga) {
+        UUID orderId = saga.getId();
+        OrderStatus status = saga.getStatus();
+        try (BaggageInScope ignored = orderHelper.openSagaScope(orderId)) {
+            if (!restore(saga)) {
+                return Outcome.SKIPPED;
+            }
+
+            Outcome outcome = switch (status) {
+                case KITCHEN_FAILED, DELIVERY_FAILED -> {
+                    inTransaction(orderId, order -> compensationEngine.compensate(order, RECOVERY_REASON));
+                    yield Outcome.COMPENSATED;
+                }
+                default -> resumeSteps(saga);
+            };
+            log.info("Saga recovered {} {}", kv("from", status), kv("outcome", outcome));
+            return outcome;
+        } catch (Exception e) {
+            log.error("Saga recovery failed {} {}", kv("orderId", orderId), kv("status", status), e);
+            return Outcome.FAILED;
+        }
+    }
+
+    /**
+     * Resume every step in flight. Parallel steps are resumed one after the other; the saga
+     * counts as advanced if any of them had already produced a result.
+     */
+    private Outcome resumeSteps(Order saga) {
+        Outcome outcome = Outcome.SKIPPED;
+        for (SagaStep step : sagaCoordinator.inFlight(saga)) {
+            Outcome stepOutcome = switch (step) {
+                case PAYMENT -> resumePayment(saga.getId());
+                case KITCHEN -> resumeKitchen(saga.getId());
+                case DELIVERY -> resumeDelivery(saga.getId());
+            };
+            if (outcome != Outcome.ADVANCED) {
+                outcome = stepOutcome;
+            }
+        }
+        return outcome;
+    }
+
+    private Outcome resumePayment(UUID orderId) {
+        String id = orderId.toString();
+        Optional<ParticipantRecord> payment = participantState("payment", orderId, participantClient::payment);
+        String state = payment.map(ParticipantRecord::getStatus).orElse("");
+        switch (state) {
+            case "COMPLETED" -> orderService.handlePaymentProcessed(new PaymentProcessedEvent(id, payment.get().getId()));
+            case "FAILED" -> orderService.handlePaymentFailed(new PaymentFailedEvent(id, payment.get().getFailureReason()));
+            case "REFUNDED" -> inTransaction(orderId, order -> orderHelper.transition(order, OrderStatus.CANCELLED));
+            default -> {
+                inTransaction(orderId, order -> sagaCoordinator.resume(order, SagaStep.PAYMENT));
+                return Outcome.REISSUED;
+            }
+        }
+        return Outcome.ADVANCED;
+    }
+
+    private Outcome resumeKitchen(UUID orderId) {
+        String id = orderId.toString();
+        Optional<ParticipantRecord> kitchen = participantState("kitchen", orderId, participantClient::kitchen);
+        String state = kitchen.map(ParticipantRecord::getStatus).orElse("");
+        switch (state) {
+            case "PREPARED" -> orderService.handlePizzaPrepared(new PizzaPreparedEvent(id, kitchen.get().getId()));
+            case "FAILED" -> orderService.handleKitchenFailed(new KitchenFailedEvent(id, kitchen.get().getFailureReason()));
+            default -> {
+                inTransaction(orderId, order -> sagaCoordinator.resume(order, SagaStep.KITCHEN));
+                return Outcome.REISSUED;
+            }
+        }
+        return Outcome.ADVANCED;
+    }
+
+    private Outcome resumeDelivery(UUID orderId) {
+        String id = orderId.toString();
+        Optional<ParticipantRecord> delivery = participantState("delivery", orderId, participantClient::delivery);
+        String state = delivery.map(ParticipantRecord::getStatus).orElse("");
+        switch (state) {
+            case "ASSIGNED" -> orderService.handleDeliveryAssigned(new DeliveryAssignedEvent(id, delivery.get().getDriverId(), null));
+            case "FAILED" -> orderService.handleDeliveryFailed(new DeliveryFailedEvent(id, delivery.get().getFailureReason()));
+            default -> {
+                inTransaction(orderId, order -> sagaCoordinator.resume(order, SagaStep.DELIVERY));
+                return Outcome.REISSUED;
+            }
+        }
+        return Outcome.ADVANCED;
+    }
+
+    /**
+     * Make sure the order row exists in the status recovery saw. Returns false if the
+     * saga has moved on in the meantime.
+     */
+    private boolean restore(Order saga) {
+        Boolean current = transactionTemplate.execute(status -> {
+            Order stored = orderHelper.findOrder(saga.getId()).orElse(null);
+            if (stored == null) {
+                if (orderEventStore.isEnabled()) {
+                    orderEventStore.restore(saga);
+                } else {
+                    entityManager.persist(saga);
+                }
+                log.info("Order restored from saga journal {}", kv("status", saga.getStatus()));
+                return true;
+            }
+            return stored.getStatus() == saga.getStatus();
+        });
+        return Boolean.TRUE.equals(current);
+    }
+
+    /**
+     * A participant that cannot be reached counts as having no record, so the command is
+     * sent again and the participant answers when it is back
+     */
+    private Optional<ParticipantRecord> participantState(String participant, UUID orderId,
+                                                         Function<UUID, Optional<ParticipantRecord>> lookup) {
+        try {
+            return lookup.apply(orderId);
+        } catch (RestClientException e) {
+            log.warn("Participant state unavailable, re-sending command {} {}",
+                    kv("participant", participant), kv("error", e.getMessage()));
+            return Optional.empty();
+        }
+    }
+
+    private void inTransaction(UUID orderId, Consumer<Order> action) {
+        transactionTemplate.executeWithoutResult(status -> action.accept(orderHelper.findOrder(orderId)
+                .orElseThrow(() -> new IllegalStateException("Order not found: " + orderId))));
+    }
+
+    private Order fromJson(String payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(payload, Order.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable order snapshot in saga journal", e);
+            return null;
+        }
+    }
+
+    /**
+     * Spaces permits evenly at the configured rate
+     */
+    private static final class RateLimiter {
+
+        private final long intervalNanos;
+        private final AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+
+        private RateLimiter(double permitsPerSecond) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        }
+
+        private void acquire() throws InterruptedException {
+            long now = System.nanoTime();
+            long slot = nextSlot.accumulateAndGet(now, (next, t) -> Math.max(next, t) + intervalNanos) - intervalNanos;
+            TimeUnit.NANOSECONDS.sleep(slot - now);
+        }
+    }
+}
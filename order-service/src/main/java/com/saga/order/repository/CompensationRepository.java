@@ -0,0 +1,21 @@
+package com.saga.order.repository;
+
+import com.saga.order.dto.CompensationStatus;
+import com.saga.order.dto.CompensationStep;
+import com.saga.order.entity.Compensation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface CompensationRepository extends JpaRepository<Compensation, UUID> {
+
+    List<Compensation> findByOrderId(UUID orderId);
+
+    Optional<Compensation> findByOrderIdAndStep(UUID orderId, CompensationStep step);
+
+    List<Compensation> findByStatusAndDeadlineLessThan(CompensationStatus status, long deadline);
+}
@@ -0,0 +1,15 @@
+package com.saga.order.repository;
+
+import com.saga.order.dto.PizzaSize;
+import com.saga.order.entity.MenuItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface MenuItemRepository extends JpaRepository<MenuItem, UUID> {
+
+    Optional<MenuItem> findByPizzaTypeIgnoreCaseAndPizzaSize(String pizzaType, PizzaSize pizzaSize);
+}
@@ -0,0 +1,16 @@
+package com.saga.order.repository;
+
+import com.saga.order.entity.OrderEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OrderEventRepository extends JpaRepository<OrderEvent, OrderEvent.Key> {
+
+    List<OrderEvent> findByOrderIdAndVersionGreaterThanOrderByVersionAsc(UUID orderId, int version);
+
+    List<OrderEvent> findByOrderIdOrderByVersionAsc(UUID orderId);
+}
@@ -1,9 +1,22 @@
 package com.saga.order.repository;
 
+import com.saga.order.dto.OrderStatus;
 import com.saga.order.entity.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
 @Repository
-public interface OrderRepository extends JpaRepository<Order, String> {
+public interface OrderRepository extends JpaRepository<Order, UUID> {
+
+    /**
+     * Stream every order without materialising the whole table (requires a transaction)
+     */
+    Stream<Order> streamAllBy();
+
+    List<Order> findByStatusIn(Collection<OrderStatus> statuses);
 }
@@ -0,0 +1,11 @@
+package com.saga.order.repository;
+
+import com.saga.order.entity.OrderSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface OrderSnapshotRepository extends JpaRepository<OrderSnapshot, UUID> {
+}
@@ -0,0 +1,162 @@
+package com.saga.order.saga;
+
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.dto.SagaStep;
+import com.saga.order.entity.Order;
+import com.saga.order.service.CompensationEngine;
+import com.saga.order.service.OrderHelper;
+import com.saga.order.service.SagaMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Runs a {@link SagaDefinition} as a DAG.
+ * <p>
+ * When a step completes, the steps it unlocks are dispatched together and run concurrently;
+ * the saga completes when the last step does. When a step fails, the completed steps are
+ * compensated. A parallel step that completes after the saga has failed is undone as soon as
+ * its result arrives.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SagaCoordinator {
+
+    private static final Set<OrderStatus> FAILED = EnumSet.of(OrderStatus.PAYMENT_FAILED,
+            OrderStatus.KITCHEN_FAILED, OrderStatus.DELIVERY_FAILED, OrderStatus.CANCELLED);
+
+    private record StepKey(UUID orderId, SagaStep step) {
+    }
+
+    private final SagaDefinition sagaDefinition;
+    private final OrderHelper orderHelper;
+    private final CompensationEngine compensationEngine;
+    private final SagaMetrics sagaMetrics;
+    private final Clock clock;
+
+    /**
+     * When each step in flight was dispatched, for step timings. Lost on restart, so steps
+     * resumed by recovery are not timed.
+     */
+    private final Map<StepKey, Long> dispatchedAt = new ConcurrentHashMap<>();
+
+    /**
+     * Dispatch the steps that have no dependencies
+     */
+    public void start(Order order) {
+        sagaDefinition.roots().forEach(step -> dispatch(order, step));
+    }
+
+    /**
+     * Record a step's result and move the saga on: dispatch the steps it unlocks, or complete
+     * the saga if it was the last one. Duplicate results are ignored.
+     * <p>
+     * Results of parallel steps can be handled concurrently. Each handler writes the order
+     * under its version, so the one committing second fails on the stale order and its
+     * event is redelivered, then applied on top of the first result.
+     */
+    public void stepCompleted(Order order, SagaStep step, String output) {
+        SagaDefinition.StepDefinition definition = sagaDefinition.step(step);
+        if (definition.output().apply(order) != null) {
+            log.warn("Duplicate step result ignored {}", kv("step", step));
+            return;
+        }
+        definition.outputWriter().accept(order, output);
+        recordStep(order, step, true);
+
+        if (isFailed(order)) {
+            log.warn("Step completed after the saga failed, undoing it {}", kv("step", step));
+            compensationEngine.compensate(order, "Saga already failed");
+            return;
+        }
+        sagaDefinition.compensation(step).ifPresent(compensation -> compensationEngine.register(order, compensation));
+
+        if (sagaDefinition.isComplete(order)) {
+            orderHelper.transition(order, OrderStatus.COMPLETED);
+            log.info("Saga completed successfully");
+            return;
+        }
+        orderHelper.transition(order, step.completed());
+
+        List<SagaStep> unlocked = sagaDefinition.unlockedBy(step, order);
+        log.debug("Step completed {} {}", kv("step", step), kv("unlocked", unlocked));
+        unlocked.forEach(next -> dispatch(order, next));
+    }
+
+    /**
+     * Fail the saga at the given step and compensate the steps already completed. A failure
+     * after the saga has already failed changes nothing.
+     */
+    public void stepFailed(Order order, SagaStep step, String reason) {
+        recordStep(order, step, false);
+        if (isFailed(order)) {
+            log.warn("Step failed after the saga failed {}", kv("step", step));
+            return;
+        }
+
+        orderHelper.transition(order, step.failed());
+        if (step.failed().isTerminal()) {
+            clearTimings(order.getId());
+            return;
+        }
+        log.warn("Step failed, compensating {} {}", kv("step", step), kv("reason", reason));
+        compensationEngine.compensate(order, reason);
+    }
+
+    /**
+     * Steps of the saga currently in flight
+     */
+    public List<SagaStep> inFlight(Order order) {
+        return isFailed(order) ? List.of() : sagaDefinition.ready(order);
+    }
+
+    /**
+     * Dispatch a step again unless it has completed or the saga has failed in the meantime
+     */
+    public void resume(Order order, SagaStep step) {
+        if (inFlight(order).contains(step)) {
+            dispatch(order, step);
+        }
+    }
+
+    private void dispatch(Order order, SagaStep step) {
+        dispatchedAt.put(new StepKey(order.getId(), step), clock.millis());
+        switch (step) {
+            case PAYMENT -> orderHelper.startPaymentProcess(order);
+            case KITCHEN -> orderHelper.startKitchenProcess(order);
+            case DELIVERY -> orderHelper.startDeliveryProcess(order);
+        }
+    }
+
+    private void recordStep(Order order, SagaStep step, boolean success) {
+        Long started = dispatchedAt.remove(new StepKey(order.getId(), step));
+        if (started != null) {
+            sagaMetrics.recordStep(SagaMetrics.Step.valueOf(step.name()), success,
+                    clock.millis() - started);
+        }
+        if (!success) {
+            clearTimings(order.getId());
+        }
+    }
+
+    private void clearTimings(UUID orderId) {
+        for (SagaStep step : SagaStep.values()) {
+            dispatchedAt.remove(new StepKey(orderId, step));
+        }
+    }
+
+    private static boolean isFailed(Order order) {
+        return FAILED.contains(order.getStatus());
+    }
+}
@@ -0,0 +1,206 @@
+package com.saga.order.saga;
+
+import com.saga.order.dto.CompensationStep;
+import com.saga.order.dto.SagaStep;
+import com.saga.order.entity.Order;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Declarative description of a saga: its steps, what each depends on, where its result is
+ * kept on the order and how it is undone.
+ * <p>
+ * The steps form a DAG. A step is ready once all its dependencies have completed, so steps
+ * that do not depend on each other run concurrently and the saga takes as long as its
+ * critical path. A step has completed when its result is on the order, which lets the state
+ * of a saga be read from the order alone, also after a restart.
+ */
+public final class SagaDefinition {
+
+    /**
+     * One step of the saga
+     *
+     * @param output       reads the step's result from the order; null while the step has not completed
+     * @param outputWriter stores the step's result on the order
+     * @param compensation undo action of the completed step, or null if it needs none
+     */
+    public record StepDefinition(SagaStep step,
+                                 Set<SagaStep> dependsOn,
+                                 Function<Order, String> output,
+                                 BiConsumer<Order, String> outputWriter,
+                                 CompensationStep compensation) {
+    }
+
+    private final String name;
+    private final Map<SagaStep, StepDefinition> steps;
+
+    private SagaDefinition(String name, Map<SagaStep, StepDefinition> steps) {
+        this.name = name;
+        this.steps = steps;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Collection<StepDefinition> steps() {
+        return steps.values();
+    }
+
+    public StepDefinition step(SagaStep step) {
+        StepDefinition definition = steps.get(step);
+        if (definition == null) {
+            throw new IllegalArgumentException("Step " + step + " is not part of saga " + name);
+        }
+        return definition;
+    }
+
+    public Optional<CompensationStep> compensation(SagaStep step) {
+        return Optional.ofNullable(step(step).compensation());
+    }
+
+    public boolean isCompleted(Order order, SagaStep step) {
+        return step(step).output().apply(order) != null;
+    }
+
+    /**
+     * Whether every step of the saga has completed
+     */
+    public boolean isComplete(Order order) {
+        return steps.keySet().stream().allMatch(step -> isCompleted(order, step));
+    }
+
+    /**
+     * Steps with no dependencies, dispatched when the saga starts
+     */
+    public List<SagaStep> roots() {
+        return steps.values().stream()
+                .filter(definition -> definition.dependsOn().isEmpty())
+                .map(StepDefinition::step)
+                .toList();
+    }
+
+    /**
+     * Steps that became ready because {@code completed} finished: it is one of their
+     * dependencies and the others had already completed
+     */
+    public List<SagaStep> unlockedBy(SagaStep completed, Order order) {
+        return steps.values().stream()
+                .filter(definition -> definition.dependsOn().contains(completed))
+                .filter(definition -> isReady(order, definition))
+                .map(StepDefinition::step)
+                .toList();
+    }
+
+    /**
+     * Steps whose dependencies have completed but which have not completed themselves,
+     * i.e. the steps in flight
+     */
+    public List<SagaStep> ready(Order order) {
+        return steps.values().stream()
+                .filter(definition -> isReady(order, definition))
+                .map(StepDefinition::step)
+                .toList();
+    }
+
+    private boolean isReady(Order order, StepDefinition definition) {
+        return !isCompleted(order, definition.step())
+                && definition.dependsOn().stream().allMatch(dependency -> isCompleted(order, dependency));
+    }
+
+    public static final class Builder {
+
+        private final String name;
+        private final Map<SagaStep, StepDefinition> steps = new LinkedHashMap<>();
+
+        private SagaStep step;
+        private Set<SagaStep> dependsOn;
+        private Function<Order, String> output;
+        private BiConsumer<Order, String> outputWriter;
+        private CompensationStep compensation;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Start declaring a step
+         */
+        public Builder step(SagaStep step) {
+            finishStep();
+            this.step = step;
+            this.dependsOn = EnumSet.noneOf(SagaStep.class);
+            return this;
+        }
+
+        /**
+         * Steps that must complete before this one is dispatched
+         */
+        public Builder after(SagaStep... dependencies) {
+            Collections.addAll(dependsOn, dependencies);
+            return this;
+        }
+
+        /**
+         * Where the step's result is kept on the order
+         */
+        public Builder output(Function<Order, String> getter, BiConsumer<Order, String> setter) {
+            this.output = getter;
+            this.outputWriter = setter;
+            return this;
+        }
+
+        /**
+         * How the completed step is undone when the saga fails
+         */
+        public Builder compensatedBy(CompensationStep compensation) {
+            this.compensation = compensation;
+            return this;
+        }
+
+        public SagaDefinition build() {
+            finishStep();
+            // Every dependency must be declared earlier, which also rules out cycles
+            Set<SagaStep> declared = EnumSet.noneOf(SagaStep.class);
+            for (StepDefinition definition : steps.values()) {
+                for (SagaStep dependency : definition.dependsOn()) {
+                    if (!declared.contains(dependency)) {
+                        throw new IllegalStateException(definition.step() + " depends on " + dependency
+                                + ", which is not declared before it");
+                    }
+                }
+                declared.add(definition.step());
+            }
+            return new SagaDefinition(name, Collections.unmodifiableMap(new LinkedHashMap<>(steps)));
+        }
+
+        private void finishStep() {
+            if (step == null) {
+                return;
+            }
+            if (output == null) {
+                throw new IllegalStateException("Step " + step + " has no output");
+            }
+            if (steps.put(step, new StepDefinition(step, Set.copyOf(dependsOn), output, outputWriter, compensation)) != null) {
+                throw new IllegalStateException("Step " + step + " declared twice");
+            }
+            step = null;
+            output = null;
+            outputWriter = null;
+            compensation = null;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.saga.order.service;
+
+import com.saga.order.dto.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Decides whether a new order may start a saga, before anything is written or sent.
+ * <p>
+ * Three checks run in order:
+ * <ol>
+ *     <li>Backlog: orders already in flight, as counted by the read model, must stay under a
+ *     ceiling. Past it the downstream queues are backed up and a new saga would only add latency.</li>
+ *     <li>Concurrency: a global limit on order creations being processed at the same time.</li>
+ *     <li>Per customer: a token bucket per customer id caps the sustained order rate and burst, so
+ *     a few heavy customers cannot crowd out everyone else. Buckets live in independently locked
+ *     stripes, each an LRU map bounded in size. A customer is only charged a token once the
+ *     other checks have passed.</li>
+ * </ol>
+ * A rejection carries how long the caller should wait before retrying.
+ */
+@Slf4j
+@Component
+public class AdmissionControl {
+
+    public enum Reason {
+        BACKLOG,
+        CUSTOMER_RATE,
+        CONCURRENCY
+    }
+
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final OrderProjection orderProjection;
+    private final boolean enabled;
+    private final long maxBacklog;
+    private final long backlogRetryAfterSeconds;
+    private final double tokensPerNano;
+    private final double burst;
+    private final Semaphore concurrency;
+    private final Map<String, Bucket>[] stripes;
+    private final int mask;
+    private final Map<Reason, Counter> rejected = new EnumMap<>(Reason.class);
+    private final Counter admitted;
+
+    @SuppressWarnings("unchecked")
+    public AdmissionControl(OrderProjection orderProjection,
+                            MeterRegistry meterRegistry,
+                            @Value("${order.admission.enabled:true}") boolean enabled,
+                            @Value("${order.admission.max-backlog:5000}") long maxBacklog,
+                            @Value("${order.admission.backlog-retry-after-seconds:5}") long backlogRetryAfterSeconds,
+                            @Value("${order.admission.customer-rate-per-second:2}") double customerRatePerSecond,
+                            @Value("${order.admission.customer-burst:10}") double customerBurst,
+                            @Value("${order.admission.max-concurrent:64}") int maxConcurrent,
+                            @Value("${order.admission.stripes:32}") int stripes,
+                            @Value("${order.admission.customers-per-stripe:1024}") int customersPerStripe) {
+        this.orderProjection = orderProjection;
+        this.enabled = enabled;
+        this.maxBacklog = maxBacklog;
+        this.backlogRetryAfterSeconds = Math.max(1, backlogRetryAfterSeconds);
+        this.tokensPerNano = customerRatePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, customerBurst);
+        this.concurrency = new Semaphore(maxConcurrent);
+
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+        this.stripes = new Map[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > customersPerStripe;
+                }
+            };
+        }
+        this.mask = size - 1;
+
+        for (Reason reason : Reason.values()) {
+            rejected.put(reason, Counter.builder("saga.admission.rejected")
+                    .description("Order creations refused by admission control")
+                    .tag("reason", reason.name())
+                    .register(meterRegistry));
+        }
+        this.admitted = Counter.builder("saga.admission.admitted")
+                .description("Order creations let through by admission control")
+                .register(meterRegistry);
+        Gauge.builder("saga.admission.concurrent", concurrency, s -> maxConcurrent - s.availablePermits())
+                .description("Order creations currently being processed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admit an order creation for a customer. The returned permit must be closed when the
+     * creation is done.
+     *
+     * @throws AdmissionRejectedException if the order must not be created now
+     */
+    public Permit admit(String customerId) {
+        if (!enabled) {
+            return Permit.NONE;
+        }
+
+        long backlog = backlog();
+        if (backlog >= maxBacklog) {
+            throw reject(Reason.BACKLOG, backlogRetryAfterSeconds, customerId);
+        }
+
+        if (!concurrency.tryAcquire()) {
+            throw reject(Reason.CONCURRENCY, 1, customerId);
+        }
+
+        long waitNanos = takeToken(customerId, System.nanoTime());
+        if (waitNanos > 0) {
+            concurrency.release();
+            long retryAfterSeconds = Math.min(MAX_RETRY_AFTER_SECONDS, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+            throw reject(Reason.CUSTOMER_RATE, retryAfterSeconds, customerId);
+        }
+        admitted.increment();
+        return concurrency::release;
+    }
+
+    /**
+     * Orders whose saga has not reached a terminal status
+     */
+    long backlog() {
+        long backlog = 0;
+        for (OrderStatus status : OrderStatus.values()) {
+            if (!status.isTerminal()) {
+                backlog += orderProjection.countByStatus(status);
+            }
+        }
+        return backlog;
+    }
+
+    /**
+     * Take a token from the customer's bucket, returning 0 on success or else the nanoseconds
+     * until a token is available
+     */
+    long takeToken(String customerId, long nowNanos) {
+        Map<String, Bucket> stripe = stripe(customerId);
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(customerId);
+            if (bucket == null) {
+                bucket = new Bucket(burst, nowNanos);
+                stripe.put(customerId, bucket);
+            }
+            bucket.tokens = Math.min(burst, bucket.tokens + (nowNanos - bucket.refilledAt) * tokensPerNano);
+            bucket.refilledAt = nowNanos;
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return tokensPerNano > 0 ? (long) Math.ceil((1 - bucket.tokens) / tokensPerNano) : Long.MAX_VALUE;
+        }
+    }
+
+    private AdmissionRejectedException reject(Reason reason, long retryAfterSeconds, String customerId) {
+        rejected.get(reason).increment();
+        log.warn("Order creation rejected {} {} {}", kv("reason", reason), kv("customerId", customerId),
+                kv("retryAfterSeconds", retryAfterSeconds));
+        return new AdmissionRejectedException(reason, retryAfterSeconds);
+    }
+
+    private Map<String, Bucket> stripe(String customerId) {
+        int h = customerId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+
+    /**
+     * Held while an admitted order is being created
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+
+        Permit NONE = () -> { };
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,19 @@
+package com.saga.order.service;
+
+import lombok.Getter;
+
+/**
+ * An order creation was refused by {@link AdmissionControl}; the caller may retry after the given delay
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final AdmissionControl.Reason reason;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(AdmissionControl.Reason reason, long retryAfterSeconds) {
+        super("Order creation rejected: " + reason);
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
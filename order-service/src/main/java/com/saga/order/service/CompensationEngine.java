@@ -0,0 +1,272 @@
+package com.saga.order.service;
+
+import com.saga.contracts.command.CancelDeliveryCommand;
+import com.saga.contracts.command.CancelPreparationCommand;
+import com.saga.contracts.command.RefundPaymentCommand;
+import com.saga.order.config.RabbitMQConfig;
+import com.saga.order.dto.CompensationStatus;
+import com.saga.order.dto.CompensationStep;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.entity.Compensation;
+import com.saga.order.entity.Order;
+import com.saga.order.repository.CompensationRepository;
+import com.saga.order.saga.SagaDefinition;
+import io.micrometer.tracing.BaggageInScope;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Runs the undo actions of failed sagas.
+ * <p>
+ * Each completed step registers its undo action. When a saga fails, the undo commands of all
+ * its completed steps are independent of each other, so they are dispatched together and the
+ * participants work on them in parallel. The order stays in its failed status until every one
+ * is acknowledged, and only then becomes CANCELLED. Each undo command has its own deadline;
+ * a background sweep re-sends it when the deadline passes and gives up after the last attempt,
+ * leaving the order for manual attention.
+ */
+@Slf4j
+@Component
+public class CompensationEngine {
+
+    private final CompensationRepository compensationRepository;
+    private final OrderHelper orderHelper;
+    private final SagaMetrics sagaMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final SagaDefinition sagaDefinition;
+    private final Clock clock;
+
+    private final Map<CompensationStep, Long> timeouts = new EnumMap<>(CompensationStep.class);
+    private final int maxAttempts;
+    private final long sweepIntervalMillis;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "compensation-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CompensationEngine(CompensationRepository compensationRepository,
+                              OrderHelper orderHelper,
+                              SagaMetrics sagaMetrics,
+                              TransactionTemplate transactionTemplate,
+                              SagaDefinition sagaDefinition,
+                              Clock clock,
+                              @Value("${order.compensation.payment-timeout-ms:10000}") long paymentTimeoutMillis,
+                              @Value("${order.compensation.kitchen-timeout-ms:10000}") long kitchenTimeoutMillis,
+                              @Value("${order.compensation.delivery-timeout-ms:10000}") long deliveryTimeoutMillis,
+                              @Value("${order.compensation.max-attempts:3}") int maxAttempts,
+                              @Value("${order.compensation.sweep-interval-ms:1000}") long sweepIntervalMillis) {
+        this.compensationRepository = compensationRepository;
+        this.orderHelper = orderHelper;
+        this.sagaMetrics = sagaMetrics;
+        this.transactionTemplate = transactionTemplate;
+        this.sagaDefinition = sagaDefinition;
+        this.clock = clock;
+        this.timeouts.put(CompensationStep.PAYMENT, paymentTimeoutMillis);
+        this.timeouts.put(CompensationStep.KITCHEN, kitchenTimeoutMillis);
+        this.timeouts.put(CompensationStep.DELIVERY, deliveryTimeoutMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.sweepIntervalMillis = sweepIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        sweeper.scheduleWithFixedDelay(this::sweepQuietly, sweepIntervalMillis, sweepIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Register the undo action of a step the saga has just completed
+     */
+    public void register(Order order, CompensationStep step) {
+        if (compensationRepository.findByOrderIdAndStep(order.getId(), step).isEmpty()) {
+            compensationRepository.save(new Compensation(order.getId(), step, clock.millis()));
+        }
+    }
+
+    /**
+     * Undo every completed step of a failed saga that has not been undone yet. Undo commands
+     * already in flight are left to their deadline. The order becomes CANCELLED once all undo
+     * commands are acknowledged, or right away if there is nothing to undo.
+     */
+    public void compensate(Order order, String reason) {
+        long now = clock.millis();
+        Map<CompensationStep, Compensation> byStep = new EnumMap<>(CompensationStep.class);
+        compensationRepository.findByOrderId(order.getId()).forEach(c -> byStep.put(c.getStep(), c));
+
+        // A step whose result is on the order has completed, even if its registration was lost
+        for (SagaDefinition.StepDefinition step : sagaDefinition.steps()) {
+            if (step.compensation() != null && step.output().apply(order) != null) {
+                byStep.computeIfAbsent(step.compensation(), s -> new Compensation(order.getId(), s, now));
+            }
+        }
+
+        List<Compensation> pending = byStep.values().stream()
+                .filter(c -> c.getStatus() == CompensationStatus.REGISTERED || c.getStatus() == CompensationStatus.FAILED)
+                .toList();
+        if (pending.isEmpty()) {
+            boolean outstanding = byStep.values().stream()
+                    .anyMatch(c -> c.getStatus() != CompensationStatus.ACKNOWLEDGED);
+            if (!outstanding && !order.getStatus().isTerminal()) {
+                cancel(order);
+            }
+            return;
+        }
+
+        log.warn("Compensating saga {} {}", kv("steps", pending.stream().map(Compensation::getStep).toList()),
+                kv("reason", reason));
+        for (Compensation compensation : pending) {
+            compensation.setReason(reason);
+            compensation.setAttempts(0);
+            dispatch(compensation, now);
+        }
+        compensationRepository.saveAll(pending);
+        sagaMetrics.compensationsDispatched(pending.size());
+    }
+
+    /**
+     * Record a participant's confirmation that its step was undone, cancelling the order
+     * when it was the last one outstanding. Duplicate and unsolicited confirmations are ignored.
+     */
+    public void acknowledge(UUID orderId, CompensationStep step) {
+        Compensation compensation = compensationRepository.findByOrderIdAndStep(orderId, step).orElse(null);
+        if (compensation == null || compensation.getStatus() == CompensationStatus.ACKNOWLEDGED
+                || compensation.getStatus() == CompensationStatus.REGISTERED) {
+            log.debug("Ignoring compensation acknowledgement {}", kv("step", step));
+            return;
+        }
+
+        long now = clock.millis();
+        compensation.setStatus(CompensationStatus.ACKNOWLEDGED);
+        compensation.setCompletedAt(now);
+        compensationRepository.save(compensation);
+        sagaMetrics.compensationAcknowledged(step, now - compensation.getDispatchedAt());
+        log.info("Compensation acknowledged {} {}", kv("step", step), kv("attempts", compensation.getAttempts()));
+
+        boolean outstanding = compensationRepository.findByOrderId(orderId).stream()
+                .anyMatch(c -> c.getStatus() != CompensationStatus.ACKNOWLEDGED);
+        if (!outstanding) {
+            orderHelper.findOrder(orderId)
+                    .filter(order -> !order.getStatus().isTerminal())
+                    .ifPresent(this::cancel);
+        }
+    }
+
+    /**
+     * Re-send undo commands past their deadline, or give up on those out of attempts.
+     * Returns the number of compensations that timed out.
+     * <p>
+     * The re-sent commands leave only once the sweep has committed. If a compensation was
+     * acknowledged after the sweep loaded it, the optimistic lock fails the commit instead of
+     * overwriting the acknowledgement; nothing is sent, and the next sweep picks up the rest.
+     */
+    public int sweep() {
+        orderHelper.holdCommands();
+        Integer expired;
+        try {
+            expired = transactionTemplate.execute(status -> expire(clock.millis()));
+        } catch (OptimisticLockingFailureException e) {
+            orderHelper.discardHeldCommands();
+            log.info("Compensation settled during the sweep, retrying with the next one {}",
+                    kv("error", e.getMessage()));
+            return 0;
+        } catch (RuntimeException e) {
+            orderHelper.discardHeldCommands();
+            throw e;
+        }
+        orderHelper.releaseHeldCommands();
+        return expired == null ? 0 : expired;
+    }
+
+    private int expire(long now) {
+        List<Compensation> overdue = compensationRepository
+                .findByStatusAndDeadlineLessThan(CompensationStatus.DISPATCHED, now);
+        for (Compensation compensation : overdue) {
+            try (BaggageInScope ignored = orderHelper.openSagaScope(compensation.getOrderId())) {
+                boolean givenUp = compensation.getAttempts() >= maxAttempts;
+                sagaMetrics.compensationTimedOut(compensation.getStep(), givenUp);
+                if (givenUp) {
+                    compensation.setStatus(CompensationStatus.FAILED);
+                    compensation.setCompletedAt(now);
+                    sagaMetrics.recordStep(SagaMetrics.Step.COMPENSATION, false, now - compensation.getDispatchedAt());
+                    log.error("Compensation not acknowledged, giving up {} {}",
+                            kv("step", compensation.getStep()), kv("attempts", compensation.getAttempts()));
+                } else {
+                    log.warn("Compensation not acknowledged in time, re-sending {} {}",
+                            kv("step", compensation.getStep()), kv("attempt", compensation.getAttempts() + 1));
+                    dispatch(compensation, now);
+                }
+            }
+        }
+        compensationRepository.saveAll(overdue);
+        return overdue.size();
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Compensation sweep failed {}", kv("error", e.getMessage()));
+        }
+    }
+
+    private void dispatch(Compensation compensation, long now) {
+        compensation.setStatus(CompensationStatus.DISPATCHED);
+        compensation.setAttempts(compensation.getAttempts() + 1);
+        compensation.setDeadline(now + timeouts.get(compensation.getStep()));
+        if (compensation.getDispatchedAt() == 0) {
+            compensation.setDispatchedAt(now);
+        }
+
+        String orderId = compensation.getOrderId().toString();
+        Object command;
+        String routingKey;
+        switch (compensation.getStep()) {
+            case PAYMENT -> {
+                command = new RefundPaymentCommand(orderId, compensation.getReason());
+                routingKey = RabbitMQConfig.PAYMENT_COMMAND_ROUTING_KEY;
+            }
+            case KITCHEN -> {
+                command = new CancelPreparationCommand(orderId, compensation.getReason());
+                routingKey = RabbitMQConfig.KITCHEN_COMMAND_ROUTING_KEY;
+            }
+            case DELIVERY -> {
+                command = new CancelDeliveryCommand(orderId, compensation.getReason());
+                routingKey = RabbitMQConfig.DELIVERY_COMMAND_ROUTING_KEY;
+            }
+            default -> throw new IllegalStateException("No undo command for " + compensation.getStep());
+        }
+
+        log.debug("Sending {}", kv("command", command.getClass().getSimpleName()));
+        orderHelper.send(routingKey, command);
+    }
+
+    private void cancel(Order order) {
+        long failedAt = order.getStatusUpdatedAt();
+        orderHelper.transition(order, OrderStatus.CANCELLED);
+        sagaMetrics.recordStep(SagaMetrics.Step.COMPENSATION, true, clock.millis() - failedAt);
+        log.warn("Saga compensated, order cancelled");
+    }
+}
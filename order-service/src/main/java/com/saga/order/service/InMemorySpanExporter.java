@@ -0,0 +1,144 @@
+package com.saga.order.service;
+
+import com.saga.order.dto.SagaTrace;
+import com.saga.order.dto.SpanRecord;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.exporter.FinishedSpan;
+import io.micrometer.tracing.exporter.SpanReporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the most recent finished spans in memory, grouped by trace, and derives a
+ * per-saga critical path from them.
+ * <p>
+ * Only the orchestrator's own spans are visible here. Participants run in other
+ * processes, so the time between publishing a command and receiving its reply shows
+ * up as a WAIT segment attributed to that command.
+ */
+@Component
+public class InMemorySpanExporter implements SpanReporter {
+
+    public static final String ORDER_ID_TAG = "saga.order.id";
+
+    private final Map<String, List<SpanRecord>> spansByTrace;
+    private final Map<String, String> traceByOrder;
+    private final int maxSpansPerTrace;
+
+    public InMemorySpanExporter(@Value("${saga.tracing.exporter.max-traces:10000}") int maxTraces,
+                                @Value("${saga.tracing.exporter.max-spans-per-trace:256}") int maxSpansPerTrace) {
+        this.spansByTrace = Collections.synchronizedMap(boundedMap(maxTraces));
+        this.traceByOrder = Collections.synchronizedMap(boundedMap(maxTraces));
+        this.maxSpansPerTrace = maxSpansPerTrace;
+    }
+
+    @Override
+    public void report(FinishedSpan span) {
+        SpanRecord record = new SpanRecord(
+                span.getTraceId(),
+                span.getSpanId(),
+                span.getParentId(),
+                span.getName(),
+                span.getKind() == null ? null : span.getKind().name(),
+                toMicros(span.getStartTimestamp()),
+                toMicros(span.getEndTimestamp()),
+                Map.copyOf(span.getTags())
+        );
+
+        List<SpanRecord> spans = spansByTrace.computeIfAbsent(span.getTraceId(), id -> new ArrayList<>());
+        synchronized (spans) {
+            if (spans.size() < maxSpansPerTrace) {
+                spans.add(record);
+            }
+        }
+
+        String orderId = span.getTags().get(ORDER_ID_TAG);
+        if (orderId != null) {
+            traceByOrder.putIfAbsent(orderId, span.getTraceId());
+        }
+    }
+
+    /**
+     * Spans of a trace ordered by start time
+     */
+    public List<SpanRecord> getTrace(String traceId) {
+        List<SpanRecord> spans = spansByTrace.get(traceId);
+        if (spans == null) {
+            return List.of();
+        }
+        List<SpanRecord> copy;
+        synchronized (spans) {
+            copy = new ArrayList<>(spans);
+        }
+        copy.sort(Comparator.comparingLong(SpanRecord::getStartMicros));
+        return copy;
+    }
+
+    /**
+     * Trace of a saga with its critical path, or null if no span of that order is retained
+     */
+    public SagaTrace getSagaTrace(String orderId) {
+        String traceId = traceByOrder.get(orderId);
+        if (traceId == null) {
+            return null;
+        }
+
+        List<SpanRecord> spans = getTrace(traceId);
+        if (spans.isEmpty()) {
+            return null;
+        }
+
+        List<SagaTrace.PathSegment> path = new ArrayList<>();
+        long origin = spans.getFirst().getStartMicros();
+        long cursor = origin;
+        String awaiting = null;
+
+        // Spans are sorted by start; anything not covered by an earlier span is either
+        // orchestrator work (a new span) or waiting for a participant (a gap).
+        for (SpanRecord span : spans) {
+            if (span.getStartMicros() > cursor) {
+                path.add(segment("WAIT", awaiting == null ? "idle" : awaiting,
+                        cursor - origin, span.getStartMicros() - cursor));
+                cursor = span.getStartMicros();
+            }
+            if (span.getEndMicros() > cursor) {
+                path.add(segment("WORK", span.getName(), cursor - origin, span.getEndMicros() - cursor));
+                cursor = span.getEndMicros();
+            }
+            if (Span.Kind.PRODUCER.name().equals(span.getKind())) {
+                awaiting = span.getName();
+            }
+        }
+
+        SagaTrace.PathSegment slowest = path.stream()
+                .max(Comparator.comparingDouble(SagaTrace.PathSegment::getDurationMillis))
+                .orElse(null);
+
+        return new SagaTrace(orderId, traceId, (cursor - origin) / 1000.0, slowest, path, spans);
+    }
+
+    private static SagaTrace.PathSegment segment(String type, String name, long offsetMicros, long durationMicros) {
+        return new SagaTrace.PathSegment(type, name, offsetMicros / 1000.0, durationMicros / 1000.0);
+    }
+
+    private static long toMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000L;
+    }
+
+    private static <V> Map<String, V> boundedMap(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package com.saga.order.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimates how many orders are ahead of an order in the kitchen.
+ * <p>
+ * Every order sent to the kitchen takes a ticket and every kitchen reply moves the queue on
+ * by one, so the position of an order is its ticket minus the replies seen since. This assumes
+ * the kitchen works roughly first come, first served and only counts orders sent since this
+ * instance started, which is good enough for the delivery ETA it feeds. An order leaves the
+ * queue on the kitchen's reply, when its saga ends without one, or when the command that put it
+ * in the queue is never sent, so tickets never pile up.
+ */
+@Component
+public class KitchenQueue {
+
+    private final AtomicLong tickets = new AtomicLong();
+    private final AtomicLong served = new AtomicLong();
+    private final Map<String, Long> waiting = new ConcurrentHashMap<>();
+
+    /**
+     * An order was sent to the kitchen
+     */
+    public void joined(String orderId) {
+        waiting.computeIfAbsent(orderId, id -> tickets.getAndIncrement());
+    }
+
+    /**
+     * The kitchen replied for an order, prepared or failed, or the order stopped waiting for it
+     */
+    public void left(String orderId) {
+        if (waiting.remove(orderId) != null) {
+            served.incrementAndGet();
+        }
+    }
+
+    /**
+     * Orders waiting for the kitchen
+     */
+    public int size() {
+        return waiting.size();
+    }
+
+    /**
+     * Orders ahead of this one in the kitchen, or null if it is not waiting for the kitchen
+     */
+    public Integer position(String orderId) {
+        Long ticket = waiting.get(orderId);
+        return ticket == null ? null : (int) Math.max(0, ticket - served.get());
+    }
+}
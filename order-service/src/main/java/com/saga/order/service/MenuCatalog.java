@@ -0,0 +1,134 @@
+package com.saga.order.service;
+
+import com.saga.order.dto.PizzaSize;
+import com.saga.order.entity.MenuItem;
+import com.saga.order.repository.MenuItemRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Menu and pricing of pizza orders.
+ * <p>
+ * The menu lives in the menu_items table and is served from an immutable {@link PriceTable}.
+ * Pricing an order is a single volatile read and a hash lookup, with no lock and no query.
+ * A menu change is written to the table first, then a new price table is built from it and
+ * swapped in, so readers see either the old menu or the new one, never a mix.
+ */
+@Slf4j
+@Component
+public class MenuCatalog {
+
+    public static final PizzaSize DEFAULT_SIZE = PizzaSize.MEDIUM;
+
+    /**
+     * Medium prices seeded into an empty menu; small and large are priced relative to them
+     */
+    private static final Map<String, Double> DEFAULT_MENU = Map.of(
+            "Margherita", 15.99,
+            "Pepperoni", 15.99,
+            "Vegetarian", 15.99,
+            "Hawaiian", 15.99,
+            "BBQ Chicken", 15.99);
+
+    private final MenuItemRepository menuItemRepository;
+
+    private volatile PriceTable priceTable = PriceTable.EMPTY;
+
+    public MenuCatalog(MenuItemRepository menuItemRepository, MeterRegistry meterRegistry) {
+        this.menuItemRepository = menuItemRepository;
+        Gauge.builder("saga.menu.version", this, catalog -> catalog.priceTable.version())
+                .description("Version of the price table in use; bumped on every menu change")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (menuItemRepository.count() == 0) {
+            List<MenuItem> items = new ArrayList<>();
+            DEFAULT_MENU.forEach((pizzaType, price) -> {
+                items.add(new MenuItem(pizzaType, PizzaSize.SMALL, round(price - 3.00), true));
+                items.add(new MenuItem(pizzaType, PizzaSize.MEDIUM, price, true));
+                items.add(new MenuItem(pizzaType, PizzaSize.LARGE, round(price + 4.00), true));
+            });
+            menuItemRepository.saveAll(items);
+            log.info("Seeded default menu {}", kv("items", items.size()));
+        }
+        reload();
+    }
+
+    /**
+     * Rebuild the price table from the menu table and swap it in
+     */
+    public synchronized PriceTable reload() {
+        PriceTable table = PriceTable.of(menuItemRepository.findAll(), priceTable.version() + 1);
+        priceTable = table;
+        log.info("Price table loaded {} {}", kv("pizzaTypes", table.size()), kv("version", table.version()));
+        return table;
+    }
+
+    /**
+     * Canonical pizza type name and unit price of a menu item
+     *
+     * @throws MenuItemUnavailableException if the type is not on the menu or the size is not available
+     */
+    public Quote quote(String pizzaType, PizzaSize size) {
+        PizzaSize pizzaSize = size == null ? DEFAULT_SIZE : size;
+        PriceTable.Entry entry = priceTable.find(pizzaType);
+        if (entry == null) {
+            throw new MenuItemUnavailableException("Unknown pizza type: " + pizzaType);
+        }
+        double price = entry.price(pizzaSize);
+        if (Double.isNaN(price)) {
+            throw new MenuItemUnavailableException(entry.pizzaType() + " is not available in size " + pizzaSize);
+        }
+        return new Quote(entry.pizzaType(), pizzaSize, price);
+    }
+
+    /**
+     * Unit price of a menu item for an order
+     */
+    public record Quote(String pizzaType, PizzaSize size, double unitPrice) {
+
+        public double total(int quantity) {
+            return round(unitPrice * quantity);
+        }
+    }
+
+    public List<MenuItem> menu() {
+        return menuItemRepository.findAll();
+    }
+
+    /**
+     * Add or change one menu item, then publish the new menu
+     */
+    public synchronized MenuItem update(String pizzaType, PizzaSize size, double price, boolean available) {
+        PriceTable.Entry existing = priceTable.find(pizzaType);
+        String name = existing != null ? existing.pizzaType() : pizzaType.trim();
+        MenuItem item = menuItemRepository.findByPizzaTypeIgnoreCaseAndPizzaSize(name, size)
+                .orElseGet(() -> new MenuItem(name, size, price, available));
+        item.setPrice(price);
+        item.setAvailable(available);
+        MenuItem saved = menuItemRepository.save(item);
+        log.info("Menu item updated {} {} {} {}", kv("pizzaType", name), kv("size", size),
+                kv("price", price), kv("available", available));
+        reload();
+        return saved;
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+
+    PriceTable priceTable() {
+        return priceTable;
+    }
+}
@@ -0,0 +1,15 @@
+package com.saga.order.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * An order asked for a pizza type or size that is not on the menu or not available
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class MenuItemUnavailableException extends RuntimeException {
+
+    public MenuItemUnavailableException(String message) {
+        super(message);
+    }
+}
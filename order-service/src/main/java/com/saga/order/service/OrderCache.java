@@ -0,0 +1,113 @@
+package com.saga.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.saga.order.entity.Order;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Bounded read-through cache in front of the orders table.
+ * <p>
+ * Entries are detached copies, never the managed entity, so a handler mutating an order
+ * inside its transaction cannot leak uncommitted state to readers. Writes are applied
+ * after the surrounding transaction commits and evicted if it rolls back.
+ */
+@Slf4j
+@Component
+public class OrderCache {
+
+    public static final String CACHE_NAME = "orders";
+
+    private final Cache<UUID, Order> cache;
+
+    public OrderCache(MeterRegistry meterRegistry,
+                      @Value("${order.cache.maximum-size:10000}") long maximumSize,
+                      @Value("${order.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        // Exposes cache.gets{result=hit|miss}, cache.evictions, cache.size, ...
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Return the cached order, loading it with the given function on a miss.
+     * A loader returning null is not cached.
+     */
+    public Order get(UUID orderId, Function<UUID, Order> loader) {
+        return cache.get(orderId, id -> {
+            Order loaded = loader.apply(id);
+            return loaded == null ? null : snapshot(loaded);
+        });
+    }
+
+    /**
+     * Record a status write. Inside a transaction the entry is refreshed on commit
+     * and invalidated on rollback; outside one it is refreshed immediately.
+     */
+    public void put(Order order) {
+        UUID orderId = order.getId();
+        if (orderId == null) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.put(orderId, snapshot(order));
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    cache.put(orderId, snapshot(order));
+                } else {
+                    log.debug("Transaction rolled back, evicting cached order {}", kv("orderId", orderId));
+                    cache.invalidate(orderId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop a single order from the cache
+     */
+    public void evict(UUID orderId) {
+        cache.invalidate(orderId);
+    }
+
+    static Order snapshot(Order order) {
+        return new Order(
+                order.getId(),
+                order.getCustomerId(),
+                order.getPizzaType(),
+                order.getPizzaSize(),
+                order.getQuantity(),
+                order.getAmount(),
+                order.getDeliveryAddress(),
+                order.getStatus(),
+                order.getCreatedAt(),
+                order.getStatusUpdatedAt(),
+                order.getPaymentTransactionId(),
+                order.getKitchenId(),
+                order.getDriverId(),
+                order.getVersion(),
+                order.getEventVersion()
+        );
+    }
+}
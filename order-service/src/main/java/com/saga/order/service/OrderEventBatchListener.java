@@ -0,0 +1,221 @@
+package com.saga.order.service;
+
+import com.saga.contracts.event.*;
+import com.saga.order.config.RabbitMQConfig;
+import com.saga.order.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.BaggageInScope;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Consumes order events in batches, one transaction per batch (order.event-batch.enabled).
+ * <p>
+ * The orders a batch touches are loaded with a single IN query, the events are applied to
+ * them in arrival order through the usual handlers, Hibernate flushes the changes as JDBC
+ * batches and the batch commits once. Follow-up commands are held back until that commit, so
+ * a batch that rolls back sends nothing. If the batch fails, its events are retried one per
+ * transaction. An event that cannot be read or has no valid orderId is dropped before the batch
+ * starts. An event that still fails because of the message itself (an unknown order, a malformed
+ * payload) is dropped and counted as poison, so a single bad message
+ * cannot keep failing the messages around it. Any other failure, e.g. the database being
+ * unreachable, is rethrown and the whole batch is requeued; the events of it that were already
+ * applied are ignored as duplicates when it comes back.
+ */
+@Slf4j
+@Component
+public class OrderEventBatchListener {
+
+    private final OrderService orderService;
+    private final OrderHelper orderHelper;
+    private final OrderRepository orderRepository;
+    private final OrderEventStore orderEventStore;
+    private final MessageConverter messageConverter;
+    private final TransactionTemplate transactionTemplate;
+
+    private final DistributionSummary batchSize;
+    private final Counter fallbacks;
+    private final Counter poison;
+
+    public OrderEventBatchListener(OrderService orderService,
+                                   OrderHelper orderHelper,
+                                   OrderRepository orderRepository,
+                                   OrderEventStore orderEventStore,
+                                   MessageConverter messageConverter,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.orderHelper = orderHelper;
+        this.orderRepository = orderRepository;
+        this.orderEventStore = orderEventStore;
+        this.messageConverter = messageConverter;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = DistributionSummary.builder("saga.events.batch.size")
+                .description("Order events handled per batch transaction")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("saga.events.batch.fallbacks")
+                .description("Batches that rolled back and were retried one event at a time")
+                .register(meterRegistry);
+        this.poison = Counter.builder("saga.events.poison")
+                .description("Order events dropped because they could not be read or handled")
+                .register(meterRegistry);
+    }
+
+    @RabbitListener(id = "orderEventBatch", queues = RabbitMQConfig.ORDER_EVENT_QUEUE,
+            containerFactory = RabbitMQConfig.ORDER_EVENT_BATCH_FACTORY,
+            autoStartup = "${order.event-batch.enabled:false}")
+    public void onBatch(List<Message> messages) {
+        List<Object> events = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            Object event;
+            try {
+                event = messageConverter.fromMessage(message);
+            } catch (MessageConversionException e) {
+                poison.increment();
+                log.error("Dropping unreadable order event {} {}",
+                        kv("messageId", message.getMessageProperties().getMessageId()), kv("error", e.getMessage()));
+                continue;
+            }
+            // The codecs leave missing fields null; such an event would fail before any handler
+            if (parseOrderId(event) == null) {
+                poison.increment();
+                log.error("Dropping order event without a valid orderId {} {}",
+                        kv("event", event.getClass().getSimpleName()), kv("orderId", orderIdOf(event)));
+                continue;
+            }
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        batchSize.record(events.size());
+
+        try {
+            runInTransaction(() -> {
+                preload(events);
+                events.forEach(this::dispatch);
+            });
+            return;
+        } catch (RuntimeException e) {
+            fallbacks.increment();
+            log.warn("Order event batch rolled back, retrying one event at a time {} {}",
+                    kv("events", events.size()), kv("error", e.getMessage()));
+        }
+
+        for (Object event : events) {
+            try {
+                runInTransaction(() -> dispatch(event));
+            } catch (RuntimeException e) {
+                if (!isCausedByMessage(e)) {
+                    log.warn("Order event failed, requeueing the batch {} {} {}",
+                            kv("event", event.getClass().getSimpleName()), kv("orderId", orderIdOf(event)),
+                            kv("error", e.getMessage()));
+                    throw e;
+                }
+                poison.increment();
+                log.error("Dropping order event that keeps failing {} {} {}",
+                        kv("event", event.getClass().getSimpleName()), kv("orderId", orderIdOf(event)),
+                        kv("error", e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Run the work in one transaction and send the commands it produced after the commit.
+     * If it rolls back nothing is sent and the failure is rethrown.
+     */
+    private void runInTransaction(Runnable work) {
+        orderHelper.holdCommands();
+        try {
+            transactionTemplate.executeWithoutResult(status -> work.run());
+        } catch (RuntimeException e) {
+            orderHelper.discardHeldCommands();
+            throw e;
+        }
+        orderHelper.releaseHeldCommands();
+    }
+
+    /**
+     * Whether the event fails whenever it is handled, so redelivering it cannot help
+     */
+    private static boolean isCausedByMessage(RuntimeException e) {
+        return e instanceof OrderNotFoundException || e instanceof IllegalArgumentException;
+    }
+
+    /**
+     * Load every order of the batch into the persistence context with one query, so the
+     * handlers' lookups do not go to the database
+     */
+    private void preload(List<Object> events) {
+        if (orderEventStore.isEnabled()) {
+            return;
+        }
+        Set<UUID> orderIds = new LinkedHashSet<>();
+        for (Object event : events) {
+            orderIds.add(parseOrderId(event));
+        }
+        orderRepository.findAllById(orderIds);
+    }
+
+    private void dispatch(Object event) {
+        try (BaggageInScope ignored = orderHelper.openSagaScope(parseOrderId(event))) {
+            switch (event) {
+                case PaymentProcessedEvent e -> orderService.handlePaymentProcessed(e);
+                case PaymentFailedEvent e -> orderService.handlePaymentFailed(e);
+                case PaymentRefundedEvent e -> orderService.handlePaymentRefunded(e);
+                case PizzaPreparedEvent e -> orderService.handlePizzaPrepared(e);
+                case KitchenFailedEvent e -> orderService.handleKitchenFailed(e);
+                case PreparationCancelledEvent e -> orderService.handlePreparationCancelled(e);
+                case DeliveryAssignedEvent e -> orderService.handleDeliveryAssigned(e);
+                case DeliveryFailedEvent e -> orderService.handleDeliveryFailed(e);
+                case DeliveryCancelledEvent e -> orderService.handleDeliveryCancelled(e);
+                default -> throw new IllegalArgumentException("Not an order event: " + event.getClass().getSimpleName());
+            }
+        }
+    }
+
+    /**
+     * The event's orderId, or null if it is missing, malformed or the event is not an order event
+     */
+    private static UUID parseOrderId(Object event) {
+        String orderId = orderIdOf(event);
+        if (orderId == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(orderId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String orderIdOf(Object event) {
+        return switch (event) {
+            case PaymentProcessedEvent e -> e.getOrderId();
+            case PaymentFailedEvent e -> e.getOrderId();
+            case PaymentRefundedEvent e -> e.getOrderId();
+            case PizzaPreparedEvent e -> e.getOrderId();
+            case KitchenFailedEvent e -> e.getOrderId();
+            case PreparationCancelledEvent e -> e.getOrderId();
+            case DeliveryAssignedEvent e -> e.getOrderId();
+            case DeliveryFailedEvent e -> e.getOrderId();
+            case DeliveryCancelledEvent e -> e.getOrderId();
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,227 @@
+package com.saga.order.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.dto.SagaStep;
+import com.saga.order.entity.Order;
+import com.saga.order.entity.OrderEvent;
+import com.saga.order.entity.OrderSnapshot;
+import com.saga.order.repository.OrderEventRepository;
+import com.saga.order.repository.OrderSnapshotRepository;
+import com.saga.order.saga.SagaDefinition;
+import com.saga.runtime.id.TimeOrderedIdGenerator;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Event-sourced storage of the Order aggregate.
+ * <p>
+ * Every saga transition is appended to {@code order_events}; the (orderId, version) key makes
+ * concurrent appends of the same step fail instead of overwriting each other. Every
+ * {@code snapshot-every} events the state is written to {@code order_snapshots}, so loading an
+ * order reads its snapshot and replays only the tail. The orders table is kept as a projection
+ * by {@link OrderTableProjector}. Off unless {@code order.event-sourcing.enabled} is set.
+ * <p>
+ * Every event carries the results of the steps completed so far. Parallel steps complete in
+ * either order, so the status an event moves to does not say which step's result it adds.
+ */
+@Slf4j
+@Component
+public class OrderEventStore {
+
+    private final OrderEventRepository eventRepository;
+    private final OrderSnapshotRepository snapshotRepository;
+    private final OrderTableProjector tableProjector;
+    private final SagaDefinition sagaDefinition;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final int snapshotEvery;
+
+    public OrderEventStore(OrderEventRepository eventRepository,
+                           OrderSnapshotRepository snapshotRepository,
+                           OrderTableProjector tableProjector,
+                           SagaDefinition sagaDefinition,
+                           EntityManager entityManager,
+                           ObjectMapper objectMapper,
+                           @Value("${order.event-sourcing.enabled:false}") boolean enabled,
+                           @Value("${order.event-sourcing.snapshot-every:5}") int snapshotEvery) {
+        this.eventRepository = eventRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.tableProjector = tableProjector;
+        this.sagaDefinition = sagaDefinition;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Load an order from its latest snapshot plus the events appended after it
+     */
+    public Optional<Order> load(UUID orderId) {
+        OrderSnapshot snapshot = snapshotRepository.findById(orderId).orElse(null);
+        Order state = null;
+        int version = 0;
+        if (snapshot != null) {
+            state = fromJson(snapshot.getState());
+            state.setEventVersion(snapshot.getVersion());
+            version = snapshot.getVersion();
+        }
+
+        for (OrderEvent event : eventRepository.findByOrderIdAndVersionGreaterThanOrderByVersionAsc(orderId, version)) {
+            state = apply(state, event);
+        }
+        return Optional.ofNullable(state);
+    }
+
+    /**
+     * Rebuild an order as it was after the given number of events, ignoring snapshots
+     */
+    public Optional<Order> replay(UUID orderId, int version) {
+        Order state = null;
+        for (OrderEvent event : eventRepository.findByOrderIdOrderByVersionAsc(orderId)) {
+            if (event.getVersion() > version) {
+                break;
+            }
+            state = apply(state, event);
+        }
+        return Optional.ofNullable(state);
+    }
+
+    /**
+     * All events of an order, oldest first
+     */
+    public List<OrderEvent> history(UUID orderId) {
+        return eventRepository.findByOrderIdOrderByVersionAsc(orderId);
+    }
+
+    /**
+     * Append the transition to {@code status} already applied to the order. A new order gets
+     * its id and creation time here, since no row is inserted for it.
+     */
+    public Order append(Order order, OrderStatus status) {
+        if (order.getId() == null) {
+            order.setId(TimeOrderedIdGenerator.next());
+        }
+        if (order.getCreatedAt() == null) {
+            order.setCreatedAt(LocalDateTime.now());
+        }
+
+        int version = order.getEventVersion() + 1;
+        OrderEvent event = new OrderEvent(
+                order.getId(),
+                version,
+                status,
+                order.getStatusUpdatedAt(),
+                outputs(order),
+                version == 1 ? toJson(order) : null
+        );
+        // persist, not merge: a second writer of the same version must collide on the key
+        entityManager.persist(event);
+        order.setEventVersion(version);
+
+        if (version % snapshotEvery == 0) {
+            snapshot(order);
+        }
+        tableProjector.project(order);
+        return order;
+    }
+
+    /**
+     * Seed the store with an order recovered from elsewhere, as a snapshot with no events
+     */
+    public void restore(Order order) {
+        order.setEventVersion(0);
+        snapshot(order);
+        tableProjector.project(order);
+        log.info("Order restored into event store {}", kv("status", order.getStatus()));
+    }
+
+    /**
+     * Fold one event into the state built from the events before it
+     */
+    Order apply(Order state, OrderEvent event) {
+        if (event.getDetails() != null) {
+            state = fromJson(event.getDetails());
+        } else if (state == null) {
+            throw new IllegalStateException("Order " + event.getOrderId() + " has no initial event");
+        }
+
+        state.setStatus(event.getStatus());
+        state.setStatusUpdatedAt(event.getOccurredAt());
+        if (event.getOutputs() != null) {
+            for (Map.Entry<SagaStep, String> output : readOutputs(event.getOutputs()).entrySet()) {
+                sagaDefinition.step(output.getKey()).outputWriter().accept(state, output.getValue());
+            }
+        }
+        state.setEventVersion(event.getVersion());
+        return state;
+    }
+
+    private void snapshot(Order order) {
+        snapshotRepository.save(new OrderSnapshot(
+                order.getId(), order.getEventVersion(), toJson(order), System.currentTimeMillis()));
+    }
+
+    private String outputs(Order order) {
+        Map<SagaStep, String> outputs = new EnumMap<>(SagaStep.class);
+        for (SagaDefinition.StepDefinition step : sagaDefinition.steps()) {
+            String output = step.output().apply(order);
+            if (output != null) {
+                outputs.put(step.step(), output);
+            }
+        }
+        if (outputs.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(outputs);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize outputs of order " + order.getId(), e);
+        }
+    }
+
+    private Map<SagaStep, String> readOutputs(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read step outputs", e);
+        }
+    }
+
+    private String toJson(Order order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize order " + order.getId(), e);
+        }
+    }
+
+    private Order fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, Order.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read order state", e);
+        }
+    }
+}
@@ -1,126 +1,266 @@
 package com.saga.order.service;
 
-import com.saga.order.command.AssignDeliveryCommand;
-import com.saga.order.command.PreparePizzaCommand;
-import com.saga.order.command.ProcessPaymentCommand;
-import com.saga.order.command.RefundPaymentCommand;
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.contracts.command.PreparePizzaCommand;
+import com.saga.contracts.command.ProcessPaymentCommand;
+import com.saga.contracts.event.KitchenFailedEvent;
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.contracts.event.PreparationCancelledEvent;
 import com.saga.order.config.RabbitMQConfig;
-import com.saga.order.dto.CreateOrderRequest;
 import com.saga.order.dto.OrderStatus;
 import com.saga.order.entity.Order;
+import com.saga.order.journal.SagaJournal;
 import com.saga.order.repository.OrderRepository;
+import io.micrometer.tracing.Baggage;
+import io.micrometer.tracing.BaggageInScope;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class OrderHelper {
 
+    /**
+     * Baggage (and MDC) field carrying the order id across every hop of the saga
+     */
+    public static final String SAGA_BAGGAGE = "orderId";
+
+    private static final ThreadLocal<List<HeldCommand>> HELD_COMMANDS = new ThreadLocal<>();
+
     private final RabbitTemplate rabbitTemplate;
     private final OrderRepository orderRepository;
+    private final OrderCache orderCache;
+    private final OrderProjection orderProjection;
+    private final SagaMetrics sagaMetrics;
+    private final SagaJournal sagaJournal;
+    private final KitchenQueue kitchenQueue;
+    private final OrderEventStore orderEventStore;
+    private final Tracer tracer;
+    private final Clock clock;
+
+    /**
+     * Load an order from the event store in event-sourced mode, else from the orders table
+     */
+    public Optional<Order> findOrder(UUID orderId) {
+        return orderEventStore.isEnabled() ? orderEventStore.load(orderId) : orderRepository.findById(orderId);
+    }
+
+    /**
+     * Move an order to a new saga status, persist it and feed the read side
+     */
+    public Order transition(Order order, OrderStatus status) {
+        OrderStatus previous = order.getStatus();
+        long now = clock.millis();
+        long createdMillis = status.isTerminal() && order.getCreatedAt() != null
+                ? order.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0;
+        order.setStatus(status);
+        order.setStatusUpdatedAt(now);
+
+        Order saved = orderEventStore.isEnabled()
+                ? orderEventStore.append(order, status)
+                : orderRepository.save(order);
+        tagCurrentSpan(saved.getId().toString());
+        if (status.isTerminal()) {
+            // A saga that ended without a kitchen reply, e.g. timed out, no longer waits for it
+            kitchenQueue.left(saved.getId().toString());
+        }
+        orderCache.put(saved);
+        orderProjection.onTransition(saved, previous, status);
+        recordTransition(previous, status, createdMillis, now);
+        sagaJournal.recordTransition(saved, previous, status);
+        return saved;
+    }
+
+    /**
+     * Time the transition once its transaction commits. A transition rolled back by the
+     * optimistic lock is redelivered and recorded by the attempt that wins.
+     */
+    private void recordTransition(OrderStatus previous, OrderStatus status, long createdMillis, long now) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            sagaMetrics.onTransition(previous, status, createdMillis, now);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sagaMetrics.onTransition(previous, status, createdMillis, now);
+            }
+        });
+    }
+
+    /**
+     * Count and journal an event received from a participant
+     */
+    public void eventReceived(String orderId, Object event) {
+        sagaMetrics.eventReceived(event);
+        if (event instanceof PizzaPreparedEvent || event instanceof KitchenFailedEvent
+                || event instanceof PreparationCancelledEvent) {
+            kitchenQueue.left(orderId);
+        }
+        sagaJournal.recordEvent(orderId, event);
+    }
+
+    /**
+     * Open the saga's baggage scope. The order id is put in the MDC, where it drives log
+     * correlation and per-saga sampling, and travels in the headers of every message sent
+     * inside the scope, so participants and later handlers inherit it.
+     */
+    public BaggageInScope openSagaScope(UUID orderId) {
+        return tracer.createBaggageInScope(SAGA_BAGGAGE, orderId.toString());
+    }
+
+    /**
+     * Tag the current span with the saga's order id so its trace can be looked up by order
+     */
+    public void tagCurrentSpan(String orderId) {
+        Span span = tracer.currentSpan();
+        if (span != null && orderId != null) {
+            span.tag(InMemorySpanExporter.ORDER_ID_TAG, orderId);
+        }
+    }
 
     /**
-     * Calculate order amount based on quantity
+     * Send a command to a participant. While commands are held, the send is deferred until
+     * {@link #releaseHeldCommands()}.
      */
-    public Double calculateAmount(CreateOrderRequest request) {
-        final double PRICE_PER_PIZZA = 15.99;
-        return request.getQuantity() * PRICE_PER_PIZZA;
+    public void send(String routingKey, Object command) {
+        sagaMetrics.commandSent(command);
+        List<HeldCommand> held = HELD_COMMANDS.get();
+        if (held != null) {
+            Baggage baggage = tracer.getBaggage(SAGA_BAGGAGE);
+            held.add(new HeldCommand(routingKey, command, baggage == null ? null : baggage.get()));
+            return;
+        }
+        rabbitTemplate.convertAndSend(RabbitMQConfig.SAGA_EXCHANGE, routingKey, command);
+    }
+
+    /**
+     * Hold back the commands sent by this thread until they are released or discarded, so
+     * that a batch of events can commit before any follow-up command leaves the service
+     */
+    public void holdCommands() {
+        HELD_COMMANDS.set(new ArrayList<>());
+    }
+
+    /**
+     * Send the held commands, each inside the baggage scope of the saga that produced it,
+     * and stop holding
+     */
+    public int releaseHeldCommands() {
+        List<HeldCommand> held = HELD_COMMANDS.get();
+        HELD_COMMANDS.remove();
+        if (held == null) {
+            return 0;
+        }
+        for (HeldCommand command : held) {
+            if (command.orderId() == null) {
+                rabbitTemplate.convertAndSend(RabbitMQConfig.SAGA_EXCHANGE, command.routingKey(), command.command());
+                continue;
+            }
+            try (BaggageInScope ignored = openSagaScope(UUID.fromString(command.orderId()))) {
+                rabbitTemplate.convertAndSend(RabbitMQConfig.SAGA_EXCHANGE, command.routingKey(), command.command());
+            }
+        }
+        return held.size();
+    }
+
+    /**
+     * Drop the held commands of work that rolled back, and stop holding. An order whose
+     * PreparePizzaCommand is dropped gives its kitchen ticket back; the redelivered event takes
+     * a new one.
+     */
+    public void discardHeldCommands() {
+        List<HeldCommand> held = HELD_COMMANDS.get();
+        HELD_COMMANDS.remove();
+        if (held == null) {
+            return;
+        }
+        for (HeldCommand command : held) {
+            if (command.command() instanceof PreparePizzaCommand prepare) {
+                kitchenQueue.left(prepare.getOrderId());
+            }
+        }
+    }
+
+    private record HeldCommand(String routingKey, Object command, String orderId) {
     }
 
     /**
      * SAGA STEP 1: Initiate Payment
      */
     public void startPaymentProcess(Order order) {
-        log.info(">>> SAGA Step 1: Starting payment process for order: {}", order.getId());
+        log.info(">>> Saga step 1: starting payment");
 
-        order.setStatus(OrderStatus.PAYMENT_PENDING);
-        orderRepository.save(order);
+        transition(order, OrderStatus.PAYMENT_PENDING);
 
         ProcessPaymentCommand command = new ProcessPaymentCommand(
-                order.getId(),
+                order.getId().toString(),
                 order.getAmount(),
-                order.getCustomerId()
+                order.getCustomerId(),
+                order.getPizzaType()
         );
 
-        log.info("Sending ProcessPaymentCommand: {}", command);
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.SAGA_EXCHANGE,
-                RabbitMQConfig.PAYMENT_COMMAND_ROUTING_KEY,
-                command
-        );
+        log.debug("Sending ProcessPaymentCommand {}", kv("amount", command.getAmount()));
+        send(RabbitMQConfig.PAYMENT_COMMAND_ROUTING_KEY, command);
     }
 
     /**
      * SAGA STEP 2: Initiate Kitchen Preparation
      */
     public void startKitchenProcess(Order order) {
-        log.info(">>> SAGA Step 2: Starting kitchen process for order: {}", order.getId());
+        log.info(">>> Saga step 2: starting kitchen");
 
-        order.setStatus(OrderStatus.KITCHEN_PENDING);
-        orderRepository.save(order);
+        transition(order, OrderStatus.KITCHEN_PENDING);
 
         PreparePizzaCommand command = new PreparePizzaCommand(
-                order.getId(),
+                order.getId().toString(),
                 order.getPizzaType(),
-                order.getQuantity()
+                order.getQuantity(),
+                order.getCustomerId()
         );
 
-        log.info("Sending PreparePizzaCommand: {}", command);
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.SAGA_EXCHANGE,
-                RabbitMQConfig.KITCHEN_COMMAND_ROUTING_KEY,
-                command
-        );
+        log.debug("Sending PreparePizzaCommand {} {}",
+                kv("pizzaType", command.getPizzaType()), kv("quantity", command.getQuantity()));
+        kitchenQueue.joined(command.getOrderId());
+        send(RabbitMQConfig.KITCHEN_COMMAND_ROUTING_KEY, command);
     }
 
     /**
      * SAGA STEP 3: Initiate Delivery Assignment
      */
     public void startDeliveryProcess(Order order) {
-        log.info(">>> SAGA Step 3: Starting delivery process for order: {}", order.getId());
+        log.info(">>> Saga step 3: starting delivery");
 
-        order.setStatus(OrderStatus.DELIVERY_PENDING);
-        orderRepository.save(order);
+        transition(order, OrderStatus.DELIVERY_PENDING);
 
+        // Tell delivery how long the kitchen will take, for its ETA; null once the pizza is ready
         AssignDeliveryCommand command = new AssignDeliveryCommand(
-                order.getId(),
-                order.getDeliveryAddress()
+                order.getId().toString(),
+                order.getDeliveryAddress(),
+                kitchenQueue.position(order.getId().toString()),
+                order.getCustomerId(),
+                order.getPizzaType()
         );
 
-        log.info("Sending AssignDeliveryCommand: {}", command);
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.SAGA_EXCHANGE,
-                RabbitMQConfig.DELIVERY_COMMAND_ROUTING_KEY,
-                command
-        );
+        log.debug("Sending AssignDeliveryCommand {}", kv("kitchenQueuePosition", command.getKitchenQueuePosition()));
+        send(RabbitMQConfig.DELIVERY_COMMAND_ROUTING_KEY, command);
     }
-
-    /**
-     * COMPENSATION: Refund Payment
-     */
-    public void compensatePayment(Order order, String reason) {
-        log.info("🔄🔄🔄 COMPENSATION: Refunding payment for order: {} 🔄🔄🔄", order.getId());
-
-        RefundPaymentCommand command = new RefundPaymentCommand(
-                order.getId(),
-                reason
-        );
-
-        log.info("Sending RefundPaymentCommand: {}", command);
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.SAGA_EXCHANGE,
-                RabbitMQConfig.PAYMENT_COMMAND_ROUTING_KEY,
-                command
-        );
-
-        order.setStatus(OrderStatus.CANCELLED);
-        orderRepository.save(order);
-
-        log.info("❌❌❌ SAGA COMPENSATED - Order cancelled: {} ❌❌❌", order.getId());
-    }
-
-
 }
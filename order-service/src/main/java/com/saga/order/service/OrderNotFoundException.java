@@ -0,0 +1,11 @@
+package com.saga.order.service;
+
+/**
+ * An event or request named an order this service does not have
+ */
+public class OrderNotFoundException extends RuntimeException {
+
+    public OrderNotFoundException(String orderId) {
+        super("Order not found: " + orderId);
+    }
+}
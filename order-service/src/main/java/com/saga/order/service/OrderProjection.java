@@ -0,0 +1,267 @@
+package com.saga.order.service;
+
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.dto.PizzaTypeStats;
+import com.saga.order.dto.RevenueSummary;
+import com.saga.order.entity.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CQRS read side of the orchestrator.
+ * <p>
+ * Fed by every saga status transition after it commits, it keeps per-status counts,
+ * per-pizza-type totals and hourly revenue buckets in lock-free adders, so the ops
+ * queries never touch the orders table. Revenue is recognised when a saga reaches
+ * COMPLETED. {@link #rebuild(Iterable)} recomputes everything from the orders table.
+ */
+@Slf4j
+@Component
+public class OrderProjection {
+
+    private static final long MILLIS_PER_HOUR = Duration.ofHours(1).toMillis();
+
+    private final int retainedHours;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private volatile State state;
+
+    public OrderProjection(@Value("${order.projection.retained-hours:48}") int retainedHours) {
+        this.retainedHours = retainedHours;
+        this.state = new State(retainedHours);
+    }
+
+    /**
+     * Record a status transition once the surrounding transaction commits
+     */
+    public void onTransition(Order order, OrderStatus from, OrderStatus to) {
+        if (from == to) {
+            return;
+        }
+
+        String pizzaType = order.getPizzaType();
+        double amount = order.getAmount() == null ? 0.0 : order.getAmount();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(state, pizzaType, amount, from, to, System.currentTimeMillis());
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(state, pizzaType, amount, from, to, System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * Number of orders currently in the given status
+     */
+    public long countByStatus(OrderStatus status) {
+        return state.byStatus[status.ordinal()].sum();
+    }
+
+    /**
+     * Number of orders per status
+     */
+    public Map<OrderStatus, Long> countsByStatus() {
+        State current = state;
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            counts.put(status, current.byStatus[status.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Totals for a single pizza type
+     */
+    public PizzaTypeStats pizzaTypeStats(String pizzaType) {
+        TypeCounters counters = state.byPizzaType.get(pizzaType);
+        return counters == null ? new PizzaTypeStats(pizzaType, 0, 0, 0.0) : counters.toStats(pizzaType);
+    }
+
+    /**
+     * Totals for every pizza type seen so far
+     */
+    public Map<String, PizzaTypeStats> pizzaTypeStats() {
+        Map<String, PizzaTypeStats> stats = new TreeMap<>();
+        state.byPizzaType.forEach((type, counters) -> stats.put(type, counters.toStats(type)));
+        return stats;
+    }
+
+    /**
+     * Revenue recognised over the last {@code hours} hours, including the current one
+     */
+    public RevenueSummary revenueLastHours(int hours) {
+        long currentHour = System.currentTimeMillis() / MILLIS_PER_HOUR;
+        int span = Math.clamp(hours, 1, retainedHours);
+        return revenueBetween(currentHour - span + 1, currentHour);
+    }
+
+    /**
+     * Revenue recognised since local midnight
+     */
+    public RevenueSummary revenueToday() {
+        long midnight = LocalDate.now(zone).atStartOfDay(zone).toInstant().toEpochMilli();
+        return revenueBetween(midnight / MILLIS_PER_HOUR, System.currentTimeMillis() / MILLIS_PER_HOUR);
+    }
+
+    /**
+     * Recompute the projection from the orders table and swap it in atomically.
+     * <p>
+     * Transitions committed while the scan is running are applied to the old state and
+     * are therefore lost; run it while traffic is quiet.
+     */
+    public long rebuild(Iterable<Order> orders) {
+        State rebuilt = new State(retainedHours);
+        long count = 0;
+
+        for (Order order : orders) {
+            String pizzaType = order.getPizzaType();
+            double amount = order.getAmount() == null ? 0.0 : order.getAmount();
+            long createdAt = order.getCreatedAt() == null
+                    ? System.currentTimeMillis()
+                    : order.getCreatedAt().atZone(zone).toInstant().toEpochMilli();
+
+            apply(rebuilt, pizzaType, amount, null, OrderStatus.CREATED, createdAt);
+            if (order.getStatus() != null && order.getStatus() != OrderStatus.CREATED) {
+                // Completion time is not stored, creation time is the best available bucket
+                apply(rebuilt, pizzaType, amount, OrderStatus.CREATED, order.getStatus(), createdAt);
+            }
+            count++;
+        }
+
+        state = rebuilt;
+        log.info("Order projection rebuilt from {} orders", count);
+        return count;
+    }
+
+    private RevenueSummary revenueBetween(long fromHour, long toHour) {
+        State current = state;
+        double total = 0.0;
+        long orders = 0;
+        Map<String, Double> byPizzaType = new HashMap<>();
+
+        for (long hour = Math.max(fromHour, toHour - retainedHours + 1); hour <= toHour; hour++) {
+            RevenueBucket bucket = current.buckets.get(current.slot(hour));
+            if (bucket == null || bucket.epochHour != hour) {
+                continue;
+            }
+            total += bucket.revenue.sum();
+            orders += bucket.orders.sum();
+            bucket.byPizzaType.forEach((type, revenue) -> byPizzaType.merge(type, revenue.sum(), Double::sum));
+        }
+
+        return new RevenueSummary(
+                Instant.ofEpochMilli(fromHour * MILLIS_PER_HOUR),
+                Instant.ofEpochMilli((toHour + 1) * MILLIS_PER_HOUR),
+                orders,
+                total,
+                byPizzaType
+        );
+    }
+
+    private static void apply(State target, String pizzaType, double amount,
+                              OrderStatus from, OrderStatus to, long timestampMillis) {
+        if (from != null) {
+            target.byStatus[from.ordinal()].decrement();
+        }
+        target.byStatus[to.ordinal()].increment();
+
+        TypeCounters typeCounters = target.byPizzaType.computeIfAbsent(pizzaType, t -> new TypeCounters());
+        if (from == null) {
+            typeCounters.orders.increment();
+        }
+        if (to == OrderStatus.COMPLETED) {
+            typeCounters.completed.increment();
+            typeCounters.revenue.add(amount);
+            target.bucketFor(timestampMillis / MILLIS_PER_HOUR).add(pizzaType, amount);
+        }
+    }
+
+    private static final class State {
+
+        private final LongAdder[] byStatus = new LongAdder[OrderStatus.values().length];
+        private final ConcurrentHashMap<String, TypeCounters> byPizzaType = new ConcurrentHashMap<>();
+        private final AtomicReferenceArray<RevenueBucket> buckets;
+
+        private State(int retainedHours) {
+            for (int i = 0; i < byStatus.length; i++) {
+                byStatus[i] = new LongAdder();
+            }
+            this.buckets = new AtomicReferenceArray<>(retainedHours);
+        }
+
+        private int slot(long epochHour) {
+            return (int) Math.floorMod(epochHour, (long) buckets.length());
+        }
+
+        /**
+         * Bucket for the given hour, recycling the slot if it still holds an older hour
+         */
+        private RevenueBucket bucketFor(long epochHour) {
+            int slot = slot(epochHour);
+            while (true) {
+                RevenueBucket bucket = buckets.get(slot);
+                if (bucket != null && bucket.epochHour == epochHour) {
+                    return bucket;
+                }
+                if (bucket != null && bucket.epochHour > epochHour) {
+                    // Late write for an hour that has already rotated out
+                    return new RevenueBucket(epochHour);
+                }
+                RevenueBucket fresh = new RevenueBucket(epochHour);
+                if (buckets.compareAndSet(slot, bucket, fresh)) {
+                    return fresh;
+                }
+            }
+        }
+    }
+
+    private static final class TypeCounters {
+
+        private final LongAdder orders = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final DoubleAdder revenue = new DoubleAdder();
+
+        private PizzaTypeStats toStats(String pizzaType) {
+            return new PizzaTypeStats(pizzaType, orders.sum(), completed.sum(), revenue.sum());
+        }
+    }
+
+    private static final class RevenueBucket {
+
+        private final long epochHour;
+        private final LongAdder orders = new LongAdder();
+        private final DoubleAdder revenue = new DoubleAdder();
+        private final ConcurrentHashMap<String, DoubleAdder> byPizzaType = new ConcurrentHashMap<>();
+
+        private RevenueBucket(long epochHour) {
+            this.epochHour = epochHour;
+        }
+
+        private void add(String pizzaType, double amount) {
+            orders.increment();
+            revenue.add(amount);
+            byPizzaType.computeIfAbsent(pizzaType, t -> new DoubleAdder()).add(amount);
+        }
+    }
+}
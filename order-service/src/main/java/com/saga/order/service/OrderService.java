@@ -1,10 +1,13 @@
 package com.saga.order.service;
 
+import com.saga.contracts.event.*;
 import com.saga.order.dto.CreateOrderRequest;
 import com.saga.order.entity.Order;
-import com.saga.order.event.*;
+import com.saga.order.entity.OrderEvent;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface OrderService {
 
@@ -16,13 +19,28 @@ public interface OrderService {
     /**
      * Get order by ID
      */
-    Optional<Order> getOrder(String orderId);
+    Optional<Order> getOrder(UUID orderId);
+
+    /**
+     * Get the event history of an order (empty unless event sourcing is enabled)
+     */
+    List<OrderEvent> getOrderHistory(UUID orderId);
+
+    /**
+     * Rebuild an order as it was after the given number of events
+     */
+    Optional<Order> replayOrder(UUID orderId, int version);
 
     /**
      * Get all orders
      */
     Iterable<Order> getAllOrders();
 
+    /**
+     * Rebuild the read-side projection from the orders table
+     */
+    long rebuildProjection();
+
     // ==================== SAGA EVENT HANDLERS ====================
 
     /**
@@ -40,6 +58,16 @@ public interface OrderService {
      */
     void handlePaymentRefunded(PaymentRefundedEvent event);
 
+    /**
+     * Handle kitchen order cancelled event (compensation acknowledgement)
+     */
+    void handlePreparationCancelled(PreparationCancelledEvent event);
+
+    /**
+     * Handle delivery cancelled event (compensation acknowledgement)
+     */
+    void handleDeliveryCancelled(DeliveryCancelledEvent event);
+
     /**
      * Handle pizza prepared event
      */
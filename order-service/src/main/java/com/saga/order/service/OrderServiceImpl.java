@@ -1,180 +1,237 @@
 package com.saga.order.service;
 
+import com.saga.contracts.event.*;
 import com.saga.order.config.RabbitMQConfig;
+import com.saga.order.dto.CompensationStep;
 import com.saga.order.dto.CreateOrderRequest;
 import com.saga.order.dto.OrderStatus;
+import com.saga.order.dto.SagaStep;
 import com.saga.order.entity.Order;
-import com.saga.order.event.*;
+import com.saga.order.entity.OrderEvent;
 import com.saga.order.repository.OrderRepository;
+import com.saga.order.saga.SagaCoordinator;
+import io.micrometer.tracing.BaggageInScope;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 //THE ORCHESTRATOR
 @Slf4j
 @Service
+// One event per transaction; OrderEventBatchListener consumes the queue instead in batch mode
+@RabbitListener(queues = RabbitMQConfig.ORDER_EVENT_QUEUE, autoStartup = "#{!${order.event-batch.enabled:false}}")
 @RequiredArgsConstructor
 public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
     private final OrderHelper orderHelper;
+    private final OrderCache orderCache;
+    private final OrderProjection orderProjection;
+    private final OrderEventStore orderEventStore;
+    private final CompensationEngine compensationEngine;
+    private final SagaCoordinator sagaCoordinator;
+    private final MenuCatalog menuCatalog;
 
     @Override
     @Transactional
     public Order createOrder(CreateOrderRequest request) {
-        log.info("=== Creating new order for customer: {} ===", request.getCustomerId());
+        log.info("Creating new order {}", kv("customerId", request.getCustomerId()));
+
+        // Price it from the menu first; an unknown or unavailable pizza is rejected before any write
+        MenuCatalog.Quote quote = menuCatalog.quote(request.getPizzaType(), request.getPizzaSize());
 
         // Create the order entity
         Order order = new Order();
         order.setCustomerId(request.getCustomerId());
-        order.setPizzaType(request.getPizzaType());
+        order.setPizzaType(quote.pizzaType());
+        order.setPizzaSize(quote.size());
         order.setQuantity(request.getQuantity());
         order.setDeliveryAddress(request.getDeliveryAddress());
-        order.setAmount(orderHelper.calculateAmount(request));
-        order.setStatus(OrderStatus.CREATED);
+        order.setAmount(quote.total(request.getQuantity()));
 
         // Save to database
-        order = orderRepository.save(order);
-        log.info("Order created with ID: {}", order.getId());
+        order = orderHelper.transition(order, OrderStatus.CREATED);
 
-        // Start the Saga by initiating payment
-        orderHelper.startPaymentProcess(order);
+        // Start the Saga with its first steps; the order id travels as baggage from here on
+        try (BaggageInScope ignored = orderHelper.openSagaScope(order.getId())) {
+            log.info("Order created");
+            sagaCoordinator.start(order);
+        }
 
         return order;
     }
 
     @Override
-    public Optional<Order> getOrder(String orderId) {
+    public Optional<Order> getOrder(UUID orderId) {
+        Objects.requireNonNull(orderId, "Order ID must not be null");
+        log.debug("Fetching order {}", kv("orderId", orderId));
+        return Optional.ofNullable(
+                orderCache.get(orderId, id -> orderHelper.findOrder(id).orElse(null)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrderEvent> getOrderHistory(UUID orderId) {
         Objects.requireNonNull(orderId, "Order ID must not be null");
-        log.info("Fetching order with ID: {}", orderId);
-        return orderRepository.findById(orderId);
+        return orderEventStore.history(orderId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Order> replayOrder(UUID orderId, int version) {
+        Objects.requireNonNull(orderId, "Order ID must not be null");
+        return orderEventStore.replay(orderId, version);
     }
 
     @Override
     public Iterable<Order> getAllOrders() {
-        log.info("Fetching all orders");
+        log.debug("Fetching all orders");
         return orderRepository.findAll();
     }
 
     @Override
-    @RabbitListener(queues = RabbitMQConfig.ORDER_EVENT_QUEUE)
+    @Transactional(readOnly = true)
+    public long rebuildProjection() {
+        log.info("Rebuilding order projection from the orders table");
+        try (Stream<Order> orders = orderRepository.streamAllBy()) {
+            return orderProjection.rebuild(orders::iterator);
+        }
+    }
+
+    @Override
+    @RabbitHandler
     @Transactional
     public void handlePaymentProcessed(PaymentProcessedEvent event) {
-        log.info("<<< Received PaymentProcessedEvent: {}", event);
+        log.info("<<< Received PaymentProcessedEvent {}", kv("transactionId", event.getTransactionId()));
+        orderHelper.eventReceived(event.getOrderId(), event);
 
         Order order = getOrderOrThrow(Objects.requireNonNull(event.getOrderId()));
 
-        order.setStatus(OrderStatus.PAYMENT_COMPLETED);
-        order.setPaymentTransactionId(event.getTransactionId());
-        orderRepository.save(order);
-
-        log.info("Payment completed for order: {}", order.getId());
-
-        // Continue Saga - proceed to kitchen
-        orderHelper.startKitchenProcess(order);
+        // Continue Saga - dispatch the steps waiting for the payment
+        sagaCoordinator.stepCompleted(order, SagaStep.PAYMENT, event.getTransactionId());
     }
 
     @Override
-    @RabbitListener(queues = RabbitMQConfig.ORDER_EVENT_QUEUE)
+    @RabbitHandler
     @Transactional
     public void handlePaymentFailed(PaymentFailedEvent event) {
-        log.error("<<< Received PaymentFailedEvent: {}", event);
+        log.info("<<< Received PaymentFailedEvent");
+        orderHelper.eventReceived(event.getOrderId(), event);
 
         Order order = getOrderOrThrow(Objects.requireNonNull(event.getOrderId()));
 
-        order.setStatus(OrderStatus.PAYMENT_FAILED);
-        orderRepository.save(order);
-
-        log.error("❌❌❌ SAGA FAILED - Payment failed for order: {} - Reason: {} ❌❌❌",
-                order.getId(), event.getReason());
+        log.error("Saga failed, payment failed {}", kv("reason", event.getReason()));
+        sagaCoordinator.stepFailed(order, SagaStep.PAYMENT, event.getReason());
     }
 
     @Override
-    @RabbitListener(queues = RabbitMQConfig.ORDER_EVENT_QUEUE)
+    @RabbitHandler
     @Transactional
     public void handlePaymentRefunded(PaymentRefundedEvent event) {
-        log.info("<<< Received PaymentRefundedEvent: {}", event);
-        log.info("✅ Refund completed for order: {}", event.getOrderId());
+        log.info("<<< Received PaymentRefundedEvent");
+        orderHelper.eventReceived(event.getOrderId(), event);
+        orderHelper.tagCurrentSpan(event.getOrderId());
+        log.info("Refund completed");
+
+        compensationEngine.acknowledge(UUID.fromString(event.getOrderId()), CompensationStep.PAYMENT);
     }
 
     @Override
-    @RabbitListener(queues = RabbitMQConfig.ORDER_EVENT_QUEUE)
+    @RabbitHandler
     @Transactional
-    public void handlePizzaPrepared(PizzaPreparedEvent event) {
-        log.info("<<< Received PizzaPreparedEvent: {}", event);
+    public void handlePreparationCancelled(PreparationCancelledEvent event) {
+        log.info("<<< Received PreparationCancelledEvent");
+        orderHelper.eventReceived(event.getOrderId(), event);
+        orderHelper.tagCurrentSpan(event.getOrderId());
+        log.info("Kitchen order cancelled");
 
-        Order order = getOrderOrThrow(Objects.requireNonNull(event.getOrderId()));
+        compensationEngine.acknowledge(UUID.fromString(event.getOrderId()), CompensationStep.KITCHEN);
+    }
 
-        order.setStatus(OrderStatus.KITCHEN_COMPLETED);
-        order.setKitchenId(event.getKitchenId());
-        orderRepository.save(order);
+    @Override
+    @RabbitHandler
+    @Transactional
+    public void handlePizzaPrepared(PizzaPreparedEvent event) {
+        log.info("<<< Received PizzaPreparedEvent {}", kv("kitchenId", event.getKitchenId()));
+        orderHelper.eventReceived(event.getOrderId(), event);
 
-        log.info("Pizza prepared for order: {}", order.getId());
+        Order order = getOrderOrThrow(Objects.requireNonNull(event.getOrderId()));
 
-        // Continue Saga - proceed to delivery
-        orderHelper.startDeliveryProcess(order);
+        // Continue Saga - join with delivery, or dispatch it if it waits for the kitchen
+        sagaCoordinator.stepCompleted(order, SagaStep.KITCHEN, event.getKitchenId());
     }
 
     @Override
-    @RabbitListener(queues = RabbitMQConfig.ORDER_EVENT_QUEUE)
+    @RabbitHandler
     @Transactional
     public void handleKitchenFailed(KitchenFailedEvent event) {
-        log.error("<<< Received KitchenFailedEvent: {}", event);
+        log.info("<<< Received KitchenFailedEvent");
+        orderHelper.eventReceived(event.getOrderId(), event);
 
         Order order = getOrderOrThrow(Objects.requireNonNull(event.getOrderId()));
 
-        order.setStatus(OrderStatus.KITCHEN_FAILED);
-        orderRepository.save(order);
-
-        log.warn("⚠️ Kitchen failed for order: {} - Payment was successful, initiating refund...",
-                order.getId());
+        log.warn("Kitchen failed {}", kv("reason", event.getReason()));
 
-        // COMPENSATE: Refund the payment
-        orderHelper.compensatePayment(order, event.getReason());
+        // COMPENSATE: undo the completed steps
+        sagaCoordinator.stepFailed(order, SagaStep.KITCHEN, event.getReason());
     }
 
     @Override
-    @RabbitListener(queues = RabbitMQConfig.ORDER_EVENT_QUEUE)
+    @RabbitHandler
     @Transactional
     public void handleDeliveryAssigned(DeliveryAssignedEvent event) {
-        log.info("<<< Received DeliveryAssignedEvent: {}", event);
+        log.info("<<< Received DeliveryAssignedEvent {} {}", kv("driverId", event.getDriverId()),
+                kv("estimatedDeliveryAt", event.getEstimatedDeliveryAt()));
+        orderHelper.eventReceived(event.getOrderId(), event);
 
         Order order = getOrderOrThrow(Objects.requireNonNull(event.getOrderId()));
 
-        order.setStatus(OrderStatus.COMPLETED);
-        order.setDriverId(event.getDriverId());
-        orderRepository.save(order);
-
-        log.info("✅✅✅ SAGA COMPLETED SUCCESSFULLY for order: {} ✅✅✅", order.getId());
+        // Continue Saga - join with the kitchen
+        sagaCoordinator.stepCompleted(order, SagaStep.DELIVERY, event.getDriverId());
     }
 
     @Override
-    @RabbitListener(queues = RabbitMQConfig.ORDER_EVENT_QUEUE)
+    @RabbitHandler
     @Transactional
     public void handleDeliveryFailed(DeliveryFailedEvent event) {
-        log.error("<<< Received DeliveryFailedEvent: {}", event);
+        log.info("<<< Received DeliveryFailedEvent");
+        orderHelper.eventReceived(event.getOrderId(), event);
 
         Order order = getOrderOrThrow(Objects.requireNonNull(event.getOrderId()));
 
-        order.setStatus(OrderStatus.DELIVERY_FAILED);
-        orderRepository.save(order);
+        log.warn("Delivery failed {}", kv("reason", event.getReason()));
 
-        log.warn("⚠️ Delivery failed for order: {} - Payment was successful, initiating refund...",
-                order.getId());
+        // COMPENSATE: undo the completed steps
+        sagaCoordinator.stepFailed(order, SagaStep.DELIVERY, event.getReason());
+    }
+
+    @Override
+    @RabbitHandler
+    @Transactional
+    public void handleDeliveryCancelled(DeliveryCancelledEvent event) {
+        log.info("<<< Received DeliveryCancelledEvent");
+        orderHelper.eventReceived(event.getOrderId(), event);
+        orderHelper.tagCurrentSpan(event.getOrderId());
+        log.info("Delivery cancelled");
 
-        // COMPENSATE: Refund the payment
-        orderHelper.compensatePayment(order, event.getReason());
+        compensationEngine.acknowledge(UUID.fromString(event.getOrderId()), CompensationStep.DELIVERY);
     }
 
     private Order getOrderOrThrow(@NonNull String orderId) {
-        return orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+        return orderHelper.findOrder(UUID.fromString(orderId))
+                .orElseThrow(() -> new OrderNotFoundException(orderId));
     }
 
 }
@@ -0,0 +1,132 @@
+package com.saga.order.service;
+
+import com.saga.order.entity.Order;
+import com.saga.order.repository.OrderRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Keeps the orders table as a projection of the event store.
+ * <p>
+ * Order states are queued after their transaction commits and written by a single background
+ * thread. Pending writes for the same order are coalesced to the newest version, so a burst of
+ * saga steps costs one row update.
+ */
+@Slf4j
+@Component
+public class OrderTableProjector {
+
+    private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<UUID, Order> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-table-projector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OrderTableProjector(OrderRepository orderRepository,
+                               EntityManager entityManager,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+
+        Gauge.builder("saga.orders.projection.pending", pending, Map::size)
+                .description("Order states waiting to be written to the orders table")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue the order's current state, once the surrounding transaction commits
+     */
+    public void project(Order order) {
+        Order copy = OrderCache.snapshot(order);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(copy);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(copy);
+            }
+        });
+    }
+
+    /**
+     * Write everything queued so far and wait for it
+     */
+    public void flush() {
+        try {
+            writer.submit(this::drain).get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to flush the orders table projection", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        writer.execute(this::drain);
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void enqueue(Order order) {
+        pending.merge(order.getId(), order,
+                (queued, latest) -> latest.getEventVersion() >= queued.getEventVersion() ? latest : queued);
+        if (scheduled.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        for (UUID orderId : pending.keySet()) {
+            Order order = pending.remove(orderId);
+            if (order == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(order));
+            } catch (RuntimeException e) {
+                log.warn("Failed to project order into orders table {} {}",
+                        kv("orderId", orderId), kv("error", e.getMessage()));
+            }
+        }
+    }
+
+    private void write(Order order) {
+        Order row = orderRepository.findById(order.getId()).orElse(null);
+        if (row == null) {
+            entityManager.persist(order);
+            return;
+        }
+        row.setStatus(order.getStatus());
+        row.setStatusUpdatedAt(order.getStatusUpdatedAt());
+        row.setPaymentTransactionId(order.getPaymentTransactionId());
+        row.setKitchenId(order.getKitchenId());
+        row.setDriverId(order.getDriverId());
+    }
+}
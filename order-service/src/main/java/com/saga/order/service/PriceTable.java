@@ -0,0 +1,74 @@
+package com.saga.order.service;
+
+import com.saga.order.dto.PizzaSize;
+import com.saga.order.entity.MenuItem;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the menu, keyed by lower-cased pizza type.
+ * <p>
+ * Each type maps to its canonical name and one price per {@link PizzaSize} ordinal; a size
+ * that is not on the menu or not available is priced as NaN. Built once per menu change and
+ * never modified, so it can be read from any thread without locking.
+ */
+public final class PriceTable {
+
+    static final PriceTable EMPTY = new PriceTable(Map.of(), 0);
+
+    private final Map<String, Entry> entries;
+    private final long version;
+
+    private PriceTable(Map<String, Entry> entries, long version) {
+        this.entries = entries;
+        this.version = version;
+    }
+
+    /**
+     * Canonical name and per-size prices of one pizza type
+     */
+    public record Entry(String pizzaType, double[] prices) {
+
+        public double price(PizzaSize size) {
+            return prices[size.ordinal()];
+        }
+    }
+
+    static PriceTable of(Collection<MenuItem> items, long version) {
+        Map<String, Entry> entries = new HashMap<>();
+        for (MenuItem item : items) {
+            Entry entry = entries.computeIfAbsent(key(item.getPizzaType()), k -> {
+                double[] prices = new double[PizzaSize.values().length];
+                Arrays.fill(prices, Double.NaN);
+                return new Entry(item.getPizzaType(), prices);
+            });
+            if (item.isAvailable()) {
+                entry.prices()[item.getPizzaSize().ordinal()] = item.getPrice();
+            }
+        }
+        return new PriceTable(Map.copyOf(entries), version);
+    }
+
+    /**
+     * The entry for a pizza type, matched case-insensitively, or null if it is not on the menu
+     */
+    public Entry find(String pizzaType) {
+        return pizzaType == null ? null : entries.get(key(pizzaType));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long version() {
+        return version;
+    }
+
+    private static String key(String pizzaType) {
+        return pizzaType.trim().toLowerCase(Locale.ROOT);
+    }
+}
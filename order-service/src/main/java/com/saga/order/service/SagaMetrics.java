@@ -0,0 +1,207 @@
+package com.saga.order.service;
+
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.contracts.command.CancelDeliveryCommand;
+import com.saga.contracts.command.CancelPreparationCommand;
+import com.saga.contracts.command.PreparePizzaCommand;
+import com.saga.contracts.command.ProcessPaymentCommand;
+import com.saga.contracts.command.RefundPaymentCommand;
+import com.saga.contracts.event.*;
+import com.saga.order.dto.CompensationStep;
+import com.saga.order.dto.OrderStatus;
+import com.saga.runtime.startup.StartupTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Micrometer instrumentation of the orchestrator.
+ * <p>
+ * Every meter is registered up front and kept in arrays or immutable maps, so recording
+ * on the message path is a lookup plus an add and does not allocate.
+ * <ul>
+ *     <li>{@code saga.step.duration{step,outcome}} - time from dispatching a step to its result, timed by the saga coordinator</li>
+ *     <li>{@code saga.duration{outcome}} - end-to-end time from order creation to a terminal status</li>
+ *     <li>{@code saga.inflight{status}} - orders currently in each non-terminal status</li>
+ *     <li>{@code saga.commands.sent{command}} / {@code saga.events.received{event}} - throughput</li>
+ *     <li>{@code saga.compensation.duration{step}} - time from dispatching an undo command to its acknowledgement</li>
+ *     <li>{@code saga.compensation.timeouts{step}} / {@code saga.compensation.failures{step}} - undo commands
+ *     not acknowledged in time, and those given up after the last attempt</li>
+ *     <li>{@code saga.compensation.fanout} - undo commands dispatched together for one failed saga</li>
+ * </ul>
+ */
+@Component
+public class SagaMetrics {
+
+    public enum Step {
+        PAYMENT, KITCHEN, DELIVERY, COMPENSATION
+    }
+
+    private static final int SUCCESS = 0;
+    private static final int FAILURE = 1;
+
+    private static final List<Class<?>> COMMANDS = List.of(
+            ProcessPaymentCommand.class,
+            PreparePizzaCommand.class,
+            AssignDeliveryCommand.class,
+            RefundPaymentCommand.class,
+            CancelPreparationCommand.class,
+            CancelDeliveryCommand.class
+    );
+
+    private static final List<Class<?>> EVENTS = List.of(
+            PaymentProcessedEvent.class,
+            PaymentFailedEvent.class,
+            PaymentRefundedEvent.class,
+            PizzaPreparedEvent.class,
+            KitchenFailedEvent.class,
+            DeliveryAssignedEvent.class,
+            DeliveryFailedEvent.class,
+            PreparationCancelledEvent.class,
+            DeliveryCancelledEvent.class
+    );
+
+    private final Timer[][] stepTimers = new Timer[Step.values().length][2];
+    private final Timer[] sagaTimers = new Timer[OrderStatus.values().length];
+    private final Map<Class<?>, Counter> commandCounters;
+    private final Map<Class<?>, Counter> eventCounters;
+    private final Timer[] compensationTimers = new Timer[CompensationStep.values().length];
+    private final Counter[] compensationTimeouts = new Counter[CompensationStep.values().length];
+    private final Counter[] compensationFailures = new Counter[CompensationStep.values().length];
+    private final DistributionSummary compensationFanout;
+    private final StartupTimer startupTimer;
+
+    public SagaMetrics(MeterRegistry meterRegistry, OrderProjection orderProjection, StartupTimer startupTimer) {
+        this.startupTimer = startupTimer;
+        for (Step step : Step.values()) {
+            stepTimers[step.ordinal()][SUCCESS] = stepTimer(meterRegistry, step, "success");
+            stepTimers[step.ordinal()][FAILURE] = stepTimer(meterRegistry, step, "failure");
+        }
+
+        for (OrderStatus status : OrderStatus.values()) {
+            if (status.isTerminal()) {
+                sagaTimers[status.ordinal()] = Timer.builder("saga.duration")
+                        .description("End-to-end saga duration from order creation to a terminal status")
+                        .tag("outcome", status.name())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+            } else {
+                Gauge.builder("saga.inflight", orderProjection, p -> p.countByStatus(status))
+                        .description("Orders currently in a non-terminal saga status")
+                        .tag("status", status.name())
+                        .register(meterRegistry);
+            }
+        }
+
+        this.commandCounters = counters(meterRegistry, COMMANDS, "saga.commands.sent", "command");
+        this.eventCounters = counters(meterRegistry, EVENTS, "saga.events.received", "event");
+
+        for (CompensationStep step : CompensationStep.values()) {
+            String tag = step.name().toLowerCase();
+            compensationTimers[step.ordinal()] = Timer.builder("saga.compensation.duration")
+                    .description("Time from dispatching an undo command to its acknowledgement")
+                    .tag("step", tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            compensationTimeouts[step.ordinal()] = Counter.builder("saga.compensation.timeouts")
+                    .description("Undo commands not acknowledged before their deadline")
+                    .tag("step", tag)
+                    .register(meterRegistry);
+            compensationFailures[step.ordinal()] = Counter.builder("saga.compensation.failures")
+                    .description("Undo commands given up after the last attempt")
+                    .tag("step", tag)
+                    .register(meterRegistry);
+        }
+        this.compensationFanout = DistributionSummary.builder("saga.compensation.fanout")
+                .description("Undo commands dispatched together for one failed saga")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record the end-to-end duration of a saga reaching a terminal status
+     *
+     * @param createdMillis when the saga started
+     */
+    public void onTransition(OrderStatus from, OrderStatus to, long createdMillis, long nowMillis) {
+        Timer sagaTimer = sagaTimers[to.ordinal()];
+        if (sagaTimer != null && from != to && createdMillis > 0) {
+            sagaTimer.record(nowMillis - createdMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Record the duration of a single saga step
+     */
+    public void recordStep(Step step, boolean success, long millis) {
+        stepTimers[step.ordinal()][success ? SUCCESS : FAILURE].record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record the undo commands dispatched together for one failed saga
+     */
+    public void compensationsDispatched(int count) {
+        compensationFanout.record(count);
+    }
+
+    /**
+     * Record an undo command acknowledged by its participant
+     */
+    public void compensationAcknowledged(CompensationStep step, long millis) {
+        compensationTimers[step.ordinal()].record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Count an undo command that missed its deadline, and whether it was given up
+     */
+    public void compensationTimedOut(CompensationStep step, boolean givenUp) {
+        compensationTimeouts[step.ordinal()].increment();
+        if (givenUp) {
+            compensationFailures[step.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Count a command sent to a participant
+     */
+    public void commandSent(Object command) {
+        Counter counter = commandCounters.get(command.getClass());
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Count an event received from a participant
+     */
+    public void eventReceived(Object event) {
+        Counter counter = eventCounters.get(event.getClass());
+        if (counter != null) {
+            counter.increment();
+        }
+        startupTimer.messageHandled();
+    }
+
+    private static Timer stepTimer(MeterRegistry meterRegistry, Step step, String outcome) {
+        return Timer.builder("saga.step.duration")
+                .description("Time from issuing a saga step command to receiving its reply")
+                .tag("step", step.name().toLowerCase())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Map<Class<?>, Counter> counters(MeterRegistry meterRegistry, List<Class<?>> types,
+                                                   String name, String tag) {
+        return types.stream().collect(Collectors.toUnmodifiableMap(Function.identity(),
+                type -> Counter.builder(name).tag(tag, type.getSimpleName()).register(meterRegistry)));
+    }
+}
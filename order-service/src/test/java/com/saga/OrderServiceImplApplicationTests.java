@@ -3,7 +3,7 @@ package com.saga;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "order.journal.dir=target/test-journal/application-${random.uuid}")
 class OrderServiceImplApplicationTests {
 
 	@Test
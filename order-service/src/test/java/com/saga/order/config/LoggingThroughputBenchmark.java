@@ -0,0 +1,245 @@
+package com.saga.order.config;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.rabbitmq.client.Channel;
+import com.saga.contracts.event.DeliveryAssignedEvent;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.order.dto.CreateOrderRequest;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.repository.OrderRepository;
+import com.saga.order.service.OrderHelper;
+import com.saga.order.service.OrderService;
+import com.saga.runtime.logging.SagaLogSamplingFilter;
+import io.micrometer.tracing.BaggageInScope;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Saga throughput of the order service under each logging profile: a synchronous file appender,
+ * the async appender, and the async appender plus {@link SagaLogSamplingFilter} at 1%.
+ * <p>
+ * Each saga is created through the order service and driven to COMPLETED by its three events,
+ * each converted from an AMQP message and handed to the listener adapter the container would
+ * call. Every step runs in a span carrying the orderId baggage, as the HTTP and listener
+ * observations would open it, so the MDC and the sampling decision are those of production. The
+ * handlers, the saga coordinator, the database and every log statement on the way are on the
+ * path; only the broker is left out. The application's appenders are swapped for a file in a
+ * temporary directory for each profile. Prints, per profile: sagas per second and the lines
+ * written.
+ * <p>
+ * Opt-in: {@code mvn test -Dtest=LoggingThroughputBenchmark -Dsaga.bench=true [-Dsaga.bench.sagas=4000]}
+ */
+@EnabledIfSystemProperty(named = "saga.bench", matches = "true")
+@SpringBootTest(properties = {
+        "order.recovery.enabled=false",
+        "order.journal.dir=target/test-journal/logging-bench-${random.uuid}"
+})
+@AutoConfigureObservability(metrics = false)
+class LoggingThroughputBenchmark {
+
+    private static final int THREADS = 8;
+
+    @TempDir
+    Path dir;
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderHelper orderHelper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private Tracer tracer;
+
+    @Value("${saga.logging.sample-rate}")
+    private double configuredSampleRate;
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Test
+    void compareLoggingProfiles() throws Exception {
+        int sagas = Integer.getInteger("saga.bench.sagas", 4000);
+        ChannelAwareMessageListener listener = orderEventListener();
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        List<Appender<ILoggingEvent>> configured = new ArrayList<>();
+        root.iteratorForAppenders().forEachRemaining(configured::add);
+        configured.forEach(root::detachAppender);
+
+        try {
+            // Warm-up, so the first profile does not pay for the JIT
+            run(listener, context, root, false, 1.0, sagas / 4);
+            for (Profile profile : List.of(new Profile("sync", false, 1.0), new Profile("async", true, 1.0),
+                    new Profile("async + 1% sampling", true, 0.01))) {
+                Result result = run(listener, context, root, profile.async(), profile.sampleRate(), sagas);
+                System.out.printf("%-22s %,8.0f sagas/s (%,d ms) %,10d lines%n", profile.name(),
+                        sagas * 1e9 / result.nanos(), result.nanos() / 1_000_000, result.lines());
+            }
+        } finally {
+            samplingFilter(context).setSampleRate(configuredSampleRate);
+            configured.forEach(root::addAppender);
+        }
+    }
+
+    private Result run(ChannelAwareMessageListener listener, LoggerContext context, Logger root,
+                       boolean async, double sampleRate, int sagas) throws Exception {
+        Path logFile = dir.resolve(UUID.randomUUID() + ".log");
+        Appender<ILoggingEvent> appender = appender(context, logFile, async);
+        root.addAppender(appender);
+        samplingFilter(context).setSampleRate(sampleRate);
+
+        ExecutorService consumers = Executors.newFixedThreadPool(THREADS);
+        long nanos;
+        try {
+            List<Future<UUID>> last = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                int count = sagas / THREADS;
+                last.add(consumers.submit(() -> {
+                    Channel channel = mock(Channel.class);
+                    UUID orderId = null;
+                    for (int i = 0; i < count; i++) {
+                        orderId = saga(listener, channel);
+                    }
+                    return orderId;
+                }));
+            }
+            for (Future<UUID> future : last) {
+                UUID orderId = future.get();
+                assertThat(orderRepository.findById(orderId).orElseThrow().getStatus())
+                        .isEqualTo(OrderStatus.COMPLETED);
+            }
+            nanos = System.nanoTime() - start;
+        } finally {
+            consumers.shutdownNow();
+            root.detachAppender(appender);
+            appender.stop();
+        }
+
+        try (Stream<String> lines = Files.lines(logFile)) {
+            return new Result(nanos, lines.count());
+        }
+    }
+
+    private UUID saga(ChannelAwareMessageListener listener, Channel channel) throws Exception {
+        UUID orderId;
+        Span request = tracer.nextSpan().name("http post /api/orders").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(request)) {
+            orderId = orderService.createOrder(
+                    new CreateOrderRequest("CUST001", "Margherita", 1, "123 Main Street")).getId();
+        } finally {
+            request.end();
+        }
+
+        String id = orderId.toString();
+        for (Object event : List.of(new PaymentProcessedEvent(id, "PAY-1"), new PizzaPreparedEvent(id, "KITCHEN-1"),
+                new DeliveryAssignedEvent(id, "DRIVER-1", null))) {
+            Message message = messageConverter.toMessage(event, new MessageProperties());
+            Span receive = tracer.nextSpan().name(RabbitMQConfig.ORDER_EVENT_QUEUE + " receive").start();
+            try (Tracer.SpanInScope inSpan = tracer.withSpan(receive);
+                 BaggageInScope inSaga = orderHelper.openSagaScope(orderId)) {
+                listener.onMessage(message, channel);
+            } finally {
+                receive.end();
+            }
+        }
+        return orderId;
+    }
+
+    private static Appender<ILoggingEvent> appender(LoggerContext context, Path logFile, boolean async) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} [%thread] [%X{traceId:-},%X{spanId:-}] [%X{orderId:-}] %-5level %logger{36} - %msg%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(logFile.toString());
+        file.setEncoder(encoder);
+        file.start();
+        if (!async) {
+            return file;
+        }
+
+        // As ASYNC_CONSOLE in logback-spring.xml
+        AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setContext(context);
+        asyncAppender.setQueueSize(8192);
+        asyncAppender.setNeverBlock(true);
+        asyncAppender.addAppender(file);
+        asyncAppender.start();
+        return asyncAppender;
+    }
+
+    private static SagaLogSamplingFilter samplingFilter(LoggerContext context) {
+        return context.getTurboFilterList().stream()
+                .filter(SagaLogSamplingFilter.class::isInstance)
+                .map(SagaLogSamplingFilter.class::cast)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private ChannelAwareMessageListener orderEventListener() {
+        return listenerRegistry.getListenerContainers().stream()
+                .map(AbstractMessageListenerContainer.class::cast)
+                .filter(container -> !"orderEventBatch".equals(container.getListenerId()))
+                .filter(container -> Arrays.asList(container.getQueueNames())
+                        .contains(RabbitMQConfig.ORDER_EVENT_QUEUE))
+                .map(container -> (ChannelAwareMessageListener) container.getMessageListener())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private record Profile(String name, boolean async, double sampleRate) {
+    }
+
+    private record Result(long nanos, long lines) {
+    }
+}
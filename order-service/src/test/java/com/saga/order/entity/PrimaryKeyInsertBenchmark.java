@@ -0,0 +1,86 @@
+package com.saga.order.entity;
+
+import com.saga.runtime.id.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Insert throughput of random UUID strings versus time-ordered binary UUIDs as primary key
+ * and unique orderId column, mirroring the participant tables, on a file-backed H2 database.
+ * Prints throughput per tenth of the run so the slowdown as the index grows is visible.
+ * <p>
+ * Opt-in: {@code mvn test -Dtest=PrimaryKeyInsertBenchmark -Dsaga.bench=true [-Dsaga.bench.rows=10000000]}
+ */
+@EnabledIfSystemProperty(named = "saga.bench", matches = "true")
+class PrimaryKeyInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void compareKeyTypes() throws Exception {
+        long rows = Long.getLong("saga.bench.rows", 10_000_000L);
+        run("random VARCHAR(36)", "VARCHAR(36)", rows, false);
+        run("time-ordered BINARY(16)", "BINARY(16)", rows, true);
+    }
+
+    private void run(String label, String keyType, long rows, boolean timeOrdered) throws Exception {
+        String url = "jdbc:h2:file:" + dir.resolve(timeOrdered ? "binary" : "string") + ";CACHE_SIZE=262144";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement ddl = connection.createStatement()) {
+                ddl.execute("CREATE TABLE payments (id " + keyType + " PRIMARY KEY, order_id " + keyType
+                        + " NOT NULL UNIQUE, amount DOUBLE NOT NULL, status VARCHAR(16) NOT NULL)");
+            }
+            connection.setAutoCommit(false);
+
+            long reportEvery = Math.max(rows / 10, BATCH_SIZE);
+            System.out.printf("%s, %,d rows%n", label, rows);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO payments (id, order_id, amount, status) VALUES (?, ?, ?, ?)")) {
+                long total = System.nanoTime();
+                long window = total;
+                for (long i = 1; i <= rows; i++) {
+                    if (timeOrdered) {
+                        insert.setBytes(1, bytes(TimeOrderedIdGenerator.next()));
+                        insert.setBytes(2, bytes(TimeOrderedIdGenerator.next()));
+                    } else {
+                        insert.setString(1, UUID.randomUUID().toString());
+                        insert.setString(2, UUID.randomUUID().toString());
+                    }
+                    insert.setDouble(3, 15.99);
+                    insert.setString(4, "COMPLETED");
+                    insert.addBatch();
+
+                    if (i % BATCH_SIZE == 0 || i == rows) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                    if (i % reportEvery == 0) {
+                        long now = System.nanoTime();
+                        System.out.printf("  %,12d rows  %,10.0f rows/s%n", i, reportEvery * 1e9 / (now - window));
+                        window = now;
+                    }
+                }
+                System.out.printf("  overall     %,10.0f rows/s%n", rows * 1e9 / (System.nanoTime() - total));
+            }
+        }
+    }
+
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
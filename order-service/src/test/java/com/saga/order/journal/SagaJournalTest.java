@@ -0,0 +1,92 @@
+package com.saga.order.journal;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.entity.Order;
+import com.saga.runtime.id.TimeOrderedIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SagaJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsSurviveReopenInSequenceOrder() throws IOException {
+        Order order = order();
+        try (SagaJournal journal = open(60, true)) {
+            journal.recordTransition(order, null, OrderStatus.CREATED);
+            journal.recordTransition(order, OrderStatus.CREATED, OrderStatus.PAYMENT_PENDING);
+            journal.recordEvent(order.getId().toString(), new PaymentProcessedEvent(order.getId().toString(), "PAY-1"));
+        }
+
+        try (SagaJournal journal = open(60, true)) {
+            List<JournalRecord> records = readAll(journal, 1);
+
+            assertThat(records).extracting(JournalRecord::getSequence).containsExactly(1L, 2L, 3L);
+            assertThat(records.get(1).getStatus()).isEqualTo(OrderStatus.PAYMENT_PENDING);
+            assertThat(records.get(1).getPrevious()).isEqualTo("CREATED");
+            assertThat(records.get(2).getName()).isEqualTo("PaymentProcessedEvent");
+            assertThat(records.get(2).getPayload()).contains("PAY-1");
+            assertThat(readAll(journal, 3)).hasSize(1);
+        }
+    }
+
+    @Test
+    void rollsSegmentsAndCompactsFinishedSagas() throws IOException {
+        Order finished = order();
+        Order inFlight = order();
+        try (SagaJournal journal = open(0, false)) {
+            journal.recordTransition(inFlight, null, OrderStatus.CREATED);
+            // ~100 bytes per record, enough to fill more than one 1 MB segment
+            for (int i = 0; i < 15_000; i++) {
+                journal.recordTransition(finished, OrderStatus.CREATED, OrderStatus.PAYMENT_PENDING);
+            }
+            journal.recordTransition(finished, OrderStatus.PAYMENT_PENDING, OrderStatus.COMPLETED);
+            journal.recordTransition(inFlight, OrderStatus.CREATED, OrderStatus.PAYMENT_PENDING);
+
+            long segmentsBefore;
+            try (var files = Files.list(dir)) {
+                segmentsBefore = files.count();
+            }
+            assertThat(segmentsBefore).isGreaterThan(1);
+
+            assertThat(journal.compact()).isPositive();
+
+            List<JournalRecord> remaining = readAll(journal, 1);
+            assertThat(remaining).extracting(JournalRecord::getOrderId).contains(inFlight.getId());
+            assertThat(remaining).extracting(JournalRecord::getSequence).isSorted();
+            assertThat(remaining.getLast().getSequence()).isEqualTo(journal.lastSequence());
+        }
+    }
+
+    private SagaJournal open(long retentionMinutes, boolean awaitDurable) throws IOException {
+        return new SagaJournal(JsonMapper.builder().findAndAddModules().build(), new SimpleMeterRegistry(), dir, 1, awaitDurable, retentionMinutes, 3600);
+    }
+
+    private static List<JournalRecord> readAll(SagaJournal journal, long from) {
+        List<JournalRecord> records = new ArrayList<>();
+        try (JournalReader reader = journal.read(from)) {
+            reader.forEachRemaining(records::add);
+        }
+        return records;
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId(TimeOrderedIdGenerator.next());
+        order.setPizzaType("Margherita");
+        return order;
+    }
+}
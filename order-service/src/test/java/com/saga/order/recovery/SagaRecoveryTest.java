@@ -0,0 +1,90 @@
+package com.saga.order.recovery;
+
+import com.saga.contracts.command.ProcessPaymentCommand;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.dto.ParticipantRecord;
+import com.saga.order.entity.Order;
+import com.saga.order.journal.SagaJournal;
+import com.saga.order.repository.OrderRepository;
+import com.saga.runtime.id.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "order.recovery.enabled=false",
+        "order.journal.dir=target/test-journal/recovery-${random.uuid}"
+})
+class SagaRecoveryTest {
+
+    @Autowired
+    private SagaRecovery sagaRecovery;
+
+    @Autowired
+    private SagaJournal sagaJournal;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockitoBean
+    private ParticipantClient participantClient;
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Test
+    void appliesOutcomeTheParticipantAlreadyReached() {
+        Order order = order(OrderStatus.KITCHEN_PENDING);
+        order.setPaymentTransactionId("PAY-1");
+        order = orderRepository.save(order);
+        when(participantClient.kitchen(order.getId()))
+                .thenReturn(Optional.of(new ParticipantRecord("KITCHEN-1", "PREPARED", null, null)));
+
+        assertThat(sagaRecovery.recover()).containsKey(SagaRecovery.Outcome.ADVANCED);
+
+        Order recovered = orderRepository.findById(order.getId()).orElseThrow();
+        assertThat(recovered.getKitchenId()).isEqualTo("KITCHEN-1");
+        assertThat(recovered.getStatus()).isEqualTo(OrderStatus.DELIVERY_PENDING);
+    }
+
+    @Test
+    void restoresJournaledSagaAndResendsCommandWhenParticipantIsDown() {
+        Order order = order(OrderStatus.PAYMENT_PENDING);
+        order.setId(TimeOrderedIdGenerator.next());
+        sagaJournal.recordTransition(order, OrderStatus.CREATED, OrderStatus.PAYMENT_PENDING);
+        when(participantClient.payment(order.getId())).thenThrow(new ResourceAccessException("Connection refused"));
+
+        assertThat(sagaRecovery.recover()).containsKey(SagaRecovery.Outcome.REISSUED);
+
+        assertThat(orderRepository.findById(order.getId()))
+                .hasValueSatisfying(o -> assertThat(o.getStatus()).isEqualTo(OrderStatus.PAYMENT_PENDING));
+        verify(rabbitTemplate).convertAndSend(anyString(), eq("payment.command"), argThat((Object command) ->
+                command instanceof ProcessPaymentCommand payment && payment.getOrderId().equals(order.getId().toString())));
+    }
+
+    private static Order order(OrderStatus status) {
+        Order order = new Order();
+        order.setCustomerId("CUST001");
+        order.setPizzaType("Margherita");
+        order.setQuantity(1);
+        order.setAmount(15.99);
+        order.setDeliveryAddress("123 Main Street");
+        order.setStatus(status);
+        order.setCreatedAt(LocalDateTime.now());
+        order.setStatusUpdatedAt(System.currentTimeMillis());
+        return order;
+    }
+}
@@ -0,0 +1,53 @@
+package com.saga.order.saga;
+
+import com.saga.order.config.SagaDefinitionConfig;
+import com.saga.order.dto.SagaStep;
+import com.saga.order.entity.Order;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class SagaDefinitionTest {
+
+    @Test
+    void runsKitchenAndDeliveryInParallelAfterPayment() {
+        SagaDefinition saga = new SagaDefinitionConfig().pizzaOrderSaga(true);
+        Order order = new Order();
+
+        assertThat(saga.roots()).containsExactly(SagaStep.PAYMENT);
+        assertThat(saga.ready(order)).containsExactly(SagaStep.PAYMENT);
+
+        order.setPaymentTransactionId("PAY-1");
+        assertThat(saga.unlockedBy(SagaStep.PAYMENT, order)).containsExactly(SagaStep.KITCHEN, SagaStep.DELIVERY);
+
+        order.setDriverId("DRIVER-1");
+        assertThat(saga.unlockedBy(SagaStep.DELIVERY, order)).isEmpty();
+        assertThat(saga.ready(order)).containsExactly(SagaStep.KITCHEN);
+        assertThat(saga.isComplete(order)).isFalse();
+
+        order.setKitchenId("KITCHEN-1");
+        assertThat(saga.isComplete(order)).isTrue();
+    }
+
+    @Test
+    void chainsDeliveryAfterKitchenWithoutParallelSteps() {
+        SagaDefinition saga = new SagaDefinitionConfig().pizzaOrderSaga(false);
+        Order order = new Order();
+        order.setPaymentTransactionId("PAY-1");
+
+        assertThat(saga.unlockedBy(SagaStep.PAYMENT, order)).containsExactly(SagaStep.KITCHEN);
+
+        order.setKitchenId("KITCHEN-1");
+        assertThat(saga.unlockedBy(SagaStep.KITCHEN, order)).containsExactly(SagaStep.DELIVERY);
+    }
+
+    @Test
+    void rejectsDependencyDeclaredLater() {
+        SagaDefinition.Builder builder = SagaDefinition.builder("broken")
+                .step(SagaStep.KITCHEN).after(SagaStep.PAYMENT).output(Order::getKitchenId, Order::setKitchenId)
+                .step(SagaStep.PAYMENT).output(Order::getPaymentTransactionId, Order::setPaymentTransactionId);
+
+        assertThatIllegalStateException().isThrownBy(builder::build);
+    }
+}
@@ -0,0 +1,68 @@
+package com.saga.order.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControlTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void limitsEachCustomerToItsBurstThenRefills() {
+        AdmissionControl admission = admission(100, 2);
+        long now = System.nanoTime();
+
+        assertThat(admission.takeToken("CUST001", now)).isZero();
+        assertThat(admission.takeToken("CUST001", now)).isZero();
+        long wait = admission.takeToken("CUST001", now);
+        assertThat(wait).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+
+        // Other customers have their own bucket
+        assertThat(admission.takeToken("CUST002", now)).isZero();
+        // One token per second comes back
+        assertThat(admission.takeToken("CUST001", now + TimeUnit.SECONDS.toNanos(1))).isZero();
+    }
+
+    @Test
+    void rejectsWithRetryAfterAndReleasesPermits() {
+        AdmissionControl admission = admission(100, 1);
+
+        admission.admit("CUST001").close();
+        admission.admit("CUST001").close();
+        assertThatThrownBy(() -> admission.admit("CUST001"))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class, e -> {
+                    assertThat(e.getReason()).isEqualTo(AdmissionControl.Reason.CUSTOMER_RATE);
+                    assertThat(e.getRetryAfterSeconds()).isEqualTo(1);
+                });
+
+        AdmissionControl.Permit held = admission.admit("CUST002");
+        assertThatThrownBy(() -> admission.admit("CUST003"))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(AdmissionControl.Reason.CONCURRENCY));
+        held.close();
+        admission.admit("CUST003").close();
+
+        assertThat(meterRegistry.get("saga.admission.rejected").tag("reason", "CONCURRENCY").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shedsLoadWhenTheBacklogIsFull() {
+        AdmissionControl admission = admission(0, 1);
+
+        assertThatThrownBy(() -> admission.admit("CUST001"))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class, e -> {
+                    assertThat(e.getReason()).isEqualTo(AdmissionControl.Reason.BACKLOG);
+                    assertThat(e.getRetryAfterSeconds()).isEqualTo(5);
+                });
+    }
+
+    private AdmissionControl admission(long maxBacklog, int maxConcurrent) {
+        return new AdmissionControl(new OrderProjection(48), meterRegistry, true, maxBacklog, 5,
+                1, 2, maxConcurrent, 4, 16);
+    }
+}
@@ -0,0 +1,139 @@
+package com.saga.order.service;
+
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.contracts.command.CancelPreparationCommand;
+import com.saga.contracts.command.PreparePizzaCommand;
+import com.saga.contracts.command.RefundPaymentCommand;
+import com.saga.contracts.event.*;
+import com.saga.order.dto.CompensationStatus;
+import com.saga.order.dto.CompensationStep;
+import com.saga.order.dto.CreateOrderRequest;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.repository.CompensationRepository;
+import com.saga.order.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "order.recovery.enabled=false",
+        "order.compensation.payment-timeout-ms=0",
+        "order.compensation.max-attempts=2",
+        "order.compensation.sweep-interval-ms=3600000",
+        "order.journal.dir=target/test-journal/compensation-${random.uuid}",
+        // Own database: the sweepers of other cached test contexts would race for these compensations
+        "spring.datasource.url=jdbc:h2:mem:compensation-${random.uuid}"
+})
+class CompensationEngineTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CompensationEngine compensationEngine;
+
+    @MockitoSpyBean
+    private CompensationRepository compensationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Test
+    void fansOutUndoCommandsAndCancelsOnlyAfterAllAreAcknowledged() {
+        String id = createOrder().toString();
+        orderService.handlePaymentProcessed(new PaymentProcessedEvent(id, "PAY-1"));
+        // Kitchen and delivery are dispatched together once the payment completes
+        verify(rabbitTemplate).convertAndSend(anyString(), eq("kitchen.command"), any(PreparePizzaCommand.class));
+        verify(rabbitTemplate).convertAndSend(anyString(), eq("delivery.command"), any(AssignDeliveryCommand.class));
+
+        orderService.handlePizzaPrepared(new PizzaPreparedEvent(id, "KITCHEN-1"));
+        orderService.handleDeliveryFailed(new DeliveryFailedEvent(id, "No drivers available"));
+
+        verify(rabbitTemplate).convertAndSend(anyString(), eq("payment.command"),
+                argThat((Object command) -> command instanceof RefundPaymentCommand refund && refund.getOrderId().equals(id)));
+        verify(rabbitTemplate).convertAndSend(anyString(), eq("kitchen.command"),
+                argThat((Object command) -> command instanceof CancelPreparationCommand cancel && cancel.getOrderId().equals(id)));
+
+        orderService.handlePaymentRefunded(new PaymentRefundedEvent(id));
+        assertThat(status(id)).isEqualTo(OrderStatus.DELIVERY_FAILED);
+
+        orderService.handlePreparationCancelled(new PreparationCancelledEvent(id, "KITCHEN-1"));
+        assertThat(status(id)).isEqualTo(OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void resendsOverdueUndoCommandThenGivesUp() throws InterruptedException {
+        UUID orderId = createOrder();
+        String id = orderId.toString();
+        orderService.handlePaymentProcessed(new PaymentProcessedEvent(id, "PAY-2"));
+        orderService.handleKitchenFailed(new KitchenFailedEvent(id, "Out of dough"));
+
+        Thread.sleep(5);
+        assertThat(compensationEngine.sweep()).isPositive();
+        Thread.sleep(5);
+        compensationEngine.sweep();
+
+        verify(rabbitTemplate, times(2)).convertAndSend(anyString(), eq("payment.command"),
+                argThat((Object command) -> command instanceof RefundPaymentCommand refund && refund.getOrderId().equals(id)));
+        assertThat(compensationRepository.findByOrderIdAndStep(orderId, CompensationStep.PAYMENT))
+                .hasValueSatisfying(c -> assertThat(c.getStatus()).isEqualTo(CompensationStatus.FAILED));
+        assertThat(status(id)).isEqualTo(OrderStatus.KITCHEN_FAILED);
+    }
+
+    @Test
+    void sweepDoesNotOverwriteAnAcknowledgementThatCommittedMeanwhile() throws InterruptedException {
+        UUID orderId = createOrder();
+        String id = orderId.toString();
+        orderService.handlePaymentProcessed(new PaymentProcessedEvent(id, "PAY-3"));
+        orderService.handleKitchenFailed(new KitchenFailedEvent(id, "Out of dough"));
+        Thread.sleep(5);
+
+        // The refund is confirmed after the sweep loaded it as overdue, before the sweep commits
+        TransactionTemplate acknowledgement = new TransactionTemplate(transactionManager);
+        acknowledgement.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        doAnswer(invocation -> {
+            acknowledgement.executeWithoutResult(status ->
+                    orderService.handlePaymentRefunded(new PaymentRefundedEvent(id)));
+            return invocation.getArgument(0);
+        }).when(compensationRepository).saveAll(any());
+
+        assertThat(compensationEngine.sweep()).isZero();
+
+        verify(rabbitTemplate, times(1)).convertAndSend(anyString(), eq("payment.command"),
+                argThat((Object command) -> command instanceof RefundPaymentCommand refund && refund.getOrderId().equals(id)));
+        assertThat(compensationRepository.findByOrderIdAndStep(orderId, CompensationStep.PAYMENT))
+                .hasValueSatisfying(c -> assertThat(c.getStatus()).isEqualTo(CompensationStatus.ACKNOWLEDGED));
+        assertThat(status(id)).isEqualTo(OrderStatus.CANCELLED);
+    }
+
+    private UUID createOrder() {
+        return orderService.createOrder(new CreateOrderRequest("CUST001", "Margherita", 1, "123 Main Street")).getId();
+    }
+
+    private OrderStatus status(String orderId) {
+        return orderRepository.findById(UUID.fromString(orderId)).orElseThrow().getStatus();
+    }
+}
@@ -0,0 +1,84 @@
+package com.saga.order.service;
+
+import com.saga.order.dto.PizzaSize;
+import com.saga.order.entity.MenuItem;
+import com.saga.order.repository.MenuItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MenuCatalogTest {
+
+    private final List<MenuItem> items = new ArrayList<>();
+    private final MenuItemRepository repository = mock(MenuItemRepository.class);
+    private MenuCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.count()).thenAnswer(invocation -> (long) items.size());
+        when(repository.findAll()).thenAnswer(invocation -> List.copyOf(items));
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            invocation.<Iterable<MenuItem>>getArgument(0).forEach(items::add);
+            return items;
+        });
+        when(repository.findByPizzaTypeIgnoreCaseAndPizzaSize(anyString(), any())).thenAnswer(invocation -> items.stream()
+                .filter(i -> i.getPizzaType().equalsIgnoreCase(invocation.getArgument(0))
+                        && i.getPizzaSize() == invocation.getArgument(1))
+                .findFirst());
+        when(repository.save(any())).thenAnswer(invocation -> {
+            MenuItem item = invocation.getArgument(0);
+            if (!items.contains(item)) {
+                items.add(item);
+            }
+            return item;
+        });
+        catalog = new MenuCatalog(repository, new SimpleMeterRegistry());
+        catalog.load();
+    }
+
+    @Test
+    void pricesFromTheSeededMenuIgnoringCase() {
+        MenuCatalog.Quote quote = catalog.quote("margherita", null);
+
+        assertThat(quote.pizzaType()).isEqualTo("Margherita");
+        assertThat(quote.size()).isEqualTo(PizzaSize.MEDIUM);
+        assertThat(quote.total(2)).isEqualTo(31.98);
+        assertThat(catalog.quote("Pepperoni", PizzaSize.LARGE).unitPrice()).isEqualTo(19.99);
+    }
+
+    @Test
+    void rejectsUnknownTypesAndUnavailableSizes() {
+        assertThatThrownBy(() -> catalog.quote("Anchovy Surprise", PizzaSize.MEDIUM))
+                .isInstanceOf(MenuItemUnavailableException.class);
+
+        catalog.update("Hawaiian", PizzaSize.SMALL, 12.99, false);
+        assertThatThrownBy(() -> catalog.quote("Hawaiian", PizzaSize.SMALL))
+                .isInstanceOf(MenuItemUnavailableException.class);
+        assertThat(catalog.quote("Hawaiian", PizzaSize.MEDIUM).unitPrice()).isEqualTo(15.99);
+    }
+
+    @Test
+    void swapsInANewTableOnUpdate() {
+        PriceTable before = catalog.priceTable();
+
+        catalog.update("Margherita", PizzaSize.MEDIUM, 16.49, true);
+        catalog.update("Truffle", PizzaSize.LARGE, 24.00, true);
+
+        assertThat(catalog.priceTable()).isNotSameAs(before);
+        assertThat(catalog.priceTable().version()).isGreaterThan(before.version());
+        assertThat(before.find("Margherita").price(PizzaSize.MEDIUM)).isEqualTo(15.99);
+        assertThat(catalog.quote("Margherita", PizzaSize.MEDIUM).unitPrice()).isEqualTo(16.49);
+        assertThat(catalog.quote("truffle", PizzaSize.LARGE).pizzaType()).isEqualTo("Truffle");
+        assertThat(items).hasSize(16);
+    }
+}
@@ -0,0 +1,129 @@
+package com.saga.order.service;
+
+import com.saga.contracts.command.PreparePizzaCommand;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.order.dto.CreateOrderRequest;
+import com.saga.order.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "order.recovery.enabled=false",
+        "order.event-batch.enabled=true",
+        "order.journal.dir=target/test-journal/event-batch-${random.uuid}"
+})
+class OrderEventBatchListenerTest {
+
+    @Autowired
+    private OrderEventBatchListener listener;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoSpyBean
+    private OrderRepository orderRepository;
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Test
+    void appliesTheBatchAndIsolatesPoisonMessages() {
+        UUID first = createOrder();
+        UUID second = createOrder();
+        double poisonBefore = meterRegistry.get("saga.events.poison").counter().count();
+        double fallbacksBefore = meterRegistry.get("saga.events.batch.fallbacks").counter().count();
+
+        Message unreadable = new Message("not json".getBytes(StandardCharsets.UTF_8), new MessageProperties());
+        unreadable.getMessageProperties().setHeader("__TypeId__", "PaymentProcessedEvent");
+
+        listener.onBatch(List.of(
+                message(new PaymentProcessedEvent(first.toString(), "PAY-1")),
+                unreadable,
+                message(new PaymentProcessedEvent(second.toString(), "PAY-2")),
+                // Unknown order: fails its handler and rolls the batch back
+                message(new PizzaPreparedEvent(UUID.randomUUID().toString(), "KITCHEN-1"))));
+
+        assertThat(orderRepository.findById(first).orElseThrow().getPaymentTransactionId()).isEqualTo("PAY-1");
+        assertThat(orderRepository.findById(second).orElseThrow().getPaymentTransactionId()).isEqualTo("PAY-2");
+        // Commands of the rolled-back batch attempt were never sent
+        verify(rabbitTemplate, times(2)).convertAndSend(anyString(), eq("kitchen.command"), any(PreparePizzaCommand.class));
+        assertThat(meterRegistry.get("saga.events.poison").counter().count()).isEqualTo(poisonBefore + 2);
+        assertThat(meterRegistry.get("saga.events.batch.fallbacks").counter().count()).isEqualTo(fallbacksBefore + 1);
+    }
+
+    @Test
+    void dropsEventsWithoutAValidOrderIdBeforeTheBatch() {
+        UUID orderId = createOrder();
+        double poisonBefore = meterRegistry.get("saga.events.poison").counter().count();
+        double fallbacksBefore = meterRegistry.get("saga.events.batch.fallbacks").counter().count();
+
+        listener.onBatch(List.of(
+                message(new PaymentProcessedEvent(null, "PAY-1")),
+                message(new PizzaPreparedEvent("not-a-uuid", "KITCHEN-1")),
+                message(new PaymentProcessedEvent(orderId.toString(), "PAY-2"))));
+
+        assertThat(orderRepository.findById(orderId).orElseThrow().getPaymentTransactionId()).isEqualTo("PAY-2");
+        assertThat(meterRegistry.get("saga.events.poison").counter().count()).isEqualTo(poisonBefore + 2);
+        // The healthy event committed with the first attempt
+        assertThat(meterRegistry.get("saga.events.batch.fallbacks").counter().count()).isEqualTo(fallbacksBefore);
+    }
+
+    @Test
+    void requeuesTheBatchWhenTheDatabaseFails() {
+        UUID orderId = createOrder();
+        double poisonBefore = meterRegistry.get("saga.events.poison").counter().count();
+        DataAccessResourceFailureException outage = new DataAccessResourceFailureException("Connection refused");
+        doThrow(outage).when(orderRepository).findAllById(any());
+        doThrow(outage).when(orderRepository).findById(any());
+
+        List<Message> batch = List.of(message(new PaymentProcessedEvent(orderId.toString(), "PAY-1")));
+        assertThatThrownBy(() -> listener.onBatch(batch)).isSameAs(outage);
+
+        assertThat(meterRegistry.get("saga.events.poison").counter().count()).isEqualTo(poisonBefore);
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), eq("kitchen.command"), any(PreparePizzaCommand.class));
+
+        // Redelivered once the database is back
+        reset(orderRepository);
+        listener.onBatch(batch);
+        assertThat(orderRepository.findById(orderId).orElseThrow().getPaymentTransactionId()).isEqualTo("PAY-1");
+    }
+
+    private UUID createOrder() {
+        return orderService.createOrder(new CreateOrderRequest("CUST001", "Margherita", 1, "123 Main Street")).getId();
+    }
+
+    private Message message(Object event) {
+        return messageConverter.toMessage(event, new MessageProperties());
+    }
+}
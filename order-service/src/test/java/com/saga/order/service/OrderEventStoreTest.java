@@ -0,0 +1,125 @@
+package com.saga.order.service;
+
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.contracts.event.DeliveryAssignedEvent;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.order.dto.CreateOrderRequest;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.entity.Order;
+import com.saga.order.entity.OrderEvent;
+import com.saga.order.repository.OrderRepository;
+import com.saga.order.repository.OrderSnapshotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "order.recovery.enabled=false",
+        "order.event-sourcing.enabled=true",
+        "order.event-sourcing.snapshot-every=3",
+        "order.journal.dir=target/test-journal/event-store-${random.uuid}"
+})
+class OrderEventStoreTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderEventStore orderEventStore;
+
+    @Autowired
+    private OrderTableProjector orderTableProjector;
+
+    @Autowired
+    private OrderSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Test
+    void loadsFromSnapshotPlusTailAndProjectsOrdersTable() {
+        UUID orderId = orderService.createOrder(
+                new CreateOrderRequest("CUST001", "Margherita", 2, "123 Main Street")).getId();
+        String id = orderId.toString();
+        orderService.handlePaymentProcessed(new PaymentProcessedEvent(id, "PAY-1"));
+        orderService.handlePizzaPrepared(new PizzaPreparedEvent(id, "KITCHEN-1"));
+        orderService.handleDeliveryAssigned(new DeliveryAssignedEvent(id, "DRIVER-1", null));
+
+        // CREATED, PAYMENT_PENDING, PAYMENT_COMPLETED, KITCHEN_PENDING, DELIVERY_PENDING, KITCHEN_COMPLETED, COMPLETED
+        assertThat(orderEventStore.history(orderId)).extracting(OrderEvent::getVersion)
+                .containsExactly(1, 2, 3, 4, 5, 6, 7);
+        assertThat(snapshotRepository.findById(orderId).orElseThrow().getVersion()).isEqualTo(6);
+
+        Order loaded = orderEventStore.load(orderId).orElseThrow();
+        assertThat(loaded.getStatus()).isEqualTo(OrderStatus.COMPLETED);
+        assertThat(loaded.getEventVersion()).isEqualTo(7);
+        assertThat(loaded.getPaymentTransactionId()).isEqualTo("PAY-1");
+        assertThat(loaded.getKitchenId()).isEqualTo("KITCHEN-1");
+        assertThat(loaded.getDriverId()).isEqualTo("DRIVER-1");
+        assertThat(loaded.getAmount()).isEqualTo(31.98);
+
+        Order replayed = orderEventStore.replay(orderId, 3).orElseThrow();
+        assertThat(replayed.getStatus()).isEqualTo(OrderStatus.PAYMENT_COMPLETED);
+        assertThat(replayed.getKitchenId()).isNull();
+
+        orderTableProjector.flush();
+        Order row = orderRepository.findById(orderId).orElseThrow();
+        assertThat(row.getStatus()).isEqualTo(OrderStatus.COMPLETED);
+        assertThat(row.getDriverId()).isEqualTo("DRIVER-1");
+    }
+
+    @Test
+    void keepsEveryStepResultWhicheverParallelStepFinishesFirst() {
+        UUID orderId = orderService.createOrder(
+                new CreateOrderRequest("CUST001", "Margherita", 1, "123 Main Street")).getId();
+        String id = orderId.toString();
+        orderService.handlePaymentProcessed(new PaymentProcessedEvent(id, "PAY-2"));
+        orderService.handleDeliveryAssigned(new DeliveryAssignedEvent(id, "DRIVER-2", null));
+
+        Order deliveredFirst = orderEventStore.load(orderId).orElseThrow();
+        assertThat(deliveredFirst.getStatus()).isEqualTo(OrderStatus.DELIVERY_ASSIGNED);
+        assertThat(deliveredFirst.getDriverId()).isEqualTo("DRIVER-2");
+        assertThat(deliveredFirst.getKitchenId()).isNull();
+
+        orderService.handlePizzaPrepared(new PizzaPreparedEvent(id, "KITCHEN-2"));
+
+        // The kitchen finishing last completes the saga instead of dispatching delivery again
+        verify(rabbitTemplate).convertAndSend(anyString(), eq("delivery.command"), any(AssignDeliveryCommand.class));
+        int last = orderEventStore.history(orderId).size();
+        Order replayed = orderEventStore.replay(orderId, last).orElseThrow();
+        assertThat(replayed.getStatus()).isEqualTo(OrderStatus.COMPLETED);
+        assertThat(replayed.getPaymentTransactionId()).isEqualTo("PAY-2");
+        assertThat(replayed.getKitchenId()).isEqualTo("KITCHEN-2");
+        assertThat(replayed.getDriverId()).isEqualTo("DRIVER-2");
+    }
+
+    @Test
+    void replayWithoutSnapshotsKeepsTheKitchenResultWhenDeliveryFinishesLast() {
+        UUID orderId = orderService.createOrder(
+                new CreateOrderRequest("CUST001", "Margherita", 1, "123 Main Street")).getId();
+        String id = orderId.toString();
+        orderService.handlePaymentProcessed(new PaymentProcessedEvent(id, "PAY-3"));
+        orderService.handlePizzaPrepared(new PizzaPreparedEvent(id, "KITCHEN-3"));
+        orderService.handleDeliveryAssigned(new DeliveryAssignedEvent(id, "DRIVER-3", null));
+
+        int last = orderEventStore.history(orderId).size();
+        Order replayed = orderEventStore.replay(orderId, last).orElseThrow();
+        assertThat(replayed.getStatus()).isEqualTo(OrderStatus.COMPLETED);
+        assertThat(replayed.getKitchenId()).isEqualTo("KITCHEN-3");
+        assertThat(replayed.getDriverId()).isEqualTo("DRIVER-3");
+    }
+}
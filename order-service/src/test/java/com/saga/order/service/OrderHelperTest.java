@@ -0,0 +1,81 @@
+package com.saga.order.service;
+
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.entity.Order;
+import com.saga.order.journal.SagaJournal;
+import com.saga.order.repository.OrderRepository;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderHelperTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final KitchenQueue kitchenQueue = new KitchenQueue();
+    private final OrderHelper orderHelper = new OrderHelper(mock(RabbitTemplate.class), orderRepository,
+            mock(OrderCache.class), mock(OrderProjection.class), mock(SagaMetrics.class), mock(SagaJournal.class),
+            kitchenQueue, mock(OrderEventStore.class), Tracer.NOOP, Clock.systemUTC());
+
+    @Test
+    void sagaEndingWithoutAKitchenReplyLeavesTheQueue() {
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Order timedOut = order();
+        Order prepared = order();
+        Order behind = order();
+
+        orderHelper.startKitchenProcess(timedOut);
+        orderHelper.startKitchenProcess(prepared);
+        orderHelper.startKitchenProcess(behind);
+        assertThat(kitchenQueue.position(behind.getId().toString())).isEqualTo(2);
+
+        orderHelper.eventReceived(prepared.getId().toString(),
+                new PizzaPreparedEvent(prepared.getId().toString(), "KITCHEN-1"));
+        orderHelper.transition(timedOut, OrderStatus.CANCELLED);
+
+        assertThat(kitchenQueue.size()).isEqualTo(1);
+        assertThat(kitchenQueue.position(timedOut.getId().toString())).isNull();
+        assertThat(kitchenQueue.position(behind.getId().toString())).isZero();
+
+        // A reply after the saga ended does not move the queue again
+        orderHelper.eventReceived(timedOut.getId().toString(),
+                new PizzaPreparedEvent(timedOut.getId().toString(), "KITCHEN-1"));
+        assertThat(kitchenQueue.position(behind.getId().toString())).isZero();
+    }
+
+    @Test
+    void discardedKitchenCommandGivesItsTicketBack() {
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Order rolledBack = order();
+        Order next = order();
+
+        orderHelper.holdCommands();
+        orderHelper.startKitchenProcess(rolledBack);
+        orderHelper.discardHeldCommands();
+        orderHelper.startKitchenProcess(next);
+
+        assertThat(kitchenQueue.size()).isEqualTo(1);
+        assertThat(kitchenQueue.position(rolledBack.getId().toString())).isNull();
+        assertThat(kitchenQueue.position(next.getId().toString())).isZero();
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setPizzaType("Margherita");
+        order.setQuantity(1);
+        order.setCustomerId("CUST001");
+        order.setStatus(OrderStatus.PAYMENT_PENDING);
+        order.setCreatedAt(LocalDateTime.now());
+        return order;
+    }
+}
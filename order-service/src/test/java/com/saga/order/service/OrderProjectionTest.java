@@ -0,0 +1,67 @@
+package com.saga.order.service;
+
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.entity.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderProjectionTest {
+
+    private final OrderProjection projection = new OrderProjection(48);
+
+    @Test
+    void transitionsMoveCountsBetweenStatuses() {
+        Order order = order("Margherita", 31.98, null);
+
+        projection.onTransition(order, null, OrderStatus.CREATED);
+        projection.onTransition(order, OrderStatus.CREATED, OrderStatus.PAYMENT_PENDING);
+        projection.onTransition(order, OrderStatus.PAYMENT_PENDING, OrderStatus.PAYMENT_PENDING);
+
+        assertThat(projection.countByStatus(OrderStatus.CREATED)).isZero();
+        assertThat(projection.countByStatus(OrderStatus.PAYMENT_PENDING)).isEqualTo(1);
+        assertThat(projection.pizzaTypeStats("Margherita").getOrders()).isEqualTo(1);
+    }
+
+    @Test
+    void completedOrdersAreCountedAsRevenue() {
+        Order margherita = order("Margherita", 31.98, null);
+        Order pepperoni = order("Pepperoni", 15.99, null);
+
+        projection.onTransition(margherita, null, OrderStatus.CREATED);
+        projection.onTransition(margherita, OrderStatus.CREATED, OrderStatus.COMPLETED);
+        projection.onTransition(pepperoni, null, OrderStatus.CREATED);
+        projection.onTransition(pepperoni, OrderStatus.CREATED, OrderStatus.CANCELLED);
+
+        assertThat(projection.revenueToday().getRevenue()).isEqualTo(31.98);
+        assertThat(projection.revenueLastHours(1).getRevenueByPizzaType()).containsOnlyKeys("Margherita");
+        assertThat(projection.pizzaTypeStats("Pepperoni").getCompleted()).isZero();
+    }
+
+    @Test
+    void rebuildReplacesIncrementalState() {
+        projection.onTransition(order("Hawaiian", 15.99, null), null, OrderStatus.CREATED);
+
+        long scanned = projection.rebuild(List.of(
+                order("Margherita", 15.99, OrderStatus.COMPLETED),
+                order("Margherita", 15.99, OrderStatus.KITCHEN_PENDING)));
+
+        assertThat(scanned).isEqualTo(2);
+        assertThat(projection.countByStatus(OrderStatus.CREATED)).isZero();
+        assertThat(projection.countByStatus(OrderStatus.KITCHEN_PENDING)).isEqualTo(1);
+        assertThat(projection.pizzaTypeStats()).containsOnlyKeys("Margherita");
+        assertThat(projection.pizzaTypeStats("Margherita").getRevenue()).isEqualTo(15.99);
+    }
+
+    private static Order order(String pizzaType, double amount, OrderStatus status) {
+        Order order = new Order();
+        order.setPizzaType(pizzaType);
+        order.setAmount(amount);
+        order.setStatus(status);
+        order.setCreatedAt(LocalDateTime.now());
+        return order;
+    }
+}
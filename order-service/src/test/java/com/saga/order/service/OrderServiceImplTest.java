@@ -0,0 +1,70 @@
+package com.saga.order.service;
+
+import com.saga.contracts.event.DeliveryAssignedEvent;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.order.dto.CreateOrderRequest;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.entity.Order;
+import com.saga.order.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "order.recovery.enabled=false",
+        "order.saga.parallel-steps=true",
+        "order.journal.dir=target/test-journal/order-service-${random.uuid}"
+})
+class OrderServiceImplTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Test
+    void concurrentParallelStepResultsAreBothKept() {
+        UUID orderId = orderService.createOrder(
+                new CreateOrderRequest("CUST001", "Margherita", 1, "123 Main Street")).getId();
+        orderService.handlePaymentProcessed(new PaymentProcessedEvent(orderId.toString(), "PAY-1"));
+        PizzaPreparedEvent prepared = new PizzaPreparedEvent(orderId.toString(), "KITCHEN-1");
+        DeliveryAssignedEvent assigned = new DeliveryAssignedEvent(orderId.toString(), "DRIVER-1", null);
+
+        // The kitchen's handler has read the order when the delivery's commits on another consumer
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.findById(orderId).orElseThrow();
+            CompletableFuture.runAsync(() -> orderService.handleDeliveryAssigned(assigned)).join();
+            orderService.handlePizzaPrepared(prepared);
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        Order afterConflict = orderRepository.findById(orderId).orElseThrow();
+        assertThat(afterConflict.getDriverId()).isEqualTo("DRIVER-1");
+        assertThat(afterConflict.getKitchenId()).isNull();
+
+        // Redelivered, the kitchen's result joins the delivery's and the saga completes
+        orderService.handlePizzaPrepared(prepared);
+
+        Order completed = orderRepository.findById(orderId).orElseThrow();
+        assertThat(completed.getStatus()).isEqualTo(OrderStatus.COMPLETED);
+        assertThat(completed.getKitchenId()).isEqualTo("KITCHEN-1");
+        assertThat(completed.getDriverId()).isEqualTo("DRIVER-1");
+    }
+}
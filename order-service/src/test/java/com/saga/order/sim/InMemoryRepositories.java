@@ -0,0 +1,153 @@
+package com.saga.order.sim;
+
+import com.saga.order.dto.CompensationStatus;
+import com.saga.order.dto.CompensationStep;
+import com.saga.order.entity.Compensation;
+import com.saga.order.entity.MenuItem;
+import com.saga.order.entity.Order;
+import com.saga.order.repository.CompensationRepository;
+import com.saga.order.repository.MenuItemRepository;
+import com.saga.order.repository.OrderRepository;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Map-backed stand-ins for the JPA repositories on the saga path.
+ * <p>
+ * Only the queries the orchestrator makes while running sagas are implemented; any other
+ * repository method throws. Ids are handed out in sequence and creation times come from the
+ * virtual clock, so a run does not depend on the wall clock.
+ */
+final class InMemoryRepositories {
+
+    private final VirtualClock clock;
+    private final Consumer<Order> onSaved;
+
+    private final Map<UUID, Order> orders = new HashMap<>();
+    private final Map<UUID, List<Compensation>> compensations = new HashMap<>();
+    /** Compensations awaiting acknowledgement, in dispatch order, for the sweep */
+    private final Map<UUID, Compensation> dispatched = new LinkedHashMap<>();
+    private final List<MenuItem> menuItems = new ArrayList<>();
+    private long ids;
+
+    /**
+     * @param onSaved called with every order saved, after it got its id
+     */
+    InMemoryRepositories(VirtualClock clock, Consumer<Order> onSaved) {
+        this.clock = clock;
+        this.onSaved = onSaved;
+    }
+
+    OrderRepository orders() {
+        return repository(OrderRepository.class, Map.of(
+                "save", args -> saveOrder((Order) args[0]),
+                "findById", args -> Optional.ofNullable(orders.get((UUID) args[0]))));
+    }
+
+    CompensationRepository compensations() {
+        return repository(CompensationRepository.class, Map.of(
+                "save", args -> saveCompensation((Compensation) args[0]),
+                "saveAll", args -> {
+                    List<Compensation> saved = new ArrayList<>();
+                    ((Iterable<?>) args[0]).forEach(c -> saved.add(saveCompensation((Compensation) c)));
+                    return saved;
+                },
+                "findByOrderId", args -> new ArrayList<>(compensations.getOrDefault((UUID) args[0], List.of())),
+                "findByOrderIdAndStep", args -> compensations.getOrDefault((UUID) args[0], List.of()).stream()
+                        .filter(c -> c.getStep() == (CompensationStep) args[1])
+                        .findFirst(),
+                "findByStatusAndDeadlineLessThan", args -> {
+                    if (args[0] != CompensationStatus.DISPATCHED) {
+                        throw new UnsupportedOperationException("Only dispatched compensations are swept");
+                    }
+                    long deadline = (Long) args[1];
+                    return dispatched.values().stream().filter(c -> c.getDeadline() < deadline).toList();
+                }));
+    }
+
+    MenuItemRepository menuItems() {
+        return repository(MenuItemRepository.class, Map.of(
+                "count", args -> (long) menuItems.size(),
+                "findAll", args -> List.copyOf(menuItems),
+                "saveAll", args -> {
+                    ((Iterable<?>) args[0]).forEach(item -> menuItems.add((MenuItem) item));
+                    return List.copyOf(menuItems);
+                }));
+    }
+
+    /**
+     * Drop an order and its compensations
+     */
+    void remove(UUID orderId) {
+        orders.remove(orderId);
+        List<Compensation> removed = compensations.remove(orderId);
+        if (removed != null) {
+            removed.forEach(c -> dispatched.remove(c.getId()));
+        }
+    }
+
+    /**
+     * Compensations still waiting for their participant
+     */
+    int dispatchedCompensations() {
+        return dispatched.size();
+    }
+
+    private Order saveOrder(Order order) {
+        // What @PrePersist and the id generator do, on virtual time
+        if (order.getId() == null) {
+            order.setId(nextId());
+        }
+        if (order.getCreatedAt() == null) {
+            order.setCreatedAt(LocalDateTime.ofInstant(clock.instant(), ZoneId.systemDefault()));
+        }
+        orders.put(order.getId(), order);
+        onSaved.accept(order);
+        return order;
+    }
+
+    private Compensation saveCompensation(Compensation compensation) {
+        if (compensation.getId() == null) {
+            compensation.setId(nextId());
+            compensations.computeIfAbsent(compensation.getOrderId(), id -> new ArrayList<>(3)).add(compensation);
+        }
+        if (compensation.getStatus() == CompensationStatus.DISPATCHED) {
+            dispatched.put(compensation.getId(), compensation);
+        } else {
+            dispatched.remove(compensation.getId());
+        }
+        return compensation;
+    }
+
+    private UUID nextId() {
+        return new UUID(0, ++ids);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R repository(Class<R> type, Map<String, Function<Object[], Object>> methods) {
+        return (R) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> body = methods.get(method.getName());
+            if (body != null) {
+                return body.apply(args);
+            }
+            return switch (method.getName()) {
+                case "toString" -> "In-memory " + type.getSimpleName();
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(
+                        type.getSimpleName() + "." + method.getName() + " is not simulated");
+            };
+        });
+    }
+}
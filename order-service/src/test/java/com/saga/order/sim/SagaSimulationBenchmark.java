@@ -0,0 +1,29 @@
+package com.saga.order.sim;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Runs {@link SagaSimulator} with the settings given as {@code saga.sim.*} system properties,
+ * a million orders by default, and prints the report with the wall-clock time it took.
+ * <p>
+ * Opt-in: {@code mvn test -Dtest=SagaSimulationBenchmark -Dsaga.bench=true [-Dsaga.sim.orders=5000000
+ * -Dsaga.sim.arrivals-per-second=2.8 -Dsaga.sim.payment-consumers=6 ...]}
+ */
+@EnabledIfSystemProperty(named = "saga.bench", matches = "true")
+class SagaSimulationBenchmark {
+
+    @Test
+    void simulate() {
+        SagaSimulator.Settings settings = SagaSimulator.Settings.fromSystemProperties();
+        System.out.println(settings);
+
+        long start = System.nanoTime();
+        SimulationReport report = new SagaSimulator(settings).run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.print(report.format());
+        System.out.printf("Simulated in %.1f s, %.0fx faster than real time%n",
+                seconds, report.virtualMillis() / 1000.0 / seconds);
+    }
+}
@@ -0,0 +1,399 @@
+package com.saga.order.sim;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.saga.contracts.event.DeliveryAssignedEvent;
+import com.saga.contracts.event.DeliveryCancelledEvent;
+import com.saga.contracts.event.DeliveryFailedEvent;
+import com.saga.contracts.event.KitchenFailedEvent;
+import com.saga.contracts.event.PaymentFailedEvent;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import com.saga.contracts.event.PaymentRefundedEvent;
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.contracts.event.PreparationCancelledEvent;
+import com.saga.order.config.RabbitMQConfig;
+import com.saga.order.config.SagaDefinitionConfig;
+import com.saga.order.dto.CreateOrderRequest;
+import com.saga.order.dto.OrderStatus;
+import com.saga.order.entity.Order;
+import com.saga.order.journal.SagaJournal;
+import com.saga.order.saga.SagaCoordinator;
+import com.saga.order.saga.SagaDefinition;
+import com.saga.order.service.CompensationEngine;
+import com.saga.order.service.KitchenQueue;
+import com.saga.order.service.MenuCatalog;
+import com.saga.order.service.OrderCache;
+import com.saga.order.service.OrderEventStore;
+import com.saga.order.service.OrderHelper;
+import com.saga.order.service.OrderProjection;
+import com.saga.order.service.OrderServiceImpl;
+import com.saga.order.service.SagaMetrics;
+import com.saga.runtime.startup.StartupTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.HdrHistogram.Histogram;
+import org.objenesis.ObjenesisStd;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Deterministic discrete-event simulation of the pizza order saga.
+ * <p>
+ * The orchestrator is the real one - {@link OrderServiceImpl}, {@link SagaCoordinator},
+ * {@link CompensationEngine} and the components behind them - running on a {@link VirtualClock}
+ * over {@link InMemoryRepositories}. The broker is a set of {@link SimulatedQueue}s, one per
+ * queue with its consumers, and the participants are {@link SimulatedParticipants}. Orders
+ * arrive as a Poisson process. Every delay is an event on the virtual clock, and all randomness
+ * comes from one seed, so a run takes as long as the orchestrator's code takes and the same
+ * settings always give the same report.
+ * <p>
+ * The journal is left out: it only makes history durable and takes no part in a saga's timing.
+ * Sagas that finished more than {@code retentionMillis} ago are forgotten, so a run of
+ * millions of orders holds only those in flight.
+ */
+final class SagaSimulator {
+
+    private static final long START_MILLIS = 1_767_225_600_000L;
+    private static final List<String> PIZZA_TYPES =
+            List.of("Margherita", "Pepperoni", "Vegetarian", "Hawaiian", "BBQ Chicken");
+    private static final int CUSTOMERS = 10_000;
+
+    // Compensation settings as in application.properties
+    private static final long COMPENSATION_TIMEOUT_MILLIS = 10_000;
+    private static final int COMPENSATION_MAX_ATTEMPTS = 3;
+    private static final long SWEEP_INTERVAL_MILLIS = 1_000;
+
+    /**
+     * Load, failure rates and timings of a run. Service times default to the sleeps and waits
+     * of the participants, consumers to their listener concurrency.
+     *
+     * @param arrivalsPerSecond  mean order arrival rate
+     * @param hopMillis          broker latency of every message
+     * @param orchestratorMillis time the orchestrator takes to handle one event
+     */
+    record Settings(long orders,
+                    double arrivalsPerSecond,
+                    long seed,
+                    boolean parallelSteps,
+                    double paymentFailureRate,
+                    double kitchenFailureRate,
+                    double deliveryFailureRate,
+                    long paymentMillis,
+                    long refundMillis,
+                    long kitchenMillis,
+                    long deliveryMillis,
+                    long orchestratorMillis,
+                    long hopMillis,
+                    int paymentConsumers,
+                    int kitchenConsumers,
+                    int deliveryConsumers,
+                    int orchestratorConsumers,
+                    long retentionMillis) {
+
+        /**
+         * Defaults, each overridable with a {@code saga.sim.*} system property
+         */
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Long.getLong("saga.sim.orders", 1_000_000),
+                    doubleProperty("saga.sim.arrivals-per-second", 2.5),
+                    Long.getLong("saga.sim.seed", 42),
+                    Boolean.parseBoolean(System.getProperty("saga.sim.parallel-steps", "true")),
+                    doubleProperty("saga.sim.payment-failure-rate", 0.05),
+                    doubleProperty("saga.sim.kitchen-failure-rate", 0.02),
+                    doubleProperty("saga.sim.delivery-failure-rate", 0.02),
+                    // Gateway call latency plus one payment
+                    Long.getLong("saga.sim.payment-ms", 1_005),
+                    Long.getLong("saga.sim.refund-ms", 500),
+                    Long.getLong("saga.sim.kitchen-ms", 2_000),
+                    // Dispatch window
+                    Long.getLong("saga.sim.delivery-ms", 1_500),
+                    Long.getLong("saga.sim.orchestrator-ms", 2),
+                    Long.getLong("saga.sim.hop-ms", 1),
+                    Integer.getInteger("saga.sim.payment-consumers", 3),
+                    Integer.getInteger("saga.sim.kitchen-consumers", 10),
+                    Integer.getInteger("saga.sim.delivery-consumers", 10),
+                    Integer.getInteger("saga.sim.orchestrator-consumers", 10),
+                    Long.getLong("saga.sim.retention-ms", 300_000));
+        }
+
+        Settings withLoad(long orders, double arrivalsPerSecond) {
+            return new Settings(orders, arrivalsPerSecond, seed, parallelSteps, paymentFailureRate,
+                    kitchenFailureRate, deliveryFailureRate, paymentMillis, refundMillis, kitchenMillis,
+                    deliveryMillis, orchestratorMillis, hopMillis, paymentConsumers, kitchenConsumers,
+                    deliveryConsumers, orchestratorConsumers, retentionMillis);
+        }
+
+        Settings withFailureRates(double payment, double kitchen, double delivery) {
+            return new Settings(orders, arrivalsPerSecond, seed, parallelSteps, payment, kitchen, delivery,
+                    paymentMillis, refundMillis, kitchenMillis, deliveryMillis, orchestratorMillis, hopMillis,
+                    paymentConsumers, kitchenConsumers, deliveryConsumers, orchestratorConsumers, retentionMillis);
+        }
+
+        private static double doubleProperty(String name, double defaultValue) {
+            String value = System.getProperty(name);
+            return value == null ? defaultValue : Double.parseDouble(value);
+        }
+    }
+
+    private record Finished(UUID orderId, long at) {
+    }
+
+    private final Settings settings;
+    private final VirtualClock clock = new VirtualClock(START_MILLIS);
+    private final SplittableRandom random;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InMemoryRepositories repositories;
+    private final SimulatedParticipants participants;
+    private final SimulatedQueue paymentQueue;
+    private final SimulatedQueue kitchenQueue;
+    private final SimulatedQueue deliveryQueue;
+    private final SimulatedQueue orderEventQueue;
+    private final OrderServiceImpl orderService;
+    private final CompensationEngine compensationEngine;
+
+    private final Map<OrderStatus, Histogram> sagaMillis = new EnumMap<>(OrderStatus.class);
+    private final Set<UUID> finished = new HashSet<>();
+    private final ArrayDeque<Finished> retained = new ArrayDeque<>();
+    private long arrived;
+    private long inTransit;
+    private long lastFinishedAt = START_MILLIS;
+    private long handlerErrors;
+
+    SagaSimulator(Settings settings) {
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.seed());
+        this.repositories = new InMemoryRepositories(clock, this::saved);
+        this.participants = new SimulatedParticipants(settings, random.split(), this::reply);
+        this.paymentQueue = new SimulatedQueue(RabbitMQConfig.PAYMENT_COMMAND_QUEUE, settings.paymentConsumers(),
+                clock, participants::payment);
+        this.kitchenQueue = new SimulatedQueue(RabbitMQConfig.KITCHEN_COMMAND_QUEUE, settings.kitchenConsumers(),
+                clock, participants::kitchen);
+        this.deliveryQueue = new SimulatedQueue(RabbitMQConfig.DELIVERY_COMMAND_QUEUE, settings.deliveryConsumers(),
+                clock, participants::delivery);
+        this.orderEventQueue = new SimulatedQueue(RabbitMQConfig.ORDER_EVENT_QUEUE, settings.orchestratorConsumers(),
+                clock, event -> new SimulatedQueue.Work(settings.orchestratorMillis(), () -> handle(event)));
+
+        // The orchestrator, wired as Spring would, minus the journal
+        OrderProjection orderProjection = new OrderProjection(48);
+        SagaMetrics sagaMetrics = new SagaMetrics(meterRegistry, orderProjection, new StartupTimer(meterRegistry));
+        OrderCache orderCache = new OrderCache(meterRegistry, 10_000, 300);
+        OrderEventStore orderEventStore = new OrderEventStore(null, null, null, null, null, null, false, 5);
+        SagaJournal sagaJournal = new ObjenesisStd().newInstance(NoJournal.class);
+        OrderHelper orderHelper = new OrderHelper(new Broker(), repositories.orders(), orderCache, orderProjection,
+                sagaMetrics, sagaJournal, new KitchenQueue(), orderEventStore, Tracer.NOOP, clock);
+        SagaDefinition sagaDefinition = new SagaDefinitionConfig().pizzaOrderSaga(settings.parallelSteps());
+        this.compensationEngine = new CompensationEngine(repositories.compensations(), orderHelper, sagaMetrics,
+                new TransactionTemplate(new NoTransactions()), sagaDefinition, clock, COMPENSATION_TIMEOUT_MILLIS,
+                COMPENSATION_TIMEOUT_MILLIS, COMPENSATION_TIMEOUT_MILLIS, COMPENSATION_MAX_ATTEMPTS,
+                SWEEP_INTERVAL_MILLIS);
+        SagaCoordinator sagaCoordinator = new SagaCoordinator(sagaDefinition, orderHelper, compensationEngine,
+                sagaMetrics, clock);
+        MenuCatalog menuCatalog = new MenuCatalog(repositories.menuItems(), meterRegistry);
+        menuCatalog.load();
+        this.orderService = new OrderServiceImpl(repositories.orders(), orderHelper, orderCache, orderProjection,
+                orderEventStore, compensationEngine, sagaCoordinator, menuCatalog);
+    }
+
+    /**
+     * Run every order through its saga, until nothing is left to happen
+     */
+    SimulationReport run() {
+        Logger sagaLogger = (Logger) LoggerFactory.getLogger("com.saga");
+        Level level = sagaLogger.getLevel();
+        // Millions of sagas would otherwise log tens of millions of lines
+        sagaLogger.setLevel(Level.OFF);
+        try {
+            clock.schedule(0, this::arrive);
+            clock.schedule(SWEEP_INTERVAL_MILLIS, this::sweep);
+            clock.run();
+        } finally {
+            sagaLogger.setLevel(level);
+        }
+
+        return new SimulationReport(
+                arrived,
+                lastFinishedAt - START_MILLIS,
+                sagaMillis,
+                List.of(paymentQueue.stats(), kitchenQueue.stats(), deliveryQueue.stats(), orderEventQueue.stats()),
+                count("saga.compensation.timeouts"),
+                count("saga.compensation.failures"),
+                handlerErrors);
+    }
+
+    private long count(String counter) {
+        return (long) meterRegistry.find(counter).counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    /**
+     * An order placed through the API; the next one is due after an exponential gap
+     */
+    private void arrive() {
+        retire();
+        arrived++;
+        CreateOrderRequest request = new CreateOrderRequest(
+                "CUST" + random.nextInt(CUSTOMERS),
+                PIZZA_TYPES.get(random.nextInt(PIZZA_TYPES.size())),
+                1 + random.nextInt(3),
+                random.nextInt(1, 1_000) + " Main Street");
+        orderService.createOrder(request);
+
+        if (arrived < settings.orders()) {
+            double gapSeconds = -Math.log(1 - random.nextDouble()) / settings.arrivalsPerSecond();
+            clock.schedule(Math.round(gapSeconds * 1000), this::arrive);
+        }
+    }
+
+    /**
+     * The compensation sweep, for as long as anything can still need it
+     */
+    private void sweep() {
+        compensationEngine.sweep();
+        if (arrived < settings.orders() || inTransit > 0 || repositories.dispatchedCompensations() > 0
+                || paymentQueue.outstanding() + kitchenQueue.outstanding() + deliveryQueue.outstanding()
+                + orderEventQueue.outstanding() > 0) {
+            clock.schedule(SWEEP_INTERVAL_MILLIS, this::sweep);
+        }
+    }
+
+    /**
+     * A message leaving a service; it reaches its queue after the broker hop
+     */
+    private void publish(String routingKey, Object message) {
+        SimulatedQueue queue = switch (routingKey) {
+            case RabbitMQConfig.PAYMENT_COMMAND_ROUTING_KEY -> paymentQueue;
+            case RabbitMQConfig.KITCHEN_COMMAND_ROUTING_KEY -> kitchenQueue;
+            case RabbitMQConfig.DELIVERY_COMMAND_ROUTING_KEY -> deliveryQueue;
+            default -> throw new IllegalArgumentException("No queue bound to " + routingKey);
+        };
+        deliver(queue, message);
+    }
+
+    private void reply(Object event) {
+        deliver(orderEventQueue, event);
+    }
+
+    private void deliver(SimulatedQueue queue, Object message) {
+        inTransit++;
+        clock.schedule(settings.hopMillis(), () -> {
+            inTransit--;
+            queue.deliver(message);
+        });
+    }
+
+    /**
+     * The orchestrator's listener, dispatching on the event type as its @RabbitHandler methods do
+     */
+    private void handle(Object event) {
+        try {
+            switch (event) {
+                case PaymentProcessedEvent e -> orderService.handlePaymentProcessed(e);
+                case PaymentFailedEvent e -> orderService.handlePaymentFailed(e);
+                case PaymentRefundedEvent e -> orderService.handlePaymentRefunded(e);
+                case PizzaPreparedEvent e -> orderService.handlePizzaPrepared(e);
+                case KitchenFailedEvent e -> orderService.handleKitchenFailed(e);
+                case PreparationCancelledEvent e -> orderService.handlePreparationCancelled(e);
+                case DeliveryAssignedEvent e -> orderService.handleDeliveryAssigned(e);
+                case DeliveryFailedEvent e -> orderService.handleDeliveryFailed(e);
+                case DeliveryCancelledEvent e -> orderService.handleDeliveryCancelled(e);
+                default -> throw new IllegalArgumentException("No handler for " + event.getClass().getSimpleName());
+            }
+        } catch (RuntimeException e) {
+            handlerErrors++;
+        }
+    }
+
+    /**
+     * Every order save; a saga reaching a terminal status is timed once and kept for the retention
+     */
+    private void saved(Order order) {
+        OrderStatus status = order.getStatus();
+        if (status == null || !status.isTerminal() || !finished.add(order.getId())) {
+            return;
+        }
+        long createdAt = order.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        sagaMillis.computeIfAbsent(status, s -> new Histogram(3)).recordValue(order.getStatusUpdatedAt() - createdAt);
+        retained.add(new Finished(order.getId(), clock.millis()));
+        lastFinishedAt = clock.millis();
+    }
+
+    /**
+     * Forget sagas that finished before the retention
+     */
+    private void retire() {
+        long cutoff = clock.millis() - settings.retentionMillis();
+        while (!retained.isEmpty() && retained.peek().at() < cutoff) {
+            UUID orderId = retained.poll().orderId();
+            finished.remove(orderId);
+            repositories.remove(orderId);
+            participants.retire(orderId.toString());
+        }
+    }
+
+    /**
+     * RabbitTemplate of the orchestrator, publishing into the simulated queues
+     */
+    private final class Broker extends RabbitTemplate {
+
+        @Override
+        public void convertAndSend(String exchange, String routingKey, Object message) {
+            SagaSimulator.this.publish(routingKey, message);
+        }
+    }
+
+    /**
+     * Journal that records nothing. It is created without running the constructor, which
+     * would open segment files and start the flusher; a mock costs a stack walk per call.
+     */
+    private static final class NoJournal extends SagaJournal {
+
+        private NoJournal() throws IOException {
+            super(null, null, null, 0, false, 0, 0);
+        }
+
+        @Override
+        public void recordTransition(Order order, OrderStatus from, OrderStatus to) {
+        }
+
+        @Override
+        public void recordEvent(String orderId, Object event) {
+        }
+    }
+
+    /**
+     * Transactions of the compensation sweep; the in-memory repositories have nothing to roll back
+     */
+    private static final class NoTransactions implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
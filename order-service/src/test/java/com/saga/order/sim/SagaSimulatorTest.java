@@ -0,0 +1,48 @@
+package com.saga.order.sim;
+
+import com.saga.order.dto.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SagaSimulatorTest {
+
+    private final SagaSimulator.Settings settings = SagaSimulator.Settings.fromSystemProperties()
+            .withLoad(3_000, 1.0)
+            .withFailureRates(0.1, 0.1, 0.1);
+
+    @Test
+    void sameSettingsGiveTheSameReport() {
+        SimulationReport first = new SagaSimulator(settings).run();
+        SimulationReport second = new SagaSimulator(settings).run();
+
+        assertThat(second.format()).isEqualTo(first.format());
+        assertThat(first.unfinished()).isZero();
+        assertThat(first.handlerErrors()).isZero();
+        assertThat(first.sagaMillis()).containsKeys(OrderStatus.COMPLETED, OrderStatus.PAYMENT_FAILED,
+                OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void completedSagaTakesThePaymentThenTheLongerOfKitchenAndDelivery() {
+        SimulationReport report = new SagaSimulator(settings.withFailureRates(0, 0, 0)).run();
+
+        long criticalPath = settings.paymentMillis() + Math.max(settings.kitchenMillis(), settings.deliveryMillis());
+        assertThat(report.sagaMillis()).containsOnlyKeys(OrderStatus.COMPLETED);
+        assertThat(report.sagaMillis().get(OrderStatus.COMPLETED).getValueAtPercentile(50))
+                .isBetween(criticalPath, criticalPath + 50);
+    }
+
+    @Test
+    void paymentQueueGrowsOnceArrivalsOutpaceItsConsumers() {
+        double capacity = settings.paymentConsumers() * 1000.0 / settings.paymentMillis();
+
+        SimulationReport below = new SagaSimulator(settings.withLoad(3_000, capacity * 0.5)).run();
+        SimulationReport above = new SagaSimulator(settings.withLoad(3_000, capacity * 1.2)).run();
+
+        assertThat(below.queues().getFirst().waitMillis().getValueAtPercentile(99)).isLessThan(5_000);
+        assertThat(above.queues().getFirst().waitMillis().getMaxValue()).isGreaterThan(60_000);
+        assertThat(above.queues().getFirst().length().getMaxValue()).isGreaterThan(100);
+        assertThat(above.throughput()).isLessThan(capacity * 1.05);
+    }
+}
@@ -0,0 +1,168 @@
+package com.saga.order.sim;
+
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.contracts.command.CancelDeliveryCommand;
+import com.saga.contracts.command.CancelPreparationCommand;
+import com.saga.contracts.command.PreparePizzaCommand;
+import com.saga.contracts.command.ProcessPaymentCommand;
+import com.saga.contracts.command.RefundPaymentCommand;
+import com.saga.contracts.event.DeliveryAssignedEvent;
+import com.saga.contracts.event.DeliveryCancelledEvent;
+import com.saga.contracts.event.DeliveryFailedEvent;
+import com.saga.contracts.event.KitchenFailedEvent;
+import com.saga.contracts.event.PaymentFailedEvent;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import com.saga.contracts.event.PaymentRefundedEvent;
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.contracts.event.PreparationCancelledEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Stand-ins for the payment, kitchen and delivery services.
+ * <p>
+ * They make the decisions of PaymentServiceImpl, KitchenServiceImpl and DeliveryServiceImpl:
+ * a duplicate command gets the earlier result again, a step fails with the configured
+ * probability, and every undo command is acknowledged, also when there is nothing to undo.
+ * Their sleeps and waits become service times on the virtual clock. Those services are separate
+ * applications, so their classes cannot be loaded next to the orchestrator.
+ */
+final class SimulatedParticipants {
+
+    private enum Status {
+        COMPLETED, FAILED, UNDONE
+    }
+
+    /**
+     * What a participant keeps per order: the outcome of the step and its reference
+     */
+    private record Record(Status status, String reference, Object result) {
+    }
+
+    private final SagaSimulator.Settings settings;
+    private final Consumer<Object> replies;
+    private final SplittableRandom random;
+
+    private final Map<String, Record> payments = new HashMap<>();
+    private final Map<String, Record> kitchens = new HashMap<>();
+    private final Map<String, Record> deliveries = new HashMap<>();
+    private long references;
+
+    SimulatedParticipants(SagaSimulator.Settings settings, SplittableRandom random, Consumer<Object> replies) {
+        this.settings = settings;
+        this.random = random;
+        this.replies = replies;
+    }
+
+    /**
+     * Handle a payment command: authorize with the gateway, or refund
+     */
+    SimulatedQueue.Work payment(Object command) {
+        return switch (command) {
+            case ProcessPaymentCommand process -> {
+                Record existing = payments.get(process.getOrderId());
+                if (existing != null) {
+                    yield reply(0, existing.result());
+                }
+                Object result = random.nextDouble() < settings.paymentFailureRate()
+                        ? new PaymentFailedEvent(process.getOrderId(), "Insufficient funds or card declined")
+                        : new PaymentProcessedEvent(process.getOrderId(), "PAY-" + ++references);
+                payments.put(process.getOrderId(), result instanceof PaymentProcessedEvent processed
+                        ? new Record(Status.COMPLETED, processed.getTransactionId(), result)
+                        : new Record(Status.FAILED, null, result));
+                yield reply(settings.paymentMillis(), result);
+            }
+            case RefundPaymentCommand refund -> {
+                Record existing = payments.get(refund.getOrderId());
+                PaymentRefundedEvent refunded = new PaymentRefundedEvent(refund.getOrderId());
+                if (existing == null || existing.status() != Status.COMPLETED) {
+                    // Never charged or refunded already
+                    yield reply(0, refunded);
+                }
+                payments.put(refund.getOrderId(), new Record(Status.UNDONE, existing.reference(), existing.result()));
+                yield reply(settings.refundMillis(), refunded);
+            }
+            default -> throw new IllegalArgumentException("Not a payment command: " + command);
+        };
+    }
+
+    /**
+     * Handle a kitchen command: prepare the pizzas, or cancel them
+     */
+    SimulatedQueue.Work kitchen(Object command) {
+        return switch (command) {
+            case PreparePizzaCommand prepare -> {
+                Record existing = kitchens.get(prepare.getOrderId());
+                if (existing != null) {
+                    yield reply(0, existing.result());
+                }
+                String kitchenId = "KITCHEN-" + ++references;
+                Object result = random.nextDouble() < settings.kitchenFailureRate()
+                        ? new KitchenFailedEvent(prepare.getOrderId(), "Kitchen capacity full")
+                        : new PizzaPreparedEvent(prepare.getOrderId(), kitchenId);
+                kitchens.put(prepare.getOrderId(), new Record(
+                        result instanceof PizzaPreparedEvent ? Status.COMPLETED : Status.FAILED, kitchenId, result));
+                yield reply(settings.kitchenMillis(), result);
+            }
+            case CancelPreparationCommand cancel -> {
+                Record existing = kitchens.get(cancel.getOrderId());
+                if (existing != null) {
+                    kitchens.put(cancel.getOrderId(), new Record(Status.UNDONE, existing.reference(), existing.result()));
+                }
+                yield reply(0, new PreparationCancelledEvent(cancel.getOrderId(),
+                        existing == null ? null : existing.reference()));
+            }
+            default -> throw new IllegalArgumentException("Not a kitchen command: " + command);
+        };
+    }
+
+    /**
+     * Handle a delivery command: put the order on a route after the dispatch window, or cancel it
+     */
+    SimulatedQueue.Work delivery(Object command) {
+        return switch (command) {
+            case AssignDeliveryCommand assign -> {
+                Record existing = deliveries.get(assign.getOrderId());
+                if (existing != null) {
+                    yield reply(0, existing.result());
+                }
+                if (random.nextDouble() < settings.deliveryFailureRate()) {
+                    // No driver in the area fails right away, before the dispatch window
+                    Object failed = new DeliveryFailedEvent(assign.getOrderId(), "No drivers available in the area");
+                    deliveries.put(assign.getOrderId(), new Record(Status.FAILED, null, failed));
+                    yield reply(0, failed);
+                }
+                // No routes are planned here, so there is no arrival time to estimate
+                String driverId = "DRIVER-" + ++references;
+                Object assigned = new DeliveryAssignedEvent(assign.getOrderId(), driverId, null);
+                deliveries.put(assign.getOrderId(), new Record(Status.COMPLETED, driverId, assigned));
+                yield reply(settings.deliveryMillis(), assigned);
+            }
+            case CancelDeliveryCommand cancel -> {
+                Record existing = deliveries.get(cancel.getOrderId());
+                if (existing != null) {
+                    deliveries.put(cancel.getOrderId(), new Record(Status.UNDONE, existing.reference(), existing.result()));
+                }
+                yield reply(0, new DeliveryCancelledEvent(cancel.getOrderId(),
+                        existing == null ? null : existing.reference()));
+            }
+            default -> throw new IllegalArgumentException("Not a delivery command: " + command);
+        };
+    }
+
+    /**
+     * Forget an order whose saga finished long enough ago
+     */
+    void retire(String orderId) {
+        payments.remove(orderId);
+        kitchens.remove(orderId);
+        deliveries.remove(orderId);
+    }
+
+    private SimulatedQueue.Work reply(long serviceMillis, Object event) {
+        return new SimulatedQueue.Work(serviceMillis, () -> replies.accept(event));
+    }
+}
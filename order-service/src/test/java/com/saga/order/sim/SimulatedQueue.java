@@ -0,0 +1,89 @@
+package com.saga.order.sim;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayDeque;
+import java.util.function.Function;
+
+/**
+ * A queue and the listener container consuming it.
+ * <p>
+ * A message waits until one of the consumers is free, then holds it for the service time its
+ * handler asks for; the handler's work takes effect when that time is up. The number of
+ * messages waiting is recorded weighted by how long it lasted, so its percentiles are shares of
+ * virtual time, next to how long each message waited for a consumer.
+ */
+final class SimulatedQueue {
+
+    /**
+     * What handling one message takes: a consumer for {@code serviceMillis}, then {@code complete}
+     */
+    record Work(long serviceMillis, Runnable complete) {
+    }
+
+    private record Waiting(Object message, long enqueuedAt) {
+    }
+
+    private final String name;
+    private final int consumers;
+    private final VirtualClock clock;
+    private final Function<Object, Work> handler;
+
+    private final ArrayDeque<Waiting> waiting = new ArrayDeque<>();
+    private final Histogram length = new Histogram(3);
+    private final Histogram waitMillis = new Histogram(3);
+    private int busy;
+    private long lengthSince;
+
+    SimulatedQueue(String name, int consumers, VirtualClock clock, Function<Object, Work> handler) {
+        this.name = name;
+        this.consumers = Math.max(1, consumers);
+        this.clock = clock;
+        this.handler = handler;
+        this.lengthSince = clock.millis();
+    }
+
+    void deliver(Object message) {
+        recordLength();
+        waiting.add(new Waiting(message, clock.millis()));
+        drain();
+    }
+
+    /**
+     * Messages waiting or being handled
+     */
+    int outstanding() {
+        return waiting.size() + busy;
+    }
+
+    /**
+     * Statistics of the run so far
+     */
+    SimulationReport.QueueStats stats() {
+        recordLength();
+        return new SimulationReport.QueueStats(name, consumers, waitMillis.getTotalCount(), waitMillis, length);
+    }
+
+    private void drain() {
+        while (busy < consumers && !waiting.isEmpty()) {
+            recordLength();
+            Waiting next = waiting.poll();
+            waitMillis.recordValue(clock.millis() - next.enqueuedAt());
+            busy++;
+            Work work = handler.apply(next.message());
+            clock.schedule(work.serviceMillis(), () -> {
+                busy--;
+                work.complete().run();
+                drain();
+            });
+        }
+    }
+
+    private void recordLength() {
+        long now = clock.millis();
+        if (now > lengthSince) {
+            length.recordValueWithCount(waiting.size(), now - lengthSince);
+            lengthSince = now;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.saga.order.sim;
+
+import com.saga.order.dto.OrderStatus;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a simulated run, for capacity planning.
+ *
+ * @param virtualMillis        virtual time from the first order to the last saga finishing
+ * @param sagaMillis           end-to-end saga latency per terminal status
+ * @param compensationTimeouts undo commands not acknowledged in time, from the orchestrator's metrics
+ * @param compensationsGivenUp undo commands given up after the last attempt
+ * @param handlerErrors        events the orchestrator failed to handle, e.g. for an order already forgotten
+ */
+record SimulationReport(long orders,
+                        long virtualMillis,
+                        Map<OrderStatus, Histogram> sagaMillis,
+                        List<QueueStats> queues,
+                        long compensationTimeouts,
+                        long compensationsGivenUp,
+                        long handlerErrors) {
+
+    /**
+     * One queue and its consumers
+     *
+     * @param waitMillis how long messages waited for a consumer
+     * @param length     messages waiting, weighted by virtual time
+     */
+    record QueueStats(String name, int consumers, long messages, Histogram waitMillis, Histogram length) {
+    }
+
+    long finished() {
+        return sagaMillis.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    /**
+     * Sagas that never reached a terminal status, e.g. because a compensation was given up
+     */
+    long unfinished() {
+        return orders - finished();
+    }
+
+    /**
+     * Finished sagas per virtual second
+     */
+    double throughput() {
+        return virtualMillis == 0 ? 0 : finished() * 1000.0 / virtualMillis;
+    }
+
+    String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%,d orders over %s of virtual time, %.2f sagas/s finished, %,d unfinished%n",
+                orders, Duration.ofMillis(virtualMillis), throughput(), unfinished()));
+
+        out.append(String.format("%-24s %10s %8s %8s %8s %8s %8s%n",
+                "Saga latency (ms)", "sagas", "p50", "p90", "p99", "p99.9", "max"));
+        sagaMillis.forEach((status, histogram) -> out.append(String.format("%-24s %,10d %8d %8d %8d %8d %8d%n",
+                status, histogram.getTotalCount(), histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9), histogram.getMaxValue())));
+
+        out.append(String.format("%-24s %9s %10s %9s %9s %9s %8s %8s %8s%n", "Queue", "consumers", "messages",
+                "wait p50", "wait p99", "wait max", "len mean", "len p99", "len max"));
+        for (QueueStats queue : queues) {
+            out.append(String.format("%-24s %9d %,10d %9d %9d %9d %8.1f %8d %8d%n", queue.name(), queue.consumers(),
+                    queue.messages(), queue.waitMillis().getValueAtPercentile(50),
+                    queue.waitMillis().getValueAtPercentile(99), queue.waitMillis().getMaxValue(),
+                    queue.length().getMean(), queue.length().getValueAtPercentile(99), queue.length().getMaxValue()));
+        }
+
+        out.append(String.format("Compensation timeouts %,d, given up %,d; orchestrator handler errors %,d%n",
+                compensationTimeouts, compensationsGivenUp, handlerErrors));
+        return out.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.saga.order.sim;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Virtual time of a simulation and the events scheduled on it.
+ * <p>
+ * Time only moves when the next event is taken, straight to the millisecond it was scheduled
+ * for, so a second of sleeping costs nothing. Events due at the same millisecond run in the
+ * order they were scheduled, which makes a run a pure function of its inputs.
+ */
+final class VirtualClock extends Clock {
+
+    private record Event(long at, long sequence, Runnable action) {
+    }
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>(
+            Comparator.comparingLong(Event::at).thenComparingLong(Event::sequence));
+
+    private long now;
+    private long sequence;
+
+    VirtualClock(long startMillis) {
+        this.now = startMillis;
+    }
+
+    /**
+     * Run the action once the given virtual time has passed
+     */
+    void schedule(long delayMillis, Runnable action) {
+        events.add(new Event(now + Math.max(0, delayMillis), sequence++, action));
+    }
+
+    /**
+     * Run events in time order until none are left; returns the number run
+     */
+    long run() {
+        long ran = 0;
+        Event event;
+        while ((event = events.poll()) != null) {
+            now = event.at();
+            event.action().run();
+            ran++;
+        }
+        return ran;
+    }
+
+    @Override
+    public long millis() {
+        return now;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(now);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException("Virtual time is kept in UTC");
+    }
+}
@@ -0,0 +1,29 @@
+package com.saga.payment.config;
+
+import com.saga.contracts.command.ProcessPaymentCommand;
+import com.saga.contracts.command.RefundPaymentCommand;
+import com.saga.contracts.event.PaymentFailedEvent;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import com.saga.contracts.event.PaymentRefundedEvent;
+import com.saga.runtime.metrics.ParticipantMetrics;
+import com.saga.runtime.startup.StartupTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * The messages the payment participant counts and times: the commands it handles and the
+ * events it answers with
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public ParticipantMetrics paymentMetrics(MeterRegistry meterRegistry, StartupTimer startupTimer) {
+        return new ParticipantMetrics(meterRegistry, startupTimer,
+                List.of(ProcessPaymentCommand.class, RefundPaymentCommand.class),
+                List.of(PaymentProcessedEvent.class, PaymentFailedEvent.class, PaymentRefundedEvent.class));
+    }
+}
@@ -0,0 +1,54 @@
+package com.saga.payment.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saga.payment.gateway.HttpPaymentGateway;
+import com.saga.payment.gateway.PaymentGateway;
+import com.saga.payment.gateway.ResilientPaymentGateway;
+import com.saga.payment.gateway.StubPaymentGateway;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * The gateway used for authorizations: the remote acquirer at payment.gateway.url, or the local
+ * stub when none is set, behind the bulkhead, circuit breaker, deadline and hedging guards
+ */
+@Slf4j
+@Configuration
+public class PaymentGatewayConfig {
+
+    @Bean
+    @Primary
+    public ResilientPaymentGateway paymentGateway(
+            StubPaymentGateway stubPaymentGateway,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${payment.gateway.url:}") String url,
+            @Value("${payment.gateway.client.max-concurrent:8}") int maxConcurrent,
+            @Value("${payment.gateway.client.bulkhead-wait-ms:100}") long bulkheadWaitMillis,
+            @Value("${payment.gateway.client.deadline-ms:5000}") long deadlineMillis,
+            @Value("${payment.gateway.client.circuit.window-size:20}") int windowSize,
+            @Value("${payment.gateway.client.circuit.minimum-calls:10}") int minimumCalls,
+            @Value("${payment.gateway.client.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${payment.gateway.client.circuit.open-ms:10000}") long openMillis,
+            @Value("${payment.gateway.client.hedge.enabled:true}") boolean hedging,
+            @Value("${payment.gateway.client.hedge.min-samples:20}") int hedgeMinSamples,
+            @Value("${payment.gateway.client.hedge.min-delay-ms:50}") long hedgeMinDelayMillis) {
+        PaymentGateway delegate = url.isBlank()
+                ? stubPaymentGateway
+                : new HttpPaymentGateway(url, objectMapper, Duration.ofMillis(deadlineMillis));
+        log.info("Payment gateway configured {}", kv("gateway", url.isBlank() ? "stub" : url));
+
+        return new ResilientPaymentGateway(delegate, new ResilientPaymentGateway.Settings(
+                maxConcurrent, bulkheadWaitMillis, deadlineMillis,
+                windowSize, minimumCalls, failureRateThreshold, openMillis,
+                hedging, hedgeMinSamples, hedgeMinDelayMillis), meterRegistry);
+    }
+}
@@ -0,0 +1,21 @@
+package com.saga.payment.config;
+
+import com.saga.payment.repository.PaymentRepository;
+import com.saga.runtime.startup.WarmupTask;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+/**
+ * What the shared startup warm-up runs on top of message conversion: the listener's repository
+ * lookup, for orders that do not exist
+ */
+@Configuration
+public class WarmupConfig {
+
+    @Bean
+    public WarmupTask paymentLookup(PaymentRepository paymentRepository) {
+        return () -> paymentRepository.findByOrderId(UUID.randomUUID());
+    }
+}
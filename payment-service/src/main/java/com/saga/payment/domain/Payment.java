@@ -1,11 +1,15 @@
 package com.saga.payment.domain;
 
+import com.saga.runtime.id.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Table(name = "payments")
@@ -15,11 +19,14 @@ import java.time.LocalDateTime;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private String id;
-
-    @Column(nullable = false, unique = true)
-    private String orderId;
+    @TimeOrderedId
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID id;
+
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(nullable = false, unique = true, length = 16)
+    private UUID orderId;
 
     @Column(nullable = false)
     private String customerId;
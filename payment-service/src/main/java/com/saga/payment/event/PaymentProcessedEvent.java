@@ -1,15 +0,0 @@
-package com.saga.payment.event;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-import java.io.Serializable;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class PaymentProcessedEvent implements Serializable {
-    private String orderId;
-    private String transactionId;
-}
\ No newline at end of file
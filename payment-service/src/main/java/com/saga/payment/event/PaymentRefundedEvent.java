@@ -1,14 +0,0 @@
-package com.saga.payment.event;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-import java.io.Serializable;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class PaymentRefundedEvent implements Serializable {
-    private String orderId;
-}
\ No newline at end of file
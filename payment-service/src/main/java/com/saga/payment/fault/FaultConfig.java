@@ -0,0 +1,27 @@
+package com.saga.payment.fault;
+
+import com.saga.runtime.fault.FaultInjector;
+import com.saga.runtime.fault.FaultRule;
+import com.saga.runtime.fault.LatencyDistribution;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Fault injection into the payment steps. The default rule is a fixed half-second refund;
+ * declines at the configured {@code payment.failure.simulation.rate} come from the gateway, as
+ * the acquirer's own.
+ */
+@Configuration
+public class FaultConfig {
+
+    private static final long REFUND_MILLIS = 500;
+
+    @Bean
+    public FaultInjector<FaultStep> faultInjector(MeterRegistry meterRegistry) {
+        return new FaultInjector<>(FaultStep.class, List.of(new FaultRule<>(FaultStep.REFUND, null, null,
+                new LatencyDistribution.Fixed(REFUND_MILLIS), 0, null, 0)), meterRegistry);
+    }
+}
@@ -0,0 +1,23 @@
+package com.saga.payment.fault;
+
+import com.saga.runtime.fault.InjectableStep;
+
+/**
+ * Steps of the payment participant that faults can be injected into
+ */
+public enum FaultStep implements InjectableStep {
+
+    PAYMENT("Insufficient funds or card declined"),
+    REFUND(null);
+
+    private final String declineReason;
+
+    FaultStep(String declineReason) {
+        this.declineReason = declineReason;
+    }
+
+    @Override
+    public String declineReason() {
+        return declineReason;
+    }
+}
@@ -0,0 +1,129 @@
+package com.saga.payment.gateway;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongSupplier;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Failure-rate circuit breaker over the outcomes of the last window-size calls.
+ * <p>
+ * While CLOSED every call is allowed. Once at least minimum-calls outcomes are recorded and
+ * the share of failures reaches the threshold, the breaker OPENs and rejects every call for
+ * open-ms. It then goes HALF_OPEN and lets a single trial call through: success closes it with
+ * a fresh window, failure opens it again.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] outcomes;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openMillis) {
+        this(windowSize, minimumCalls, failureRateThreshold, openMillis, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openMillis, LongSupplier clock) {
+        this.outcomes = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.clamp(minimumCalls, 1, outcomes.length);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openMillis * 1_000_000;
+        this.clock = clock;
+    }
+
+    /**
+     * Whether a call may go ahead. A caller that is allowed must report the outcome with
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            log.info("Payment gateway circuit half-open, allowing a trial call");
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) {
+                    yield false;
+                }
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            reset();
+            state = State.CLOSED;
+            log.info("Payment gateway circuit closed");
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls && failureRate() >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized double failureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        log.warn("Payment gateway circuit open {} {}", kv("failureRate", failureRate()), kv("calls", recorded));
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        reset();
+    }
+
+    private void reset() {
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,27 @@
+package com.saga.payment.gateway;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a gateway call was not made or not finished, so none of its payments were
+ * authorized
+ */
+@Getter
+public class GatewayUnavailableException extends RuntimeException {
+
+    public enum Reason {
+        /** All concurrent calls are in use */
+        BULKHEAD_FULL,
+        /** The circuit breaker is open after too many failed calls */
+        CIRCUIT_OPEN,
+        /** The call did not finish before its deadline */
+        DEADLINE_EXCEEDED
+    }
+
+    private final Reason reason;
+
+    public GatewayUnavailableException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+}
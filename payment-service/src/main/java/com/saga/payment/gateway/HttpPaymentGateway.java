@@ -0,0 +1,87 @@
+package com.saga.payment.gateway;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Calls a remote acquirer over HTTP.
+ * <p>
+ * A batch is POSTed as a JSON array to {@code <base-url>/authorizations} and the reply is the
+ * JSON array of results. Every request in the array carries its own idempotency key, so the
+ * gateway answers a repeated authorization with its original result even when it comes back in
+ * a differently composed batch (a redelivered command, a hedged call), and calls may be hedged.
+ */
+@Slf4j
+public class HttpPaymentGateway implements PaymentGateway {
+
+    private static final TypeReference<List<AuthorizationResult>> RESULTS = new TypeReference<>() {
+    };
+
+    private final URI authorizations;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+
+    public HttpPaymentGateway(String baseUrl, ObjectMapper objectMapper, Duration timeout) {
+        this.authorizations = URI.create(baseUrl.replaceAll("/+$", "") + "/authorizations");
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public List<AuthorizationResult> authorize(List<AuthorizationRequest> requests) {
+        HttpRequest request = HttpRequest.newBuilder(authorizations)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(write(requests)))
+                .build();
+
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Payment gateway call failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted calling the payment gateway", e);
+        }
+
+        if (response.statusCode() != 200) {
+            log.warn("Payment gateway error {} {}", kv("status", response.statusCode()), kv("payments", requests.size()));
+            throw new IllegalStateException("Payment gateway returned HTTP " + response.statusCode());
+        }
+        try {
+            return objectMapper.readValue(response.body(), RESULTS);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable payment gateway reply: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean idempotent() {
+        return true;
+    }
+
+    private byte[] write(List<AuthorizationRequest> requests) {
+        try {
+            return objectMapper.writeValueAsBytes(requests);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write payment gateway request", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.saga.payment.gateway;
+
+import java.util.List;
+
+/**
+ * The acquirer's authorization API.
+ * <p>
+ * Authorizes a batch of payments in one call. Results come back in request order, one per
+ * request; a declined payment is a result, not an exception. An exception means the call
+ * itself failed and none of the payments were authorized.
+ */
+public interface PaymentGateway {
+
+    List<AuthorizationResult> authorize(List<AuthorizationRequest> requests);
+
+    /**
+     * Whether repeating a call with the same requests is safe, e.g. because the gateway
+     * deduplicates on an idempotency key. Only idempotent calls are hedged.
+     */
+    default boolean idempotent() {
+        return false;
+    }
+
+    /**
+     * @param idempotencyKey identifies this authorization at the gateway, which answers a repeat
+     *                       of it with the original result whatever batch it arrives in
+     */
+    record AuthorizationRequest(String orderId, String idempotencyKey, String customerId, double amount) {
+
+        /**
+         * An authorization keyed by its order id; each order is charged at most once
+         */
+        public AuthorizationRequest(String orderId, String customerId, double amount) {
+            this(orderId, orderId, customerId, amount);
+        }
+    }
+
+    record AuthorizationResult(String orderId, boolean approved, String declineReason) {
+
+        public static AuthorizationResult approved(String orderId) {
+            return new AuthorizationResult(orderId, true, null);
+        }
+
+        public static AuthorizationResult declined(String orderId, String reason) {
+            return new AuthorizationResult(orderId, false, reason);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.saga.payment.gateway;
+
+import com.saga.payment.gateway.GatewayUnavailableException.Reason;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Guards calls to another gateway so a slow or failing acquirer cannot tie up the service.
+ * <ul>
+ *     <li>Bulkhead - at most max-concurrent calls run at once; a call waits up to
+ *     bulkhead-wait-ms for a slot and is rejected after that</li>
+ *     <li>Circuit breaker - see {@link CircuitBreaker}; calls are rejected without reaching the
+ *     gateway while it is open</li>
+ *     <li>Deadline - a call not finished after deadline-ms is abandoned and counts as a failure</li>
+ *     <li>Hedging - if the gateway is {@link PaymentGateway#idempotent() idempotent}, a call still
+ *     running after the p95 of recent call latencies is sent a second time and the first
+ *     successful reply wins. Hedging waits for min-samples latencies before it starts.</li>
+ * </ul>
+ * Rejections and abandoned calls throw {@link GatewayUnavailableException}; errors from the
+ * gateway itself are rethrown as they are.
+ */
+@Slf4j
+public class ResilientPaymentGateway implements PaymentGateway, AutoCloseable {
+
+    /**
+     * Tuning of the guards
+     *
+     * @param hedgeMinDelayMillis lower bound of the hedge delay, so a fast gateway is not hit twice
+     */
+    public record Settings(int maxConcurrent, long bulkheadWaitMillis, long deadlineMillis,
+                           int windowSize, int minimumCalls, double failureRateThreshold, long openMillis,
+                           boolean hedging, int hedgeMinSamples, long hedgeMinDelayMillis) {
+    }
+
+    private final PaymentGateway delegate;
+    private final Settings settings;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyWindow latencies = new LatencyWindow(128);
+    private final boolean hedging;
+
+    private final ExecutorService callers;
+    private final ScheduledExecutorService hedgeTimer;
+
+    private final Timer callDuration;
+    private final Map<Reason, Counter> rejections = new EnumMap<>(Reason.class);
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+
+    public ResilientPaymentGateway(PaymentGateway delegate, Settings settings, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.bulkhead = new Semaphore(Math.max(1, settings.maxConcurrent()));
+        this.circuitBreaker = new CircuitBreaker(settings.windowSize(), settings.minimumCalls(),
+                settings.failureRateThreshold(), settings.openMillis());
+        this.hedging = settings.hedging() && delegate.idempotent();
+
+        AtomicInteger callerCount = new AtomicInteger();
+        this.callers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "payment-gateway-call-" + callerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.hedgeTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-gateway-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.callDuration = Timer.builder("payment.gateway.client.duration")
+                .description("Time per guarded gateway call, including a hedged duplicate")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        for (Reason reason : Reason.values()) {
+            rejections.put(reason, Counter.builder("payment.gateway.client.rejections")
+                    .description("Gateway calls rejected or abandoned by the client guards")
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.hedgesSent = Counter.builder("payment.gateway.client.hedges")
+                .description("Duplicate gateway calls sent because the first was slower than p95")
+                .register(meterRegistry);
+        this.hedgesWon = Counter.builder("payment.gateway.client.hedges.won")
+                .description("Hedged duplicates that replied before the first call")
+                .register(meterRegistry);
+        Gauge.builder("payment.gateway.client.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        Gauge.builder("payment.gateway.client.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Free concurrent gateway call slots")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<AuthorizationResult> authorize(List<AuthorizationRequest> requests) {
+        try {
+            if (!bulkhead.tryAcquire(settings.bulkheadWaitMillis(), TimeUnit.MILLISECONDS)) {
+                throw reject(Reason.BULKHEAD_FULL, "All " + settings.maxConcurrent() + " gateway calls in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a gateway call slot", e);
+        }
+
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                throw reject(Reason.CIRCUIT_OPEN, "Payment gateway circuit is open");
+            }
+            return call(requests);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    @Override
+    public boolean idempotent() {
+        return delegate.idempotent();
+    }
+
+    @Override
+    public void close() {
+        hedgeTimer.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    CircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    private List<AuthorizationResult> call(List<AuthorizationRequest> requests) {
+        long startNanos = System.nanoTime();
+        CompletableFuture<List<AuthorizationResult>> result = null;
+        try {
+            long hedgeDelay = hedging ? hedgeDelayNanos() : -1;
+            result = hedgeDelay < 0 ? attempt(requests) : hedged(requests, hedgeDelay);
+            List<AuthorizationResult> results = result.get(settings.deadlineMillis(), TimeUnit.MILLISECONDS);
+            long elapsed = System.nanoTime() - startNanos;
+            latencies.add(elapsed);
+            callDuration.record(elapsed, TimeUnit.NANOSECONDS);
+            circuitBreaker.onSuccess();
+            return results;
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            circuitBreaker.onFailure();
+            throw reject(Reason.DEADLINE_EXCEEDED,
+                    "Payment gateway call exceeded its " + settings.deadlineMillis() + "ms deadline");
+        } catch (ExecutionException e) {
+            circuitBreaker.onFailure();
+            callDuration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Payment gateway call failed", e.getCause());
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            circuitBreaker.onFailure();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted calling the payment gateway", e);
+        }
+    }
+
+    /**
+     * Send the call, and send it again if the first is still running after the delay
+     */
+    private CompletableFuture<List<AuthorizationResult>> hedged(List<AuthorizationRequest> requests, long delayNanos) {
+        CompletableFuture<List<AuthorizationResult>> winner = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        BiConsumer<List<AuthorizationResult>, Throwable> settle = (results, error) -> {
+            if (error == null) {
+                winner.complete(results);
+            } else if (outstanding.decrementAndGet() == 0) {
+                winner.completeExceptionally(error);
+            }
+        };
+
+        CompletableFuture<List<AuthorizationResult>> primary = attempt(requests);
+        primary.whenComplete(settle);
+        ScheduledFuture<?> hedge = hedgeTimer.schedule(() -> {
+            if (winner.isDone() || outstanding.incrementAndGet() == 1) {
+                return;
+            }
+            log.debug("Hedging slow payment gateway call {} {}", kv("payments", requests.size()),
+                    kv("delayMs", TimeUnit.NANOSECONDS.toMillis(delayNanos)));
+            hedgesSent.increment();
+            CompletableFuture<List<AuthorizationResult>> duplicate = attempt(requests);
+            duplicate.whenComplete((results, error) -> {
+                if (error == null && winner.complete(results)) {
+                    hedgesWon.increment();
+                } else {
+                    settle.accept(results, error);
+                }
+            });
+            winner.whenComplete((results, error) -> duplicate.cancel(true));
+        }, delayNanos, TimeUnit.NANOSECONDS);
+
+        winner.whenComplete((results, error) -> {
+            hedge.cancel(false);
+            primary.cancel(true);
+        });
+        return winner;
+    }
+
+    /**
+     * Run one gateway call on its own thread, so it can be abandoned at its deadline
+     */
+    private CompletableFuture<List<AuthorizationResult>> attempt(List<AuthorizationRequest> requests) {
+        CompletableFuture<List<AuthorizationResult>> result = new CompletableFuture<>();
+        Future<?> task = callers.submit(() -> {
+            try {
+                result.complete(delegate.authorize(requests));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((results, error) -> {
+            if (error instanceof CancellationException) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private long hedgeDelayNanos() {
+        long p95 = latencies.percentile(0.95, settings.hedgeMinSamples());
+        if (p95 < 0) {
+            return -1;
+        }
+        return Math.max(p95, TimeUnit.MILLISECONDS.toNanos(settings.hedgeMinDelayMillis()));
+    }
+
+    private GatewayUnavailableException reject(Reason reason, String message) {
+        rejections.get(reason).increment();
+        log.warn("Payment gateway call not completed {} {}", kv("reason", reason), kv("error", message));
+        return new GatewayUnavailableException(reason, message);
+    }
+
+    /**
+     * The most recent successful call latencies, for the hedge delay
+     */
+    static final class LatencyWindow {
+
+        private final long[] samples;
+        private int count;
+        private int next;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        /**
+         * The percentile of the window, or -1 while it holds fewer than minSamples latencies
+         */
+        synchronized long percentile(double quantile, int minSamples) {
+            if (count == 0 || count < minSamples) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int) Math.ceil(quantile * count) - 1)];
+        }
+    }
+}
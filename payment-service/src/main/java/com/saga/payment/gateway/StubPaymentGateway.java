@@ -0,0 +1,65 @@
+package com.saga.payment.gateway;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Local stand-in for the acquirer.
+ * <p>
+ * Each call costs a fixed overhead plus a small amount per payment, which is what makes
+ * batching pay off. Payments are approved unless failure simulation is enabled, in which case
+ * each one is declined with the configured probability. It keeps no state, so repeating a
+ * call is harmless.
+ */
+@Slf4j
+@Component
+public class StubPaymentGateway implements PaymentGateway {
+
+    private final long callLatencyMillis;
+    private final long perItemLatencyMillis;
+    private final boolean failureSimulationEnabled;
+    private final double failureRate;
+
+    public StubPaymentGateway(@Value("${payment.gateway.stub.call-latency-ms:1000}") long callLatencyMillis,
+                              @Value("${payment.gateway.stub.per-item-latency-ms:5}") long perItemLatencyMillis,
+                              @Value("${payment.failure.simulation.enabled:false}") boolean failureSimulationEnabled,
+                              @Value("${payment.failure.simulation.rate:0.3}") double failureRate) {
+        this.callLatencyMillis = callLatencyMillis;
+        this.perItemLatencyMillis = perItemLatencyMillis;
+        this.failureSimulationEnabled = failureSimulationEnabled;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public List<AuthorizationResult> authorize(List<AuthorizationRequest> requests) {
+        log.debug("Authorizing payments with the stub gateway {}", kv("payments", requests.size()));
+        try {
+            Thread.sleep(callLatencyMillis + perItemLatencyMillis * requests.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted calling the payment gateway", e);
+        }
+
+        return requests.stream()
+                .map(request -> {
+                    if (failureSimulationEnabled && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                        log.warn("Simulated payment failure {} {}", kv("orderId", request.orderId()),
+                                kv("failureRate", failureRate));
+                        return AuthorizationResult.declined(request.orderId(), "Insufficient funds or card declined");
+                    }
+                    return AuthorizationResult.approved(request.orderId());
+                })
+                .toList();
+    }
+
+    @Override
+    public boolean idempotent() {
+        return true;
+    }
+}
@@ -0,0 +1,199 @@
+package com.saga.payment.service;
+
+import com.saga.payment.gateway.PaymentGateway;
+import com.saga.payment.gateway.PaymentGateway.AuthorizationRequest;
+import com.saga.payment.gateway.PaymentGateway.AuthorizationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Groups payment authorizations into batched gateway calls.
+ * <p>
+ * Authorizations queue up until the batch holds max-size payments or the first one in it has
+ * waited linger-ms, whichever comes first, and the batch is then authorized in one gateway
+ * call. At most max-in-flight calls run at once; while they are all busy the next batch keeps
+ * filling, so batches grow as load rises. A larger batch or linger buys throughput with
+ * latency, and the meters show both sides:
+ * <ul>
+ *     <li>{@code payment.gateway.batch.size} - payments per gateway call</li>
+ *     <li>{@code payment.gateway.batch.flushes{trigger=size|linger}} - why batches were sent</li>
+ *     <li>{@code payment.gateway.call.duration} - time per gateway call</li>
+ *     <li>{@code payment.gateway.authorization.latency} - per payment, queueing plus call</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class PaymentBatcher {
+
+    private final PaymentGateway paymentGateway;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Semaphore inFlight;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService callers;
+    private final Thread collector;
+    private volatile boolean running = true;
+
+    private final DistributionSummary batchSize;
+    private final Counter sizeFlushes;
+    private final Counter lingerFlushes;
+    private final Timer callDuration;
+    private final Timer authorizationLatency;
+
+    private record Pending(AuthorizationRequest request, CompletableFuture<AuthorizationResult> result,
+                           long submittedNanos) {
+    }
+
+    public PaymentBatcher(PaymentGateway paymentGateway,
+                          MeterRegistry meterRegistry,
+                          @Value("${payment.gateway.batch.max-size:20}") int maxBatchSize,
+                          @Value("${payment.gateway.batch.linger-ms:20}") long lingerMillis,
+                          @Value("${payment.gateway.batch.max-in-flight:4}") int maxInFlight) {
+        this.paymentGateway = paymentGateway;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+
+        AtomicInteger callerCount = new AtomicInteger();
+        this.callers = Executors.newFixedThreadPool(Math.max(1, maxInFlight), runnable -> {
+            Thread thread = new Thread(runnable, "payment-gateway-" + callerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.collector = new Thread(this::collect, "payment-batcher");
+        this.collector.setDaemon(true);
+
+        this.batchSize = DistributionSummary.builder("payment.gateway.batch.size")
+                .description("Payments authorized per gateway call")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sizeFlushes = flushes(meterRegistry, "size");
+        this.lingerFlushes = flushes(meterRegistry, "linger");
+        this.callDuration = Timer.builder("payment.gateway.call.duration")
+                .description("Time per batched gateway call")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.authorizationLatency = Timer.builder("payment.gateway.authorization.latency")
+                .description("Time from queueing a payment to its authorization result")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        collector.start();
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        collector.interrupt();
+        callers.shutdownNow();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new IllegalStateException("Payment batcher stopped"));
+        }
+    }
+
+    /**
+     * Queue a payment for the next batch; the future completes with its authorization result,
+     * or exceptionally if the gateway call failed
+     */
+    public CompletableFuture<AuthorizationResult> authorize(AuthorizationRequest request) {
+        CompletableFuture<AuthorizationResult> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException("Payment batcher stopped"));
+            return result;
+        }
+        queue.add(new Pending(request, result, System.nanoTime()));
+        return result;
+    }
+
+    private void collect() {
+        while (running) {
+            try {
+                // Wait for a free caller first, so the batch keeps filling while all are busy
+                inFlight.acquire();
+                List<Pending> batch = new ArrayList<>(maxBatchSize);
+                Pending first = queue.take();
+                batch.add(first);
+                long deadline = first.submittedNanos() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                (batch.size() >= maxBatchSize ? sizeFlushes : lingerFlushes).increment();
+                try {
+                    callers.execute(() -> call(batch));
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    batch.forEach(pending -> pending.result().completeExceptionally(e));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void call(List<Pending> batch) {
+        long startNanos = System.nanoTime();
+        try {
+            List<AuthorizationResult> results = paymentGateway.authorize(
+                    batch.stream().map(Pending::request).toList());
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException("Gateway returned " + results.size() + " results for "
+                        + batch.size() + " payments");
+            }
+            long now = System.nanoTime();
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                authorizationLatency.record(now - pending.submittedNanos(), TimeUnit.NANOSECONDS);
+                pending.result().complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.error("Payment gateway call failed {} {}", kv("payments", batch.size()), kv("error", e.getMessage()));
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        } finally {
+            callDuration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            batchSize.record(batch.size());
+            inFlight.release();
+        }
+    }
+
+    private static Counter flushes(MeterRegistry meterRegistry, String trigger) {
+        return Counter.builder("payment.gateway.batch.flushes")
+                .description("Batches sent to the gateway, by what triggered the send")
+                .tag("trigger", trigger)
+                .register(meterRegistry);
+    }
+}
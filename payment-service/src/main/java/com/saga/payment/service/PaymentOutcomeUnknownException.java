@@ -0,0 +1,13 @@
+package com.saga.payment.service;
+
+/**
+ * Thrown when the gateway may or may not have authorized a payment, e.g. after a call past its
+ * deadline. The command is not answered; it is redelivered and authorized again under the same
+ * idempotency key, so the gateway replays its original result instead of charging twice.
+ */
+public class PaymentOutcomeUnknownException extends RuntimeException {
+
+    public PaymentOutcomeUnknownException(String orderId, Throwable cause) {
+        super("Payment outcome unknown for order " + orderId + ": " + cause.getMessage(), cause);
+    }
+}
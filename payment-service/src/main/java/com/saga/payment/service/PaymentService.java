@@ -1,27 +1,29 @@
 package com.saga.payment.service;
 
-import com.saga.payment.command.ProcessPaymentCommand;
-import com.saga.payment.command.RefundPaymentCommand;
+import com.saga.contracts.command.ProcessPaymentCommand;
+import com.saga.contracts.command.RefundPaymentCommand;
 import com.saga.payment.domain.Payment;
 
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface PaymentService {
 
     /**
-     * Process payment for an order
+     * Process payment for an order; completes once the outcome is recorded and published
      */
-    void processPayment(ProcessPaymentCommand command);
+    CompletableFuture<Void> processPayment(ProcessPaymentCommand command);
 
     /**
      * Refund payment for an order (compensation)
      */
-    void refundPayment(RefundPaymentCommand command);
+    CompletableFuture<Void> refundPayment(RefundPaymentCommand command);
 
     /**
      * Get payment by order ID
      */
-    Optional<Payment> getPaymentByOrderId(String orderId);
+    Optional<Payment> getPaymentByOrderId(UUID orderId);
 
     /**
      * Get all payments
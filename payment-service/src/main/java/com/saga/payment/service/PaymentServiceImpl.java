@@ -1,221 +1,318 @@
 package com.saga.payment.service;
 
-import com.saga.payment.command.ProcessPaymentCommand;
-import com.saga.payment.command.RefundPaymentCommand;
+import com.saga.contracts.command.ProcessPaymentCommand;
+import com.saga.contracts.command.RefundPaymentCommand;
+import com.saga.contracts.event.PaymentFailedEvent;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import com.saga.contracts.event.PaymentRefundedEvent;
 import com.saga.payment.config.RabbitMQConfig;
 import com.saga.payment.domain.Payment;
 import com.saga.payment.domain.PaymentStatus;
-import com.saga.payment.event.PaymentFailedEvent;
-import com.saga.payment.event.PaymentProcessedEvent;
-import com.saga.payment.event.PaymentRefundedEvent;
+import com.saga.payment.fault.FaultStep;
+import com.saga.payment.gateway.GatewayUnavailableException;
+import com.saga.payment.gateway.PaymentGateway.AuthorizationRequest;
+import com.saga.payment.gateway.PaymentGateway.AuthorizationResult;
 import com.saga.payment.repository.PaymentRepository;
+import com.saga.runtime.fault.FaultInjector;
+import com.saga.runtime.fault.InjectedFaultException;
+import com.saga.runtime.idempotency.SingleFlight;
+import com.saga.runtime.metrics.ParticipantMetrics;
+import com.saga.runtime.tracing.InMemorySpanExporter;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
-import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Service
+@RabbitListener(queues = RabbitMQConfig.PAYMENT_COMMAND_QUEUE)
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentServiceImpl implements PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final RabbitTemplate rabbitTemplate;
-    private final Random random = new Random();
-
-    @Value("${payment.failure.simulation.enabled:false}")
-    private boolean failureSimulationEnabled;
+    private final ParticipantMetrics paymentMetrics;
+    private final SingleFlight singleFlight;
+    private final PaymentBatcher paymentBatcher;
+    private final Tracer tracer;
+    private final FaultInjector<FaultStep> faultInjector;
+    private final TransactionTemplate transactionTemplate;
 
-    @Value("${payment.failure.simulation.rate:0.3}")
-    private double failureRate;
+    @Value("${payment.gateway.timeout-ms:10000}")
+    private long gatewayTimeoutMillis;
 
     /**
-     * Listen for ProcessPaymentCommand from Order Service
+     * Listen for ProcessPaymentCommand from Order Service.
+     * <p>
+     * The listener thread only records the payment as PENDING, in its own short transaction, and
+     * queues it for the next gateway batch; it does not wait for the gateway. The outcome is
+     * recorded and published, in a second transaction, on the thread that completes the
+     * authorization, and the container acknowledges the command when the returned future
+     * completes. So the number of payments in flight, and with it the batch size, is bounded by
+     * the consumers' prefetch rather than by the number of consumer threads.
      */
     @Override
-    @RabbitListener(queues = RabbitMQConfig.PAYMENT_COMMAND_QUEUE)
-    @Transactional
-    public void processPayment(ProcessPaymentCommand command) {
-        log.info("<<< Received ProcessPaymentCommand: {}", command);
+    @RabbitHandler
+    public CompletableFuture<Void> processPayment(ProcessPaymentCommand command) {
+        long startNanos = System.nanoTime();
+        log.info("<<< Received ProcessPaymentCommand {}", kv("amount", command.getAmount()));
+        paymentMetrics.commandReceived(command);
+        tagCurrentSpan(command.getOrderId());
+        Span span = tracer.currentSpan();
+
+        return singleFlight.executeAsync(command.getOrderId(), () -> processPaymentOnce(command, span), event -> {
+                    log.warn("Duplicate command joined the one in flight {}", kv("orderId", command.getOrderId()));
+                    paymentMetrics.commandCoalesced(command);
+                    inSpan(span, () -> publish(event));
+                })
+                .whenComplete((event, error) -> paymentMetrics.commandHandled(command, startNanos))
+                .thenApply(event -> null);
+    }
 
-        try {
-            // Check if payment already exists (idempotency)
-            Optional<Payment> existingPayment = paymentRepository.findByOrderId(command.getOrderId());
-            if (existingPayment.isPresent()) {
-                log.warn("Payment already processed for order: {}", command.getOrderId());
-
-                Payment payment = existingPayment.get();
-                if (payment.getStatus() == PaymentStatus.COMPLETED) {
-                    // Re-send success event (idempotent)
-                    publishPaymentProcessedEvent(payment);
-                } else if (payment.getStatus() == PaymentStatus.FAILED) {
-                    // Re-send failure event (idempotent)
-                    publishPaymentFailedEvent(payment);
-                }
-                return;
+    /**
+     * Handle the command once; the future completes with the event published to Order Service.
+     * <p>
+     * Only outcomes known to leave the card uncharged are answered with a failure: a decline, or a
+     * gateway call that was never made because the circuit is open or the bulkhead is full. When
+     * the outcome is unknown (a call past its deadline or timeout, a failed call) the future fails
+     * with a {@link PaymentOutcomeUnknownException}, the payment stays PENDING and the command is
+     * requeued; a PENDING payment is authorized again with the same idempotency key. A gateway
+     * that keeps failing opens the circuit, which ends the retries.
+     */
+    private CompletableFuture<Object> processPaymentOnce(ProcessPaymentCommand command, Span span) {
+        Payment payment = transactionTemplate.execute(status -> findOrCreatePayment(command));
+
+        // Check if payment already exists (idempotency)
+        switch (payment.getStatus()) {
+            case COMPLETED -> {
+                log.warn("Payment already processed {}", kv("orderId", command.getOrderId()));
+                // Re-send success event (idempotent)
+                return CompletableFuture.completedFuture(publishPaymentProcessedEvent(payment));
             }
+            case FAILED -> {
+                log.warn("Payment already processed {}", kv("orderId", command.getOrderId()));
+                // Re-send failure event (idempotent)
+                return CompletableFuture.completedFuture(publishPaymentFailedEvent(payment));
+            }
+            case REFUNDED -> {
+                log.warn("Payment already refunded {}", kv("orderId", command.getOrderId()));
+                return CompletableFuture.completedFuture(null);
+            }
+            case PENDING -> {
+                // Authorized below
+            }
+        }
 
-            // Create payment record
-            Payment payment = new Payment();
-            payment.setOrderId(command.getOrderId());
-            payment.setCustomerId(command.getCustomerId());
-            payment.setAmount(command.getAmount());
-            payment.setStatus(PaymentStatus.PENDING);
-
-            payment = paymentRepository.save(payment);
-            log.info("Payment record created: {}", payment.getId());
-
-            // Simulate payment processing delay
-            Thread.sleep(1000); // 1 second delay
-
-            // Simulate payment processing
-            boolean paymentSuccessful = processPaymentWithExternalGateway(command);
+        // Authorize with the gateway as part of the next batch
+        log.debug("Authorizing payment with the gateway {} {}",
+                kv("customerId", command.getCustomerId()), kv("amount", command.getAmount()));
+        return authorizeOrDecline(command)
+                .thenApply(authorization -> inSpan(span, () -> recordAuthorization(payment.getId(), authorization)));
+    }
 
-            if (paymentSuccessful) {
-                // Payment succeeded
-                payment.setStatus(PaymentStatus.COMPLETED);
-                payment = paymentRepository.save(payment);
+    /**
+     * The order's payment, created PENDING if this is the first copy of the command
+     */
+    private Payment findOrCreatePayment(ProcessPaymentCommand command) {
+        Optional<Payment> existingPayment = paymentRepository.findByOrderId(UUID.fromString(command.getOrderId()));
+        if (existingPayment.isPresent()) {
+            if (existingPayment.get().getStatus() == PaymentStatus.PENDING) {
+                log.warn("Outcome of an earlier authorization unknown, authorizing again {}",
+                        kv("orderId", command.getOrderId()));
+            }
+            return existingPayment.get();
+        }
 
-                log.info("✅ Payment SUCCESSFUL for order: {} | Transaction ID: {}",
-                        command.getOrderId(), payment.getId());
+        // Create payment record
+        Payment payment = new Payment();
+        payment.setOrderId(UUID.fromString(command.getOrderId()));
+        payment.setCustomerId(command.getCustomerId());
+        payment.setAmount(command.getAmount());
+        payment.setStatus(PaymentStatus.PENDING);
 
-                publishPaymentProcessedEvent(payment);
+        payment = paymentRepository.save(payment);
+        log.debug("Payment record created {}", kv("paymentId", payment.getId()));
+        return payment;
+    }
 
+    /**
+     * Record the gateway's answer and publish it once committed
+     */
+    private Object recordAuthorization(UUID paymentId, AuthorizationResult authorization) {
+        Payment payment = transactionTemplate.execute(status -> {
+            Payment pending = paymentRepository.findById(paymentId).orElseThrow();
+            if (authorization.approved()) {
+                pending.setStatus(PaymentStatus.COMPLETED);
             } else {
-                // Payment failed
-                payment.setStatus(PaymentStatus.FAILED);
-                payment.setFailureReason("Insufficient funds or card declined");
-                payment = paymentRepository.save(payment);
+                pending.setStatus(PaymentStatus.FAILED);
+                pending.setFailureReason(authorization.declineReason());
+            }
+            return paymentRepository.save(pending);
+        });
 
-                log.error("❌ Payment FAILED for order: {} | Reason: {}",
-                        command.getOrderId(), payment.getFailureReason());
+        if (payment.getStatus() == PaymentStatus.COMPLETED) {
+            // Payment succeeded
+            log.info("Payment successful {}", kv("transactionId", payment.getId()));
+            return publishPaymentProcessedEvent(payment);
+        }
+        // Payment failed
+        log.warn("Payment failed {}", kv("reason", payment.getFailureReason()));
+        return publishPaymentFailedEvent(payment);
+    }
 
-                publishPaymentFailedEvent(payment);
+    /**
+     * Authorize the payment as part of the next gateway batch, turning failures known to leave
+     * the card uncharged into a decline. The future fails with a
+     * {@link PaymentOutcomeUnknownException} when the gateway may have authorized the payment.
+     */
+    private CompletableFuture<AuthorizationResult> authorizeOrDecline(ProcessPaymentCommand command) {
+        try {
+            if (!faultInjector.apply(FaultStep.PAYMENT, command.getPizzaType(), command.getCustomerId())) {
+                return CompletableFuture.completedFuture(
+                        AuthorizationResult.declined(command.getOrderId(), FaultStep.PAYMENT.declineReason()));
             }
+        } catch (InjectedFaultException e) {
+            // Injected before the gateway is called
+            return CompletableFuture.completedFuture(
+                    AuthorizationResult.declined(command.getOrderId(), "Payment processing error: " + e.getMessage()));
+        }
 
-        } catch (Exception e) {
-            log.error("Error processing payment for order: {}", command.getOrderId(), e);
-
-            // Publish failure event
-            PaymentFailedEvent event = new PaymentFailedEvent(
-                    command.getOrderId(),
-                    "Payment processing error: " + e.getMessage()
-            );
-
-            rabbitTemplate.convertAndSend(
-                    RabbitMQConfig.SAGA_EXCHANGE,
-                    RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
-                    event
-            );
+        return paymentBatcher.authorize(new AuthorizationRequest(
+                        command.getOrderId(), command.getCustomerId(), command.getAmount()))
+                .orTimeout(gatewayTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(error -> declineIfNeverCalled(command,
+                        error instanceof CompletionException completion ? completion.getCause() : error));
+    }
+
+    private AuthorizationResult declineIfNeverCalled(ProcessPaymentCommand command, Throwable error) {
+        if (error instanceof GatewayUnavailableException unavailable
+                && unavailable.getReason() != GatewayUnavailableException.Reason.DEADLINE_EXCEEDED) {
+            log.warn("Payment gateway not called {} {}",
+                    kv("orderId", command.getOrderId()), kv("reason", unavailable.getReason()));
+            return AuthorizationResult.declined(command.getOrderId(),
+                    "Payment gateway unavailable: " + unavailable.getMessage());
         }
+        log.error("Payment outcome unknown, leaving the command for redelivery {}",
+                kv("orderId", command.getOrderId()), error);
+        throw new PaymentOutcomeUnknownException(command.getOrderId(), error);
     }
 
     /**
-     * Listen for RefundPaymentCommand from Order Service (COMPENSATION)
+     * Listen for RefundPaymentCommand from Order Service (COMPENSATION).
+     * A saga that was never charged is acknowledged as refunded, so its compensation can finish.
+     * Handled on the listener thread; the returned future is already complete.
      */
     @Override
-    @RabbitListener(queues = RabbitMQConfig.PAYMENT_COMMAND_QUEUE)
+    @RabbitHandler
     @Transactional
-    public void refundPayment(RefundPaymentCommand command) {
-        log.info("<<< Received RefundPaymentCommand: {}", command);
+    public CompletableFuture<Void> refundPayment(RefundPaymentCommand command) {
+        long startNanos = System.nanoTime();
+        log.info("<<< Received RefundPaymentCommand {}", kv("reason", command.getReason()));
+        paymentMetrics.commandReceived(command);
+        tagCurrentSpan(command.getOrderId());
 
         try {
             // Find the original payment
-            Optional<Payment> paymentOpt = paymentRepository.findByOrderId(command.getOrderId());
+            Optional<Payment> paymentOpt = paymentRepository.findByOrderId(UUID.fromString(command.getOrderId()));
 
             if (paymentOpt.isEmpty()) {
-                log.warn("No payment found for order: {} - Cannot refund", command.getOrderId());
-                return;
+                log.warn("No payment found, nothing to refund {}", kv("orderId", command.getOrderId()));
+                publishPaymentRefundedEvent(UUID.fromString(command.getOrderId()));
+                return CompletableFuture.completedFuture(null);
             }
 
             Payment payment = paymentOpt.get();
 
             if (payment.getStatus() == PaymentStatus.REFUNDED) {
-                log.warn("Payment already refunded for order: {}", command.getOrderId());
-                publishPaymentRefundedEvent(payment);
-                return;
+                log.warn("Payment already refunded {}", kv("orderId", command.getOrderId()));
+                publishPaymentRefundedEvent(payment.getOrderId());
+                return CompletableFuture.completedFuture(null);
+            }
+
+            if (payment.getStatus() == PaymentStatus.FAILED) {
+                log.warn("Payment was never charged, nothing to refund {}", kv("orderId", command.getOrderId()));
+                publishPaymentRefundedEvent(payment.getOrderId());
+                return CompletableFuture.completedFuture(null);
             }
 
             if (payment.getStatus() != PaymentStatus.COMPLETED) {
-                log.warn("Cannot refund payment with status: {} for order: {}",
-                        payment.getStatus(), command.getOrderId());
-                return;
+                log.warn("Cannot refund payment {} {}",
+                        kv("orderId", command.getOrderId()), kv("status", payment.getStatus()));
+                return CompletableFuture.completedFuture(null);
             }
 
-            // Simulate refund processing delay
-            Thread.sleep(500);
+            // Refund processing time comes from the fault injection rules
+            faultInjector.apply(FaultStep.REFUND, null, payment.getCustomerId());
 
             // Process refund
-            log.info("🔄 Processing refund for order: {} | Amount: ${}",
-                    command.getOrderId(), payment.getAmount());
+            log.debug("Processing refund {}", kv("amount", payment.getAmount()));
 
             payment.setStatus(PaymentStatus.REFUNDED);
             payment.setFailureReason(command.getReason());
             paymentRepository.save(payment);
 
-            log.info("✅ Refund SUCCESSFUL for order: {}", command.getOrderId());
+            log.info("Refund successful");
 
-            publishPaymentRefundedEvent(payment);
+            publishPaymentRefundedEvent(payment.getOrderId());
 
         } catch (Exception e) {
-            log.error("Error refunding payment for order: {}", command.getOrderId(), e);
-        }
-    }
-
-    /**
-     * Simulate external payment gateway processing
-     */
-    private boolean processPaymentWithExternalGateway(ProcessPaymentCommand command) {
-        log.info("Processing payment with external gateway...");
-        log.info("Customer: {} | Amount: ${}", command.getCustomerId(), command.getAmount());
-
-        // Simulate failure based on configuration
-        if (failureSimulationEnabled) {
-            boolean shouldFail = random.nextDouble() < failureRate;
-            if (shouldFail) {
-                log.warn("Simulated payment failure ({}% failure rate)", (int)(failureRate * 100));
-                return false;
-            }
+            log.error("Error refunding payment {}", kv("orderId", command.getOrderId()), e);
+        } finally {
+            paymentMetrics.commandHandled(command, startNanos);
         }
-
-        // In production, this would call actual payment gateway (Stripe, PayPal, etc.)
-        // For now, we always succeed unless failure simulation is enabled
-        return true;
+        return CompletableFuture.completedFuture(null);
     }
 
     /**
      * Publish PaymentProcessedEvent to Order Service
      */
-    private void publishPaymentProcessedEvent(Payment payment) {
+    private PaymentProcessedEvent publishPaymentProcessedEvent(Payment payment) {
         PaymentProcessedEvent event = new PaymentProcessedEvent(
-                payment.getOrderId(),
-                payment.getId()
+                payment.getOrderId().toString(),
+                payment.getId().toString()
         );
 
-        log.info(">>> Sending PaymentProcessedEvent: {}", event);
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.SAGA_EXCHANGE,
-                RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
-                event
-        );
+        log.debug(">>> Sending PaymentProcessedEvent");
+        return publish(event);
     }
 
     /**
      * Publish PaymentFailedEvent to Order Service
      */
-    private void publishPaymentFailedEvent(Payment payment) {
+    private PaymentFailedEvent publishPaymentFailedEvent(Payment payment) {
         PaymentFailedEvent event = new PaymentFailedEvent(
-                payment.getOrderId(),
+                payment.getOrderId().toString(),
                 payment.getFailureReason()
         );
 
-        log.info(">>> Sending PaymentFailedEvent: {}", event);
+        log.debug(">>> Sending PaymentFailedEvent");
+        return publish(event);
+    }
+
+    /**
+     * Publish PaymentRefundedEvent to Order Service
+     */
+    private void publishPaymentRefundedEvent(UUID orderId) {
+        PaymentRefundedEvent event = new PaymentRefundedEvent(orderId.toString());
+
+        log.debug(">>> Sending PaymentRefundedEvent");
+        paymentMetrics.eventPublished(event);
         rabbitTemplate.convertAndSend(
                 RabbitMQConfig.SAGA_EXCHANGE,
                 RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
@@ -224,21 +321,43 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     /**
-     * Publish PaymentRefundedEvent to Order Service
+     * Publish an event to Order Service
      */
-    private void publishPaymentRefundedEvent(Payment payment) {
-        PaymentRefundedEvent event = new PaymentRefundedEvent(payment.getOrderId());
-
-        log.info(">>> Sending PaymentRefundedEvent: {}", event);
+    private <E> E publish(E event) {
+        paymentMetrics.eventPublished(event);
         rabbitTemplate.convertAndSend(
                 RabbitMQConfig.SAGA_EXCHANGE,
                 RabbitMQConfig.ORDER_EVENT_ROUTING_KEY,
                 event
         );
+        return event;
+    }
+
+    /**
+     * Run on a thread other than the listener's with the listener span current, so the events
+     * sent carry the saga's trace context
+     */
+    private <T> T inSpan(Span span, Supplier<T> work) {
+        if (span == null) {
+            return work.get();
+        }
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            return work.get();
+        }
+    }
+
+    /**
+     * Tag the listener span with the saga's order id so its trace can be looked up by order
+     */
+    private void tagCurrentSpan(String orderId) {
+        Span span = tracer.currentSpan();
+        if (span != null && orderId != null) {
+            span.tag(InMemorySpanExporter.ORDER_ID_TAG, orderId);
+        }
     }
 
     @Override
-    public Optional<Payment> getPaymentByOrderId(String orderId) {
+    public Optional<Payment> getPaymentByOrderId(UUID orderId) {
         return paymentRepository.findByOrderId(orderId);
     }
 
@@ -0,0 +1,194 @@
+package com.saga.payment.gateway;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saga.payment.gateway.GatewayUnavailableException.Reason;
+import com.saga.payment.gateway.PaymentGateway.AuthorizationRequest;
+import com.saga.payment.gateway.PaymentGateway.AuthorizationResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the guarded client against a local HTTP stub of the acquirer that injects latency and
+ * failures on demand
+ */
+class ResilientPaymentGatewayTest {
+
+    private static final List<AuthorizationRequest> BATCH = List.of(
+            new AuthorizationRequest("order-1", "CUST001", 20),
+            new AuthorizationRequest("order-2", "CUST002", 35));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<List<String>> idempotencyKeys = new CopyOnWriteArrayList<>();
+    /** Latency injected into the next slowRequests calls */
+    private final AtomicInteger slowRequests = new AtomicInteger();
+    private final AtomicLong slowMillis = new AtomicLong();
+    /** Calls answered with HTTP 503 */
+    private final AtomicInteger failingRequests = new AtomicInteger();
+
+    private HttpServer server;
+    private ResilientPaymentGateway gateway;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/authorizations", this::authorize);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (gateway != null) {
+            gateway.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void abandonsCallsPastTheirDeadline() {
+        gateway = gateway(settings(4, 200, false));
+        slow(1, 2000);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> gateway.authorize(BATCH))
+                .isInstanceOfSatisfying(GatewayUnavailableException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(Reason.DEADLINE_EXCEEDED));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1500);
+    }
+
+    @Test
+    void opensCircuitAfterFailuresAndClosesAfterATrialCall() throws InterruptedException {
+        gateway = gateway(new ResilientPaymentGateway.Settings(4, 100, 5000, 4, 4, 0.5, 200, false, 20, 50));
+        failingRequests.set(4);
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> gateway.authorize(BATCH)).hasMessageContaining("HTTP 503");
+        }
+        assertThat(gateway.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // Rejected without reaching the gateway
+        assertThatThrownBy(() -> gateway.authorize(BATCH))
+                .isInstanceOfSatisfying(GatewayUnavailableException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(Reason.CIRCUIT_OPEN));
+        assertThat(requests).hasValue(4);
+
+        Thread.sleep(250);
+        assertThat(gateway.authorize(BATCH)).extracting(AuthorizationResult::approved).containsOnly(true);
+        assertThat(gateway.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void rejectsCallsBeyondTheBulkhead() throws Exception {
+        gateway = gateway(new ResilientPaymentGateway.Settings(1, 0, 5000, 20, 10, 0.5, 1000, false, 20, 50));
+        slow(1, 500);
+
+        CompletableFuture<List<AuthorizationResult>> first = CompletableFuture.supplyAsync(() -> gateway.authorize(BATCH));
+        while (requests.get() == 0) {
+            Thread.sleep(5);
+        }
+        assertThatThrownBy(() -> gateway.authorize(BATCH))
+                .isInstanceOfSatisfying(GatewayUnavailableException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(Reason.BULKHEAD_FULL));
+        assertThat(first.get(5, TimeUnit.SECONDS)).hasSize(2);
+    }
+
+    @Test
+    void hedgesCallsSlowerThanTheRecentP95() {
+        gateway = gateway(settings(4, 5000, true));
+        for (int i = 0; i < 20; i++) {
+            gateway.authorize(BATCH);
+        }
+        requests.set(0);
+        idempotencyKeys.clear();
+        slow(1, 3000);
+
+        long start = System.nanoTime();
+        List<AuthorizationResult> results = gateway.authorize(BATCH);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        assertThat(results).extracting(AuthorizationResult::orderId).containsExactly("order-1", "order-2");
+        assertThat(requests).hasValue(2);
+        assertThat(idempotencyKeys).hasSize(2).containsOnly(List.of("order-1", "order-2"));
+    }
+
+    @Test
+    void neverHedgesNonIdempotentGateways() throws Exception {
+        HttpPaymentGateway http = new HttpPaymentGateway(baseUrl(), objectMapper, Duration.ofSeconds(5));
+        gateway = new ResilientPaymentGateway(http::authorize, settings(4, 5000, true), new SimpleMeterRegistry());
+        for (int i = 0; i < 20; i++) {
+            gateway.authorize(BATCH);
+        }
+        requests.set(0);
+        slow(1, 300);
+
+        gateway.authorize(BATCH);
+        Thread.sleep(50);
+        assertThat(requests).hasValue(1);
+    }
+
+    private ResilientPaymentGateway gateway(ResilientPaymentGateway.Settings settings) {
+        HttpPaymentGateway http = new HttpPaymentGateway(baseUrl(), objectMapper, Duration.ofSeconds(5));
+        return new ResilientPaymentGateway(http, settings, new SimpleMeterRegistry());
+    }
+
+    private static ResilientPaymentGateway.Settings settings(int maxConcurrent, long deadlineMillis, boolean hedging) {
+        return new ResilientPaymentGateway.Settings(maxConcurrent, 100, deadlineMillis, 20, 10, 0.5, 1000,
+                hedging, 20, 50);
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void slow(int calls, long millis) {
+        slowMillis.set(millis);
+        slowRequests.set(calls);
+    }
+
+    private void authorize(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            List<AuthorizationRequest> batch = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {
+            });
+            idempotencyKeys.add(batch.stream().map(AuthorizationRequest::idempotencyKey).toList());
+
+            if (slowRequests.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                try {
+                    Thread.sleep(slowMillis.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failingRequests.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            byte[] body = objectMapper.writeValueAsBytes(batch.stream()
+                    .map(request -> AuthorizationResult.approved(request.orderId()))
+                    .toList());
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+}
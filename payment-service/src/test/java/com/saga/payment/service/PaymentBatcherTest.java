@@ -0,0 +1,86 @@
+package com.saga.payment.service;
+
+import com.saga.payment.gateway.PaymentGateway;
+import com.saga.payment.gateway.PaymentGateway.AuthorizationRequest;
+import com.saga.payment.gateway.PaymentGateway.AuthorizationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentBatcherTest {
+
+    private final List<Integer> calls = new CopyOnWriteArrayList<>();
+    private PaymentBatcher batcher;
+
+    @AfterEach
+    void stop() {
+        batcher.close();
+    }
+
+    @Test
+    void sendsFullBatchInOneCall() throws Exception {
+        start(requests -> {
+            calls.add(requests.size());
+            return requests.stream()
+                    .map(request -> request.amount() > 100
+                            ? AuthorizationResult.declined(request.orderId(), "Over limit")
+                            : AuthorizationResult.approved(request.orderId()))
+                    .toList();
+        }, 5, 60_000);
+
+        List<CompletableFuture<AuthorizationResult>> results = IntStream.range(0, 5)
+                .mapToObj(i -> batcher.authorize(new AuthorizationRequest("order-" + i, "CUST001", i == 3 ? 500 : 20)))
+                .toList();
+
+        for (int i = 0; i < 5; i++) {
+            AuthorizationResult result = results.get(i).get(5, TimeUnit.SECONDS);
+            assertThat(result.orderId()).isEqualTo("order-" + i);
+            assertThat(result.approved()).isEqualTo(i != 3);
+        }
+        assertThat(calls).containsExactly(5);
+    }
+
+    @Test
+    void sendsPartialBatchAfterLinger() throws Exception {
+        start(requests -> {
+            calls.add(requests.size());
+            return requests.stream().map(request -> AuthorizationResult.approved(request.orderId())).toList();
+        }, 20, 10);
+
+        CompletableFuture<AuthorizationResult> first = batcher.authorize(new AuthorizationRequest("order-1", "CUST001", 20));
+        CompletableFuture<AuthorizationResult> second = batcher.authorize(new AuthorizationRequest("order-2", "CUST001", 20));
+
+        assertThat(first.get(5, TimeUnit.SECONDS).approved()).isTrue();
+        assertThat(second.get(5, TimeUnit.SECONDS).approved()).isTrue();
+        assertThat(calls.stream().mapToInt(Integer::intValue).sum()).isEqualTo(2);
+    }
+
+    @Test
+    void failsEveryPaymentInAFailedCall() {
+        start(requests -> {
+            throw new IllegalStateException("Gateway unavailable");
+        }, 2, 60_000);
+
+        CompletableFuture<AuthorizationResult> first = batcher.authorize(new AuthorizationRequest("order-1", "CUST001", 20));
+        CompletableFuture<AuthorizationResult> second = batcher.authorize(new AuthorizationRequest("order-2", "CUST001", 20));
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("Gateway unavailable");
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+    }
+
+    private void start(PaymentGateway gateway, int maxBatchSize, long lingerMillis) {
+        batcher = new PaymentBatcher(gateway, new SimpleMeterRegistry(), maxBatchSize, lingerMillis, 2);
+        batcher.start();
+    }
+}
@@ -0,0 +1,121 @@
+package com.saga.payment.service;
+
+import com.saga.contracts.command.ProcessPaymentCommand;
+import com.saga.contracts.event.PaymentFailedEvent;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import com.saga.payment.config.RabbitMQConfig;
+import com.saga.payment.domain.PaymentStatus;
+import com.saga.payment.gateway.GatewayUnavailableException;
+import com.saga.payment.gateway.GatewayUnavailableException.Reason;
+import com.saga.payment.gateway.PaymentGateway.AuthorizationRequest;
+import com.saga.payment.gateway.PaymentGateway.AuthorizationResult;
+import com.saga.payment.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class PaymentServiceImplTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @MockitoBean
+    private PaymentBatcher paymentBatcher;
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Test
+    void unknownOutcomeIsRedeliveredAndAuthorizedAgainUnderTheSameKey() {
+        ProcessPaymentCommand command = command();
+        when(paymentBatcher.authorize(any()))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new GatewayUnavailableException(Reason.DEADLINE_EXCEEDED, "Gateway call exceeded its deadline")))
+                .thenReturn(CompletableFuture.completedFuture(AuthorizationResult.approved(command.getOrderId())));
+
+        assertThatThrownBy(() -> paymentService.processPayment(command).join())
+                .hasCauseInstanceOf(PaymentOutcomeUnknownException.class);
+        verifyNoInteractions(rabbitTemplate);
+        assertThat(paymentRepository.findByOrderId(UUID.fromString(command.getOrderId())))
+                .get().extracting("status").isEqualTo(PaymentStatus.PENDING);
+
+        // Redelivery
+        paymentService.processPayment(command).join();
+
+        ArgumentCaptor<AuthorizationRequest> requests = ArgumentCaptor.forClass(AuthorizationRequest.class);
+        verify(paymentBatcher, times(2)).authorize(requests.capture());
+        assertThat(requests.getAllValues()).extracting(AuthorizationRequest::idempotencyKey)
+                .containsOnly(command.getOrderId());
+        verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.SAGA_EXCHANGE),
+                eq(RabbitMQConfig.ORDER_EVENT_ROUTING_KEY), any(PaymentProcessedEvent.class));
+        assertThat(paymentRepository.findByOrderId(UUID.fromString(command.getOrderId())))
+                .get().extracting("status").isEqualTo(PaymentStatus.COMPLETED);
+    }
+
+    @Test
+    void callNeverMadeFailsThePaymentOnce() {
+        ProcessPaymentCommand command = command();
+        when(paymentBatcher.authorize(any())).thenReturn(CompletableFuture.failedFuture(
+                new GatewayUnavailableException(Reason.CIRCUIT_OPEN, "Payment gateway circuit is open")));
+
+        paymentService.processPayment(command).join();
+        // Redelivery answers from the recorded failure
+        paymentService.processPayment(command).join();
+
+        verify(paymentBatcher).authorize(any());
+        verify(rabbitTemplate, times(2)).convertAndSend(eq(RabbitMQConfig.SAGA_EXCHANGE),
+                eq(RabbitMQConfig.ORDER_EVENT_ROUTING_KEY), any(PaymentFailedEvent.class));
+        assertThat(paymentRepository.findByOrderId(UUID.fromString(command.getOrderId())))
+                .get().extracting("status").isEqualTo(PaymentStatus.FAILED);
+    }
+
+    @Test
+    void listenerDoesNotWaitForTheGateway() {
+        ProcessPaymentCommand command = command();
+        CompletableFuture<AuthorizationResult> authorization = new CompletableFuture<>();
+        when(paymentBatcher.authorize(any())).thenReturn(authorization);
+
+        CompletableFuture<Void> handled = paymentService.processPayment(command);
+        // A duplicate joins the authorization in flight
+        CompletableFuture<Void> duplicate = paymentService.processPayment(command);
+
+        assertThat(handled).isNotDone();
+        // The PENDING payment is committed before the gateway answers
+        assertThat(paymentRepository.findByOrderId(UUID.fromString(command.getOrderId())))
+                .get().extracting("status").isEqualTo(PaymentStatus.PENDING);
+        verifyNoInteractions(rabbitTemplate);
+
+        authorization.complete(AuthorizationResult.approved(command.getOrderId()));
+        handled.join();
+        duplicate.join();
+
+        verify(paymentBatcher).authorize(any());
+        verify(rabbitTemplate, times(2)).convertAndSend(eq(RabbitMQConfig.SAGA_EXCHANGE),
+                eq(RabbitMQConfig.ORDER_EVENT_ROUTING_KEY), any(PaymentProcessedEvent.class));
+        assertThat(paymentRepository.findByOrderId(UUID.fromString(command.getOrderId())))
+                .get().extracting("status").isEqualTo(PaymentStatus.COMPLETED);
+    }
+
+    private static ProcessPaymentCommand command() {
+        return new ProcessPaymentCommand(UUID.randomUUID().toString(), 20.0, "CUST001", "Margherita");
+    }
+}
@@ -0,0 +1,230 @@
+package com.saga.contracts.codegen;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a serializer for every {@link SagaContract} class at compile time.
+ * <p>
+ * Each {@code <Contract>Codec} writes and reads the contract's fields one by one with the
+ * Jackson streaming API, through the getters and setters Lombok generates, so no reflection or
+ * data binding happens at runtime. Unknown fields are skipped and missing fields stay null,
+ * which is what lets services on different schema versions talk to each other. All codecs are
+ * listed in {@code com.saga.contracts.codec.GeneratedContractCodecs}, and each contract's schema
+ * is written to {@code META-INF/saga/schemas/<type>.v<version>.json}.
+ */
+@SupportedAnnotationTypes("com.saga.contracts.codegen.SagaContract")
+public class ContractProcessor extends AbstractProcessor {
+
+    private static final String CODEC_PACKAGE = "com.saga.contracts.codec";
+
+    /**
+     * Field types a contract may use, and the schema name and codec helper of each
+     */
+    private static final Map<String, String[]> FIELD_TYPES = Map.of(
+            "java.lang.String", new String[]{"STRING", "String"},
+            "java.lang.Integer", new String[]{"INTEGER", "Integer"},
+            "java.lang.Long", new String[]{"LONG", "Long"},
+            "java.lang.Double", new String[]{"DOUBLE", "Double"},
+            "java.lang.Boolean", new String[]{"BOOLEAN", "Boolean"});
+
+    private record Field(String name, String schemaType, String helper, int since) {
+
+        String accessorSuffix() {
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+
+    private record Contract(String packageName, String simpleName, int version, List<Field> fields) {
+
+        String codecName() {
+            return simpleName + "Codec";
+        }
+    }
+
+    private final List<Contract> contracts = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        int before = contracts.size();
+        for (Element element : roundEnv.getElementsAnnotatedWith(SagaContract.class)) {
+            Contract contract = contract((TypeElement) element);
+            if (contract != null) {
+                contracts.add(contract);
+                writeCodec(contract, element);
+                writeSchema(contract, element);
+            }
+        }
+        if (contracts.size() > before) {
+            writeRegistry();
+        }
+        return true;
+    }
+
+    private Contract contract(TypeElement type) {
+        int version = type.getAnnotation(SagaContract.class).version();
+        if (version < 1) {
+            error(type, "@SagaContract version must be at least 1");
+            return null;
+        }
+        List<Field> fields = new ArrayList<>();
+        boolean valid = true;
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.FIELD || member.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            VariableElement field = (VariableElement) member;
+            String[] fieldType = FIELD_TYPES.get(field.asType().toString());
+            Since since = field.getAnnotation(Since.class);
+            int sinceVersion = since == null ? 1 : since.value();
+            if (fieldType == null) {
+                error(field, "Unsupported contract field type " + field.asType() + ", use one of " + FIELD_TYPES.keySet());
+                valid = false;
+            } else if (sinceVersion < 1 || sinceVersion > version) {
+                error(field, "@Since(" + sinceVersion + ") is outside the contract versions 1.." + version);
+                valid = false;
+            } else {
+                fields.add(new Field(field.getSimpleName().toString(), fieldType[0], fieldType[1], sinceVersion));
+            }
+        }
+        String packageName = ((PackageElement) type.getEnclosingElement()).getQualifiedName().toString();
+        return valid ? new Contract(packageName, type.getSimpleName().toString(), version, fields) : null;
+    }
+
+    private void writeCodec(Contract contract, Element origin) {
+        String name = contract.simpleName();
+        StringBuilder java = new StringBuilder()
+                .append("package ").append(contract.packageName()).append(";\n\n")
+                .append("import com.fasterxml.jackson.core.JsonGenerator;\n")
+                .append("import com.fasterxml.jackson.core.JsonParser;\n")
+                .append("import com.fasterxml.jackson.core.JsonToken;\n")
+                .append("import ").append(CODEC_PACKAGE).append(".ContractCodec;\n")
+                .append("import ").append(CODEC_PACKAGE).append(".ContractField;\n")
+                .append("import ").append(CODEC_PACKAGE).append(".JsonFields;\n\n")
+                .append("import java.io.IOException;\n")
+                .append("import java.util.List;\n\n")
+                .append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("public final class ").append(contract.codecName())
+                .append(" implements ContractCodec<").append(name).append("> {\n\n")
+                .append("    private static final List<ContractField> FIELDS = List.of(");
+        for (int i = 0; i < contract.fields().size(); i++) {
+            Field field = contract.fields().get(i);
+            java.append(i == 0 ? "\n" : ",\n")
+                    .append("            new ContractField(\"").append(field.name()).append("\", ContractField.Type.")
+                    .append(field.schemaType()).append(", ").append(field.since()).append(")");
+        }
+        java.append(");\n\n")
+                .append("    @Override\n    public String typeId() {\n        return \"").append(name).append("\";\n    }\n\n")
+                .append("    @Override\n    public int version() {\n        return ").append(contract.version()).append(";\n    }\n\n")
+                .append("    @Override\n    public Class<").append(name).append("> type() {\n        return ")
+                .append(name).append(".class;\n    }\n\n")
+                .append("    @Override\n    public List<ContractField> fields() {\n        return FIELDS;\n    }\n\n")
+                .append("    @Override\n    public void write(").append(name)
+                .append(" value, JsonGenerator out) throws IOException {\n")
+                .append("        out.writeStartObject();\n");
+        for (Field field : contract.fields()) {
+            java.append("        JsonFields.write").append(field.helper()).append("(out, \"").append(field.name())
+                    .append("\", value.get").append(field.accessorSuffix()).append("());\n");
+        }
+        java.append("        out.writeEndObject();\n    }\n\n")
+                .append("    @Override\n    public ").append(name).append(" read(JsonParser in) throws IOException {\n")
+                .append("        JsonFields.startObject(in, typeId());\n")
+                .append("        ").append(name).append(" value = new ").append(name).append("();\n")
+                .append("        while (in.nextToken() == JsonToken.FIELD_NAME) {\n")
+                .append("            String field = in.currentName();\n")
+                .append("            in.nextToken();\n")
+                .append("            switch (field) {\n");
+        for (Field field : contract.fields()) {
+            java.append("                case \"").append(field.name()).append("\" -> value.set")
+                    .append(field.accessorSuffix()).append("(JsonFields.read").append(field.helper())
+                    .append("(in, typeId(), field));\n");
+        }
+        java.append("                default -> in.skipChildren();\n")
+                .append("            }\n")
+                .append("        }\n")
+                .append("        return value;\n    }\n}\n");
+
+        writeSource(contract.packageName() + "." + contract.codecName(), java, origin);
+    }
+
+    private void writeRegistry() {
+        StringBuilder java = new StringBuilder()
+                .append("package ").append(CODEC_PACKAGE).append(";\n\n")
+                .append("import java.util.List;\n\n")
+                .append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("final class GeneratedContractCodecs {\n\n")
+                .append("    static final List<ContractCodec<?>> ALL = List.of(");
+        for (int i = 0; i < contracts.size(); i++) {
+            Contract contract = contracts.get(i);
+            java.append(i == 0 ? "\n" : ",\n").append("            new ").append(contract.packageName()).append('.')
+                    .append(contract.codecName()).append("()");
+        }
+        java.append(");\n\n    private GeneratedContractCodecs() {\n    }\n}\n");
+
+        writeSource(CODEC_PACKAGE + ".GeneratedContractCodecs", java, null);
+    }
+
+    private void writeSchema(Contract contract, Element origin) {
+        StringBuilder json = new StringBuilder()
+                .append("{\n  \"type\": \"").append(contract.simpleName()).append("\",\n")
+                .append("  \"version\": ").append(contract.version()).append(",\n")
+                .append("  \"fields\": [");
+        for (int i = 0; i < contract.fields().size(); i++) {
+            Field field = contract.fields().get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"name\": \"").append(field.name()).append("\", \"type\": \"")
+                    .append(field.schemaType()).append("\", \"since\": ").append(field.since()).append("}");
+        }
+        json.append("\n  ]\n}\n");
+
+        String path = "META-INF/saga/schemas/" + contract.simpleName() + ".v" + contract.version() + ".json";
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path, origin);
+            try (Writer writer = file.openWriter()) {
+                writer.write(json.toString());
+            }
+        } catch (IOException e) {
+            error(origin, "Could not write schema " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void writeSource(String className, CharSequence source, Element origin) {
+        try {
+            JavaFileObject file = origin == null
+                    ? processingEnv.getFiler().createSourceFile(className)
+                    : processingEnv.getFiler().createSourceFile(className, origin);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException e) {
+            error(origin, "Could not write " + className + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,23 @@
+package com.saga.contracts.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a saga command or event. The {@link ContractProcessor} generates a serializer for it
+ * named after the class with a {@code Codec} suffix, and writes its schema.
+ * <p>
+ * The type id on the wire is the simple class name. Bump the version whenever a field is added,
+ * annotating the new field with {@link Since}; fields are never removed or retyped.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface SagaContract {
+
+    /**
+     * Current schema version, from 1
+     */
+    int version() default 1;
+}
@@ -0,0 +1,16 @@
+package com.saga.contracts.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Schema version a contract field was added in; fields without it exist since version 1
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Since {
+
+    int value();
+}
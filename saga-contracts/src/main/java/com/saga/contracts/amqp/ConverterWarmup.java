@@ -0,0 +1,69 @@
+package com.saga.contracts.amqp;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.saga.contracts.codec.ContractCodec;
+import com.saga.contracts.codec.ContractField;
+import com.saga.contracts.codec.SagaContracts;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a message of every saga contract through a converter, in and out, so the JIT has
+ * compiled the codecs before a service takes its first real message
+ */
+public final class ConverterWarmup {
+
+    private ConverterWarmup() {
+    }
+
+    /**
+     * Convert every contract the given number of times; returns the messages converted
+     */
+    public static int run(MessageConverter converter, int iterations) {
+        List<Message> samples = new ArrayList<>();
+        for (ContractCodec<?> codec : SagaContracts.codecs()) {
+            MessageProperties properties = new MessageProperties();
+            properties.setHeader(SagaMessageConverter.TYPE_ID_HEADER, codec.typeId());
+            samples.add(new Message(sample(codec), properties));
+        }
+        int converted = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (Message sample : samples) {
+                converter.toMessage(converter.fromMessage(sample), new MessageProperties());
+                converted++;
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * A body with every field of the contract set
+     */
+    private static byte[] sample(ContractCodec<?> codec) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonGenerator out = new JsonFactory().createGenerator(bytes, JsonEncoding.UTF8)) {
+            out.writeStartObject();
+            for (ContractField field : codec.fields()) {
+                switch (field.type()) {
+                    case STRING -> out.writeStringField(field.name(), "00000000-0000-0000-0000-000000000000");
+                    case INTEGER, LONG -> out.writeNumberField(field.name(), 1);
+                    case DOUBLE -> out.writeNumberField(field.name(), 1.5);
+                    case BOOLEAN -> out.writeBooleanField(field.name(), true);
+                }
+            }
+            out.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
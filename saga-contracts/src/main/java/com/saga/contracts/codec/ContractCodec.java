@@ -0,0 +1,42 @@
+package com.saga.contracts.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serializer of one saga contract, generated at compile time for every class annotated with
+ * {@code @SagaContract}.
+ * <p>
+ * {@link #write} emits every non-null field; {@link #read} skips fields it does not know and
+ * leaves absent ones null, so a reader on any schema version accepts a message written on any
+ * other.
+ */
+public interface ContractCodec<T> {
+
+    /**
+     * Type id carried in the message header, the contract's simple class name
+     */
+    String typeId();
+
+    /**
+     * Current schema version of the contract
+     */
+    int version();
+
+    Class<T> type();
+
+    /**
+     * Fields in declaration order, with the version each was added in
+     */
+    List<ContractField> fields();
+
+    void write(T value, JsonGenerator out) throws IOException;
+
+    /**
+     * Read one contract; the parser is positioned before its opening brace
+     */
+    T read(JsonParser in) throws IOException;
+}
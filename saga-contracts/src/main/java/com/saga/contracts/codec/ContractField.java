@@ -0,0 +1,13 @@
+package com.saga.contracts.codec;
+
+/**
+ * One field of a contract schema
+ *
+ * @param since schema version the field was added in
+ */
+public record ContractField(String name, Type type, int since) {
+
+    public enum Type {
+        STRING, INTEGER, LONG, DOUBLE, BOOLEAN
+    }
+}
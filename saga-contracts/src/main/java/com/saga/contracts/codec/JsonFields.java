@@ -0,0 +1,100 @@
+package com.saga.contracts.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Field readers and writers the generated codecs call; null fields are not written and a JSON
+ * null reads as null
+ */
+public final class JsonFields {
+
+    private JsonFields() {
+    }
+
+    public static void startObject(JsonParser in, String typeId) throws IOException {
+        JsonToken token = in.currentToken() == null ? in.nextToken() : in.currentToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(in, typeId + " must be a JSON object, got " + token);
+        }
+    }
+
+    public static void writeString(JsonGenerator out, String field, String value) throws IOException {
+        if (value != null) {
+            out.writeStringField(field, value);
+        }
+    }
+
+    public static void writeInteger(JsonGenerator out, String field, Integer value) throws IOException {
+        if (value != null) {
+            out.writeNumberField(field, value);
+        }
+    }
+
+    public static void writeLong(JsonGenerator out, String field, Long value) throws IOException {
+        if (value != null) {
+            out.writeNumberField(field, value);
+        }
+    }
+
+    public static void writeDouble(JsonGenerator out, String field, Double value) throws IOException {
+        if (value != null) {
+            out.writeNumberField(field, value);
+        }
+    }
+
+    public static void writeBoolean(JsonGenerator out, String field, Boolean value) throws IOException {
+        if (value != null) {
+            out.writeBooleanField(field, value);
+        }
+    }
+
+    public static String readString(JsonParser in, String typeId, String field) throws IOException {
+        return switch (in.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING -> in.getText();
+            default -> throw mismatch(in, typeId, field, "a string");
+        };
+    }
+
+    public static Integer readInteger(JsonParser in, String typeId, String field) throws IOException {
+        return switch (in.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT -> in.getIntValue();
+            default -> throw mismatch(in, typeId, field, "an integer");
+        };
+    }
+
+    public static Long readLong(JsonParser in, String typeId, String field) throws IOException {
+        return switch (in.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT -> in.getLongValue();
+            default -> throw mismatch(in, typeId, field, "an integer");
+        };
+    }
+
+    public static Double readDouble(JsonParser in, String typeId, String field) throws IOException {
+        return switch (in.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> in.getDoubleValue();
+            default -> throw mismatch(in, typeId, field, "a number");
+        };
+    }
+
+    public static Boolean readBoolean(JsonParser in, String typeId, String field) throws IOException {
+        return switch (in.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            default -> throw mismatch(in, typeId, field, "a boolean");
+        };
+    }
+
+    private static JsonParseException mismatch(JsonParser in, String typeId, String field, String expected) {
+        return new JsonParseException(in, typeId + "." + field + " must be " + expected + ", got " + in.currentToken());
+    }
+}
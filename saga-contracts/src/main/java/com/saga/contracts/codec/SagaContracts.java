@@ -0,0 +1,72 @@
+package com.saga.contracts.codec;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Every saga contract and its generated codec, looked up by class or by type id
+ */
+public final class SagaContracts {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final Map<String, ContractCodec<?>> BY_TYPE_ID = new HashMap<>();
+    private static final Map<Class<?>, ContractCodec<?>> BY_TYPE = new HashMap<>();
+
+    static {
+        for (ContractCodec<?> codec : GeneratedContractCodecs.ALL) {
+            BY_TYPE_ID.put(codec.typeId(), codec);
+            BY_TYPE.put(codec.type(), codec);
+        }
+    }
+
+    private SagaContracts() {
+    }
+
+    public static Collection<ContractCodec<?>> codecs() {
+        return GeneratedContractCodecs.ALL;
+    }
+
+    /**
+     * Codec of a type id, or null if it is not a saga contract
+     */
+    public static ContractCodec<?> codec(String typeId) {
+        return BY_TYPE_ID.get(typeId);
+    }
+
+    /**
+     * Codec of a contract class, or null if it is not a saga contract
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ContractCodec<T> codec(Class<T> type) {
+        return (ContractCodec<T>) BY_TYPE.get(type);
+    }
+
+    public static <T> byte[] write(ContractCodec<T> codec, T value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (JsonGenerator out = JSON.createGenerator(bytes, JsonEncoding.UTF8)) {
+            codec.write(value, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the body is not valid JSON or a field has the wrong type
+     */
+    public static <T> T read(ContractCodec<T> codec, byte[] body) throws IOException {
+        try (JsonParser in = JSON.createParser(body)) {
+            return codec.read(in);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.saga.contracts.command;
+
+import com.saga.contracts.codegen.SagaContract;
+import com.saga.contracts.codegen.Since;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@SagaContract(version = 3)
+public class AssignDeliveryCommand implements Serializable {
+    private String orderId;
+    private String deliveryAddress;
+    /** Orders ahead of this one in the kitchen, null when its pizza is already prepared */
+    @Since(2)
+    private Integer kitchenQueuePosition;
+    /** Who ordered what, so participants can tell orders apart, e.g. for fault injection */
+    @Since(3)
+    private String customerId;
+    @Since(3)
+    private String pizzaType;
+}
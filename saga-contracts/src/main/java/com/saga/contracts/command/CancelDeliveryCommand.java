@@ -1,5 +1,6 @@
-package com.saga.delivery.event;
+package com.saga.contracts.command;
 
+import com.saga.contracts.codegen.SagaContract;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,7 +10,8 @@ import java.io.Serializable;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class DeliveryFailedEvent implements Serializable {
+@SagaContract
+public class CancelDeliveryCommand implements Serializable {
     private String orderId;
     private String reason;
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package com.saga.contracts.command;
+
+import com.saga.contracts.codegen.SagaContract;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@SagaContract
+public class CancelPreparationCommand implements Serializable {
+    private String orderId;
+    private String reason;
+}
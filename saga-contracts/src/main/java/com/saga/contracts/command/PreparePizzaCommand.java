@@ -1,5 +1,7 @@
-package com.saga.order.command;
+package com.saga.contracts.command;
 
+import com.saga.contracts.codegen.SagaContract;
+import com.saga.contracts.codegen.Since;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,8 +11,12 @@ import java.io.Serializable;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@SagaContract(version = 2)
 public class PreparePizzaCommand implements Serializable {
     private String orderId;
     private String pizzaType;
     private Integer quantity;
+    /** Who ordered, so participants can tell orders apart, e.g. for fault injection */
+    @Since(2)
+    private String customerId;
 }
@@ -1,5 +1,7 @@
-package com.saga.delivery.event;
+package com.saga.contracts.event;
 
+import com.saga.contracts.codegen.SagaContract;
+import com.saga.contracts.codegen.Since;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,7 +11,11 @@ import java.io.Serializable;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@SagaContract(version = 2)
 public class DeliveryAssignedEvent implements Serializable {
     private String orderId;
     private String driverId;
-}
\ No newline at end of file
+    /** Estimated time of arrival at the customer, epoch millis */
+    @Since(2)
+    private Long estimatedDeliveryAt;
+}
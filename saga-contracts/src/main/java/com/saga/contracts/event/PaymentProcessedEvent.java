@@ -1,5 +1,6 @@
-package com.saga.order.event;
+package com.saga.contracts.event;
 
+import com.saga.contracts.codegen.SagaContract;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,6 +10,7 @@ import java.io.Serializable;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@SagaContract
 public class PaymentProcessedEvent implements Serializable {
     private String orderId;
     private String transactionId;
@@ -1,5 +1,6 @@
-package com.saga.kitchen.event;
+package com.saga.contracts.event;
 
+import com.saga.contracts.codegen.SagaContract;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,7 +10,8 @@ import java.io.Serializable;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class PizzaPreparedEvent implements Serializable {
+@SagaContract
+public class PreparationCancelledEvent implements Serializable {
     private String orderId;
     private String kitchenId;
-}
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+package com.saga.contracts.amqp;
+
+import com.saga.contracts.command.AssignDeliveryCommand;
+import com.saga.contracts.event.PaymentProcessedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SagaMessageConverterTest {
+
+    private final SagaMessageConverter converter = new SagaMessageConverter();
+
+    @Test
+    void roundTripsWithTypeIdAndVersionHeaders() {
+        AssignDeliveryCommand command = new AssignDeliveryCommand(
+                "order-1", "12 Main Street", 3, "CUST1", "Margherita");
+
+        Message message = converter.toMessage(command, new MessageProperties());
+
+        assertThat(message.getMessageProperties().<String>getHeader(SagaMessageConverter.TYPE_ID_HEADER))
+                .isEqualTo("AssignDeliveryCommand");
+        assertThat(message.getMessageProperties().<Integer>getHeader(SagaMessageConverter.VERSION_HEADER)).isEqualTo(3);
+        assertThat(new String(message.getBody(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"orderId\":\"order-1\",\"deliveryAddress\":\"12 Main Street\",\"kitchenQueuePosition\":3,"
+                        + "\"customerId\":\"CUST1\",\"pizzaType\":\"Margherita\"}");
+        assertThat(converter.fromMessage(message)).isEqualTo(command);
+    }
+
+    @Test
+    void readsMessagesFromTheJacksonConverter() {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader(SagaMessageConverter.TYPE_ID_HEADER, "PaymentProcessedEvent");
+        Message message = new Message("{\"orderId\":\"order-1\",\"transactionId\":\"TXN-1\"}".getBytes(), properties);
+
+        assertThat(converter.fromMessage(message)).isEqualTo(new PaymentProcessedEvent("order-1", "TXN-1"));
+    }
+
+    @Test
+    void rejectsWhatIsNotAContract() {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader(SagaMessageConverter.TYPE_ID_HEADER, "SomethingElse");
+
+        assertThatThrownBy(() -> converter.fromMessage(new Message("{}".getBytes(), properties)))
+                .isInstanceOf(MessageConversionException.class);
+        assertThatThrownBy(() -> converter.toMessage("text", new MessageProperties()))
+                .isInstanceOf(MessageConversionException.class);
+    }
+}
@@ -0,0 +1,211 @@
+package com.saga.contracts.codec;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every contract against its published schemas in {@code src/test/resources/schemas}, one file
+ * per version.
+ * <p>
+ * The generated schema must match the published file of its current version, so a field change
+ * without a version bump and a new schema file fails here. Each version may only add fields to the
+ * previous one. The matrix then has a service on every schema version send to a service on every
+ * other: writers on older versions are emulated from their schema, readers on older versions by
+ * reading only the fields their schema knows with the same skip-unknown rule the codecs use, and
+ * the current version is the generated codec itself.
+ */
+class ContractCompatibilityTest {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final ObjectMapper SCHEMAS = new ObjectMapper();
+
+    record Schema(String type, int version, List<ContractField> fields) {
+    }
+
+    @Test
+    void generatedSchemasArePublished() throws IOException {
+        for (ContractCodec<?> codec : SagaContracts.codecs()) {
+            String name = codec.typeId() + ".v" + codec.version() + ".json";
+            try (InputStream generated = resource("META-INF/saga/schemas/" + name)) {
+                assertThat(SCHEMAS.readTree(generated))
+                        .as("%s changed without a version bump, or its schema is not published", codec.typeId())
+                        .isEqualTo(SCHEMAS.readTree(resource("schemas/" + name)));
+            }
+            assertThat(published(codec).getLast().fields()).isEqualTo(codec.fields());
+        }
+    }
+
+    @Test
+    void versionsOnlyAddFields() {
+        for (ContractCodec<?> codec : SagaContracts.codecs()) {
+            List<Schema> versions = published(codec);
+            for (int i = 1; i < versions.size(); i++) {
+                List<ContractField> previous = versions.get(i - 1).fields();
+                List<ContractField> next = versions.get(i).fields();
+                int version = versions.get(i).version();
+                assertThat(next.subList(0, Math.min(previous.size(), next.size())))
+                        .as("%s v%d keeps every field of v%d", codec.typeId(), version, version - 1)
+                        .isEqualTo(previous);
+                assertThat(next.subList(previous.size(), next.size()))
+                        .as("%s v%d adds fields since v%d", codec.typeId(), version, version)
+                        .allSatisfy(field -> assertThat(field.since()).isEqualTo(version));
+            }
+        }
+    }
+
+    static Stream<Arguments> matrix() {
+        return SagaContracts.codecs().stream().flatMap(codec -> {
+            int versions = codec.version();
+            return IntStream.rangeClosed(1, versions).boxed().flatMap(writer ->
+                    IntStream.rangeClosed(1, versions).mapToObj(reader -> Arguments.of(codec.typeId(), writer, reader)));
+        });
+    }
+
+    @ParameterizedTest(name = "{0} v{1} -> v{2}")
+    @MethodSource("matrix")
+    void readerSeesEveryFieldBothVersionsKnow(String typeId, int writerVersion, int readerVersion) throws IOException {
+        ContractCodec<?> codec = SagaContracts.codec(typeId);
+        List<Schema> versions = published(codec);
+        Schema writer = versions.get(writerVersion - 1);
+        Schema reader = versions.get(readerVersion - 1);
+
+        byte[] sent = writerVersion == codec.version() ? throughCodec(codec, sample(writer)) : sample(writer);
+        Map<String, Object> received = readerVersion == codec.version()
+                ? fieldsOf(codec, SagaContracts.read(codec, sent))
+                : readAs(reader, sent);
+
+        for (ContractField field : reader.fields()) {
+            Object expected = field.since() <= writerVersion ? sampleValue(field) : null;
+            assertThat(received.get(field.name())).as("%s.%s", typeId, field.name()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void readsLegacyJacksonPayloads() throws IOException {
+        ContractCodec<?> codec = SagaContracts.codec("DeliveryAssignedEvent");
+        byte[] legacy = """
+                {"orderId":"o-1","driverId":null,"estimatedDeliveryAt":1700000000000,"extra":{"nested":[1,2]}}"""
+                .getBytes();
+
+        Map<String, Object> fields = fieldsOf(codec, SagaContracts.read(codec, legacy));
+
+        assertThat(fields).containsEntry("orderId", "o-1").containsEntry("estimatedDeliveryAt", 1700000000000L);
+        assertThat(fields.get("driverId")).isNull();
+    }
+
+    private static List<Schema> published(ContractCodec<?> codec) {
+        List<Schema> versions = new ArrayList<>();
+        for (int version = 1; version <= codec.version(); version++) {
+            try (InputStream in = resource("schemas/" + codec.typeId() + ".v" + version + ".json")) {
+                Schema schema = SCHEMAS.readValue(in, Schema.class);
+                assertThat(schema.version()).isEqualTo(version);
+                versions.add(schema);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return versions;
+    }
+
+    private static InputStream resource(String path) {
+        InputStream in = ContractCompatibilityTest.class.getClassLoader().getResourceAsStream(path);
+        assertThat(in).as(path).isNotNull();
+        return in;
+    }
+
+    /**
+     * What a service on this schema version sends: every field it knows, set
+     */
+    private static byte[] sample(Schema schema) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonGenerator out = JSON.createGenerator(bytes, JsonEncoding.UTF8)) {
+            out.writeStartObject();
+            for (ContractField field : schema.fields()) {
+                out.writeFieldName(field.name());
+                switch (sampleValue(field)) {
+                    case String value -> out.writeString(value);
+                    case Integer value -> out.writeNumber(value);
+                    case Long value -> out.writeNumber(value);
+                    case Double value -> out.writeNumber(value);
+                    case Boolean value -> out.writeBoolean(value);
+                    default -> throw new IllegalStateException(field.toString());
+                }
+            }
+            out.writeEndObject();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object sampleValue(ContractField field) {
+        return switch (field.type()) {
+            case STRING -> field.name() + "-value";
+            case INTEGER -> field.name().length();
+            case LONG -> 1_700_000_000_000L + field.name().length();
+            case DOUBLE -> field.name().length() + 0.25;
+            case BOOLEAN -> true;
+        };
+    }
+
+    private static <T> byte[] throughCodec(ContractCodec<T> codec, byte[] body) throws IOException {
+        return SagaContracts.write(codec, SagaContracts.read(codec, body));
+    }
+
+    /**
+     * A reader generated for an older schema: its own fields, anything else skipped
+     */
+    private static Map<String, Object> readAs(Schema schema, byte[] body) throws IOException {
+        Map<String, ContractField> known = new HashMap<>();
+        schema.fields().forEach(field -> known.put(field.name(), field));
+        Map<String, Object> fields = new HashMap<>();
+        try (JsonParser in = JSON.createParser(body)) {
+            JsonFields.startObject(in, schema.type());
+            while (in.nextToken() == JsonToken.FIELD_NAME) {
+                String name = in.currentName();
+                in.nextToken();
+                ContractField field = known.get(name);
+                if (field == null) {
+                    in.skipChildren();
+                    continue;
+                }
+                fields.put(name, switch (field.type()) {
+                    case STRING -> JsonFields.readString(in, schema.type(), name);
+                    case INTEGER -> JsonFields.readInteger(in, schema.type(), name);
+                    case LONG -> JsonFields.readLong(in, schema.type(), name);
+                    case DOUBLE -> JsonFields.readDouble(in, schema.type(), name);
+                    case BOOLEAN -> JsonFields.readBoolean(in, schema.type(), name);
+                });
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Field values of a decoded contract, read back through the codec's own writer
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Map<String, Object> fieldsOf(ContractCodec<T> codec, Object value) throws IOException {
+        assertThat(value).isInstanceOf(codec.type());
+        return readAs(new Schema(codec.typeId(), codec.version(), codec.fields()), SagaContracts.write(codec, (T) value));
+    }
+}
@@ -0,0 +1,44 @@
+package com.saga.runtime;
+
+import com.saga.runtime.amqp.ListenerAutoscaler;
+import com.saga.runtime.idempotency.SingleFlight;
+import com.saga.runtime.startup.FastStartupConfig;
+import com.saga.runtime.startup.StartupTimer;
+import com.saga.runtime.startup.StartupWarmup;
+import com.saga.runtime.tracing.InMemorySpanExporter;
+import com.saga.runtime.tracing.TraceController;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+/**
+ * What saga-runtime adds to a service that has it on the classpath.
+ * <ul>
+ *     <li>{@link ListenerAutoscaler} - consumers and prefetch of every listener container (saga.listener.autoscale.*)</li>
+ *     <li>{@link SingleFlight} - participants coalescing duplicate commands (saga.single-flight.enabled)</li>
+ *     <li>{@link StartupTimer} - time to ready and to the first message (saga.startup.*)</li>
+ *     <li>{@link StartupWarmup} - the message path warmed up before the listeners start (saga.startup.warmup.*)</li>
+ *     <li>{@link FastStartupConfig} - lazy initialization off the message path (fast-startup profile)</li>
+ *     <li>{@link InMemorySpanExporter} - recent spans, served by {@link TraceController} (saga.tracing.exporter.*)</li>
+ * </ul>
+ */
+@AutoConfiguration
+@Import({ListenerAutoscaler.class, StartupTimer.class, StartupWarmup.class, FastStartupConfig.class})
+public class SagaRuntimeAutoConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "saga.single-flight.enabled", havingValue = "true")
+    public SingleFlight singleFlight(@Value("${saga.single-flight.stripes:16}") int stripes,
+                                     @Value("${saga.single-flight.wait-timeout-ms:30000}") long waitTimeoutMillis) {
+        return new SingleFlight(stripes, waitTimeoutMillis);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "saga.tracing.exporter.enabled", havingValue = "true", matchIfMissing = true)
+    public InMemorySpanExporter inMemorySpanExporter(@Value("${saga.tracing.exporter.max-traces:10000}") int maxTraces,
+                                                     @Value("${saga.tracing.exporter.max-spans-per-trace:64}") int maxSpansPerTrace) {
+        return new InMemorySpanExporter(maxTraces, maxSpansPerTrace);
+    }
+}
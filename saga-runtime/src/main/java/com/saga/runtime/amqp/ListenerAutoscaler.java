@@ -0,0 +1,278 @@
+package com.saga.runtime.amqp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Sizes each listener container from its queue depth and handler latency.
+ * <p>
+ * Every sample reads the depth of the container's queues from the broker and the mean
+ * handler time since the previous sample from the listener observation timer
+ * ({@code spring.rabbit.listener}). Consumers are sized so the backlog would drain within the
+ * target time; an empty queue gives back one consumer after a few idle samples. Prefetch is
+ * sized so each consumer holds about the target amount of buffered work: high for fast
+ * handlers, where broker round trips dominate, and low for slow ones, where buffered messages
+ * would only wait behind the one being handled. Both stay within the configured bounds.
+ * <p>
+ * The container's own consumer scaling is disabled by keeping its maximum equal to the
+ * current count. The broker applies a prefetch to a consumer when it starts, so a new prefetch
+ * restarts the container's consumers: each finishes the messages it holds, as when scaling
+ * down, and is replaced by one with the new prefetch. To keep restarts rare, prefetch only
+ * changes when the target is off by more than half. Containers that consume in batches are
+ * left alone.
+ * Every decision is counted in {@code saga.listener.scaling.decisions}, and the current
+ * sizing and inputs are exposed as {@code saga.listener.*} gauges.
+ */
+@Slf4j
+public class ListenerAutoscaler {
+
+    static final String LISTENER_TIMER = "spring.rabbit.listener";
+
+    private final RabbitListenerEndpointRegistry registry;
+    private final AmqpAdmin amqpAdmin;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final int initialPrefetch;
+    private final Bounds bounds;
+
+    private final Map<String, ListenerState> states = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "listener-autoscaler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ListenerAutoscaler(RabbitListenerEndpointRegistry registry,
+                              AmqpAdmin amqpAdmin,
+                              MeterRegistry meterRegistry,
+                              @Value("${saga.listener.autoscale.enabled:true}") boolean enabled,
+                              @Value("${saga.listener.autoscale.interval-ms:5000}") long intervalMillis,
+                              @Value("${saga.listener.autoscale.min-consumers:1}") int minConsumers,
+                              @Value("${saga.listener.autoscale.max-consumers:10}") int maxConsumers,
+                              @Value("${saga.listener.autoscale.min-prefetch:1}") int minPrefetch,
+                              @Value("${saga.listener.autoscale.max-prefetch:50}") int maxPrefetch,
+                              @Value("${saga.listener.autoscale.target-drain-ms:2000}") long targetDrainMillis,
+                              @Value("${saga.listener.autoscale.buffered-work-ms:200}") long bufferedWorkMillis,
+                              @Value("${saga.listener.autoscale.idle-samples:3}") int idleSamples,
+                              @Value("${spring.rabbitmq.listener.simple.prefetch:250}") int initialPrefetch) {
+        this.registry = registry;
+        this.amqpAdmin = amqpAdmin;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        this.initialPrefetch = initialPrefetch;
+        this.bounds = new Bounds(minConsumers, Math.max(minConsumers, maxConsumers), minPrefetch,
+                Math.max(minPrefetch, maxPrefetch), targetDrainMillis, bufferedWorkMillis, idleSamples);
+    }
+
+    /**
+     * Consumer and prefetch limits and the targets the controller sizes against
+     */
+    record Bounds(int minConsumers, int maxConsumers, int minPrefetch, int maxPrefetch,
+                  long targetDrainMillis, long bufferedWorkMillis, int idleSamples) {
+    }
+
+    /**
+     * Consumer count and prefetch chosen for a container
+     */
+    record Decision(int consumers, int prefetch) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            sampler.scheduleWithFixedDelay(this::sampleQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        sampler.shutdownNow();
+    }
+
+    /**
+     * Size consumers and prefetch for the given depth and mean handler latency (negative when
+     * nothing was handled since the last sample). {@code idle} counts consecutive samples with
+     * an empty queue, including this one.
+     */
+    static Decision decide(Bounds bounds, int consumers, int prefetch, long depth, double latencyMillis, int idle) {
+        int targetConsumers = consumers;
+        int targetPrefetch = prefetch;
+
+        if (latencyMillis >= 0) {
+            // Consumers needed to drain the backlog within the target time at the observed pace
+            double handlerMillis = Math.max(latencyMillis, 0.1);
+            int needed = (int) Math.ceil(depth * handlerMillis / bounds.targetDrainMillis());
+            if (needed > consumers) {
+                targetConsumers = needed;
+            }
+            int buffered = (int) Math.round(bounds.bufferedWorkMillis() / handlerMillis);
+            // Changing prefetch restarts the consumers, so small corrections are not worth it
+            if (buffered * 2 < prefetch || buffered > prefetch * 3 / 2) {
+                targetPrefetch = buffered;
+            }
+        }
+        if (depth == 0 && idle >= bounds.idleSamples()) {
+            targetConsumers = consumers - 1;
+        }
+
+        return new Decision(
+                clamp(targetConsumers, bounds.minConsumers(), bounds.maxConsumers()),
+                clamp(targetPrefetch, bounds.minPrefetch(), bounds.maxPrefetch()));
+    }
+
+    void sample() {
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            // Batch consumers are sized by their batch settings, and their timer measures whole batches
+            if (container instanceof SimpleMessageListenerContainer simple && simple.isRunning()
+                    && !simple.isConsumerBatchEnabled()) {
+                sample(simple);
+            }
+        }
+    }
+
+    private void sample(SimpleMessageListenerContainer container) {
+        String id = container.getListenerId();
+        ListenerState state = states.computeIfAbsent(id, key -> new ListenerState(key, container));
+
+        long depth = 0;
+        for (String queue : container.getQueueNames()) {
+            QueueInformation info = amqpAdmin.getQueueInfo(queue);
+            if (info != null) {
+                depth += info.getMessageCount();
+            }
+        }
+        double latencyMillis = state.latencySinceLastSample();
+        state.idle = depth == 0 ? state.idle + 1 : 0;
+        state.depth = depth;
+        if (latencyMillis >= 0) {
+            state.latencyMillis = latencyMillis;
+        }
+
+        Decision decision = decide(bounds, state.consumers, state.prefetch, depth, latencyMillis, state.idle);
+        // Prefetch first, so consumers added below start with the new one
+        if (decision.prefetch() != state.prefetch) {
+            log.info("Changing listener prefetch, restarting its consumers {} {}",
+                    kv("listener", id), kv("prefetch", decision.prefetch()));
+            container.setPrefetchCount(decision.prefetch());
+            // Setting the queues of a running container restarts its consumers
+            container.setQueueNames(container.getQueueNames());
+            state.prefetch = decision.prefetch();
+            state.decision("prefetch").increment();
+        }
+        if (decision.consumers() != state.consumers) {
+            String action = decision.consumers() > state.consumers ? "scale_up" : "scale_down";
+            log.info("Resizing listener {} {} {} {} {}", kv("listener", id), kv("action", action),
+                    kv("consumers", decision.consumers()), kv("queueDepth", depth),
+                    kv("latencyMs", Math.round(state.latencyMillis)));
+            resize(container, state.consumers, decision.consumers());
+            state.consumers = decision.consumers();
+            state.idle = 0;
+            state.decision(action).increment();
+        }
+    }
+
+    private void sampleQuietly() {
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            log.debug("Listener autoscaling sample failed {}", kv("error", e.getMessage()));
+        }
+    }
+
+    private static void resize(SimpleMessageListenerContainer container, int current, int consumers) {
+        // The maximum must never drop below the current count; keeping them equal stops the
+        // container from scaling on its own
+        if (consumers > current) {
+            container.setMaxConcurrentConsumers(consumers);
+            container.setConcurrentConsumers(consumers);
+        } else {
+            container.setConcurrentConsumers(consumers);
+            container.setMaxConcurrentConsumers(consumers);
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * What the controller knows about one container between samples
+     */
+    private final class ListenerState {
+
+        private final String id;
+        private final Map<String, Counter> decisions = new ConcurrentHashMap<>();
+        private volatile int consumers;
+        private volatile int prefetch;
+        private volatile long depth;
+        private volatile double latencyMillis;
+        private int idle;
+        private long lastCount;
+        private double lastTotalMillis;
+
+        private ListenerState(String id, SimpleMessageListenerContainer container) {
+            this.id = id;
+            this.consumers = Math.max(1, container.getActiveConsumerCount());
+            this.prefetch = initialPrefetch;
+            Tags tags = Tags.of("listener", id);
+            Gauge.builder("saga.listener.consumers", this, s -> s.consumers)
+                    .description("Consumers the autoscaler assigned to the listener").tags(tags).register(meterRegistry);
+            Gauge.builder("saga.listener.prefetch", this, s -> s.prefetch)
+                    .description("Prefetch the autoscaler assigned to the listener").tags(tags).register(meterRegistry);
+            Gauge.builder("saga.listener.queue.depth", this, s -> s.depth)
+                    .description("Ready messages in the listener's queues at the last sample").tags(tags).register(meterRegistry);
+            Gauge.builder("saga.listener.latency", this, s -> s.latencyMillis)
+                    .description("Mean handler time in milliseconds over the last sample with traffic").tags(tags)
+                    .baseUnit("milliseconds").register(meterRegistry);
+        }
+
+        /**
+         * Mean handler time of the messages handled since the previous sample, or -1 if none were
+         */
+        private double latencySinceLastSample() {
+            long count = 0;
+            double totalMillis = 0;
+            for (Timer timer : meterRegistry.find(LISTENER_TIMER).tag("spring.rabbit.listener.id", id).timers()) {
+                count += timer.count();
+                totalMillis += timer.totalTime(TimeUnit.MILLISECONDS);
+            }
+            long handled = count - lastCount;
+            double latency = handled > 0 ? (totalMillis - lastTotalMillis) / handled : -1;
+            lastCount = count;
+            lastTotalMillis = totalMillis;
+            return latency;
+        }
+
+        private Counter decision(String action) {
+            return decisions.computeIfAbsent(action, a -> Counter.builder("saga.listener.scaling.decisions")
+                    .description("Consumer and prefetch changes made by the listener autoscaler")
+                    .tag("listener", id)
+                    .tag("action", a)
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.saga.runtime.fault;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Admin endpoints of the service's {@link FaultInjector}. Picked up by the services' component
+ * scan; a service without one, such as the orchestrator, answers 404.
+ */
+@RestController
+@RequestMapping("/api/faults")
+@RequiredArgsConstructor
+@Slf4j
+public class FaultController {
+
+    private final ObjectProvider<FaultInjector<?>> faultInjector;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Get the fault injection rules, in the order they are tried
+     */
+    @GetMapping
+    public ResponseEntity<List<? extends FaultRule<?>>> getRules() {
+        return ResponseEntity.ok(injector().rules());
+    }
+
+    /**
+     * Replace the fault injection rules (admin); an invalid rule is rejected with 400
+     */
+    @PutMapping
+    public ResponseEntity<List<? extends FaultRule<?>>> replaceRules(@RequestBody JsonNode rules) {
+        return ResponseEntity.ok(replace(injector(), rules));
+    }
+
+    /**
+     * Go back to the configured rules (admin)
+     */
+    @DeleteMapping
+    public ResponseEntity<List<? extends FaultRule<?>>> resetRules() {
+        return ResponseEntity.ok(injector().reset());
+    }
+
+    private FaultInjector<?> injector() {
+        FaultInjector<?> injector = faultInjector.getIfAvailable();
+        if (injector == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No fault injection in this service");
+        }
+        return injector;
+    }
+
+    /**
+     * Read the rules as rules of the injector's own steps, which only it knows
+     */
+    private <S extends Enum<S> & InjectableStep> List<FaultRule<S>> replace(FaultInjector<S> injector, JsonNode body) {
+        JavaType rule = objectMapper.getTypeFactory().constructParametricType(FaultRule.class, injector.steps());
+        JavaType type = objectMapper.getTypeFactory().constructCollectionType(List.class, rule);
+        List<FaultRule<S>> rules;
+        try {
+            rules = objectMapper.convertValue(body, type);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return injector.replace(rules);
+    }
+}
@@ -0,0 +1,144 @@
+package com.saga.runtime.fault;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Injects latency and errors into a participant's saga steps, for load and failure testing.
+ * <p>
+ * For each command the first rule matching its step, pizza type and customer applies: its
+ * latency is slept, then an error is drawn with its error rate. Draws come from the calling
+ * thread's {@link ThreadLocalRandom}, so concurrent listeners do not contend on a shared
+ * generator. The rules can be replaced at runtime through {@link FaultController}; until then, and
+ * after a reset, they are the participant's defaults, built from its configuration.
+ * <ul>
+ *     <li>{@code saga.faults.injected{step,fault}} - errors injected</li>
+ *     <li>{@code saga.faults.delay{step}} - latency injected</li>
+ * </ul>
+ */
+@Slf4j
+public class FaultInjector<S extends Enum<S> & InjectableStep> {
+
+    private final Class<S> steps;
+    private final List<FaultRule<S>> defaults;
+    private final Map<S, Map<FaultType, Counter>> faultCounters;
+    private final Map<S, Timer> delayTimers;
+
+    private volatile List<FaultRule<S>> rules;
+
+    public FaultInjector(Class<S> steps, List<FaultRule<S>> defaults, MeterRegistry meterRegistry) {
+        this.steps = steps;
+        this.defaults = List.copyOf(defaults);
+        this.rules = this.defaults;
+        this.faultCounters = new EnumMap<>(steps);
+        this.delayTimers = new EnumMap<>(steps);
+
+        for (S step : steps.getEnumConstants()) {
+            Map<FaultType, Counter> counters = new EnumMap<>(FaultType.class);
+            Arrays.stream(FaultType.values()).forEach(type -> counters.put(type, Counter.builder("saga.faults.injected")
+                    .description("Errors injected into a saga step")
+                    .tag("step", step.name())
+                    .tag("fault", type.name())
+                    .register(meterRegistry)));
+            faultCounters.put(step, counters);
+            delayTimers.put(step, Timer.builder("saga.faults.delay")
+                    .description("Latency injected into a saga step")
+                    .tag("step", step.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Run the faults of the first rule matching the command: sleep its latency, then maybe fail.
+     *
+     * @return false when the step is to be declined, true to carry on
+     * @throws InjectedFaultException when a timeout or an exception is injected
+     */
+    public boolean apply(S step, String pizzaType, String customerId) {
+        FaultRule<S> rule = match(step, pizzaType, customerId);
+        if (rule == null) {
+            return true;
+        }
+
+        RandomGenerator random = ThreadLocalRandom.current();
+        try {
+            if (rule.latency() != null) {
+                long delayMillis = rule.latency().sampleMillis(random);
+                Thread.sleep(delayMillis);
+                delayTimers.get(step).record(delayMillis, TimeUnit.MILLISECONDS);
+            }
+            if (rule.errorRate() == 0 || random.nextDouble() >= rule.errorRate()) {
+                return true;
+            }
+
+            log.warn("Injected fault {} {} {}", kv("step", step), kv("fault", rule.error()),
+                    kv("errorRate", rule.errorRate()));
+            faultCounters.get(step).get(rule.error()).increment();
+            return switch (rule.error()) {
+                case DECLINE -> false;
+                case EXCEPTION -> throw new InjectedFaultException(FaultType.EXCEPTION, "Injected failure in " + step);
+                case TIMEOUT -> {
+                    Thread.sleep(rule.timeoutMillis());
+                    throw new InjectedFaultException(FaultType.TIMEOUT,
+                            step + " timed out after " + rule.timeoutMillis() + " ms");
+                }
+            };
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during injected latency", e);
+        }
+    }
+
+    /**
+     * The participant's steps
+     */
+    public Class<S> steps() {
+        return steps;
+    }
+
+    /**
+     * Rules in the order they are tried
+     */
+    public List<FaultRule<S>> rules() {
+        return rules;
+    }
+
+    /**
+     * Replace every rule; commands already past their rule lookup are not affected
+     */
+    public List<FaultRule<S>> replace(List<FaultRule<S>> rules) {
+        this.rules = List.copyOf(rules);
+        log.warn("Fault injection rules replaced {}", kv("rules", this.rules.size()));
+        return this.rules;
+    }
+
+    /**
+     * Go back to the rules from configuration
+     */
+    public List<FaultRule<S>> reset() {
+        this.rules = defaults;
+        log.info("Fault injection rules reset to the configured defaults");
+        return defaults;
+    }
+
+    private FaultRule<S> match(S step, String pizzaType, String customerId) {
+        for (FaultRule<S> rule : rules) {
+            if (rule.matches(step, pizzaType, customerId)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.saga.runtime.fault;
+
+/**
+ * Latency and errors injected into a step, for the orders the rule targets.
+ *
+ * @param <S>           the participant's steps
+ * @param pizzaType     only orders of this pizza type, any when null
+ * @param customerId    only orders of this customer, any when null
+ * @param latency       added to the step, none when null
+ * @param errorRate     probability of an injected error per command
+ * @param error         the error injected, required with a non-zero error rate
+ * @param timeoutMillis how long a {@link FaultType#TIMEOUT} hangs before it fails
+ */
+public record FaultRule<S extends Enum<S> & InjectableStep>(S step,
+                                                           String pizzaType,
+                                                           String customerId,
+                                                           LatencyDistribution latency,
+                                                           double errorRate,
+                                                           FaultType error,
+                                                           long timeoutMillis) {
+
+    public FaultRule {
+        if (step == null) {
+            throw new IllegalArgumentException("A fault rule needs a step");
+        }
+        if (!(errorRate >= 0 && errorRate <= 1)) {
+            throw new IllegalArgumentException("Error rate must be between 0 and 1: " + errorRate);
+        }
+        if (errorRate > 0 && error == null) {
+            throw new IllegalArgumentException("A fault rule with an error rate needs an error type");
+        }
+        if (error == FaultType.DECLINE && !step.declinable()) {
+            throw new IllegalArgumentException(step + " is an undo step and is never declined");
+        }
+        if (error == FaultType.TIMEOUT && timeoutMillis <= 0) {
+            throw new IllegalArgumentException("A timeout fault needs a positive timeoutMillis");
+        }
+    }
+
+    /**
+     * Whether the rule applies to a command of the step. A rule naming a pizza type or customer
+     * does not match a command that does not carry one.
+     */
+    public boolean matches(S step, String pizzaType, String customerId) {
+        return this.step == step
+                && (this.pizzaType == null || this.pizzaType.equalsIgnoreCase(pizzaType))
+                && (this.customerId == null || this.customerId.equals(customerId));
+    }
+}
@@ -0,0 +1,22 @@
+package com.saga.runtime.fault;
+
+/**
+ * What goes wrong in a step when an injected error is drawn
+ */
+public enum FaultType {
+
+    /**
+     * The step hangs for the rule's timeout, then fails as a call past its deadline would
+     */
+    TIMEOUT,
+
+    /**
+     * The step fails with an exception, as on a bug or a broken dependency
+     */
+    EXCEPTION,
+
+    /**
+     * The step completes with a business failure, e.g. no capacity; forward steps only
+     */
+    DECLINE
+}
@@ -0,0 +1,17 @@
+package com.saga.runtime.fault;
+
+/**
+ * A step of a saga participant that faults can be injected into; each participant lists its
+ * steps in an enum
+ */
+public interface InjectableStep {
+
+    /**
+     * Failure reason of a declined step, null for an undo step, which is never declined
+     */
+    String declineReason();
+
+    default boolean declinable() {
+        return declineReason() != null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.saga.runtime.fault;
+
+import lombok.Getter;
+
+/**
+ * A timeout or exception injected into a step
+ */
+@Getter
+public class InjectedFaultException extends RuntimeException {
+
+    private final FaultType type;
+
+    public InjectedFaultException(FaultType type, String message) {
+        super(message);
+        this.type = type;
+    }
+}
@@ -0,0 +1,114 @@
+package com.saga.runtime.fault;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * How long an injected step takes, in milliseconds.
+ * <p>
+ * In JSON the {@code type} property picks the distribution: {@code fixed}, {@code lognormal}
+ * or {@code recorded}.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = LatencyDistribution.Fixed.class, name = "fixed"),
+        @JsonSubTypes.Type(value = LatencyDistribution.LogNormal.class, name = "lognormal"),
+        @JsonSubTypes.Type(value = LatencyDistribution.Recorded.class, name = "recorded")
+})
+public sealed interface LatencyDistribution {
+
+    long sampleMillis(RandomGenerator random);
+
+    /**
+     * The same delay every time
+     */
+    record Fixed(long millis) implements LatencyDistribution {
+
+        public Fixed {
+            if (millis < 0) {
+                throw new IllegalArgumentException("Latency must not be negative: " + millis);
+            }
+        }
+
+        @Override
+        public long sampleMillis(RandomGenerator random) {
+            return millis;
+        }
+    }
+
+    /**
+     * Right-skewed delays around a median, the usual shape of service latency
+     *
+     * @param sigma standard deviation of the log of the latency; 0.5 puts p99 at about 3x the median
+     */
+    record LogNormal(double medianMillis, double sigma) implements LatencyDistribution {
+
+        public LogNormal {
+            if (!(medianMillis > 0) || !(sigma >= 0)) {
+                throw new IllegalArgumentException(
+                        "Lognormal latency needs a positive median and a non-negative sigma");
+            }
+        }
+
+        @Override
+        public long sampleMillis(RandomGenerator random) {
+            return Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    /**
+     * Delays following percentiles measured elsewhere, e.g. read off a production dashboard.
+     * Values between two percentiles are interpolated; below the first the first value is used.
+     *
+     * @param percentiles in ascending order, the last one at 100
+     */
+    record Recorded(List<Percentile> percentiles) implements LatencyDistribution {
+
+        public Recorded {
+            percentiles = List.copyOf(percentiles);
+            if (percentiles.isEmpty() || percentiles.getLast().percentile() != 100) {
+                throw new IllegalArgumentException("Recorded latency must end at the 100th percentile");
+            }
+            for (int i = 1; i < percentiles.size(); i++) {
+                Percentile previous = percentiles.get(i - 1);
+                Percentile next = percentiles.get(i);
+                if (next.percentile() <= previous.percentile() || next.millis() < previous.millis()) {
+                    throw new IllegalArgumentException("Recorded percentiles must ascend: " + percentiles);
+                }
+            }
+        }
+
+        @Override
+        public long sampleMillis(RandomGenerator random) {
+            double rank = random.nextDouble(100);
+            Percentile below = null;
+            for (Percentile next : percentiles) {
+                if (rank < next.percentile()) {
+                    if (below == null) {
+                        return next.millis();
+                    }
+                    double share = (rank - below.percentile()) / (next.percentile() - below.percentile());
+                    return below.millis() + Math.round(share * (next.millis() - below.millis()));
+                }
+                below = next;
+            }
+            return percentiles.getLast().millis();
+        }
+
+        /**
+         * {@code percentile} percent of the recorded calls took at most {@code millis}
+         */
+        public record Percentile(double percentile, long millis) {
+
+            public Percentile {
+                if (!(percentile > 0 && percentile <= 100) || millis < 0) {
+                    throw new IllegalArgumentException(
+                            "Percentile must be in (0, 100] with a non-negative latency: " + percentile);
+                }
+            }
+        }
+    }
+}
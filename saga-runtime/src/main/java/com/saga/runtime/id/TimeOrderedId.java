@@ -0,0 +1,17 @@
+package com.saga.runtime.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link java.util.UUID} id as generated by {@link TimeOrderedIdGenerator}
+ */
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedId {
+}
@@ -0,0 +1,193 @@
+package com.saga.runtime.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Coalesces concurrent executions of the same command.
+ * <p>
+ * A redelivered command can arrive while the first copy is still being handled, before its
+ * record is committed and visible to the idempotency check. The first caller for a key runs
+ * the work; callers arriving while it runs wait for its result instead of repeating the work.
+ * When the first caller runs in a transaction its result is handed over only once that
+ * transaction has committed, and a rollback fails the waiters, so a duplicate never answers
+ * with the result of work that did not stick. The key stays registered until then, so a copy
+ * arriving between the result and the commit is coalesced as well.
+ * <p>
+ * Keys are spread over independently locked stripes so unrelated orders do not contend.
+ * A waiter that times out, or whose leader failed, runs the work itself.
+ * <p>
+ * Work that completes asynchronously goes through {@link #executeAsync}: duplicates attach to
+ * the first copy's future instead of waiting on a thread.
+ */
+@Slf4j
+public class SingleFlight {
+
+    private final Map<String, CompletableFuture<Object>>[] stripes;
+    private final int mask;
+    private final long waitTimeoutMillis;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    public SingleFlight(int stripes, long waitTimeoutMillis) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+        this.stripes = new Map[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new HashMap<>();
+        }
+        this.mask = size - 1;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    /**
+     * Run the work for a key, or, if it is already running, hand its result to the follower.
+     * A null result is not handed over.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> void execute(String key, Supplier<V> work, Consumer<V> follower) {
+        Map<String, CompletableFuture<Object>> stripe = stripe(key);
+        CompletableFuture<Object> running;
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        synchronized (stripe) {
+            running = stripe.putIfAbsent(key, mine);
+        }
+
+        if (running != null) {
+            waiting.incrementAndGet();
+            try {
+                V result = (V) running.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (result != null) {
+                    follower.accept(result);
+                }
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for " + key, e);
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Duplicate did not get the first execution's result, running it {} {}",
+                        kv("key", key), kv("error", String.valueOf(e.getMessage())));
+                work.get();
+                return;
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                mine.complete(work.get());
+            } catch (RuntimeException | Error e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                release(stripe, key, mine);
+            }
+            return;
+        }
+
+        Object[] result = new Object[1];
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                mine.complete(result[0]);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                // Rolled back, or the work failed: never leave waiters hanging
+                mine.completeExceptionally(new IllegalStateException(
+                        status == STATUS_COMMITTED ? "Abandoned" : "First execution rolled back"));
+                release(stripe, key, mine);
+            }
+        });
+        result[0] = work.get();
+    }
+
+    /**
+     * Start the asynchronous work for a key, or, if it is already running, hand its result to the
+     * follower once it completes. The key stays registered until the work's future completes, so
+     * the work should commit before completing it. A duplicate fails with the first copy, and a
+     * null result is not handed over.
+     *
+     * @return the work's future, or the follower's, completing after the result was handed over
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CompletableFuture<V> executeAsync(String key, Supplier<CompletableFuture<V>> work,
+                                                 Consumer<V> follower) {
+        Map<String, CompletableFuture<Object>> stripe = stripe(key);
+        CompletableFuture<Object> running;
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        synchronized (stripe) {
+            running = stripe.putIfAbsent(key, mine);
+        }
+
+        if (running != null) {
+            return running.thenApply(result -> {
+                if (result != null) {
+                    follower.accept((V) result);
+                }
+                return (V) result;
+            });
+        }
+
+        CompletableFuture<V> result;
+        try {
+            result = work.get();
+        } catch (RuntimeException | Error e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((value, error) -> {
+            release(stripe, key, mine);
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(value);
+            }
+        });
+    }
+
+    /**
+     * Number of keys currently registered
+     */
+    public int inFlight() {
+        int count = 0;
+        for (Map<String, CompletableFuture<Object>> stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of duplicates currently waiting for a result
+     */
+    int waiting() {
+        return waiting.get();
+    }
+
+    private static void release(Map<String, CompletableFuture<Object>> stripe, String key,
+                                CompletableFuture<Object> mine) {
+        synchronized (stripe) {
+            stripe.remove(key, mine);
+        }
+    }
+
+    private Map<String, CompletableFuture<Object>> stripe(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+}
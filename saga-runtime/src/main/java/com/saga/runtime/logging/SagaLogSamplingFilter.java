@@ -0,0 +1,62 @@
+package com.saga.runtime.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Keeps the full INFO/DEBUG trail of a sampled subset of sagas and drops it for the rest.
+ * <p>
+ * The decision is a hash of the {@code orderId} baggage field, which every service sees
+ * for the same saga, so a sampled saga is logged end to end across all four services.
+ * WARN and ERROR always pass, as does anything logged outside a saga. Runs before the
+ * event is built, so a dropped statement costs no formatting or allocation.
+ */
+public class SagaLogSamplingFilter extends TurboFilter {
+
+    public static final String ORDER_ID_KEY = "orderId";
+
+    private static final int SCALE = 10_000;
+
+    private String loggerPrefix = "com.saga";
+    private int threshold = SCALE;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.WARN) || threshold >= SCALE
+                || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+
+        String orderId = MDC.get(ORDER_ID_KEY);
+        if (orderId == null) {
+            return FilterReply.NEUTRAL;
+        }
+        return isSampled(orderId, threshold) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    /**
+     * Whether a saga falls in the sampled fraction; identical in every service
+     */
+    static boolean isSampled(String orderId, int threshold) {
+        int h = orderId.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return Math.floorMod(h, SCALE) < threshold;
+    }
+
+    /**
+     * Fraction of sagas whose below-WARN logs are kept, between 0.0 and 1.0
+     */
+    public void setSampleRate(double sampleRate) {
+        this.threshold = (int) Math.round(Math.clamp(sampleRate, 0.0, 1.0) * SCALE);
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+}
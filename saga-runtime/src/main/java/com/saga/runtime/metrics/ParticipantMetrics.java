@@ -0,0 +1,95 @@
+package com.saga.runtime.metrics;
+
+import com.saga.runtime.startup.StartupTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Micrometer instrumentation of a saga participant, for the commands it handles and the
+ * events it publishes. Each participant declares one with its own message classes.
+ * <p>
+ * Meters are registered up front and looked up by message class, so recording on the
+ * listener path does not allocate. A message class the participant did not declare is
+ * rejected with an {@link IllegalArgumentException} naming it.
+ * <ul>
+ *     <li>{@code saga.commands.received{command}} / {@code saga.events.published{event}} - throughput</li>
+ *     <li>{@code saga.command.handle.duration{command}} - listener processing time</li>
+ *     <li>{@code saga.commands.coalesced{command}} - duplicates that joined a copy already in flight</li>
+ * </ul>
+ */
+public class ParticipantMetrics {
+
+    private final Map<Class<?>, Counter> commandCounters;
+    private final Map<Class<?>, Counter> eventCounters;
+    private final Map<Class<?>, Timer> handleTimers;
+    private final Map<Class<?>, Counter> coalescedCounters;
+    private final StartupTimer startupTimer;
+
+    public ParticipantMetrics(MeterRegistry meterRegistry, StartupTimer startupTimer,
+                              List<Class<?>> commands, List<Class<?>> events) {
+        this.startupTimer = startupTimer;
+        this.commandCounters = commands.stream().collect(Collectors.toUnmodifiableMap(Function.identity(),
+                type -> Counter.builder("saga.commands.received")
+                        .tag("command", type.getSimpleName())
+                        .register(meterRegistry)));
+        this.eventCounters = events.stream().collect(Collectors.toUnmodifiableMap(Function.identity(),
+                type -> Counter.builder("saga.events.published")
+                        .tag("event", type.getSimpleName())
+                        .register(meterRegistry)));
+        this.handleTimers = commands.stream().collect(Collectors.toUnmodifiableMap(Function.identity(),
+                type -> Timer.builder("saga.command.handle.duration")
+                        .description("Time spent handling a saga command in the listener")
+                        .tag("command", type.getSimpleName())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)));
+        this.coalescedCounters = commands.stream().collect(Collectors.toUnmodifiableMap(Function.identity(),
+                type -> Counter.builder("saga.commands.coalesced")
+                        .description("Duplicate commands that waited for the copy already in flight instead of running")
+                        .tag("command", type.getSimpleName())
+                        .register(meterRegistry)));
+    }
+
+    /**
+     * Count a command received from the orchestrator
+     */
+    public void commandReceived(Object command) {
+        meter(commandCounters, command).increment();
+    }
+
+    /**
+     * Record how long handling a command took, measured with {@link System#nanoTime()}
+     */
+    public void commandHandled(Object command, long startNanos) {
+        meter(handleTimers, command).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        startupTimer.messageHandled();
+    }
+
+    /**
+     * Count a duplicate command coalesced with the copy already in flight
+     */
+    public void commandCoalesced(Object command) {
+        meter(coalescedCounters, command).increment();
+    }
+
+    /**
+     * Count an event published to the orchestrator
+     */
+    public void eventPublished(Object event) {
+        meter(eventCounters, event).increment();
+    }
+
+    private static <M> M meter(Map<Class<?>, M> meters, Object message) {
+        M meter = meters.get(message.getClass());
+        if (meter == null) {
+            throw new IllegalArgumentException(message.getClass().getSimpleName() + " is not declared in the participant's metrics");
+        }
+        return meter;
+    }
+}
@@ -0,0 +1,27 @@
+package com.saga.runtime.startup;
+
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.util.Arrays;
+
+/**
+ * The fast-startup profile initializes beans lazily, except those on the message path.
+ * <p>
+ * Listener beans, and through their dependencies everything a message touches, are still
+ * created at startup so the first message does not pay for them. Controllers, API docs and
+ * the rest are created on first use.
+ */
+@Profile("fast-startup")
+public class FastStartupConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter messagePathExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && (AnnotatedElementUtils.hasAnnotation(beanType, RabbitListener.class)
+                || Arrays.stream(beanType.getMethods()).anyMatch(method -> method.isAnnotationPresent(RabbitListener.class)));
+    }
+}
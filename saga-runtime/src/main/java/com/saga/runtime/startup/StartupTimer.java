@@ -0,0 +1,67 @@
+package com.saga.runtime.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * How long after the JVM started the service became ready and handled its first message.
+ * <p>
+ * Both are measured from the JVM start, so class loading, context refresh and warm-up are
+ * included: this is the time-to-first-message that AOT processing, the CDS archive, lazy
+ * initialization and warm-up of the fast-startup profile are meant to shorten. Each is logged
+ * once and exposed as a gauge that reads NaN until it is reached.
+ * <ul>
+ *     <li>{@code saga.startup.ready} - JVM start to application ready</li>
+ *     <li>{@code saga.startup.first-message} - JVM start to the first handled message</li>
+ * </ul>
+ */
+@Slf4j
+public class StartupTimer {
+
+    private final AtomicLong readyMillis = new AtomicLong(-1);
+    private final AtomicLong firstMessageMillis = new AtomicLong(-1);
+
+    public StartupTimer(MeterRegistry meterRegistry) {
+        TimeGauge.builder("saga.startup.ready", readyMillis, TimeUnit.MILLISECONDS, StartupTimer::valueOrNaN)
+                .description("Time from JVM start until the application was ready")
+                .register(meterRegistry);
+        TimeGauge.builder("saga.startup.first-message", firstMessageMillis, TimeUnit.MILLISECONDS, StartupTimer::valueOrNaN)
+                .description("Time from JVM start until the first message was handled")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        readyMillis.set(uptime);
+        log.info("Ready to take messages {}", kv("sinceJvmStartMs", uptime));
+    }
+
+    /**
+     * Called for every handled message; only the first is recorded
+     */
+    public void messageHandled() {
+        if (firstMessageMillis.get() >= 0) {
+            return;
+        }
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (firstMessageMillis.compareAndSet(-1, uptime)) {
+            log.info("First message handled {} {}", kv("sinceJvmStartMs", uptime),
+                    kv("sinceReadyMs", readyMillis.get() < 0 ? -1 : uptime - readyMillis.get()));
+        }
+    }
+
+    private static double valueOrNaN(AtomicLong millis) {
+        long value = millis.get();
+        return value < 0 ? Double.NaN : value;
+    }
+}
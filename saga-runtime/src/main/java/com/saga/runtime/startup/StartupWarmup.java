@@ -0,0 +1,83 @@
+package com.saga.runtime.startup;
+
+import com.saga.contracts.amqp.ConverterWarmup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Warms the message path up before the listeners take their first message.
+ * <p>
+ * A service started during a peak would otherwise handle its first messages in the interpreter,
+ * with the codecs and Hibernate's query path not yet compiled. When saga.startup.warmup.enabled
+ * is set, this converts a message of every saga contract in and out iterations times and runs
+ * each of the service's {@link WarmupTask}s queries times. It runs in the lifecycle phase just
+ * before the listener containers, which therefore start only once it is done.
+ */
+@Slf4j
+public class StartupWarmup implements SmartLifecycle {
+
+    /**
+     * Listener containers start in the last phase
+     */
+    static final int PHASE = Integer.MAX_VALUE - 1;
+
+    private final MessageConverter messageConverter;
+    private final ObjectProvider<WarmupTask> tasks;
+    private final boolean enabled;
+    private final int iterations;
+    private final int queries;
+    private volatile boolean running;
+
+    public StartupWarmup(MessageConverter messageConverter,
+                         ObjectProvider<WarmupTask> tasks,
+                         @Value("${saga.startup.warmup.enabled:false}") boolean enabled,
+                         @Value("${saga.startup.warmup.iterations:2000}") int iterations,
+                         @Value("${saga.startup.warmup.queries:200}") int queries) {
+        this.messageConverter = messageConverter;
+        this.tasks = tasks;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.queries = queries;
+    }
+
+    @Override
+    public void start() {
+        if (enabled) {
+            long startNanos = System.nanoTime();
+            int messages = ConverterWarmup.run(messageConverter, iterations);
+            List<WarmupTask> warmupTasks = tasks.orderedStream().toList();
+            for (WarmupTask task : warmupTasks) {
+                for (int i = 0; i < queries; i++) {
+                    task.run();
+                }
+            }
+            log.info("Warmed up the message path {} {} {} {}", kv("messages", messages),
+                    kv("tasks", warmupTasks.size()), kv("queries", queries),
+                    kv("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
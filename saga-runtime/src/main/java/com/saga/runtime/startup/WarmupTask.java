@@ -0,0 +1,12 @@
+package com.saga.runtime.startup;
+
+/**
+ * Service-specific work on the message path that {@link StartupWarmup} runs before the listeners
+ * start, typically the listener's repository lookup for an order that does not exist. It must
+ * neither store nor send anything.
+ */
+@FunctionalInterface
+public interface WarmupTask {
+
+    void run();
+}
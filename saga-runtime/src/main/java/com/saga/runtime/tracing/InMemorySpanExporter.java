@@ -0,0 +1,96 @@
+package com.saga.runtime.tracing;
+
+import io.micrometer.tracing.exporter.FinishedSpan;
+import io.micrometer.tracing.exporter.SpanReporter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the most recent finished spans of this service in memory, grouped by trace.
+ * The orchestrator holds the saga-wide critical path; this view shows what happened
+ * inside a participant's step of a given trace. Off where saga.tracing.exporter.enabled is
+ * false, i.e. in the orchestrator, which keeps its spans with its own exporter.
+ */
+public class InMemorySpanExporter implements SpanReporter {
+
+    public static final String ORDER_ID_TAG = "saga.order.id";
+
+    private final Map<String, List<SpanRecord>> spansByTrace;
+    private final Map<String, String> traceByOrder;
+    private final int maxSpansPerTrace;
+
+    public InMemorySpanExporter(int maxTraces, int maxSpansPerTrace) {
+        this.spansByTrace = Collections.synchronizedMap(boundedMap(maxTraces));
+        this.traceByOrder = Collections.synchronizedMap(boundedMap(maxTraces));
+        this.maxSpansPerTrace = maxSpansPerTrace;
+    }
+
+    @Override
+    public void report(FinishedSpan span) {
+        SpanRecord record = new SpanRecord(
+                span.getTraceId(),
+                span.getSpanId(),
+                span.getParentId(),
+                span.getName(),
+                span.getKind() == null ? null : span.getKind().name(),
+                toMicros(span.getStartTimestamp()),
+                toMicros(span.getEndTimestamp()),
+                Map.copyOf(span.getTags())
+        );
+
+        List<SpanRecord> spans = spansByTrace.computeIfAbsent(span.getTraceId(), id -> new ArrayList<>());
+        synchronized (spans) {
+            if (spans.size() < maxSpansPerTrace) {
+                spans.add(record);
+            }
+        }
+
+        String orderId = span.getTags().get(ORDER_ID_TAG);
+        if (orderId != null) {
+            traceByOrder.putIfAbsent(orderId, span.getTraceId());
+        }
+    }
+
+    /**
+     * Spans of a trace ordered by start time
+     */
+    public List<SpanRecord> getTrace(String traceId) {
+        List<SpanRecord> spans = spansByTrace.get(traceId);
+        if (spans == null) {
+            return List.of();
+        }
+        List<SpanRecord> copy;
+        synchronized (spans) {
+            copy = new ArrayList<>(spans);
+        }
+        copy.sort(Comparator.comparingLong(SpanRecord::getStartMicros));
+        return copy;
+    }
+
+    /**
+     * Spans recorded for an order, empty if none are retained
+     */
+    public List<SpanRecord> getTraceForOrder(String orderId) {
+        String traceId = traceByOrder.get(orderId);
+        return traceId == null ? List.of() : getTrace(traceId);
+    }
+
+    private static long toMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000L;
+    }
+
+    private static <V> Map<String, V> boundedMap(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package com.saga.runtime.tracing;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpanRecord {
+    private String traceId;
+    private String spanId;
+    private String parentId;
+    private String name;
+    private String kind;
+    private long startMicros;
+    private long endMicros;
+    private Map<String, String> tags;
+}
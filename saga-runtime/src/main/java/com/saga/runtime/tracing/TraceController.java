@@ -0,0 +1,46 @@
+package com.saga.runtime.tracing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Spans kept by {@link InMemorySpanExporter}. Picked up by the services' component scan; off
+ * where saga.tracing.exporter.enabled is false, as the orchestrator serves its own.
+ */
+@RestController
+@RequestMapping("/api/traces")
+@ConditionalOnProperty(name = "saga.tracing.exporter.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class TraceController {
+
+    private final InMemorySpanExporter spanExporter;
+
+    /**
+     * Get spans of a trace recorded by this service
+     */
+    @GetMapping("/{traceId}")
+    public ResponseEntity<List<SpanRecord>> getTrace(@PathVariable String traceId) {
+        return toResponse(spanExporter.getTrace(traceId));
+    }
+
+    /**
+     * Get spans recorded by this service for an order
+     */
+    @GetMapping("/orders/{orderId}")
+    public ResponseEntity<List<SpanRecord>> getTraceForOrder(@PathVariable String orderId) {
+        return toResponse(spanExporter.getTraceForOrder(orderId));
+    }
+
+    private static ResponseEntity<List<SpanRecord>> toResponse(List<SpanRecord> spans) {
+        return spans.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(spans);
+    }
+}
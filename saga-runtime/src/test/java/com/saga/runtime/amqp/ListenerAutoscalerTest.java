@@ -0,0 +1,216 @@
+package com.saga.runtime.amqp;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.impl.AMQImpl;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ListenerAutoscalerTest {
+
+    private static final String QUEUE = "test.queue";
+    private static final String LISTENER = "test-listener";
+
+    private final ListenerAutoscaler.Bounds bounds = new ListenerAutoscaler.Bounds(1, 10, 1, 50, 2000, 200, 3);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+    private final Channel channel = mock(Channel.class);
+    private final Map<String, Consumer> consumers = new ConcurrentHashMap<>();
+    private final List<MessageListenerContainer> containers = new ArrayList<>();
+    /** Held for the whole test: the gauges only reference it weakly */
+    private ListenerAutoscaler autoscaler;
+
+    @Test
+    void addsConsumersToDrainTheBacklogWithinTheTarget() {
+        // 100 messages at 100 ms each need 5 consumers to drain in 2 s
+        ListenerAutoscaler.Decision decision = ListenerAutoscaler.decide(bounds, 1, 1, 100, 100, 0);
+
+        assertThat(decision.consumers()).isEqualTo(5);
+        assertThat(decision.prefetch()).isEqualTo(2);
+
+        // Never past the maximum
+        assertThat(ListenerAutoscaler.decide(bounds, 5, 2, 10_000, 100, 0).consumers()).isEqualTo(10);
+    }
+
+    @Test
+    void raisesPrefetchForFastHandlersAndLowersItForSlowOnes() {
+        assertThat(ListenerAutoscaler.decide(bounds, 2, 1, 0, 2, 0).prefetch()).isEqualTo(50);
+        assertThat(ListenerAutoscaler.decide(bounds, 2, 50, 0, 1500, 0).prefetch()).isEqualTo(1);
+        // Nothing handled since the last sample: prefetch is left alone
+        assertThat(ListenerAutoscaler.decide(bounds, 2, 7, 0, -1, 0).prefetch()).isEqualTo(7);
+        // Close enough to the target: not worth restarting the consumers
+        assertThat(ListenerAutoscaler.decide(bounds, 2, 30, 0, 8, 0).prefetch()).isEqualTo(30);
+        assertThat(ListenerAutoscaler.decide(bounds, 2, 30, 0, 4, 0).prefetch()).isEqualTo(50);
+    }
+
+    @Test
+    void givesBackOneConsumerOnlyAfterTheQueueStaysEmpty() {
+        assertThat(ListenerAutoscaler.decide(bounds, 4, 1, 0, -1, 2).consumers()).isEqualTo(4);
+        assertThat(ListenerAutoscaler.decide(bounds, 4, 1, 0, -1, 3).consumers()).isEqualTo(3);
+        assertThat(ListenerAutoscaler.decide(bounds, 1, 1, 0, -1, 3).consumers()).isEqualTo(1);
+    }
+
+    @Test
+    void newPrefetchRestartsTheConsumersWithIt() throws Exception {
+        SimpleMessageListenerContainer container = container();
+        container.start();
+        try {
+            awaitConsumers(1);
+            // 100 messages at 100 ms each: 5 consumers, each buffering 2
+            when(amqpAdmin.getQueueInfo(QUEUE)).thenReturn(new QueueInformation(QUEUE, 100, 1));
+            recordHandled(10, 100);
+
+            autoscaler(1).sample();
+
+            awaitConsumers(5);
+            verify(channel).basicQos(1, false);
+            // The running consumer was restarted and the new ones started with the new prefetch
+            verify(channel, times(5)).basicQos(2, false);
+            awaitActiveConsumers(container, 5);
+            assertThat(meterRegistry.get("saga.listener.prefetch").tag("listener", LISTENER).gauge().value())
+                    .isEqualTo(2);
+            assertThat(meterRegistry.get("saga.listener.scaling.decisions").tag("action", "prefetch")
+                    .counter().count()).isEqualTo(1);
+        } finally {
+            container.stop();
+        }
+    }
+
+    @Test
+    void prefetchOutsideTheBoundsIsBroughtInOnTheFirstSample() throws Exception {
+        SimpleMessageListenerContainer container = container();
+        container.setPrefetchCount(250);
+        container.start();
+        try {
+            awaitConsumers(1);
+            when(amqpAdmin.getQueueInfo(QUEUE)).thenReturn(new QueueInformation(QUEUE, 0, 1));
+
+            autoscaler(250).sample();
+
+            awaitQos(50);
+            verify(channel).basicQos(250, false);
+            assertThat(container.getActiveConsumerCount()).isEqualTo(1);
+        } finally {
+            container.stop();
+        }
+    }
+
+    private ListenerAutoscaler autoscaler(int initialPrefetch) {
+        RabbitListenerEndpointRegistry registry = mock(RabbitListenerEndpointRegistry.class);
+        when(registry.getListenerContainers()).thenReturn(containers);
+        autoscaler = new ListenerAutoscaler(registry, amqpAdmin, meterRegistry, false, 5000,
+                1, 10, 1, 50, 2000, 200, 3, initialPrefetch);
+        return autoscaler;
+    }
+
+    /**
+     * A container on a broker stubbed at the channel, which starts and cancels consumers
+     */
+    private SimpleMessageListenerContainer container() throws Exception {
+        AtomicInteger tags = new AtomicInteger();
+        when(channel.isOpen()).thenReturn(true);
+        when(channel.queueDeclarePassive(QUEUE)).thenReturn(new AMQImpl.Queue.DeclareOk(QUEUE, 0, 0));
+        when(channel.basicConsume(eq(QUEUE), anyBoolean(), anyString(), anyBoolean(), anyBoolean(), anyMap(),
+                any(Consumer.class))).thenAnswer(invocation -> {
+            String tag = "consumer-" + tags.incrementAndGet();
+            Consumer consumer = invocation.getArgument(6);
+            consumers.put(tag, consumer);
+            consumer.handleConsumeOk(tag);
+            return tag;
+        });
+        doAnswer(invocation -> {
+            String tag = invocation.getArgument(0);
+            Consumer consumer = consumers.remove(tag);
+            if (consumer != null) {
+                consumer.handleCancelOk(tag);
+            }
+            return null;
+        }).when(channel).basicCancel(anyString());
+
+        Connection connection = mock(Connection.class);
+        when(connection.isOpen()).thenReturn(true);
+        when(connection.createChannel(anyBoolean())).thenReturn(channel);
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(connectionFactory.createConnection()).thenReturn(connection);
+
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueueNames(QUEUE);
+        container.setListenerId(LISTENER);
+        container.setPrefetchCount(1);
+        container.setMessageListener(message -> {
+        });
+        container.afterPropertiesSet();
+        containers.add(container);
+        return container;
+    }
+
+    private void recordHandled(int messages, long millis) {
+        Timer timer = Timer.builder(ListenerAutoscaler.LISTENER_TIMER)
+                .tag("spring.rabbit.listener.id", LISTENER)
+                .register(meterRegistry);
+        for (int i = 0; i < messages; i++) {
+            timer.record(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void awaitConsumers(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (consumers.size() != count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(consumers).hasSize(count);
+    }
+
+    /**
+     * The container counts a restarted consumer until its thread has exited, which can lag
+     * behind the broker-side cancel
+     */
+    private static void awaitActiveConsumers(SimpleMessageListenerContainer container, int count)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (container.getActiveConsumerCount() != count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(container.getActiveConsumerCount()).isEqualTo(count);
+    }
+
+    private void awaitQos(int prefetch) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            try {
+                verify(channel).basicQos(prefetch, false);
+                return;
+            } catch (AssertionError e) {
+                Thread.sleep(10);
+            }
+        }
+        verify(channel).basicQos(prefetch, false);
+    }
+}
@@ -0,0 +1,66 @@
+package com.saga.runtime.fault;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saga.runtime.fault.FaultInjectorTest.Step;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FaultControllerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FaultInjector<Step> injector = new FaultInjector<>(Step.class, List.of(), new SimpleMeterRegistry());
+
+    @Test
+    void readsRulesAsTheInjectorsOwnSteps() throws Exception {
+        FaultController controller = controller(Map.of("faultInjector", injector));
+
+        controller.replaceRules(objectMapper.readTree("""
+                [{"step": "PREPARE", "pizzaType": "Hawaiian", "errorRate": 1, "error": "DECLINE"}]
+                """));
+
+        assertThat(injector.rules()).singleElement()
+                .satisfies(rule -> assertThat(rule.step()).isEqualTo(Step.PREPARE));
+        assertThat(controller.resetRules().getBody()).isEmpty();
+    }
+
+    @Test
+    void invalidRuleIsABadRequest() throws Exception {
+        FaultController controller = controller(Map.of("faultInjector", injector));
+
+        assertThatThrownBy(() -> controller.replaceRules(objectMapper.readTree("""
+                [{"step": "CANCEL", "errorRate": 1, "error": "DECLINE"}]
+                """)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> controller.replaceRules(objectMapper.readTree("""
+                [{"step": "DELIVER"}]
+                """)))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(injector.rules()).isEmpty();
+    }
+
+    @Test
+    void serviceWithoutFaultInjectionAnswersNotFound() {
+        FaultController controller = controller(Map.of());
+
+        assertThatThrownBy(controller::getRules)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    @SuppressWarnings("unchecked")
+    private FaultController controller(Map<String, Object> beans) {
+        ObjectProvider<?> injectors = new StaticListableBeanFactory(beans).getBeanProvider(FaultInjector.class);
+        return new FaultController((ObjectProvider<FaultInjector<?>>) injectors, objectMapper);
+    }
+}
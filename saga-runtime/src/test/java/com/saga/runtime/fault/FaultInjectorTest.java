@@ -0,0 +1,126 @@
+package com.saga.runtime.fault;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class FaultInjectorTest {
+
+    private static final TypeReference<List<FaultRule<Step>>> RULES = new TypeReference<>() {
+    };
+    private static final TypeReference<FaultRule<Step>> RULE = new TypeReference<>() {
+    };
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FaultInjector<Step> injector = new FaultInjector<>(Step.class, List.of(new FaultRule<>(Step.PREPARE,
+            null, null, new LatencyDistribution.Fixed(2000), 0, null, 0)), meterRegistry);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void firstMatchingRuleApplies() {
+        injector.replace(List.of(
+                new FaultRule<>(Step.PREPARE, "Hawaiian", null, null, 1, FaultType.DECLINE, 0),
+                new FaultRule<>(Step.PREPARE, null, "CUST7", null, 1, FaultType.EXCEPTION, 0),
+                new FaultRule<>(Step.PREPARE, null, null, null, 0, null, 0)));
+
+        assertThat(injector.apply(Step.PREPARE, "hawaiian", "CUST7")).isFalse();
+        assertThatThrownBy(() -> injector.apply(Step.PREPARE, "Margherita", "CUST7"))
+                .isInstanceOfSatisfying(InjectedFaultException.class,
+                        e -> assertThat(e.getType()).isEqualTo(FaultType.EXCEPTION));
+        assertThat(injector.apply(Step.PREPARE, "Margherita", "CUST1")).isTrue();
+        assertThat(injector.apply(Step.CANCEL, "Hawaiian", null)).isTrue();
+        assertThat(meterRegistry.get("saga.faults.injected").tag("step", "PREPARE").tag("fault", "DECLINE")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void timeoutHangsThenFails() {
+        injector.replace(List.of(new FaultRule<>(Step.CANCEL, null, null,
+                new LatencyDistribution.Fixed(20), 1, FaultType.TIMEOUT, 50)));
+
+        long startNanos = System.nanoTime();
+        assertThatThrownBy(() -> injector.apply(Step.CANCEL, null, null))
+                .isInstanceOfSatisfying(InjectedFaultException.class,
+                        e -> assertThat(e.getType()).isEqualTo(FaultType.TIMEOUT));
+        assertThat(System.nanoTime() - startNanos).isGreaterThanOrEqualTo(70_000_000L);
+
+        assertThat(injector.reset()).singleElement()
+                .satisfies(rule -> assertThat(rule.latency()).isEqualTo(new LatencyDistribution.Fixed(2000)));
+    }
+
+    @Test
+    void distributionsFollowTheirShape() {
+        SplittableRandom random = new SplittableRandom(7);
+
+        long[] lognormal = sample(new LatencyDistribution.LogNormal(100, 0.5), random);
+        assertThat(percentile(lognormal, 50)).isCloseTo(100, within(5L));
+        assertThat(percentile(lognormal, 99)).isCloseTo(320, within(25L));
+
+        long[] recorded = sample(new LatencyDistribution.Recorded(List.of(
+                new LatencyDistribution.Recorded.Percentile(50, 100),
+                new LatencyDistribution.Recorded.Percentile(90, 500),
+                new LatencyDistribution.Recorded.Percentile(100, 2000))), random);
+        assertThat(percentile(recorded, 25)).isEqualTo(100);
+        assertThat(percentile(recorded, 70)).isCloseTo(300, within(10L));
+        assertThat(percentile(recorded, 95)).isCloseTo(1250, within(30L));
+        assertThat(LongStream.of(recorded).max().orElseThrow()).isLessThanOrEqualTo(2000);
+    }
+
+    @Test
+    void rulesReadFromJsonAreValidated() throws Exception {
+        List<FaultRule<Step>> rules = objectMapper.readValue("""
+                [{"step": "PREPARE", "pizzaType": "BBQ Chicken",
+                  "latency": {"type": "lognormal", "medianMillis": 1500, "sigma": 0.4},
+                  "errorRate": 0.1, "error": "TIMEOUT", "timeoutMillis": 15000}]
+                """, RULES);
+        assertThat(rules).containsExactly(new FaultRule<>(Step.PREPARE, "BBQ Chicken", null,
+                new LatencyDistribution.LogNormal(1500, 0.4), 0.1, FaultType.TIMEOUT, 15000));
+
+        assertThatThrownBy(() -> objectMapper.readValue("""
+                {"step": "CANCEL", "errorRate": 0.5, "error": "DECLINE"}
+                """, RULE))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class)
+                .hasRootCauseMessage("CANCEL is an undo step and is never declined");
+        assertThatThrownBy(() -> objectMapper.readValue("""
+                {"step": "PREPARE", "latency": {"type": "recorded", "percentiles": [{"percentile": 50, "millis": 10}]}}
+                """, RULE))
+                .hasRootCauseMessage("Recorded latency must end at the 100th percentile");
+    }
+
+    enum Step implements InjectableStep {
+
+        PREPARE("Kitchen capacity full"),
+        CANCEL(null);
+
+        private final String declineReason;
+
+        Step(String declineReason) {
+            this.declineReason = declineReason;
+        }
+
+        @Override
+        public String declineReason() {
+            return declineReason;
+        }
+    }
+
+    private static long[] sample(LatencyDistribution distribution, SplittableRandom random) {
+        long[] samples = LongStream.generate(() -> distribution.sampleMillis(random)).limit(100_000).toArray();
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) (sorted.length * percentile / 100)];
+    }
+}
@@ -0,0 +1,39 @@
+package com.saga.runtime.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void idsAreVersion7AndCarryTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID id = TimeOrderedIdGenerator.next();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    void binaryFormIsStrictlyIncreasing() {
+        byte[] previous = bytes(TimeOrderedIdGenerator.next());
+        for (int i = 0; i < 100_000; i++) {
+            byte[] current = bytes(TimeOrderedIdGenerator.next());
+            assertThat(Arrays.compareUnsigned(current, previous)).isPositive();
+            previous = current;
+        }
+    }
+
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -0,0 +1,174 @@
+package com.saga.runtime.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight(4, 5000);
+
+    @Test
+    void duplicatesWaitForTheFirstExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        List<String> handedOver = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> first = pool.submit(() -> singleFlight.execute("order-1", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "PaymentProcessed";
+            }, handedOver::add));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<?>> duplicates = List.of(
+                    pool.submit(() -> singleFlight.execute("order-1", () -> "again-" + executions.incrementAndGet(), handedOver::add)),
+                    pool.submit(() -> singleFlight.execute("order-1", () -> "again-" + executions.incrementAndGet(), handedOver::add)));
+            // A different order is not held up by the one in flight
+            singleFlight.execute("order-2", executions::incrementAndGet, result -> handedOver.add("unexpected"));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (singleFlight.waiting() < 2 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            for (Future<?> duplicate : duplicates) {
+                duplicate.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(executions).hasValue(2);
+        assertThat(handedOver).containsExactly("PaymentProcessed", "PaymentProcessed");
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void runsAgainOnceTheFirstExecutionIsDone() {
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute("order-3", executions::incrementAndGet, result -> { });
+        singleFlight.execute("order-3", executions::incrementAndGet, result -> { });
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void asyncDuplicatesAttachToTheFirstExecution() {
+        AtomicInteger executions = new AtomicInteger();
+        List<String> handedOver = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> authorization = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.executeAsync("order-4", () -> {
+            executions.incrementAndGet();
+            return authorization;
+        }, handedOver::add);
+        CompletableFuture<String> duplicate = singleFlight.executeAsync("order-4", () -> {
+            executions.incrementAndGet();
+            return CompletableFuture.completedFuture("again");
+        }, handedOver::add);
+        assertThat(duplicate).isNotDone();
+
+        authorization.complete("PaymentProcessed");
+
+        assertThat(first.join()).isEqualTo("PaymentProcessed");
+        assertThat(duplicate.join()).isEqualTo("PaymentProcessed");
+        assertThat(executions).hasValue(1);
+        assertThat(handedOver).containsExactly("PaymentProcessed");
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void duplicatesGetTheResultOnlyOnceTheFirstTransactionCommits() throws Exception {
+        List<String> handedOver = new CopyOnWriteArrayList<>();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            TransactionSynchronizationManager.initSynchronization();
+            singleFlight.execute("order-5", () -> "PaymentProcessed", handedOver::add);
+
+            Future<?> duplicate = pool.submit(() ->
+                    singleFlight.execute("order-5", () -> "again", handedOver::add));
+            awaitWaiting(1);
+            assertThat(handedOver).isEmpty();
+
+            commit(TransactionSynchronization.STATUS_COMMITTED);
+            duplicate.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(handedOver).containsExactly("PaymentProcessed");
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void duplicatesRunTheWorkThemselvesWhenTheFirstTransactionRollsBack() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        List<String> handedOver = new CopyOnWriteArrayList<>();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            TransactionSynchronizationManager.initSynchronization();
+            singleFlight.execute("order-6", () -> "first-" + executions.incrementAndGet(), handedOver::add);
+
+            Future<?> duplicate = pool.submit(() -> singleFlight.execute("order-6",
+                    () -> "again-" + executions.incrementAndGet(), handedOver::add));
+            awaitWaiting(1);
+
+            commit(TransactionSynchronization.STATUS_ROLLED_BACK);
+            duplicate.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(executions).hasValue(2);
+        assertThat(handedOver).isEmpty();
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    /**
+     * End the transaction the leader ran in the way the transaction manager would
+     */
+    private static void commit(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+
+    private void awaitWaiting(int duplicates) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.waiting() < duplicates && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(singleFlight.waiting()).isEqualTo(duplicates);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.saga.runtime.metrics;
+
+import com.saga.contracts.command.PreparePizzaCommand;
+import com.saga.contracts.command.RefundPaymentCommand;
+import com.saga.contracts.event.PizzaPreparedEvent;
+import com.saga.runtime.startup.StartupTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParticipantMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ParticipantMetrics metrics = new ParticipantMetrics(meterRegistry, new StartupTimer(meterRegistry),
+            List.of(PreparePizzaCommand.class), List.of(PizzaPreparedEvent.class));
+
+    @Test
+    void recordsByMessageClass() {
+        PreparePizzaCommand command = new PreparePizzaCommand();
+        metrics.commandReceived(command);
+        metrics.commandHandled(command, System.nanoTime());
+        metrics.eventPublished(new PizzaPreparedEvent());
+
+        assertThat(meterRegistry.get("saga.commands.received").tag("command", "PreparePizzaCommand")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("saga.command.handle.duration").tag("command", "PreparePizzaCommand")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("saga.events.published").tag("event", "PizzaPreparedEvent")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void undeclaredMessageIsNamed() {
+        assertThatThrownBy(() -> metrics.commandReceived(new RefundPaymentCommand()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("RefundPaymentCommand");
+    }
+}
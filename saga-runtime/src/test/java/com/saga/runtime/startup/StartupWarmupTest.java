@@ -0,0 +1,47 @@
+package com.saga.runtime.startup;
+
+import com.saga.contracts.amqp.SagaMessageConverter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StartupWarmupTest {
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicInteger plans = new AtomicInteger();
+    private final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of(
+            "lookup", (WarmupTask) lookups::incrementAndGet,
+            "planning", (WarmupTask) plans::incrementAndGet));
+
+    @Test
+    void runsEveryServiceTaskBeforeTheListenersStart() {
+        StartupWarmup warmup = warmup(true);
+
+        warmup.start();
+
+        assertThat(lookups).hasValue(5);
+        assertThat(plans).hasValue(5);
+        assertThat(warmup.isRunning()).isTrue();
+        assertThat(warmup.getPhase()).isEqualTo(Integer.MAX_VALUE - 1);
+    }
+
+    @Test
+    void doesNothingUnlessEnabled() {
+        StartupWarmup warmup = warmup(false);
+
+        warmup.start();
+
+        assertThat(lookups).hasValue(0);
+        assertThat(plans).hasValue(0);
+        assertThat(warmup.isRunning()).isTrue();
+    }
+
+    private StartupWarmup warmup(boolean enabled) {
+        return new StartupWarmup(new SagaMessageConverter(), beanFactory.getBeanProvider(WarmupTask.class),
+                enabled, 10, 5);
+    }
+}